@@ -0,0 +1,27 @@
+/*  -------------------------------------
+	-- DDL : Data Definition Language
+	-- BASE DE DONNEES : MARIADB
+	-- SCHEMA OR CATALOG : JWTAUTHWEB 
+	-------------------------------------
+*/
+
+/*  --------------------------------------------------
+	-- Scripts de Création des jetons d'actualisation
+	--------------------------------------------------
+*/
+
+-- Création de la table T_REFRESH_TOKENS : une ligne par famille de jetons d'actualisation (session de l'utilisateur)
+CREATE TABLE IF NOT EXISTS T_REFRESH_TOKENS (
+	FAMILY_ID VARCHAR(32) NOT NULL,
+	USER_NAME VARCHAR(80) NOT NULL,
+	TOKEN_HASH VARCHAR(64) NOT NULL,
+	GENERATION INT(11) NOT NULL,
+	ISSUED_AT BIGINT(20) NOT NULL,
+	EXPIRES_AT BIGINT(20) NOT NULL,
+	REVOKED BIT(1) NOT NULL,
+	OPTLOCK INT(11) NOT NULL DEFAULT '0',
+	PRIMARY KEY (FAMILY_ID)
+)engine=MyISAM;
+
+-- Index de purge des familles expirées
+CREATE INDEX IF NOT EXISTS IDX_REFRESH_TOKENS_EXPIRES_AT ON T_REFRESH_TOKENS (EXPIRES_AT);
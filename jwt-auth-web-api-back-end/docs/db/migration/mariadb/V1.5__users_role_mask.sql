@@ -0,0 +1,35 @@
+/*  -------------------------------------
+	-- DDL : Data Definition Language
+	-- BASE DE DONNEES : MARIADB
+	-- SCHEMA OR CATALOG : JWTAUTHWEB 
+	-------------------------------------
+*/
+
+/*  --------------------------------------------------
+	-- Scripts de migration des rôles des utilisateurs
+	--------------------------------------------------
+*/
+
+-- Ajout de la colonne ROLE_MASK : masque de bits des ordinaux des rôles (ROLE_USER=1, ROLE_ADMIN=2, ROLE_MODERATOR=4, ROLE_ANONYMOUS=8)
+ALTER TABLE T_USERS 
+	ADD COLUMN ROLE_MASK INT(11) NOT NULL DEFAULT '0';
+
+-- Reprise des rôles de la table USER_ROLES (une ligne par rôle et par utilisateur, ROLES étant l'ordinal du rôle)
+UPDATE T_USERS 
+	SET ROLE_MASK = (
+		SELECT COALESCE(SUM(DISTINCT CASE UR.ROLES WHEN 0 THEN 1 WHEN 1 THEN 2 WHEN 2 THEN 4 WHEN 3 THEN 8 ELSE 0 END), 0) 
+		FROM USER_ROLES UR 
+		WHERE UR.USER_ID = T_USERS.ID
+	);
+
+-- Conservation de la table USER_ROLES pendant une version, à côté de ROLE_MASK, pour permettre un retour arrière.
+-- L'application n'y écrit plus : sa clé étrangère supprime désormais en cascade les rôles des utilisateurs supprimés.
+-- La table sera supprimée par une migration ultérieure.
+ALTER TABLE USER_ROLES 
+	DROP FOREIGN KEY FKs6y4k5lgw4a4ei5lj2u2ibkh5;
+
+ALTER TABLE USER_ROLES 
+	ADD CONSTRAINT FKs6y4k5lgw4a4ei5lj2u2ibkh5 
+		FOREIGN KEY (USER_ID) 
+		REFERENCES T_USERS (ID) 
+		ON DELETE CASCADE;
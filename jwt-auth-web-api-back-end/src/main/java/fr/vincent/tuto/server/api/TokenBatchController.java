@@ -0,0 +1,138 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : TokenBatchController.java
+ * Date de création : 8 mars 2021
+ * Heure de création : 16:47:25
+ * Package : fr.vincent.tuto.server.api
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.ConstraintViolationException;
+import javax.validation.Validator;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import fr.vincent.tuto.server.model.dto.TokenRequestDTO;
+import fr.vincent.tuto.server.security.jwt.BatchTokenIssuer;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+
+/**
+ * API d'émission en lot des jetons JWT d'accès pour les comptes de service des traitements par lot. Un seul appel
+ * remplace autant de connexions (contrôle BCrypt et lecture en base) que de jetons demandés ; la réponse est
+ * transmise au fil de la signature, une ligne JSON par jeton (application/x-ndjson). Les demandes sont lues une à une :
+ * un lot qui dépasse la taille maximale est refusé dès la demande en trop, sans lire la suite du corps.
+ *
+ * @author Vincent Otchoun
+ */
+@RestController
+@RequestMapping("/api/tokens")
+@Api(value = "Emission des jetons en lot", tags = "Jetons")
+public class TokenBatchController
+{
+    //
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+
+    private static final String ACCESS_DENIED_MSG = "Le compte n'est pas autorisé à émettre des jetons en lot : ";
+
+    private final BatchTokenIssuer batchTokenIssuer;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    /**
+     * Constructeur avec paramètres pour injection des beans.
+     *
+     * @param pBatchTokenIssuer le service d'émission des jetons en lot.
+     * @param pObjectMapper     le convertisseur JSON.
+     * @param pValidator        le validateur des demandes de jetons.
+     */
+    public TokenBatchController(final BatchTokenIssuer pBatchTokenIssuer, final ObjectMapper pObjectMapper, final Validator pValidator)
+    {
+        this.batchTokenIssuer = pBatchTokenIssuer;
+        this.objectMapper = pObjectMapper;
+        this.validator = pValidator;
+    }
+
+    /**
+     * Emettre les jetons demandés, signés en parallèle et transmis dans l'ordre des demandes.
+     *
+     * @param pAuthentication le compte de service authentifié.
+     * @param pBody           le tableau JSON des demandes de jetons (sujet et portées).
+     * @return le flux des jetons émis, 400 si une demande est invalide ou si un sujet reprend le nom d'un utilisateur
+     *         ou d'un compte de service, 413 si le lot dépasse la taille maximale.
+     * @throws IOException en cas d'erreur de lecture du corps de la requête.
+     */
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE, produces = NDJSON_VALUE)
+    @ApiOperation(value = "Emettre des jetons d'accès en lot pour un compte de service")
+    public ResponseEntity<StreamingResponseBody> issueTokens(final Authentication pAuthentication, final InputStream pBody) throws IOException
+    {
+        final var client = pAuthentication.getName();
+        if (!this.batchTokenIssuer.isClient(client))
+        {
+            throw new AccessDeniedException(ACCESS_DENIED_MSG + client);
+        }
+
+        final int maxRequests = this.batchTokenIssuer.getMaxRequests();
+        final List<TokenRequestDTO> requests = new ArrayList<>();
+        final Set<ConstraintViolation<TokenRequestDTO>> violations = new HashSet<>();
+        try (var parser = this.objectMapper.getFactory().createParser(pBody))
+        {
+            if (parser.nextToken() != JsonToken.START_ARRAY)
+            {
+                return ResponseEntity.badRequest().build();
+            }
+            for (var token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken())
+            {
+                if (token != JsonToken.START_OBJECT)
+                {
+                    return ResponseEntity.badRequest().build();
+                }
+                if (requests.size() == maxRequests)
+                {
+                    return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+                }
+                final var request = this.objectMapper.readValue(parser, TokenRequestDTO.class);
+                violations.addAll(this.validator.validate(request));
+                requests.add(request);
+            }
+        }
+        catch (JsonProcessingException e)
+        {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!violations.isEmpty())
+        {
+            throw new ConstraintViolationException(violations);
+        }
+        if (requests.isEmpty() || !this.batchTokenIssuer.findRejectedSubjects(requests).isEmpty())
+        {
+            return ResponseEntity.badRequest().build();
+        }
+        final StreamingResponseBody body = output -> this.batchTokenIssuer.issue(requests, client, output);
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON_VALUE)).body(body);
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : TokenIntrospectionController.java
+ * Date de création : 8 mars 2021
+ * Heure de création : 18:24:40
+ * Package : fr.vincent.tuto.server.api
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.api;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import fr.vincent.tuto.server.security.jwt.TokenIntrospector;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+
+/**
+ * API d'introspection des jetons JWT d'accès (RFC 7662) pour les services authentifiés qui ne détiennent pas les clés
+ * de vérification. La réponse est écrite telle quelle à partir des octets conservés par le {@link TokenIntrospector}.
+ *
+ * @author Vincent Otchoun
+ */
+@RestController
+@RequestMapping("/api/tokens")
+@Api(value = "Introspection des jetons", tags = "Jetons")
+public class TokenIntrospectionController
+{
+    //
+    private final TokenIntrospector tokenIntrospector;
+
+    /**
+     * Constructeur avec paramètre pour injection du bean.
+     *
+     * @param pTokenIntrospector le service d'introspection des jetons.
+     */
+    public TokenIntrospectionController(final TokenIntrospector pTokenIntrospector)
+    {
+        this.tokenIntrospector = pTokenIntrospector;
+    }
+
+    /**
+     * Introspecter le jeton fourni.
+     *
+     * @param pToken         le jeton JWT d'accès.
+     * @param pTokenTypeHint l'indication du type de jeton (ignorée, seuls les jetons d'accès sont introspectés).
+     * @return la réponse d'introspection : {"active":false} si le jeton est invalide, expiré ou révoqué.
+     */
+    @PostMapping(value = "/introspect", consumes = MediaType.APPLICATION_FORM_URLENCODED_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @ApiOperation(value = "Introspecter un jeton d'accès (RFC 7662)")
+    public ResponseEntity<byte[]> introspect(@RequestParam("token") final String pToken,
+    @RequestParam(value = "token_type_hint", required = false) final String pTokenTypeHint)
+    {
+        return ResponseEntity.ok()//
+        .contentType(MediaType.APPLICATION_JSON)//
+        .cacheControl(CacheControl.noStore())//
+        .body(this.tokenIntrospector.introspect(pToken));
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : UserProvisioningController.java
+ * Date de création : 9 mars 2021
+ * Heure de création : 22:31:45
+ * Package : fr.vincent.tuto.server.api
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.api;
+
+import java.io.InputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.MediaType;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import fr.vincent.tuto.server.config.props.ServerSecurityProps;
+import fr.vincent.tuto.server.enumeration.RoleEnum;
+import fr.vincent.tuto.server.service.user.UserProvisioningService;
+import fr.vincent.tuto.server.util.AuthorityRegistry;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+
+/**
+ * API de création en masse des utilisateurs, réservée aux administrateurs. Le corps de la requête est lu au fil de
+ * l'eau (tableau JSON ou une valeur JSON par ligne) et le résultat de chaque utilisateur transmis dès la fin de son lot,
+ * une ligne JSON par utilisateur (application/x-ndjson). La création est exécutée de façon asynchrone avec sa propre
+ * durée maximale ({@code vot.security-props.user-provisioning.timeout-seconds}) : le délai par défaut des requêtes
+ * asynchrones de Spring MVC, prévu pour des requêtes courtes, ne s'applique pas.
+ *
+ * @author Vincent Otchoun
+ */
+@RestController
+@RequestMapping("/api/users")
+@Api(value = "Création des utilisateurs en masse", tags = "Utilisateurs")
+public class UserProvisioningController
+{
+    //
+    private static final String ACCESS_DENIED_MSG = "Le compte n'est pas autorisé à créer des utilisateurs en masse : ";
+
+    private final UserProvisioningService userProvisioningService;
+    private final ServerSecurityProps.UserProvisioningProps provisioningProps;
+
+    /**
+     * Constructeur avec paramètres pour injection des beans.
+     *
+     * @param pUserProvisioningService le service de création en masse des utilisateurs.
+     * @param pSecurityProps           les propriétés de sécurisation du serveur.
+     */
+    public UserProvisioningController(final UserProvisioningService pUserProvisioningService, final ServerSecurityProps pSecurityProps)
+    {
+        this.userProvisioningService = pUserProvisioningService;
+        this.provisioningProps = pSecurityProps.getUserProvisioning();
+    }
+
+    /**
+     * Créer les utilisateurs du flux et transmettre leurs résultats dans l'ordre du flux.
+     *
+     * @param pAuthentication l'administrateur authentifié.
+     * @param pBody           le flux des utilisateurs à créer.
+     * @param pResponse       la réponse, dans laquelle les résultats par utilisateur sont écrits au fil de l'eau.
+     * @return la création asynchrone des utilisateurs, bornée par sa durée maximale.
+     */
+    @PostMapping(value = "/bulk", consumes = { MediaType.APPLICATION_JSON_VALUE, TokenBatchController.NDJSON_VALUE }, produces = TokenBatchController.NDJSON_VALUE)
+    @ApiOperation(value = "Créer des utilisateurs en masse")
+    public WebAsyncTask<Void> provisionUsers(final Authentication pAuthentication, final InputStream pBody, final HttpServletResponse pResponse)
+    {
+        final boolean admin = pAuthentication.getAuthorities().stream()//
+        .anyMatch(authority -> AuthorityRegistry.roleOf(authority.getAuthority()) == RoleEnum.ROLE_ADMIN);
+        if (!admin)
+        {
+            throw new AccessDeniedException(ACCESS_DENIED_MSG + pAuthentication.getName());
+        }
+        pResponse.setContentType(TokenBatchController.NDJSON_VALUE);
+        final Callable<Void> provisioning = () -> {
+            this.userProvisioningService.provision(pBody, pResponse.getOutputStream());
+            return null;
+        };
+        return new WebAsyncTask<>(TimeUnit.SECONDS.toMillis(this.provisioningProps.getTimeoutSeconds()), provisioning);
+    }
+}
@@ -70,15 +70,28 @@ public class ServerCacheConfig
         return hibernateProperties -> hibernateProperties.put(ServerUtil.HIBERNATE_CACHE_MANAGER, cacheManager);
     }
 
+    /**
+     * Cache unique des utilisateurs recherchés par nom d'utilisateur ou par email, à la place de deux caches `EhCache`
+     * dont chaque clé conservait sa propre copie de l'utilisateur et de ses rôles.
+     * 
+     * @param propsService les propriétés applicatives.
+     * @return le cache des utilisateurs, résolution des caches {@link ServerUtil#USERS_BY_USERNAME_CACHE} et
+     *         {@link ServerUtil#USERS_BY_EMAIL_CACHE}.
+     */
+    @Bean(name = ServerUtil.USERS_CACHE_RESOLVER)
+    public UserLookupCache userLookupCache(final ApplicationPropsService propsService)
+    {
+        final var ehcacheProps = propsService.getEhcacheProps();
+        return new UserLookupCache(ehcacheProps.getMaxEntries(), ehcacheProps.getTimeToLiveSeconds());
+    }
+
     @Bean
     public JCacheManagerCustomizer cacheManagerCustomizer(final ApplicationPropsService propsService)
     {
         return cm -> {
-            // Création du cache pour optimiser les accès aux données de la table T_USERS.
-            createCache(cm, ServerUtil.USERS_BY_USERNAME_CACHE, propsService);
-            createCache(cm, ServerUtil.USERS_BY_EMAIL_CACHE, propsService);
+            // Création du cache pour optimiser les accès aux données de la table T_USERS (recherches par nom
+            // d'utilisateur et par email : voir userLookupCache).
             createCache(cm, User.class.getName(), propsService);
-            createCache(cm, String.format(ServerUtil.TWO_PATTERN, User.class.getName(), ServerUtil.POINT_ROLES), propsService);
 
             // Création du cache pour optimiser les accès aux données de la table T_CATEGORIES.
             createCache(cm, ServerUtil.CATEGORY_BY_NAME_CACHE, propsService);
@@ -0,0 +1,300 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : UserLookupCache.java
+ * Date de création : 9 mars 2021
+ * Heure de création : 14:10:33
+ * Package : fr.vincent.tuto.server.config.cache
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.config.cache;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.interceptor.CacheOperationInvocationContext;
+import org.springframework.cache.interceptor.CacheResolver;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import fr.vincent.tuto.server.model.po.User;
+import fr.vincent.tuto.server.util.ServerUtil;
+
+/**
+ * Cache unique des utilisateurs (et de leurs rôles) recherchés par nom d'utilisateur ou par email. Chaque utilisateur
+ * est conservé une seule fois et atteint par deux index normalisés en minuscules : les recherches « Admin », « admin »
+ * et par email de la même personne partagent la même entrée.
+ * <p>
+ * Les caches {@link ServerUtil#USERS_BY_USERNAME_CACHE} et {@link ServerUtil#USERS_BY_EMAIL_CACHE} des dépôts sont des
+ * vues de ce cache, fournies par sa résolution ({@link CacheResolver}). La suppression d'un utilisateur par l'une de ses
+ * clés le supprime de tous les index.
+ *
+ * @author Vincent Otchoun
+ */
+public class UserLookupCache implements CacheResolver
+{
+    //
+    private static final long PURGE_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(1);
+
+    private final long maxEntries;
+    private final long timeToLiveMillis;
+    private final ConcurrentHashMap<String, Entry> byUsername = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Entry> byEmail = new ConcurrentHashMap<>();
+    private final Index usernameIndex = new Index(ServerUtil.USERS_BY_USERNAME_CACHE, this.byUsername);
+    private final Index emailIndex = new Index(ServerUtil.USERS_BY_EMAIL_CACHE, this.byEmail);
+    private volatile long lastPurgeMillis;
+
+    /**
+     * Constructeur avec en paramètres la taille et la durée de conservation des entrées.
+     *
+     * @param pMaxEntries        le nombre maximal d'utilisateurs conservés.
+     * @param pTimeToLiveSeconds la durée de conservation d'un utilisateur en secondes.
+     */
+    public UserLookupCache(final long pMaxEntries, final long pTimeToLiveSeconds)
+    {
+        this.maxEntries = pMaxEntries;
+        this.timeToLiveMillis = TimeUnit.SECONDS.toMillis(pTimeToLiveSeconds);
+    }
+
+    @Override
+    public Collection<? extends Cache> resolveCaches(final CacheOperationInvocationContext<?> pContext)
+    {
+        final var cacheNames = pContext.getOperation().getCacheNames();
+        if (cacheNames.contains(ServerUtil.USERS_BY_EMAIL_CACHE))
+        {
+            return List.of(this.emailIndex);
+        }
+        return List.of(this.usernameIndex);
+    }
+
+    /**
+     * Obtenir la vue du cache par nom d'utilisateur.
+     *
+     * @return la vue par nom d'utilisateur.
+     */
+    public Cache getUsernameIndex()
+    {
+        return this.usernameIndex;
+    }
+
+    /**
+     * Obtenir la vue du cache par adresse email.
+     *
+     * @return la vue par adresse email.
+     */
+    public Cache getEmailIndex()
+    {
+        return this.emailIndex;
+    }
+
+    /**
+     * Supprimer l'utilisateur de tous les index maintenant et, si une transaction est active, de nouveau après sa fin :
+     * une recherche concurrente ne peut pas remettre en cache l'état antérieur.
+     *
+     * @param pUsername le nom d'utilisateur.
+     * @param pEmail    l'adresse email.
+     */
+    public void evict(final String pUsername, final String pEmail)
+    {
+        this.usernameIndex.evict(pUsername);
+        this.emailIndex.evict(pEmail);
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+        {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+            {
+                @Override
+                public void afterCompletion(final int pStatus)
+                {
+                    UserLookupCache.this.usernameIndex.evict(pUsername);
+                    UserLookupCache.this.emailIndex.evict(pEmail);
+                }
+            });
+        }
+    }
+
+    /**
+     * Obtenir le nombre d'utilisateurs en cache.
+     *
+     * @return le nombre d'utilisateurs.
+     */
+    public int size()
+    {
+        return this.byUsername.size();
+    }
+
+    /**
+     * Mettre l'utilisateur en cache sous son nom d'utilisateur et son email. Les entrées précédentes de ces clés sont
+     * supprimées de tous les index.
+     *
+     * @param pUser l'utilisateur et ses rôles.
+     */
+    private void store(final User pUser)
+    {
+        final long now = System.currentTimeMillis();
+        if (this.byUsername.size() >= this.maxEntries)
+        {
+            this.purgeExpired(now);
+            if (this.byUsername.size() >= this.maxEntries)
+            {
+                return; // Cache plein : l'utilisateur sera recherché en base de données.
+            }
+        }
+        final var entry = new Entry(pUser, now + this.timeToLiveMillis);
+        final var previousByUsername = this.byUsername.put(entry.usernameKey, entry);
+        this.remove(previousByUsername);
+        if (entry.emailKey != null)
+        {
+            this.remove(this.byEmail.put(entry.emailKey, entry));
+        }
+    }
+
+    /**
+     * Supprimer l'entrée de tous les index.
+     *
+     * @param pEntry l'entrée à supprimer, ignorée si null.
+     */
+    private void remove(final Entry pEntry)
+    {
+        if (pEntry == null)
+        {
+            return;
+        }
+        this.byUsername.remove(pEntry.usernameKey, pEntry);
+        if (pEntry.emailKey != null)
+        {
+            this.byEmail.remove(pEntry.emailKey, pEntry);
+        }
+    }
+
+    /**
+     * Supprimer les entrées expirées, au plus une fois par seconde.
+     *
+     * @param pNowMillis l'instant courant en millisecondes depuis l'epoch.
+     */
+    private void purgeExpired(final long pNowMillis)
+    {
+        if (pNowMillis - this.lastPurgeMillis < PURGE_INTERVAL_MILLIS)
+        {
+            return;
+        }
+        this.lastPurgeMillis = pNowMillis;
+        this.byUsername.values().stream().filter(entry -> entry.expiresAtMillis <= pNowMillis).forEach(this::remove);
+    }
+
+    /**
+     * Vue du cache des utilisateurs par l'une de leurs clés, exposée à l'abstraction de cache de Spring.
+     */
+    private final class Index extends AbstractValueAdaptingCache
+    {
+        private final String name;
+        private final ConcurrentHashMap<String, Entry> entries;
+
+        private Index(final String pName, final ConcurrentHashMap<String, Entry> pEntries)
+        {
+            // Les recherches sans résultat ne sont pas conservées : put les ignore.
+            super(true);
+            this.name = pName;
+            this.entries = pEntries;
+        }
+
+        @Override
+        public String getName()
+        {
+            return this.name;
+        }
+
+        @Override
+        public Object getNativeCache()
+        {
+            return UserLookupCache.this;
+        }
+
+        @Override
+        protected Object lookup(final Object pKey)
+        {
+            final var entry = this.entries.get(ServerUtil.LOWER_CASE.apply(pKey.toString()));
+            if (entry == null)
+            {
+                return null;
+            }
+            if (entry.expiresAtMillis <= System.currentTimeMillis())
+            {
+                UserLookupCache.this.remove(entry);
+                return null;
+            }
+            return entry.user;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public <T> T get(final Object pKey, final Callable<T> pValueLoader)
+        {
+            final var cached = this.lookup(pKey);
+            if (cached != null)
+            {
+                return (T) cached;
+            }
+            try
+            {
+                final var value = pValueLoader.call();
+                this.put(pKey, value);
+                return value;
+            }
+            catch (Exception e)
+            {
+                throw new ValueRetrievalException(pKey, pValueLoader, e);
+            }
+        }
+
+        @Override
+        public void put(final Object pKey, final Object pValue)
+        {
+            if (pValue instanceof User)
+            {
+                UserLookupCache.this.store((User) pValue);
+            }
+        }
+
+        @Override
+        public void evict(final Object pKey)
+        {
+            if (pKey != null)
+            {
+                UserLookupCache.this.remove(this.entries.get(ServerUtil.LOWER_CASE.apply(pKey.toString())));
+            }
+        }
+
+        @Override
+        public void clear()
+        {
+            UserLookupCache.this.byUsername.clear();
+            UserLookupCache.this.byEmail.clear();
+        }
+    }
+
+    /**
+     * Utilisateur en cache et ses clés normalisées.
+     */
+    private static final class Entry
+    {
+        private final User user; // l'utilisateur et ses rôles.
+        private final String usernameKey; // nom d'utilisateur en minuscules.
+        private final String emailKey; // adresse email en minuscules, null si absente.
+        private final long expiresAtMillis; // fin de validité de l'entrée en millisecondes depuis l'epoch.
+
+        private Entry(final User pUser, final long pExpiresAtMillis)
+        {
+            this.user = pUser;
+            this.usernameKey = ServerUtil.LOWER_CASE.apply(pUser.getUsername());
+            this.emailKey = pUser.getEmail() != null ? ServerUtil.LOWER_CASE.apply(pUser.getEmail()) : null;
+            this.expiresAtMillis = pExpiresAtMillis;
+        }
+    }
+}
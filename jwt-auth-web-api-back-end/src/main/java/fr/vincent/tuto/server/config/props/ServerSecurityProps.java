@@ -0,0 +1,245 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : ServerSecurityProps.java
+ * Date de création : 5 mars 2021
+ * Heure de création : 09:04:36
+ * Package : fr.vincent.tuto.server.config.props
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.config.props;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Propriétés de configuration des composants de sécurisation du serveur (préfixe : vot.security-props). Les valeurs
+ * par défaut s'appliquent lorsque les propriétés ne sont pas renseignées.
+ * 
+ * @author Vincent Otchoun
+ */
+@Component
+@ConfigurationProperties(prefix = "vot.security-props", ignoreUnknownFields = true)
+@Getter
+@Setter
+public class ServerSecurityProps
+{
+    private final TokenCacheProps tokenCache = new TokenCacheProps();
+    private final RevocationProps revocation = new RevocationProps();
+    private final RefreshTokenProps refreshToken = new RefreshTokenProps();
+    private final KeyRingProps keyRing = new KeyRingProps();
+    private final TokenFormatProps tokenFormat = new TokenFormatProps();
+    private final AuthenticationProps authentication = new AuthenticationProps();
+    private final BatchIssuanceProps batchIssuance = new BatchIssuanceProps();
+    private final IntrospectionProps introspection = new IntrospectionProps();
+    private final OpaqueTokenProps opaqueToken = new OpaqueTokenProps();
+    private final SlidingRenewalProps slidingRenewal = new SlidingRenewalProps();
+    private final UserCacheProps userCache = new UserCacheProps();
+    private final PasswordHashingProps passwordHashing = new PasswordHashingProps();
+    private final LoginThrottleProps loginThrottle = new LoginThrottleProps();
+    private final UserProvisioningProps userProvisioning = new UserProvisioningProps();
+    private final AuditJournalProps auditJournal = new AuditJournalProps();
+
+    /**
+     * Propriétés du cache des jetons JWT dont la signature a déjà été vérifiée.
+     */
+    @Getter
+    @Setter
+    public static class TokenCacheProps
+    {
+        private boolean enabled = true;
+        private int maxEntries = 10000; // nombre maximal de jetons vérifiés conservés en mémoire.
+    }
+
+    /**
+     * Propriétés de la liste de révocation des jetons JWT.
+     */
+    @Getter
+    @Setter
+    public static class RevocationProps
+    {
+        private int expectedEntries = 100000; // nombre de révocations attendues pour dimensionner le filtre de Bloom.
+        private double falsePositiveRate = 0.001; // taux de faux positifs visé du filtre de Bloom.
+        private long rebuildIntervalSeconds = 300; // période de purge des révocations expirées et de reconstruction du filtre.
+        private String storeFile = "./data/security/revoked-tokens.log"; // journal persistant des révocations.
+    }
+
+    /**
+     * Propriétés du magasin des jetons d'actualisation (refresh tokens).
+     */
+    @Getter
+    @Setter
+    public static class RefreshTokenProps
+    {
+        private int shardCount = 16; // nombre de segments de la table en mémoire (puissance de 2).
+        private long flushIntervalMillis = 250; // période d'écriture différée des familles modifiées.
+        private int batchSize = 500; // nombre maximal de familles écrites par transaction.
+        private long reuseGraceSeconds = 10; // délai pendant lequel le jeton précédent rejoué renvoie le jeton courant.
+        private int maxFamilies = 100000; // nombre de familles conservées en mémoire au-delà duquel elles sont déchargées.
+    }
+
+    /**
+     * Propriétés du trousseau des clés de signature des jetons JWT.
+     */
+    @Getter
+    @Setter
+    public static class KeyRingProps
+    {
+        private String algorithm = "RS256"; // algorithme de signature des jetons : HS256, RS256, ES256 ou EdDSA.
+        private long benchmarkMillis = 300; // durée du micro-benchmark de démarrage par opération, 0 pour le désactiver.
+        private String keyDirectory = ""; // répertoire des paires de clés PEM (<nom>.pub, <nom>.key), vide pour le magasin seul.
+        private boolean watch = true; // recharger le trousseau à chaque modification du magasin ou du répertoire de clés.
+        private long reloadDelayMillis = 500; // délai de regroupement des événements avant rechargement.
+    }
+
+    /**
+     * Propriétés du format des jetons JWT émis.
+     */
+    @Getter
+    @Setter
+    public static class TokenFormatProps
+    {
+        private boolean compact = false; // autorités en masque de bits et en-tête sans type, jetons plus courts.
+    }
+
+    /**
+     * Propriétés de l'authentification sans état des requêtes.
+     */
+    @Getter
+    @Setter
+    public static class AuthenticationProps
+    {
+        private String[] publicPaths = { "/api/auth/**" }; // chemins accessibles sans jeton (connexion, actualisation).
+    }
+
+    /**
+     * Propriétés de l'émission en lot des jetons JWT pour les comptes de service des traitements par lot.
+     */
+    @Getter
+    @Setter
+    public static class BatchIssuanceProps
+    {
+        private String[] clients = { "batch-client-app" }; // comptes de service autorisés à émettre des jetons en lot.
+        private int maxRequests = 10000; // nombre maximal de jetons par appel.
+        private long validitySeconds = 300; // durée de validité des jetons émis en lot.
+        private int parallelism = 0; // nombre de threads de signature, 0 pour le nombre de processeurs.
+        private int chunkSize = 64; // nombre de jetons signés par tâche.
+    }
+
+    /**
+     * Propriétés du point d'introspection des jetons JWT (RFC 7662).
+     */
+    @Getter
+    @Setter
+    public static class IntrospectionProps
+    {
+        private long cacheTtlSeconds = 30; // durée de conservation des réponses, bornée par l'expiration du jeton.
+        private int maxEntries = 50000; // nombre maximal de réponses conservées en mémoire.
+    }
+
+    /**
+     * Propriétés du mode jetons opaques : sessions conservées hors du tas Java.
+     */
+    @Getter
+    @Setter
+    public static class OpaqueTokenProps
+    {
+        private boolean enabled = false; // accepter les jetons opaques en plus des jetons JWT.
+        private int maxSessions = 100000; // nombre maximal de sessions actives (table de 2 emplacements par session).
+        private String storeFile = ""; // fichier projeté en mémoire des sessions, vide pour la mémoire directe.
+        private long sweepIntervalMillis = 100; // période de l'étape de purge incrémentale des sessions expirées.
+        private int sweepBatchSize = 4096; // nombre d'emplacements examinés par étape de purge.
+    }
+
+    /**
+     * Propriétés du renouvellement glissant des jetons JWT d'accès.
+     */
+    @Getter
+    @Setter
+    public static class SlidingRenewalProps
+    {
+        private boolean enabled = true;
+        private double renewAfter = 0.5; // fraction de la durée de vie au-delà de laquelle le jeton est renouvelé.
+        private String header = "X-Renewed-Token"; // en-tête de la réponse portant le nouveau jeton.
+        private long shareWindowSeconds = 60; // durée pendant laquelle le jeton renouvelé est servi aux requêtes concurrentes.
+        private int maxEntries = 10000; // nombre maximal de renouvellements partagés conservés en mémoire.
+    }
+
+    /**
+     * Propriétés du cache des utilisateurs de Spring Security chargés à la connexion.
+     */
+    @Getter
+    @Setter
+    public static class UserCacheProps
+    {
+        private boolean enabled = true;
+        private int maxEntries = 10000; // nombre maximal d'utilisateurs conservés en mémoire.
+        private long timeToLiveSeconds = 600; // durée de conservation, filet de sécurité des modifications hors application.
+        private int unknownMaxEntries = 10000; // nombre maximal d'identifiants inconnus conservés en mémoire.
+        private long unknownTimeToLiveSeconds = 60; // durée de conservation d'un identifiant inconnu.
+    }
+
+    /**
+     * Propriétés du pool de threads dédié au chiffrement et à la comparaison BCrypt des mots de passe.
+     */
+    @Getter
+    @Setter
+    public static class PasswordHashingProps
+    {
+        private int threads = 0; // nombre de threads de chiffrement, 0 pour la moitié des processeurs (au moins 1).
+        private int queueCapacity = 64; // nombre maximal d'opérations en attente, au-delà elles sont rejetées.
+        private long maxWaitMillis = 2000; // durée maximale d'attente d'une opération par un appelant synchrone.
+        private long targetMillis = 250; // durée visée d'un chiffrement, 0 pour utiliser le coût fixe strength.
+        private int strength = 12; // coût BCrypt (log2 du nombre de tours) lorsque la calibration est désactivée.
+        private int minStrength = 12; // coût BCrypt minimal retenu par la calibration.
+        private int maxStrength = 16; // coût BCrypt maximal retenu par la calibration.
+    }
+
+    /**
+     * Propriétés de la limitation des tentatives de connexion par nom d'utilisateur et par adresse du client.
+     */
+    @Getter
+    @Setter
+    public static class LoginThrottleProps
+    {
+        private boolean enabled = true;
+        private int slots = 65536; // nombre de seaux de jetons par table (puissance de 2), mémoire de 8 octets par seau.
+        private int usernameCapacity = 10; // nombre de tentatives consécutives autorisées pour un nom d'utilisateur.
+        private int usernameRefillPerMinute = 5; // nombre de tentatives regagnées par minute pour un nom d'utilisateur.
+        private int addressCapacity = 100; // nombre de tentatives consécutives autorisées pour une adresse de client.
+        private int addressRefillPerMinute = 60; // nombre de tentatives regagnées par minute pour une adresse de client.
+    }
+
+    /**
+     * Propriétés de la création en masse des utilisateurs.
+     */
+    @Getter
+    @Setter
+    public static class UserProvisioningProps
+    {
+        private int maxRows = 100000; // nombre maximal d'utilisateurs par appel, les suivants sont rejetés.
+        private int chunkSize = 500; // nombre d'utilisateurs chiffrés puis insérés par lot JDBC et par transaction.
+        private int parallelism = 0; // nombre de threads de chiffrement, 0 pour le nombre de processeurs.
+        private long timeoutSeconds = 3600; // durée maximale d'un appel : maxRows chiffrements BCrypt répartis sur le pool.
+    }
+
+    /**
+     * Propriétés du journal d'audit des connexions projeté en mémoire.
+     */
+    @Getter
+    @Setter
+    public static class AuditJournalProps
+    {
+        private boolean enabled = true;
+        private String directory = "./data/security/audit"; // répertoire des segments.
+        private String keyFile = "./data/security/audit-journal.key"; // clé des empreintes, hors du répertoire des segments.
+        private int segmentRecords = 1048576; // nombre d'enregistrements (24 octets) par segment.
+        private long flushIntervalMillis = 1000; // période d'écriture sur disque et de préparation du segment de réserve.
+        private int retentionDays = 90; // durée de conservation des segments scellés.
+    }
+}
@@ -0,0 +1,17 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : package-info.java
+ * Date de création : 5 mars 2021
+ * Heure de création : 09:02:11
+ * Package : fr.vincent.tuto.server.config.props
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+/**
+ * Contient les propriétés de configuration propres au serveur (sécurisation, optimisation des accès).
+ * 
+ * @author Vincent Otchoun
+ */
+package fr.vincent.tuto.server.config.props;
@@ -0,0 +1,154 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : ServerSecurityConfig.java
+ * Date de création : 8 mars 2021
+ * Heure de création : 14:33:52
+ * Package : fr.vincent.tuto.server.config.security
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.config.security;
+
+import java.util.Map;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AuthenticationEventPublisher;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.DefaultAuthenticationEventPublisher;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.authentication.event.AuthenticationFailureLockedEvent;
+import org.springframework.security.authentication.event.AuthenticationFailureServiceExceptionEvent;
+import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+
+import fr.vincent.tuto.common.service.props.ApplicationPropsService;
+import fr.vincent.tuto.server.config.props.ServerSecurityProps;
+import fr.vincent.tuto.server.security.crypto.PasswordHasher;
+import fr.vincent.tuto.server.security.jwt.AuthTokenProvider;
+import fr.vincent.tuto.server.security.jwt.AuthenticationMetrics;
+import fr.vincent.tuto.server.security.jwt.JwtAuthenticationFilter;
+import fr.vincent.tuto.server.security.jwt.OpaqueTokenStore;
+import fr.vincent.tuto.server.security.throttle.LoginThrottle;
+import fr.vincent.tuto.server.security.throttle.LoginThrottledException;
+import fr.vincent.tuto.server.security.throttle.ThrottlingAuthenticationProvider;
+import fr.vincent.tuto.server.util.ServerUtil;
+
+/**
+ * Configuration de la sécurisation sans état de l'API : aucune session HTTP n'est créée et chaque requête est
+ * authentifiée par son jeton JWT d'accès ({@link JwtAuthenticationFilter}). Le {@link UserDetailsService} (base de
+ * données) n'est utilisé que par le gestionnaire d'authentification, à la connexion et à l'actualisation du jeton.
+ *
+ * @author Vincent Otchoun
+ */
+@Configuration
+@EnableWebSecurity
+public class ServerSecurityConfig extends WebSecurityConfigurerAdapter
+{
+    //
+    private final AuthTokenProvider tokenProvider;
+    private final OpaqueTokenStore opaqueTokenStore;
+    private final ApplicationPropsService propsService;
+    private final ServerSecurityProps securityProps;
+    private final UserDetailsService userDetailsService;
+    private final PasswordHasher passwordHasher;
+    private final AuthenticationMetrics metrics;
+    private final LoginThrottle loginThrottle;
+
+    /**
+     * Constructeur avec paramètres pour injection des beans.
+     *
+     * @param pTokenProvider      le fournisseur des jetons JWT.
+     * @param pOpaqueTokenStore   les sessions des jetons opaques.
+     * @param pPropsService       le service des propriétés applicatives.
+     * @param pSecurityProps      les propriétés de sécurisation du serveur.
+     * @param pUserDetailsService le service de chargement des utilisateurs en base de données.
+     * @param pPasswordHasher     le service de chiffrement des mots de passe dans son pool de threads dédié.
+     * @param pMetrics            les métriques du chemin d'authentification.
+     * @param pLoginThrottle      la limitation des tentatives de connexion.
+     */
+    public ServerSecurityConfig(final AuthTokenProvider pTokenProvider, final OpaqueTokenStore pOpaqueTokenStore,
+    final ApplicationPropsService pPropsService, final ServerSecurityProps pSecurityProps, final UserDetailsService pUserDetailsService,
+    final PasswordHasher pPasswordHasher, final AuthenticationMetrics pMetrics, final LoginThrottle pLoginThrottle)
+    {
+        this.tokenProvider = pTokenProvider;
+        this.opaqueTokenStore = pOpaqueTokenStore;
+        this.propsService = pPropsService;
+        this.securityProps = pSecurityProps;
+        this.userDetailsService = pUserDetailsService;
+        this.passwordHasher = pPasswordHasher;
+        this.metrics = pMetrics;
+        this.loginThrottle = pLoginThrottle;
+    }
+
+    @Override
+    protected void configure(final AuthenticationManagerBuilder pAuth) throws Exception
+    {
+        // La comparaison BCrypt est exécutée dans le pool dédié et chronométrée séparément du chargement de l'utilisateur.
+        final var daoProvider = new DaoAuthenticationProvider();
+        daoProvider.setUserDetailsService(this.userDetailsService);
+        daoProvider.setPasswordEncoder(this.metrics.timed(this.passwordHasher.asPasswordEncoder()));
+        daoProvider.afterPropertiesSet();
+        // Les tentatives en excès sont refusées avant le chargement de l'utilisateur et la comparaison BCrypt.
+        pAuth.authenticationProvider(new ThrottlingAuthenticationProvider(daoProvider, this.loginThrottle));
+        // Les secrets sont effacés après la publication de la connexion réussie, par le PasswordRehasher qui chiffre de
+        // nouveau en arrière-plan les mots de passe chiffrés à un coût dépassé.
+        pAuth.eraseCredentials(false);
+    }
+
+    @Override
+    protected void configure(final HttpSecurity pHttp) throws Exception
+    {
+        pHttp.csrf().disable()//
+        .formLogin().disable()//
+        .httpBasic().disable()//
+        .logout().disable()//
+        .sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS)//
+        .and()//
+        .exceptionHandling().authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED))//
+        .and()//
+        .authorizeRequests()//
+        .antMatchers(this.securityProps.getAuthentication().getPublicPaths()).permitAll()//
+        .antMatchers(ServerUtil.INDEX_SWAGGER, ServerUtil.RES_SWAGGER, ServerUtil.V3_DOCS_SWAGGER + "**", ServerUtil.WEB_JARS).permitAll()//
+        .anyRequest().authenticated()//
+        .and()//
+        .addFilterBefore(new JwtAuthenticationFilter(this.tokenProvider, this.opaqueTokenStore, this.propsService, this.securityProps),
+        UsernamePasswordAuthenticationFilter.class);
+    }
+
+    /**
+     * Exposer le gestionnaire d'authentification (connexion par nom d'utilisateur ou email et mot de passe).
+     */
+    @Bean
+    @Override
+    public AuthenticationManager authenticationManagerBean() throws Exception
+    {
+        return super.authenticationManagerBean();
+    }
+
+    /**
+     * Publier les échecs de la connexion, y compris les tentatives refusées par la limitation et les erreurs inconnues,
+     * pour les métriques et le journal d'audit des connexions.
+     *
+     * @param pPublisher le diffuseur des événements de l'application.
+     * @return le diffuseur des événements d'authentification.
+     */
+    @Bean
+    public static AuthenticationEventPublisher authenticationEventPublisher(final ApplicationEventPublisher pPublisher)
+    {
+        final var publisher = new DefaultAuthenticationEventPublisher(pPublisher);
+        publisher.setAdditionalExceptionMappings(Map.of(LoginThrottledException.class, AuthenticationFailureLockedEvent.class));
+        publisher.setDefaultAuthenticationFailureEvent(AuthenticationFailureServiceExceptionEvent.class);
+        return publisher;
+    }
+}
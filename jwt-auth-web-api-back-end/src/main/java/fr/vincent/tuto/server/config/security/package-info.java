@@ -0,0 +1,17 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : package-info.java
+ * Date de création : 8 mars 2021
+ * Heure de création : 14:31:05
+ * Package : fr.vincent.tuto.server.config.security
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+/**
+ * Contient la configuration de la sécurisation des accès aux ressources de l'API.
+ * 
+ * @author Vincent Otchoun
+ */
+package fr.vincent.tuto.server.config.security;
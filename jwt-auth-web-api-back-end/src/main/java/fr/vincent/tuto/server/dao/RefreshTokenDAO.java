@@ -0,0 +1,49 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : RefreshTokenDAO.java
+ * Date de création : 7 mars 2021
+ * Heure de création : 09:31:06
+ * Package : fr.vincent.tuto.server.dao
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.dao;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import fr.vincent.tuto.server.model.po.RefreshToken;
+
+/**
+ * Dépôt Spring Data JPA pour l'entité {@link RefreshToken}.
+ *
+ * @author Vincent Otchoun
+ */
+@Repository
+public interface RefreshTokenDAO extends JpaRepository<RefreshToken, String>
+{
+    /**
+     * Supprimer en une seule requête les familles de jetons d'actualisation expirées.
+     *
+     * @param pNowInSeconds l'instant courant en secondes depuis l'epoch.
+     * @return le nombre de familles supprimées.
+     */
+    @Modifying
+    @Query("DELETE FROM RefreshToken r WHERE r.expiresAt <= :now")
+    int deleteExpired(@Param("now") final Long pNowInSeconds);
+
+    /**
+     * Révoquer en une seule requête toutes les familles de jetons d'actualisation d'un utilisateur.
+     *
+     * @param pUsername le login de l'utilisateur.
+     * @return le nombre de familles révoquées.
+     */
+    @Modifying
+    @Query("UPDATE RefreshToken r SET r.revoked = true WHERE r.username = :username AND r.revoked = false")
+    int revokeByUsername(@Param("username") final String pUsername);
+}
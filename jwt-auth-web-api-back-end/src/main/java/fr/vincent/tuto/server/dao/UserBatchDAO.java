@@ -0,0 +1,144 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : UserBatchDAO.java
+ * Date de création : 9 mars 2021
+ * Heure de création : 21:48:36
+ * Package : fr.vincent.tuto.server.dao
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.dao;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import fr.vincent.tuto.server.model.po.User;
+import fr.vincent.tuto.server.util.AuthorityRegistry;
+import fr.vincent.tuto.server.util.ServerUtil;
+
+/**
+ * Dépôt JDBC des écritures en masse des utilisateurs ({@link User}) : les insertions sont envoyées en un seul lot JDBC
+ * (un aller-retour, sans lecture de l'identifiant généré par utilisateur ni contexte de persistance JPA), les rôles
+ * dans la même ligne sous la forme de leur masque de bits. Les opérations participent à la transaction en cours.
+ * <p>
+ * Les recherches des noms d'utilisateurs et des emails existants ignorent la casse, comme la connexion, et sont
+ * envoyées par listes d'au plus {@value #MAX_IN_VALUES} valeurs.
+ *
+ * @author Vincent Otchoun
+ */
+@Repository
+public class UserBatchDAO
+{
+    //
+    private static final String INSERT_SQL = "INSERT INTO T_USERS (ACCOUNT_EXPIRED, ACCOUNT_LOCKED, CREATED_TIME, CREDENTIALS_EXPIRED, EMAIL, ENABLED, "
+    + "USER_PASSWORD, UPDATED_TIME, USER_NAME, ROLE_MASK, OPTLOCK) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0)";
+    private static final String EXISTING_USERNAMES_SQL = "SELECT LOWER(USER_NAME) FROM T_USERS WHERE LOWER(USER_NAME) IN (:values)";
+    private static final String EXISTING_EMAILS_SQL = "SELECT LOWER(EMAIL) FROM T_USERS WHERE LOWER(EMAIL) IN (:values)";
+    private static final String VALUES_PARAM = "values";
+    private static final int MAX_IN_VALUES = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    /**
+     * Constructeur avec en paramètre la source de données pour injection.
+     *
+     * @param pDataSource la source de données.
+     */
+    public UserBatchDAO(final DataSource pDataSource)
+    {
+        this.jdbcTemplate = new JdbcTemplate(pDataSource);
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(this.jdbcTemplate);
+    }
+
+    /**
+     * Rechercher, parmi les noms d'utilisateurs fournis, ceux déjà enregistrés, sans distinction de casse.
+     *
+     * @param pUsernames les noms d'utilisateurs.
+     * @return les noms d'utilisateurs déjà enregistrés, en minuscules.
+     */
+    public Set<String> findExistingUsernames(final Collection<String> pUsernames)
+    {
+        return this.findExisting(EXISTING_USERNAMES_SQL, pUsernames);
+    }
+
+    /**
+     * Rechercher, parmi les adresses email fournies, celles déjà enregistrées, sans distinction de casse.
+     *
+     * @param pEmails les adresses email.
+     * @return les adresses email déjà enregistrées, en minuscules.
+     */
+    public Set<String> findExistingEmails(final Collection<String> pEmails)
+    {
+        return this.findExisting(EXISTING_EMAILS_SQL, pEmails);
+    }
+
+    /**
+     * Insérer les utilisateurs en un lot JDBC. Les indicateurs d'état non renseignés prennent les valeurs d'un compte
+     * créé par JPA : actif, non expiré, non verrouillé.
+     *
+     * @param pUsers les utilisateurs, mots de passe déjà chiffrés.
+     * @return le nombre de lignes insérées par utilisateur, dans l'ordre des utilisateurs.
+     */
+    public int[] insertAll(final List<User> pUsers)
+    {
+        final var now = Timestamp.valueOf(LocalDateTime.now(ZoneId.systemDefault()));
+        return this.jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter()
+        {
+            @Override
+            public void setValues(final PreparedStatement pStatement, final int pIndex) throws SQLException
+            {
+                final var user = pUsers.get(pIndex);
+                pStatement.setBoolean(1, Boolean.TRUE.equals(user.getAccountExpired()));
+                pStatement.setBoolean(2, Boolean.TRUE.equals(user.getAccountLocked()));
+                pStatement.setTimestamp(3, now);
+                pStatement.setBoolean(4, Boolean.TRUE.equals(user.getCredentialsExpired()));
+                pStatement.setString(5, user.getEmail());
+                pStatement.setBoolean(6, !Boolean.FALSE.equals(user.getEnabled()));
+                pStatement.setString(7, user.getPassword());
+                pStatement.setTimestamp(8, now);
+                pStatement.setString(9, user.getUsername());
+                pStatement.setInt(10, AuthorityRegistry.roleMask(user.getRoles()));
+            }
+
+            @Override
+            public int getBatchSize()
+            {
+                return pUsers.size();
+            }
+        });
+    }
+
+    private Set<String> findExisting(final String pSql, final Collection<String> pValues)
+    {
+        final Set<String> existing = new HashSet<>();
+        final List<String> values = pValues.stream().filter(Objects::nonNull).map(ServerUtil.LOWER_CASE).distinct().collect(Collectors.toList());
+        for (int from = 0; from < values.size(); from += MAX_IN_VALUES)
+        {
+            final var chunk = values.subList(from, Math.min(values.size(), from + MAX_IN_VALUES));
+            this.namedParameterJdbcTemplate.query(pSql, new MapSqlParameterSource(VALUES_PARAM, chunk), rs -> {
+                existing.add(rs.getString(1));
+            });
+        }
+        return existing;
+    }
+}
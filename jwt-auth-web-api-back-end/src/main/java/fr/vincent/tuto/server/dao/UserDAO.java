@@ -17,8 +17,10 @@ import java.util.Optional;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import fr.vincent.tuto.server.model.po.User;
@@ -66,35 +68,32 @@ public interface UserDAO extends JpaRepository<User, Long>
     Boolean existsByEmail(final String pEmail);
 
     /**
-     * Rechecher les informations de l'utilisateur dans la base de données par grappes sur les rôles à partir de son
+     * Rechecher les informations de l'utilisateur dans la base de données avec ses rôles à partir de son
      * identifiant technique.
      * 
      * @param pId le critère de recherche (identifiant technique de l'utilisateur recherché).
      * @return informations de l'utilisateur recherché si existe, sinon vide.
      */
-    @EntityGraph(attributePaths = ServerUtil.USERS_ROLES_ATTRIBUTE_PATHS)
     Optional<User> findOneWithRolesById(final Long pId);
 
     /**
-     * Rechecher les informations de l'utilisateur dans la base de données par grappes sur les rôles à partir de son
+     * Rechecher les informations de l'utilisateur dans la base de données avec ses rôles à partir de son
      * login avec mise en cache du résultat.
      * 
      * @param pUsername le critère de recherche (le login de l'utilisateur recherché).
      * @return informations de l'utilisateur recherché si existe, sinon vide.
      */
-    @EntityGraph(attributePaths = ServerUtil.USERS_ROLES_ATTRIBUTE_PATHS)
-    @Cacheable(cacheNames = ServerUtil.USERS_BY_USERNAME_CACHE)
+    @Cacheable(cacheNames = ServerUtil.USERS_BY_USERNAME_CACHE, cacheResolver = ServerUtil.USERS_CACHE_RESOLVER)
     Optional<User> findOneWithRolesByUsernameIgnoreCase(final String pUsername);
 
     /**
-     * Rechecher les informations de l'utilisateur dans la base de données par grappes sur les rôles à partir de son
+     * Rechecher les informations de l'utilisateur dans la base de données avec ses rôles à partir de son
      * adresse mail avec mise en cache du résultat.
      * 
      * @param pEmail adresse mail de l'utilisateur recherché.
      * @return informations de l'utilisateur recherché si existe, sinon vide.
      */
-    @EntityGraph(attributePaths = ServerUtil.USERS_ROLES_ATTRIBUTE_PATHS)
-    @Cacheable(cacheNames = ServerUtil.USERS_BY_EMAIL_CACHE)
+    @Cacheable(cacheNames = ServerUtil.USERS_BY_EMAIL_CACHE, cacheResolver = ServerUtil.USERS_CACHE_RESOLVER)
     Optional<User> findOneWithRolesByEmailIgnoreCase(final String pEmail);
 
     /**
@@ -131,4 +130,18 @@ public interface UserDAO extends JpaRepository<User, Long>
      * @return la liste des utilisateurs selon l'état spécifié.
      */
     Collection<User> findAllByEnabled(final Boolean pEnabled);
+
+    /**
+     * Remplacer le mot de passe chiffré de l'utilisateur en une seule requête, à condition qu'il n'ait pas été modifié
+     * depuis sa lecture (mot de passe chiffré à un coût inférieur remplacé après la connexion).
+     *
+     * @param pUsername    le login de l'utilisateur.
+     * @param pOldPassword le mot de passe chiffré lu.
+     * @param pNewPassword le nouveau mot de passe chiffré.
+     * @return le nombre d'utilisateurs modifiés, 0 si le mot de passe a été modifié entre-temps.
+     */
+    @Modifying
+    @Query("UPDATE User u SET u.password = :newPassword, u.version = u.version + 1 WHERE u.username = :username AND u.password = :oldPassword")
+    int updatePassword(@Param("username") final String pUsername, @Param("oldPassword") final String pOldPassword,
+    @Param("newPassword") final String pNewPassword);
 }
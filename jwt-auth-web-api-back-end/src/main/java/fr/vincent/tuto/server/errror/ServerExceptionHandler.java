@@ -33,6 +33,7 @@ import fr.vincent.tuto.common.exception.GenericGlobalExceptionHandler;
 import fr.vincent.tuto.common.model.error.ApiResponseError;
 import fr.vincent.tuto.common.model.payload.GenericApiResponse;
 import fr.vincent.tuto.common.utils.rest.RestUtils;
+import fr.vincent.tuto.server.security.throttle.LoginThrottledException;
 import fr.vincent.tuto.server.util.ServerUtil;
 
 /**
@@ -63,7 +64,12 @@ public class ServerExceptionHandler<T> extends GenericGlobalExceptionHandler<T>
         HttpStatus status = null;
         String detailsMessage = null;
 
-        if (AuthenticationException.class.isAssignableFrom(ex.getClass()))
+        if (LoginThrottledException.class.isAssignableFrom(ex.getClass()))
+        {
+            status = HttpStatus.TOO_MANY_REQUESTS;
+            detailsMessage = ServerUtil.TOO_MANY_LOGINS_MSG;
+        }
+        else if (AuthenticationException.class.isAssignableFrom(ex.getClass()))
         {
             status = HttpStatus.UNAUTHORIZED;
             detailsMessage = ServerUtil.ACCESS_DENIED;
@@ -0,0 +1,75 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : TokenRequestDTO.java
+ * Date de création : 8 mars 2021
+ * Heure de création : 16:05:37
+ * Package : fr.vincent.tuto.server.model.dto
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.model.dto;
+
+import java.io.Serializable;
+import java.util.List;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.Pattern;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import fr.vincent.tuto.server.util.ServerUtil;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Classe d'implementation de l'objet de transfert des données (DTO) d'une demande d'émission de jeton JWT d'accès
+ * dans un lot : le sujet du jeton et ses portées.
+ *
+ * @author Vincent Otchoun
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = false)
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@AllArgsConstructor(access = AccessLevel.PRIVATE) // Hides the constructor to force usage of the Builder
+@Builder
+@JsonInclude(content = JsonInclude.Include.NON_NULL, value = Include.NON_EMPTY)
+@JsonPropertyOrder({ "subject", "scopes" })
+@ApiModel(description = "Objet de transfert d'une demande d'émission de jeton en lot", value = "Données Demande de jeton")
+public class TokenRequestDTO implements Serializable
+{
+    /**
+     *
+     */
+    private static final long serialVersionUID = 4417310922456038571L;
+
+    @NotBlank(message = ServerUtil.TOKEN_SUBJECT_MSG)
+    @Pattern(regexp = ServerUtil.LOGIN_REGEX, message = ServerUtil.TOKEN_SUBJECT_MSG)
+    @ApiModelProperty(name = "subject", dataType = "java.lang.String", value = "Le sujet du jeton.", required = true, position = 0)
+    private String subject; // le sujet du jeton (revendication sub).
+
+    @ApiModelProperty(name = "scopes", dataType = "java.util.List<java.lang.String>", value = "Les portées accordées par le jeton.", position = 1)
+    private List<@Pattern(regexp = ServerUtil.SCOPE_REGEX, message = ServerUtil.TOKEN_SCOPE_MSG) String> scopes; // les portées du jeton.
+
+    @Override
+    public String toString()
+    {
+        return ToStringBuilder.reflectionToString(this, ToStringStyle.SHORT_PREFIX_STYLE);
+    }
+}
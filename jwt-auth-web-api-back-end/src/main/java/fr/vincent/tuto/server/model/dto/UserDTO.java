@@ -86,11 +86,12 @@ public class UserDTO implements Serializable
     @NotEmpty(message = ServerUtil.PWD_VALIDATION_MSG)
     @NotBlank(message = ServerUtil.PWD_VALIDATION_MSG)
     @Pattern(regexp = ServerUtil.PASSWORD_REGEX, message = ServerUtil.PWD_VALIDATION_MSG)
-    @Size(min = 60, max = 60)
     @ApiModelProperty(name = "password", dataType = "java.lang.String", value = "Le mot de passe utilisé pour authentifier l'utilisateur(non null).", required = true, position = 2)
     private String password;
 
+    @NotNull(message = ServerUtil.EMAIL_VALIDATION_MSG)
     @Email(message = ServerUtil.EMAIL_VALIDATION_MSG)
+    @Pattern(regexp = ServerUtil.EMAIL_REGEX, message = ServerUtil.EMAIL_VALIDATION_MSG) // reconnu comme email à la connexion.
     @Size(min = 8, max = 254, message = ServerUtil.EMAIL_VALIDATION_MSG)
     @ApiModelProperty(name = "email", dataType = "java.lang.String", value = "Adresse mail de l'utilisateur.", required = true, position = 3)
     private String email; // .
@@ -108,11 +109,9 @@ public class UserDTO implements Serializable
     private Boolean enabled; // .
 
     @NotNull(message = ServerUtil.USER_ROLE_MSG)
-    @NotBlank(message = ServerUtil.USER_ROLE_MSG)
     @NotEmpty(message = ServerUtil.USER_ROLE_MSG)
-    @Pattern(regexp = "^(ROLE_USER|ROLE_ADMIN|ROLE_MODERATOR)$", message = ServerUtil.USER_ROLE_TYPE_REGEX)
     @ApiModelProperty(name = "products", dataType = "java.util.Set<String>", value = "Les rôles de l'utilisateur.", required = true, position = 8)
-    private Set<String> roles;
+    private Set<@NotNull(message = ServerUtil.USER_ROLE_TYPE_REGEX) @Pattern(regexp = "^(ROLE_USER|ROLE_ADMIN|ROLE_MODERATOR)$", message = ServerUtil.USER_ROLE_TYPE_REGEX) String> roles;
 
     @JsonSerialize(using = ToStringSerializer.class)
     @JsonDeserialize(using = LocalDateTimeDeserializer.class)
@@ -0,0 +1,92 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : RefreshToken.java
+ * Date de création : 7 mars 2021
+ * Heure de création : 09:14:32
+ * Package : fr.vincent.tuto.server.model.po
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.model.po;
+
+import java.io.Serializable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.Version;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Mapping objet des familles de jetons d'actualisation (refresh tokens) en base de données dans la table
+ * T_REFRESH_TOKENS. Une famille correspond à une session de l'utilisateur : chaque actualisation remplace le jeton
+ * courant de la famille par un nouveau jeton (génération suivante). Seule l'empreinte du jeton courant est enregistrée.
+ *
+ * @author Vincent Otchoun
+ */
+@Entity
+@Table(name = "T_REFRESH_TOKENS")
+@Getter
+@Setter
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = false, of = "familyId")
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@Builder
+public class RefreshToken implements Serializable
+{
+    /**
+     *
+     */
+    private static final long serialVersionUID = 4181920390457230216L;
+
+    @Id
+    @Column(name = "FAMILY_ID", length = 32, updatable = false, nullable = false)
+    String familyId; // identifiant de la famille de jetons, porté par chaque jeton de la famille.
+
+    @Column(name = "USER_NAME", length = 80, updatable = false, nullable = false)
+    String username; // le login de l'utilisateur de la session.
+
+    @JsonIgnore
+    @Column(name = "TOKEN_HASH", length = 64, nullable = false)
+    String tokenHash; // empreinte SHA-256 (Base64 URL) du jeton courant de la famille.
+
+    @Column(name = "GENERATION", nullable = false)
+    Integer generation; // nombre de rotations de la famille.
+
+    @Column(name = "ISSUED_AT", updatable = false, nullable = false)
+    Long issuedAt; // date de création de la famille en secondes depuis l'epoch.
+
+    @Column(name = "EXPIRES_AT", nullable = false)
+    Long expiresAt; // date d'expiration du jeton courant en secondes depuis l'epoch.
+
+    @Column(name = "REVOKED", nullable = false)
+    Boolean revoked; // Indique si la famille a été révoquée (réutilisation détectée, déconnexion).
+
+    @JsonIgnore
+    @Version
+    @Column(name = "OPTLOCK", nullable = false)
+    Integer version; // Gestion de l'optimistic lock, null tant que la famille n'est pas persistée.
+
+    @Override
+    public String toString()
+    {
+        return ToStringBuilder.reflectionToString(this, ToStringStyle.SHORT_PREFIX_STYLE);
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : RoleSetConverter.java
+ * Date de création : 9 mars 2021
+ * Heure de création : 17:42:09
+ * Package : fr.vincent.tuto.server.model.po
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.model.po;
+
+import java.util.Set;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+import fr.vincent.tuto.server.enumeration.RoleEnum;
+import fr.vincent.tuto.server.util.AuthorityRegistry;
+
+/**
+ * Conversion des rôles d'un utilisateur en un masque de bits de leurs ordinaux ({@link RoleEnum#ordinal()}), conservé
+ * dans la colonne ROLE_MASK de la table T_USERS : le bit 0 pour ROLE_USER, le bit 1 pour ROLE_ADMIN, le bit 2 pour
+ * ROLE_MODERATOR et le bit 3 pour ROLE_ANONYMOUS. L'ordre des constantes de {@link RoleEnum} ne doit donc pas changer.
+ *
+ * @author Vincent Otchoun
+ */
+@Converter
+public class RoleSetConverter implements AttributeConverter<Set<RoleEnum>, Integer>
+{
+    @Override
+    public Integer convertToDatabaseColumn(final Set<RoleEnum> pRoles)
+    {
+        return AuthorityRegistry.roleMask(pRoles);
+    }
+
+    @Override
+    public Set<RoleEnum> convertToEntityAttribute(final Integer pRoleMask)
+    {
+        return AuthorityRegistry.roles(pRoleMask != null ? pRoleMask : 0);
+    }
+}
@@ -17,13 +17,11 @@ import java.time.ZoneId;
 import java.util.Set;
 
 import javax.persistence.Column;
-import javax.persistence.ElementCollection;
+import javax.persistence.Convert;
 import javax.persistence.Entity;
-import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
-import javax.persistence.OrderBy;
 import javax.persistence.PrePersist;
 import javax.persistence.PreUpdate;
 import javax.persistence.Table;
@@ -124,9 +122,9 @@ public class User extends AbstractPersistable<Long> implements Serializable
     Boolean enabled; // Indique si l'utilisateur est activé ou désactivé. Un utilisateur désactivé ne peut pas
                      // être authentifié.
 
-    @ElementCollection(fetch = FetchType.EAGER)
-    @OrderBy
-    private Set<RoleEnum> roles;
+    @Convert(converter = RoleSetConverter.class)
+    @Column(name = "ROLE_MASK", nullable = false)
+    private Set<RoleEnum> roles; // rôles de l'utilisateur, conservés en un masque de bits de leurs ordinaux.
 
     @Column(name = " CREATED_TIME", insertable = true, updatable = false)
     @DateTimeFormat(iso = ISO.DATE_TIME)
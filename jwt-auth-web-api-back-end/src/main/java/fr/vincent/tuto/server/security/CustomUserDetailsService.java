@@ -11,7 +11,8 @@
  */
 package fr.vincent.tuto.server.security;
 
-import org.hibernate.validator.internal.constraintvalidators.hv.EmailValidator;
+import java.util.Optional;
+
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -19,12 +20,18 @@ import org.springframework.stereotype.Component;
 
 import fr.vincent.tuto.common.exception.CustomAppException;
 import fr.vincent.tuto.server.model.po.User;
+import fr.vincent.tuto.server.security.cache.UserDetailsCache;
+import fr.vincent.tuto.server.security.jwt.AuthenticationMetrics;
 import fr.vincent.tuto.server.service.contract.IUserService;
+import fr.vincent.tuto.server.util.LoginClassifier;
 import fr.vincent.tuto.server.util.ServerUtil;
 
 /**
  * Service pour charger un {@link User} par nom d'utilisateur et renvoyer un objet {@link UserDetails}
- * que Spring Security utilise pour l'authentification et la validation.
+ * que Spring Security utilise pour l'authentification et la validation. La durée du chargement et les échecs par motif
+ * (utilisateur inconnu, désactivé) sont mesurés par les {@link AuthenticationMetrics}. Les utilisateurs construits sont
+ * conservés dans le {@link UserDetailsCache} : une nouvelle connexion du même compte ne consulte pas la base de données.
+ * Les identifiants inconnus y sont aussi conservés : une nouvelle tentative est rejetée sans requête ni trace de pile.
  * 
  * @author Vincent Otchoun
  */
@@ -34,36 +41,115 @@ public class CustomUserDetailsService implements UserDetailsService
     //
     private static final String MAIL_MSG_1 = "Utilisateur avec e-mail ";
     private static final String USER_MSG_NOT_FOUND = " n'a pas été trouvé dans la base de données";
+    private static final String UNKNOWN_LOGIN_MSG = "Erreur lors de la recherche des informations d'un utilisateur inconnu : ";
 
     private final IUserService userService;
+    private final AuthenticationMetrics metrics;
+    private final UserDetailsCache userCache;
 
     /**
      * Constructeur avec en paramètre le bean pour injection.
      * 
      * @param userService le service des fonctionnalités de gestion des utilisateurs.
+     * @param pMetrics    les métriques du chemin d'authentification.
+     * @param pUserCache  le cache des utilisateurs de Spring Security.
      */
-    public CustomUserDetailsService(final IUserService userService)
+    public CustomUserDetailsService(final IUserService userService, final AuthenticationMetrics pMetrics, final UserDetailsCache pUserCache)
     {
         this.userService = userService;
+        this.metrics = pMetrics;
+        this.userCache = pUserCache;
     }
 
     @Override
     public UserDetails loadUserByUsername(final String pUsername) throws UsernameNotFoundException
     {
-        // Vérifier si le nom d'utilisateur est un email
-        final var isValidEmail = new EmailValidator().isValid(pUsername, null);
-        if (isValidEmail)
+        final long start = System.nanoTime();
+        try
+        {
+            final var cached = this.userCache.getUserFromCache(pUsername);
+            if (cached != null)
+            {
+                return cached;
+            }
+            if (this.userCache.isUnknown(pUsername))
+            {
+                this.metrics.fail(AuthenticationMetrics.Failure.UNKNOWN_USER);
+                throw new UnknownLoginException(UNKNOWN_LOGIN_MSG + pUsername);
+            }
+            // Relevée avant la lecture : une modification concurrente de l'utilisateur empêche sa mise en cache.
+            final long generation = this.userCache.generation();
+
+            // Vérifier si le nom d'utilisateur est un email (null : recherche par email, comme auparavant).
+            final var isValidEmail = pUsername == null || LoginClassifier.isEmail(pUsername);
+            final var searchedFor = isValidEmail ? pUsername : ServerUtil.LOWER_CASE.apply(pUsername);
+            final Optional<User> user;
+            try
+            {
+                user = isValidEmail ? this.userService.getWithRolesByEmailIgnoreCase(searchedFor)
+                : this.userService.getWithRolesByUsernameIgnoreCase(searchedFor);
+            }
+            catch (CustomAppException e)
+            {
+                // Le service des utilisateurs signale l'absence de l'utilisateur recherché par cette exception.
+                this.metrics.fail(AuthenticationMetrics.Failure.UNKNOWN_USER);
+                this.userCache.putUnknown(pUsername, generation);
+                throw e;
+            }
+            if (user.isEmpty())
+            {
+                this.metrics.fail(AuthenticationMetrics.Failure.UNKNOWN_USER);
+                this.userCache.putUnknown(pUsername, generation);
+                throw new UnknownLoginException(String.format(ServerUtil.THREE_PATTERN, MAIL_MSG_1, searchedFor, USER_MSG_NOT_FOUND));
+            }
+            final var userDetails = this.createSpringSecurityUser(pUsername, user.get());
+            this.userCache.putUserInCache(pUsername, userDetails, generation);
+            return userDetails;
+        }
+        finally
         {
-            return this.userService.getWithRolesByEmailIgnoreCase(pUsername)//
-            .map(user -> ServerUtil.createSpringSecurityUser(pUsername, user))//
-            .orElseThrow(() -> new CustomAppException(String.format(ServerUtil.THREE_PATTERN, MAIL_MSG_1, pUsername, USER_MSG_NOT_FOUND)));
+            this.metrics.record(AuthenticationMetrics.Stage.USER_LOADING, start);
         }
+    }
 
-        //
-        final var lowercaseUsername = ServerUtil.LOWER_CASE.apply(pUsername);
+    /**
+     * Créer l'utilisateur de Spring Security à partir de l'utilisateur trouvé en base de données et compter l'échec
+     * s'il est désactivé.
+     * 
+     * @param pUsername l'identifiant de connexion.
+     * @param pUser     l'utilisateur trouvé en base de données.
+     * @return l'utilisateur de Spring Security.
+     */
+    private UserDetails createSpringSecurityUser(final String pUsername, final User pUser)
+    {
+        try
+        {
+            return ServerUtil.createSpringSecurityUser(pUsername, pUser);
+        }
+        catch (CustomAppException e)
+        {
+            this.metrics.fail(AuthenticationMetrics.Failure.DISABLED);
+            throw e;
+        }
+    }
+
+    /**
+     * Exception levée pour un identifiant de connexion inconnu, sans trace de pile : elle est levée pour chaque
+     * tentative de connexion avec un identifiant inexistant.
+     */
+    private static final class UnknownLoginException extends CustomAppException
+    {
+        private static final long serialVersionUID = 4315861027493186702L;
 
-        return this.userService.getWithRolesByUsernameIgnoreCase(lowercaseUsername)//
-        .map(user -> ServerUtil.createSpringSecurityUser(pUsername, user))//
-        .orElseThrow(() -> new CustomAppException(String.format(ServerUtil.THREE_PATTERN, MAIL_MSG_1, lowercaseUsername, USER_MSG_NOT_FOUND)));
+        private UnknownLoginException(final String pMessage)
+        {
+            super(pMessage);
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace()
+        {
+            return this;
+        }
     }
 }
@@ -0,0 +1,450 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : AuditSegment.java
+ * Date de création : 9 mars 2021
+ * Heure de création : 23:05:27
+ * Package : fr.vincent.tuto.server.security.audit
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.security.audit;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import fr.vincent.tuto.common.exception.CustomAppException;
+
+/**
+ * Segment du journal d'audit des connexions : un fichier projeté en mémoire composé d'un en-tête de 64 octets et
+ * d'enregistrements de taille fixe (24 octets, petit-boutiste) :
+ *
+ * <pre>
+ * 0  horodatage (long, millisecondes depuis l'epoch, écrit en dernier : 0 pour un emplacement non publié, -1 pour un
+ *    emplacement fermé au scellement)
+ * 8  empreinte du nom d'utilisateur (long)
+ * 16 identifiant du client (int)
+ * 20 résultat (octet : 1 succès, 0 échec)
+ * 21 motif de l'échec (octet : ordinal + 1 de AuthenticationMetrics.Failure, 0 pour un succès)
+ * </pre>
+ *
+ * Un segment ouvert ({@code .open}) est alimenté sans verrou : chaque écrivain réserve un emplacement par incrément
+ * atomique, écrit l'enregistrement puis publie son horodatage par compare-and-set. Le scellement ferme les réservations
+ * puis les emplacements réservés mais non publiés, par compare-and-set de leur horodatage : un écrivain retardataire ne
+ * peut plus publier dans un segment scellé et son ajout échoue. Un segment scellé ({@code .seg}) est sa copie
+ * compacte : sans emplacement vide et trié par horodatage.
+ *
+ * @author Vincent Otchoun
+ */
+final class AuditSegment
+{
+    //
+    static final String OPEN_SUFFIX = ".open";
+    static final String SEALED_SUFFIX = ".seg";
+    static final int HEADER_SIZE = 64;
+    static final int RECORD_SIZE = 24;
+    static final int TIMESTAMP = 0;
+    static final int USERNAME_HASH = 8;
+    static final int CLIENT_ID = 16;
+    static final int RESULT = 20;
+    static final int REASON = 21;
+
+    private static final String FILE_ERR_MSG = "Erreur lors de l'accès au segment du journal d'audit : ";
+    private static final String FORMAT_ERR_MSG = "Format inconnu du segment du journal d'audit : ";
+    private static final String TMP_SUFFIX = ".tmp";
+    private static final long MAGIC = 0x4745534944554141L; // « AAUDISEG » en petit-boutiste.
+    private static final int VERSION = 1;
+    private static final int PAGE_SIZE = 4096;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 8;
+    private static final int RECORD_SIZE_OFFSET = 12;
+    private static final int CAPACITY_OFFSET = 16;
+    private static final int COUNT_OFFSET = 20;
+    private static final int SEQUENCE_OFFSET = 24;
+    private static final int MIN_TIME_OFFSET = 32;
+    private static final int MAX_TIME_OFFSET = 40;
+    private static final long CLOSED = -1L; // horodatage d'un emplacement fermé au scellement.
+    private static final VarHandle LONG_VIEW = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final Path file;
+    private final long sequence;
+    private final ByteBuffer buffer; // projection d'un segment ouvert, null pour un segment scellé.
+    private final int capacity;
+    private final AtomicInteger next = new AtomicInteger(); // prochain emplacement à réserver.
+    private final long minTimeMillis; // horodatage du premier enregistrement d'un segment scellé.
+    private final long maxTimeMillis; // horodatage du dernier enregistrement d'un segment scellé.
+
+    private AuditSegment(final Path pFile, final long pSequence, final ByteBuffer pBuffer, final int pCapacity, final long pMinTimeMillis,
+    final long pMaxTimeMillis)
+    {
+        this.file = pFile;
+        this.sequence = pSequence;
+        this.buffer = pBuffer;
+        this.capacity = pCapacity;
+        this.minTimeMillis = pMinTimeMillis;
+        this.maxTimeMillis = pMaxTimeMillis;
+    }
+
+    /**
+     * Créer un nouveau segment ouvert. Les pages du fichier sont chargées en mémoire dès la création : les écritures
+     * des enregistrements ne déclenchent pas de défaut de page.
+     *
+     * @param pFile     le fichier du segment ({@link #OPEN_SUFFIX}).
+     * @param pSequence le numéro de séquence du segment.
+     * @param pCapacity le nombre d'enregistrements du segment.
+     * @return le segment.
+     */
+    static AuditSegment create(final Path pFile, final long pSequence, final int pCapacity)
+    {
+        final var buffer = map(pFile, HEADER_SIZE + pCapacity * RECORD_SIZE, true);
+        for (int i = 0; i < buffer.capacity(); i += PAGE_SIZE)
+        {
+            buffer.put(i, (byte) 0);
+        }
+        writeHeader(buffer, pSequence, pCapacity, 0, 0L, 0L);
+        return new AuditSegment(pFile, pSequence, buffer, pCapacity, 0L, 0L);
+    }
+
+    /**
+     * Ouvrir en lecture un segment ouvert d'une exécution précédente, pour le sceller.
+     *
+     * @param pFile le fichier du segment ({@link #OPEN_SUFFIX}).
+     * @return le segment, pleine capacité réservée.
+     */
+    static AuditSegment recover(final Path pFile)
+    {
+        final var buffer = map(pFile, -1, false);
+        checkHeader(buffer, pFile);
+        final var segment = new AuditSegment(pFile, buffer.getLong(SEQUENCE_OFFSET), buffer, buffer.getInt(CAPACITY_OFFSET), 0L, 0L);
+        segment.next.set(segment.capacity);
+        return segment;
+    }
+
+    /**
+     * Lire l'en-tête d'un segment scellé. Le fichier n'est projeté qu'à la lecture de ses enregistrements.
+     *
+     * @param pFile le fichier du segment ({@link #SEALED_SUFFIX}).
+     * @return le segment.
+     */
+    static AuditSegment sealed(final Path pFile)
+    {
+        final var header = map(pFile, -1, false);
+        checkHeader(header, pFile);
+        return new AuditSegment(pFile, header.getLong(SEQUENCE_OFFSET), null, header.getInt(COUNT_OFFSET), header.getLong(MIN_TIME_OFFSET), header
+        .getLong(MAX_TIME_OFFSET));
+    }
+
+    Path getFile()
+    {
+        return this.file;
+    }
+
+    long getSequence()
+    {
+        return this.sequence;
+    }
+
+    boolean isOpen()
+    {
+        return this.buffer != null;
+    }
+
+    long getMaxTimeMillis()
+    {
+        return this.maxTimeMillis;
+    }
+
+    /**
+     * Ajouter un enregistrement sans verrou.
+     *
+     * @param pTimestampMillis l'horodatage, strictement positif.
+     * @param pUsernameHash    l'empreinte du nom d'utilisateur.
+     * @param pClientId        l'identifiant du client.
+     * @param pReason          0 pour un succès, sinon le motif de l'échec.
+     * @return false si le segment est plein ou scellé.
+     */
+    boolean append(final long pTimestampMillis, final long pUsernameHash, final int pClientId, final int pReason)
+    {
+        final int index = this.reserve();
+        return index >= 0 && this.write(index, pTimestampMillis, pUsernameHash, pClientId, pReason);
+    }
+
+    /**
+     * Réserver un emplacement.
+     *
+     * @return l'emplacement réservé, -1 si le segment est plein ou scellé.
+     */
+    int reserve()
+    {
+        // Lecture préalable : les écrivains d'un segment plein n'incrémentent pas le compteur indéfiniment.
+        if (this.next.get() >= this.capacity)
+        {
+            return -1;
+        }
+        final int index = this.next.getAndIncrement();
+        return index < this.capacity ? index : -1;
+    }
+
+    /**
+     * Ecrire l'enregistrement dans l'emplacement réservé puis publier son horodatage.
+     *
+     * @param pIndex           l'emplacement réservé.
+     * @param pTimestampMillis l'horodatage, strictement positif.
+     * @param pUsernameHash    l'empreinte du nom d'utilisateur.
+     * @param pClientId        l'identifiant du client.
+     * @param pReason          0 pour un succès, sinon le motif de l'échec.
+     * @return false si l'emplacement a été fermé par le scellement du segment : l'enregistrement n'est pas conservé.
+     */
+    boolean write(final int pIndex, final long pTimestampMillis, final long pUsernameHash, final int pClientId, final int pReason)
+    {
+        final int offset = HEADER_SIZE + pIndex * RECORD_SIZE;
+        this.buffer.putLong(offset + USERNAME_HASH, pUsernameHash);
+        this.buffer.putInt(offset + CLIENT_ID, pClientId);
+        this.buffer.put(offset + RESULT, (byte) (pReason == 0 ? 1 : 0));
+        this.buffer.put(offset + REASON, (byte) pReason);
+        return LONG_VIEW.compareAndSet(this.buffer, offset + TIMESTAMP, 0L, pTimestampMillis);
+    }
+
+    /**
+     * Ecrire les pages modifiées du segment ouvert sur disque.
+     */
+    void force()
+    {
+        if (this.buffer instanceof MappedByteBuffer)
+        {
+            ((MappedByteBuffer) this.buffer).force();
+        }
+    }
+
+    /**
+     * Parcourir, sans copie, les enregistrements publiés dont l'horodatage est compris dans l'intervalle.
+     *
+     * @param pFromMillis le début de l'intervalle (inclus).
+     * @param pToMillis   la fin de l'intervalle (incluse).
+     * @param pRecord     la vue déplacée d'enregistrement en enregistrement.
+     * @param pConsumer   le consommateur des enregistrements.
+     * @return le nombre d'enregistrements parcourus.
+     */
+    long forEach(final long pFromMillis, final long pToMillis, final AuthenticationAuditRecord pRecord,
+    final Consumer<? super AuthenticationAuditRecord> pConsumer)
+    {
+        if (!this.isOpen())
+        {
+            if (this.capacity == 0 || this.maxTimeMillis < pFromMillis || this.minTimeMillis > pToMillis)
+            {
+                return 0;
+            }
+            return forEachSorted(map(this.file, -1, false), this.capacity, pFromMillis, pToMillis, pRecord, pConsumer);
+        }
+        final int limit = Math.min(this.next.get(), this.capacity);
+        long count = 0;
+        for (int i = 0; i < limit; i++)
+        {
+            final int offset = HEADER_SIZE + i * RECORD_SIZE;
+            final long timestamp = (long) LONG_VIEW.getAcquire(this.buffer, offset + TIMESTAMP);
+            if (timestamp > 0L && timestamp >= pFromMillis && timestamp <= pToMillis)
+            {
+                pConsumer.accept(pRecord.moveTo(this.buffer, offset));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Sceller le segment ouvert : fermer les réservations et les emplacements non publiés, copier les enregistrements
+     * publiés, triés par horodatage, dans le segment scellé de même séquence, puis supprimer le segment ouvert.
+     *
+     * @param pDirectory le répertoire du journal.
+     * @return le segment scellé.
+     */
+    AuditSegment seal(final Path pDirectory)
+    {
+        final int limit = Math.min(this.next.getAndSet(this.capacity), this.capacity);
+        final int[] offsets = new int[limit];
+        int count = 0;
+        for (int i = 0; i < limit; i++)
+        {
+            final int offset = HEADER_SIZE + i * RECORD_SIZE;
+            if (this.isPublished(offset))
+            {
+                offsets[count++] = offset;
+            }
+        }
+        // Tri par insertion : les horodatages sont pris juste avant la réservation, presque dans l'ordre.
+        for (int i = 1; i < count; i++)
+        {
+            final int offset = offsets[i];
+            final long timestamp = this.buffer.getLong(offset + TIMESTAMP);
+            int j = i - 1;
+            while (j >= 0 && this.buffer.getLong(offsets[j] + TIMESTAMP) > timestamp)
+            {
+                offsets[j + 1] = offsets[j];
+                j--;
+            }
+            offsets[j + 1] = offset;
+        }
+
+        final var sealedFile = pDirectory.resolve(fileName(this.sequence, SEALED_SUFFIX));
+        final var tmpFile = pDirectory.resolve(fileName(this.sequence, SEALED_SUFFIX + TMP_SUFFIX));
+        final long minTime = count > 0 ? this.buffer.getLong(offsets[0] + TIMESTAMP) : 0L;
+        final long maxTime = count > 0 ? this.buffer.getLong(offsets[count - 1] + TIMESTAMP) : 0L;
+        try
+        {
+            Files.deleteIfExists(tmpFile); // copie interrompue d'une exécution précédente.
+        }
+        catch (IOException e)
+        {
+            throw new CustomAppException(FILE_ERR_MSG + tmpFile, e);
+        }
+        final var target = map(tmpFile, HEADER_SIZE + count * RECORD_SIZE, true);
+        writeHeader(target, this.sequence, count, count, minTime, maxTime);
+        for (int i = 0; i < count; i++)
+        {
+            final int from = offsets[i];
+            final int to = HEADER_SIZE + i * RECORD_SIZE;
+            target.putLong(to, this.buffer.getLong(from));
+            target.putLong(to + 8, this.buffer.getLong(from + 8));
+            target.putLong(to + 16, this.buffer.getLong(from + 16));
+        }
+        ((MappedByteBuffer) target).force();
+        try
+        {
+            Files.move(tmpFile, sealedFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.deleteIfExists(this.file);
+        }
+        catch (IOException e)
+        {
+            throw new CustomAppException(FILE_ERR_MSG + sealedFile, e);
+        }
+        return new AuditSegment(sealedFile, this.sequence, null, count, minTime, maxTime);
+    }
+
+    /**
+     * Vérifier si l'emplacement est publié, en fermant l'emplacement réservé mais non publié d'un segment en écriture.
+     *
+     * @param pOffset la position de l'emplacement.
+     * @return true si l'enregistrement est publié, false sinon.
+     */
+    private boolean isPublished(final int pOffset)
+    {
+        final long timestamp = (long) LONG_VIEW.getAcquire(this.buffer, pOffset + TIMESTAMP);
+        // Segment d'une exécution précédente (lecture seule) : aucun écrivain à écarter.
+        if (timestamp != 0L || this.buffer.isReadOnly())
+        {
+            return timestamp > 0L;
+        }
+        // Echec du compare-and-set : l'écrivain a publié son horodatage entre-temps.
+        return !LONG_VIEW.compareAndSet(this.buffer, pOffset + TIMESTAMP, 0L, CLOSED);
+    }
+
+    /**
+     * Obtenir le nom du fichier d'un segment.
+     *
+     * @param pSequence le numéro de séquence du segment.
+     * @param pSuffix   {@link #OPEN_SUFFIX} ou {@link #SEALED_SUFFIX}.
+     * @return le nom du fichier.
+     */
+    static String fileName(final long pSequence, final String pSuffix)
+    {
+        return String.format("auth-audit-%016d%s", pSequence, pSuffix);
+    }
+
+    /**
+     * Parcourir un segment trié : recherche dichotomique du premier enregistrement de l'intervalle.
+     */
+    private static long forEachSorted(final ByteBuffer pBuffer, final int pCount, final long pFromMillis, final long pToMillis,
+    final AuthenticationAuditRecord pRecord, final Consumer<? super AuthenticationAuditRecord> pConsumer)
+    {
+        int low = 0;
+        int high = pCount;
+        while (low < high)
+        {
+            final int middle = (low + high) >>> 1;
+            if (pBuffer.getLong(HEADER_SIZE + middle * RECORD_SIZE + TIMESTAMP) < pFromMillis)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+        long count = 0;
+        for (int i = low; i < pCount; i++)
+        {
+            final int offset = HEADER_SIZE + i * RECORD_SIZE;
+            if (pBuffer.getLong(offset + TIMESTAMP) > pToMillis)
+            {
+                break;
+            }
+            pConsumer.accept(pRecord.moveTo(pBuffer, offset));
+            count++;
+        }
+        return count;
+    }
+
+    private static void writeHeader(final ByteBuffer pBuffer, final long pSequence, final int pCapacity, final int pCount, final long pMinTime,
+    final long pMaxTime)
+    {
+        pBuffer.putLong(MAGIC_OFFSET, MAGIC);
+        pBuffer.putInt(VERSION_OFFSET, VERSION);
+        pBuffer.putInt(RECORD_SIZE_OFFSET, RECORD_SIZE);
+        pBuffer.putInt(CAPACITY_OFFSET, pCapacity);
+        pBuffer.putInt(COUNT_OFFSET, pCount);
+        pBuffer.putLong(SEQUENCE_OFFSET, pSequence);
+        pBuffer.putLong(MIN_TIME_OFFSET, pMinTime);
+        pBuffer.putLong(MAX_TIME_OFFSET, pMaxTime);
+    }
+
+    private static void checkHeader(final ByteBuffer pBuffer, final Path pFile)
+    {
+        if (pBuffer.capacity() < HEADER_SIZE || pBuffer.getLong(MAGIC_OFFSET) != MAGIC || pBuffer.getInt(VERSION_OFFSET) != VERSION || pBuffer
+        .getInt(RECORD_SIZE_OFFSET) != RECORD_SIZE || pBuffer.capacity() < HEADER_SIZE + (long) pBuffer.getInt(CAPACITY_OFFSET) * RECORD_SIZE)
+        {
+            throw new CustomAppException(FORMAT_ERR_MSG + pFile);
+        }
+    }
+
+    /**
+     * Projeter le fichier en mémoire.
+     *
+     * @param pFile     le fichier.
+     * @param pLength   la taille du nouveau fichier, ou -1 pour projeter un fichier existant entier.
+     * @param pWritable true pour créer le fichier et le projeter en écriture.
+     * @return la projection, petit-boutiste.
+     */
+    private static ByteBuffer map(final Path pFile, final int pLength, final boolean pWritable)
+    {
+        try
+        {
+            if (pWritable)
+            {
+                try (var channel = FileChannel.open(pFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE))
+                {
+                    return channel.map(FileChannel.MapMode.READ_WRITE, 0, pLength).order(ByteOrder.LITTLE_ENDIAN);
+                }
+            }
+            try (var channel = FileChannel.open(pFile, StandardOpenOption.READ))
+            {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+        catch (IOException e)
+        {
+            throw new CustomAppException(FILE_ERR_MSG + pFile, e);
+        }
+    }
+}
@@ -0,0 +1,583 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : AuthenticationAuditJournal.java
+ * Date de création : 9 mars 2021
+ * Heure de création : 23:24:03
+ * Package : fr.vincent.tuto.server.security.audit
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.security.audit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.authentication.event.AbstractAuthenticationFailureEvent;
+import org.springframework.security.authentication.event.AuthenticationSuccessEvent;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.stereotype.Component;
+
+import fr.vincent.tuto.common.exception.CustomAppException;
+import fr.vincent.tuto.server.config.props.ServerSecurityProps;
+import fr.vincent.tuto.server.security.jwt.AuthenticationMetrics;
+import fr.vincent.tuto.server.security.throttle.ThrottlingAuthenticationProvider;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Journal d'audit des connexions : chaque succès et chaque échec de la connexion par mot de passe est ajouté, sans
+ * verrou ni écriture en base de données, au segment ouvert projeté en mémoire ({@link AuditSegment}). Le nom
+ * d'utilisateur (sans distinction de casse) et l'adresse du client sont conservés sous la forme d'empreintes HMAC-SHA256
+ * tronquées à 64 bits. La clé est conservée hors du répertoire du journal ({@code keyFile}) pour les recherches
+ * ultérieures ({@link #usernameHash(String)}, {@link #clientId(String)}) : une copie des segments ne suffit pas à
+ * retrouver les noms d'utilisateurs par dictionnaire. Un fichier de clé illisible ou tronqué fait échouer le démarrage
+ * plutôt que d'être remplacé, ce qui rendrait les segments existants introuvables.
+ * <p>
+ * Le segment plein est remplacé par le segment de réserve, préparé à l'avance par le thread du journal : une connexion
+ * n'attend jamais la création d'un fichier. Si aucune réserve n'est prête, l'enregistrement est abandonné et compté. Le
+ * thread du journal écrit périodiquement les pages modifiées sur disque, scelle les segments remplacés (copie compacte
+ * triée par horodatage) et supprime les segments dont la durée de conservation est dépassée. Le compteur
+ * security.audit.records (étiquette result) compte les enregistrements ajoutés (appended) et abandonnés (dropped).
+ *
+ * @author Vincent Otchoun
+ */
+@Slf4j
+@Component
+public class AuthenticationAuditJournal implements InitializingBean, DisposableBean, MeterBinder
+{
+    //
+    private static final String THREAD_NAME = "auth-audit-journal";
+    private static final String FILE_PREFIX = "auth-audit-";
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int KEY_BYTES = 32;
+    private static final String RECORDS_COUNTER = "security.audit.records";
+    private static final String OPEN_ERR_MSG = "Erreur lors de l'ouverture du journal d'audit des connexions : ";
+    private static final String CAPACITY_ERR_MSG = "Nombre d'enregistrements par segment du journal d'audit invalide : ";
+    private static final String KEY_LOCATION_ERR_MSG = "La clé du journal d'audit doit être conservée hors du répertoire du journal : ";
+    private static final String KEY_ERR_MSG = "Fichier de clé du journal d'audit invalide (taille attendue : " + KEY_BYTES + " octets) : ";
+    private static final String HMAC_ERR_MSG = "Erreur lors de l'initialisation du calcul des empreintes du journal d'audit.";
+    private static final String SEGMENT_ERR_MSG = "Erreur lors de la gestion des segments du journal d'audit : {}";
+    private static final String SKIPPED_MSG = "Segment du journal d'audit ignoré : {}";
+    private static final String LOAD_MSG = "Journal d'audit des connexions ouvert : {} segment(s) dans {}.";
+
+    private final ServerSecurityProps.AuditJournalProps journalProps;
+    private final ConcurrentSkipListMap<Long, AuditSegment> segments = new ConcurrentSkipListMap<>();
+    private final AtomicReference<AuditSegment> active = new AtomicReference<>();
+    private final AtomicReference<AuditSegment> spare = new AtomicReference<>();
+    private final AtomicLong nextSequence = new AtomicLong(1L);
+    private final CompositeMeterRegistry registry = new CompositeMeterRegistry();
+    private final Counter appended;
+    private final Counter dropped;
+
+    private Path directory;
+    private ThreadLocal<Mac> macs;
+    private ScheduledExecutorService roller;
+
+    /**
+     * Constructeur avec en paramètre les propriétés pour injection.
+     *
+     * @param pSecurityProps les propriétés de sécurisation du serveur.
+     */
+    public AuthenticationAuditJournal(final ServerSecurityProps pSecurityProps)
+    {
+        this.journalProps = pSecurityProps.getAuditJournal();
+        this.appended = this.counter("appended");
+        this.dropped = this.counter("dropped");
+        Gauge.builder("security.audit.segments", this.segments, ConcurrentSkipListMap::size)//
+        .description("Nombre de segments du journal d'audit des connexions")//
+        .register(this.registry);
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception
+    {
+        if (!this.journalProps.isEnabled())
+        {
+            return;
+        }
+        final int segmentRecords = this.journalProps.getSegmentRecords();
+        if (segmentRecords < 1 || AuditSegment.HEADER_SIZE + (long) segmentRecords * AuditSegment.RECORD_SIZE > Integer.MAX_VALUE)
+        {
+            throw new CustomAppException(CAPACITY_ERR_MSG + segmentRecords);
+        }
+        this.directory = Paths.get(this.journalProps.getDirectory()).toAbsolutePath().normalize();
+        final var keyFile = Paths.get(this.journalProps.getKeyFile()).toAbsolutePath().normalize();
+        if (keyFile.startsWith(this.directory))
+        {
+            throw new CustomAppException(KEY_LOCATION_ERR_MSG + keyFile);
+        }
+        try
+        {
+            Files.createDirectories(this.directory);
+            final var key = new SecretKeySpec(loadKey(keyFile), HMAC_ALGORITHM);
+            this.macs = ThreadLocal.withInitial(() -> newMac(key));
+            this.macs.get(); // algorithme indisponible : échec au démarrage.
+            this.loadSegments();
+        }
+        catch (IOException e)
+        {
+            throw new CustomAppException(OPEN_ERR_MSG + this.directory, e);
+        }
+        this.active.set(this.newSegment());
+        this.spare.set(this.newSegment());
+        log.info(LOAD_MSG, this.segments.size(), this.directory);
+
+        final long interval = Math.max(1L, this.journalProps.getFlushIntervalMillis());
+        this.roller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final var thread = new Thread(runnable, THREAD_NAME);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.roller.scheduleWithFixedDelay(this::maintain, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() throws Exception
+    {
+        if (this.roller == null)
+        {
+            return;
+        }
+        this.active.set(null);
+        this.spare.set(null);
+        this.roller.shutdown();
+        this.roller.awaitTermination(5, TimeUnit.SECONDS);
+        // Sceller les segments encore ouverts : actif, réserve et segments remplacés en attente.
+        this.segments.values().stream().filter(AuditSegment::isOpen).collect(Collectors.toList()).forEach(this::retire);
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry pRegistry)
+    {
+        this.registry.add(pRegistry);
+    }
+
+    public boolean isEnabled()
+    {
+        return this.active.get() != null;
+    }
+
+    /**
+     * Journaliser la connexion réussie.
+     *
+     * @param pEvent l'événement de la connexion réussie.
+     */
+    @EventListener
+    public void onAuthenticationSuccess(final AuthenticationSuccessEvent pEvent)
+    {
+        final var authentication = pEvent.getAuthentication();
+        this.append(pEvent.getTimestamp(), authentication.getName(), ThrottlingAuthenticationProvider.clientAddressOf(authentication), null);
+    }
+
+    /**
+     * Journaliser l'échec de la connexion et son motif.
+     *
+     * @param pEvent l'événement de l'échec.
+     */
+    @EventListener
+    public void onAuthenticationFailure(final AbstractAuthenticationFailureEvent pEvent)
+    {
+        final var authentication = pEvent.getAuthentication();
+        this.append(pEvent.getTimestamp(), authentication.getName(), ThrottlingAuthenticationProvider.clientAddressOf(authentication), reasonOf(
+        pEvent.getException()));
+    }
+
+    /**
+     * Ajouter un enregistrement au journal, sans verrou et sans attente.
+     *
+     * @param pTimestampMillis l'horodatage en millisecondes depuis l'epoch (strictement positif).
+     * @param pUsername        le nom d'utilisateur ou l'email de la connexion.
+     * @param pClientAddress   l'adresse du client, null si elle est inconnue.
+     * @param pFailure         le motif de l'échec, null pour un succès.
+     * @return true si l'enregistrement est ajouté, false si le journal est désactivé ou l'enregistrement abandonné.
+     */
+    public boolean append(final long pTimestampMillis, final String pUsername, final String pClientAddress,
+    final AuthenticationMetrics.Failure pFailure)
+    {
+        AuditSegment segment = this.active.get();
+        if (segment == null)
+        {
+            return false;
+        }
+        final long usernameHash = this.usernameHash(pUsername);
+        final int clientId = this.clientId(pClientAddress);
+        final int reason = pFailure != null ? pFailure.ordinal() + 1 : 0;
+        while (!segment.append(pTimestampMillis, usernameHash, clientId, reason))
+        {
+            segment = this.rollOver(segment);
+            if (segment == null)
+            {
+                this.dropped.increment();
+                return false;
+            }
+        }
+        this.appended.increment();
+        return true;
+    }
+
+    /**
+     * Parcourir, sans copie, les enregistrements dont l'horodatage est compris dans l'intervalle : segment par segment
+     * dans l'ordre de leur création, par horodatage croissant dans chaque segment scellé. La vue fournie au
+     * consommateur est réutilisée d'un enregistrement à l'autre.
+     *
+     * @param pFromMillis le début de l'intervalle en millisecondes depuis l'epoch (inclus).
+     * @param pToMillis   la fin de l'intervalle en millisecondes depuis l'epoch (incluse).
+     * @param pConsumer   le consommateur des enregistrements.
+     * @return le nombre d'enregistrements parcourus.
+     */
+    public long read(final long pFromMillis, final long pToMillis, final Consumer<? super AuthenticationAuditRecord> pConsumer)
+    {
+        final var record = new AuthenticationAuditRecord();
+        long count = 0;
+        for (final AuditSegment segment : this.segments.values())
+        {
+            try
+            {
+                count += segment.forEach(pFromMillis, pToMillis, record, pConsumer);
+            }
+            catch (CustomAppException e)
+            {
+                // Segment supprimé pendant la lecture (durée de conservation dépassée).
+                if (Files.exists(segment.getFile()))
+                {
+                    throw e;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Obtenir l'empreinte à clé du nom d'utilisateur, telle qu'elle est enregistrée dans le journal.
+     *
+     * @param pUsername le nom d'utilisateur ou l'email (sans distinction de casse).
+     * @return l'empreinte, 0 si le nom est null.
+     */
+    public long usernameHash(final String pUsername)
+    {
+        return pUsername != null ? this.hash(pUsername) : 0L;
+    }
+
+    /**
+     * Obtenir l'identifiant du client, tel qu'il est enregistré dans le journal.
+     *
+     * @param pClientAddress l'adresse du client.
+     * @return l'identifiant, 0 si l'adresse est inconnue.
+     */
+    public int clientId(final String pClientAddress)
+    {
+        return pClientAddress != null ? (int) (this.hash(pClientAddress) >>> 32) : 0;
+    }
+
+    /**
+     * Obtenir le motif de l'échec à journaliser : celui de la cause pour un échec interne, {@code OTHER} à défaut.
+     *
+     * @param pException l'exception de l'échec.
+     * @return le motif.
+     */
+    static AuthenticationMetrics.Failure reasonOf(final AuthenticationException pException)
+    {
+        var failure = AuthenticationMetrics.failureOf(pException);
+        if (failure == null && pException.getCause() instanceof AuthenticationException)
+        {
+            failure = AuthenticationMetrics.failureOf((AuthenticationException) pException.getCause());
+        }
+        return failure != null ? failure : AuthenticationMetrics.Failure.OTHER;
+    }
+
+    /**
+     * Exécuter une étape de maintenance dans le thread du journal et attendre sa fin.
+     *
+     * @throws Exception en cas d'erreur ou d'interruption.
+     */
+    void awaitMaintenance() throws Exception
+    {
+        this.roller.submit(this::maintain).get();
+    }
+
+    /**
+     * Remplacer le segment plein par le segment de réserve, sans attendre. La réserve n'est retirée qu'après être
+     * devenue le segment actif : un écrivain concurrent qui la trouve encore en place échoue à la remplacer et relit le
+     * segment actif, au lieu d'abandonner son enregistrement.
+     *
+     * @param pFull le segment plein.
+     * @return le segment actif, null si aucun segment suivant n'est prêt (l'enregistrement est abandonné).
+     */
+    private AuditSegment rollOver(final AuditSegment pFull)
+    {
+        while (true)
+        {
+            final var current = this.active.get();
+            if (current != pFull)
+            {
+                return current; // Déjà remplacé par un autre écrivain, ou journal fermé.
+            }
+            final var next = this.spare.get();
+            if (next == null || next == pFull)
+            {
+                // Aucune réserve, ou réserve déjà devenue le segment plein : relire le segment actif une dernière fois.
+                final var latest = this.active.get();
+                return latest != pFull ? latest : null;
+            }
+            if (this.active.compareAndSet(pFull, next))
+            {
+                this.spare.compareAndSet(next, null);
+                // Délai de grâce : les écrivains qui ont réservé un emplacement du segment plein terminent leur écriture.
+                // Ceux qui n'ont pas publié au scellement échouent et ajoutent leur enregistrement au segment suivant.
+                this.schedule(() -> this.retire(pFull), Math.max(1L, this.journalProps.getFlushIntervalMillis()));
+                this.schedule(this::prepareSpare, 0L);
+                return next;
+            }
+            // Remplacé par un autre écrivain, ou journal fermé : relire le segment actif.
+        }
+    }
+
+    /**
+     * Etape périodique : écrire le segment actif sur disque, préparer la réserve et supprimer les segments dont la
+     * durée de conservation est dépassée.
+     */
+    private void maintain()
+    {
+        try
+        {
+            final var current = this.active.get();
+            if (current != null)
+            {
+                current.force();
+            }
+            this.prepareSpare();
+            final long expiredBefore = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(this.journalProps.getRetentionDays());
+            for (final AuditSegment segment : this.segments.values())
+            {
+                if (!segment.isOpen() && segment.getMaxTimeMillis() < expiredBefore)
+                {
+                    this.delete(segment);
+                }
+            }
+        }
+        catch (RuntimeException e)
+        {
+            log.error(SEGMENT_ERR_MSG, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Créer le segment de réserve s'il a été utilisé.
+     */
+    private void prepareSpare()
+    {
+        if (this.spare.get() == null && this.active.get() != null)
+        {
+            try
+            {
+                this.spare.set(this.newSegment());
+            }
+            catch (CustomAppException e)
+            {
+                log.error(SEGMENT_ERR_MSG, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Sceller le segment remplacé. Un segment sans enregistrement est supprimé.
+     *
+     * @param pSegment le segment ouvert.
+     */
+    private void retire(final AuditSegment pSegment)
+    {
+        try
+        {
+            final var sealed = pSegment.seal(this.directory);
+            this.segments.put(sealed.getSequence(), sealed);
+            if (sealed.getMaxTimeMillis() == 0L)
+            {
+                this.delete(sealed);
+            }
+        }
+        catch (CustomAppException e)
+        {
+            log.error(SEGMENT_ERR_MSG, e.getMessage(), e);
+        }
+    }
+
+    private AuditSegment newSegment()
+    {
+        final long sequence = this.nextSequence.getAndIncrement();
+        final var segment = AuditSegment.create(this.directory.resolve(AuditSegment.fileName(sequence, AuditSegment.OPEN_SUFFIX)), sequence,
+        this.journalProps.getSegmentRecords());
+        this.segments.put(sequence, segment);
+        return segment;
+    }
+
+    private void delete(final AuditSegment pSegment)
+    {
+        this.segments.remove(pSegment.getSequence(), pSegment);
+        try
+        {
+            Files.deleteIfExists(pSegment.getFile());
+        }
+        catch (IOException e)
+        {
+            log.error(SEGMENT_ERR_MSG, pSegment.getFile(), e);
+        }
+    }
+
+    private void schedule(final Runnable pTask, final long pDelayMillis)
+    {
+        try
+        {
+            this.roller.schedule(pTask, pDelayMillis, TimeUnit.MILLISECONDS);
+        }
+        catch (RejectedExecutionException e)
+        {
+            // Journal fermé : les segments ouverts sont scellés à la fermeture.
+        }
+    }
+
+    /**
+     * Charger les segments des exécutions précédentes. Les segments restés ouverts (arrêt brutal) sont scellés.
+     *
+     * @throws IOException en cas d'erreur de lecture du répertoire.
+     */
+    private void loadSegments() throws IOException
+    {
+        try (var files = Files.list(this.directory))
+        {
+            for (final Path file : files.filter(path -> path.getFileName().toString().startsWith(FILE_PREFIX)).sorted().collect(Collectors
+            .toList()))
+            {
+                final var name = file.getFileName().toString();
+                try
+                {
+                    if (name.endsWith(AuditSegment.SEALED_SUFFIX))
+                    {
+                        final var segment = AuditSegment.sealed(file);
+                        this.segments.put(segment.getSequence(), segment);
+                    }
+                    else if (name.endsWith(AuditSegment.OPEN_SUFFIX))
+                    {
+                        final var segment = AuditSegment.recover(file);
+                        if (this.segments.containsKey(segment.getSequence()))
+                        {
+                            Files.delete(file); // Déjà scellé avant l'arrêt.
+                        }
+                        else
+                        {
+                            this.retire(segment);
+                        }
+                    }
+                    else
+                    {
+                        Files.delete(file); // Copie temporaire interrompue.
+                    }
+                }
+                catch (CustomAppException e)
+                {
+                    log.warn(SKIPPED_MSG, e.getMessage());
+                }
+            }
+        }
+        if (!this.segments.isEmpty())
+        {
+            this.nextSequence.set(this.segments.lastKey() + 1);
+        }
+    }
+
+    /**
+     * Calculer l'empreinte de la valeur sans distinction de casse : HMAC-SHA256 par la clé du journal, tronqué aux 64
+     * premiers bits.
+     */
+    private long hash(final String pValue)
+    {
+        final var digest = this.macs.get().doFinal(pValue.toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8));
+        return ByteBuffer.wrap(digest).getLong();
+    }
+
+    private static Mac newMac(final SecretKeySpec pKey)
+    {
+        try
+        {
+            final var mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(pKey);
+            return mac;
+        }
+        catch (GeneralSecurityException e)
+        {
+            throw new CustomAppException(HMAC_ERR_MSG, e);
+        }
+    }
+
+    private Counter counter(final String pResult)
+    {
+        return Counter.builder(RECORDS_COUNTER)//
+        .description("Nombre d'enregistrements du journal d'audit des connexions")//
+        .tag("result", pResult)//
+        .register(this.registry);
+    }
+
+    /**
+     * Lire la clé des empreintes du journal, ou la créer au premier démarrage (lisible par le seul propriétaire si le
+     * système de fichiers le permet). Un fichier existant de taille inattendue n'est jamais remplacé.
+     *
+     * @param pKeyFile le fichier de la clé.
+     * @return la clé.
+     * @throws IOException en cas d'erreur de lecture ou d'écriture du fichier.
+     */
+    private static byte[] loadKey(final Path pKeyFile) throws IOException
+    {
+        if (Files.exists(pKeyFile))
+        {
+            final var bytes = Files.readAllBytes(pKeyFile);
+            if (bytes.length != KEY_BYTES)
+            {
+                throw new CustomAppException(KEY_ERR_MSG + pKeyFile);
+            }
+            return bytes;
+        }
+        final var key = new byte[KEY_BYTES];
+        new SecureRandom().nextBytes(key);
+        final var parent = pKeyFile.getParent();
+        if (parent != null)
+        {
+            Files.createDirectories(parent);
+        }
+        Files.write(pKeyFile, key, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.SYNC);
+        if (Files.getFileAttributeView(pKeyFile, PosixFileAttributeView.class) != null)
+        {
+            Files.setPosixFilePermissions(pKeyFile, PosixFilePermissions.fromString("rw-------"));
+        }
+        return key;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : AuthenticationAuditRecord.java
+ * Date de création : 9 mars 2021
+ * Heure de création : 23:12:50
+ * Package : fr.vincent.tuto.server.security.audit
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.security.audit;
+
+import java.nio.ByteBuffer;
+
+import fr.vincent.tuto.server.security.jwt.AuthenticationMetrics;
+
+/**
+ * Vue d'un enregistrement du journal d'audit des connexions, lue directement dans le segment projeté en mémoire. Une
+ * même vue est déplacée d'enregistrement en enregistrement pendant une lecture : elle ne doit pas être conservée
+ * au-delà de l'appel du consommateur.
+ *
+ * @author Vincent Otchoun
+ */
+public final class AuthenticationAuditRecord
+{
+    //
+    private static final AuthenticationMetrics.Failure[] FAILURES = AuthenticationMetrics.Failure.values();
+
+    private ByteBuffer buffer;
+    private int offset;
+
+    AuthenticationAuditRecord()
+    {
+        // Instanciée par le journal à chaque lecture.
+    }
+
+    AuthenticationAuditRecord moveTo(final ByteBuffer pBuffer, final int pOffset)
+    {
+        this.buffer = pBuffer;
+        this.offset = pOffset;
+        return this;
+    }
+
+    public long getTimestampMillis()
+    {
+        return this.buffer.getLong(this.offset + AuditSegment.TIMESTAMP);
+    }
+
+    public long getUsernameHash()
+    {
+        return this.buffer.getLong(this.offset + AuditSegment.USERNAME_HASH);
+    }
+
+    public int getClientId()
+    {
+        return this.buffer.getInt(this.offset + AuditSegment.CLIENT_ID);
+    }
+
+    public boolean isSuccess()
+    {
+        return this.buffer.get(this.offset + AuditSegment.RESULT) != 0;
+    }
+
+    /**
+     * Obtenir le motif de l'échec.
+     *
+     * @return le motif, null pour un succès.
+     */
+    public AuthenticationMetrics.Failure getReason()
+    {
+        final int reason = this.buffer.get(this.offset + AuditSegment.REASON);
+        return reason > 0 && reason <= FAILURES.length ? FAILURES[reason - 1] : null;
+    }
+}
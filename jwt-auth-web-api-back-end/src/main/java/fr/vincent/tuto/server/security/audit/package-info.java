@@ -0,0 +1,17 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : package-info.java
+ * Date de création : 9 mars 2021
+ * Heure de création : 23:02:41
+ * Package : fr.vincent.tuto.server.security.audit
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+/**
+ * Journal d'audit des connexions : segments de taille fixe projetés en mémoire, en ajout seul.
+ *
+ * @author Vincent Otchoun
+ */
+package fr.vincent.tuto.server.security.audit;
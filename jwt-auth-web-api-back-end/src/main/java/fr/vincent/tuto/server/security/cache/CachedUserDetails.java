@@ -0,0 +1,52 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : CachedUserDetails.java
+ * Date de création : 9 mars 2021
+ * Heure de création : 21:12:47
+ * Package : fr.vincent.tuto.server.security.cache
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.security.cache;
+
+import java.util.Collection;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+/**
+ * Utilisateur de Spring Security conservé par le {@link UserDetailsCache} et partagé par toutes les connexions du
+ * compte. L'effacement des secrets de l'authentification réussie ne modifie pas son mot de passe chiffré : aucune
+ * copie de l'utilisateur n'est nécessaire à chaque connexion.
+ *
+ * @author Vincent Otchoun
+ */
+public class CachedUserDetails extends User
+{
+    private static final long serialVersionUID = -2318826601840187113L;
+
+    /**
+     * Constructeur avec en paramètres les informations de l'utilisateur.
+     *
+     * @param pUsername              le nom d'utilisateur.
+     * @param pPassword              le mot de passe chiffré.
+     * @param pEnabled               true si le compte est activé.
+     * @param pAccountNonExpired     true si le compte n'est pas expiré.
+     * @param pCredentialsNonExpired true si le mot de passe n'est pas expiré.
+     * @param pAccountNonLocked      true si le compte n'est pas verrouillé.
+     * @param pAuthorities           les autorités de l'utilisateur.
+     */
+    public CachedUserDetails(final String pUsername, final String pPassword, final boolean pEnabled, final boolean pAccountNonExpired,
+    final boolean pCredentialsNonExpired, final boolean pAccountNonLocked, final Collection<? extends GrantedAuthority> pAuthorities)
+    {
+        super(pUsername, pPassword, pEnabled, pAccountNonExpired, pCredentialsNonExpired, pAccountNonLocked, pAuthorities);
+    }
+
+    @Override
+    public void eraseCredentials()
+    {
+        // Utilisateur partagé : le mot de passe chiffré est conservé pour les connexions suivantes.
+    }
+}
@@ -0,0 +1,363 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : UserDetailsCache.java
+ * Date de création : 9 mars 2021
+ * Heure de création : 13:04:51
+ * Package : fr.vincent.tuto.server.security.cache
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.security.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.security.core.userdetails.UserCache;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import fr.vincent.tuto.server.config.props.ServerSecurityProps;
+import fr.vincent.tuto.server.model.po.User;
+import fr.vincent.tuto.server.util.ServerUtil;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Cache des utilisateurs de Spring Security ({@link UserDetails}) déjà construits, par identifiant de connexion (nom
+ * d'utilisateur ou email, en minuscules). Une connexion répétée du même compte ne coûte ni requête ni allocation : les
+ * autorités ne sont pas reconstruites.
+ * <p>
+ * Les identifiants inconnus sont aussi conservés, dans une table distincte et bornée, pour une durée courte : les
+ * tentatives répétées avec des identifiants inexistants (credential stuffing) n'occupent plus de connexion à la base
+ * de données.
+ * <p>
+ * Les entrées d'un utilisateur sont supprimées dès sa création, sa modification ou sa suppression par le service des
+ * utilisateurs, puis de nouveau après la validation de la transaction : un chargement concurrent ne peut pas remettre
+ * en cache l'état antérieur ni marquer comme inconnu un utilisateur tout juste créé. Un chargement commencé avant une suppression n'est pas conservé (numéro de génération).
+ * La durée de conservation ne sert que de filet de sécurité pour les modifications faites hors de l'application.
+ * <p>
+ * Le taux de succès du cache est exposé par Micrometer (security.user.cache.*).
+ *
+ * @author Vincent Otchoun
+ */
+@Component
+public class UserDetailsCache implements UserCache, MeterBinder
+{
+    //
+    private static final long PURGE_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(1);
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long timeToLiveMillis;
+    private final int unknownMaxEntries;
+    private final long unknownTimeToLiveMillis;
+    private final ConcurrentHashMap<String, Entry> entries;
+    private final ConcurrentHashMap<String, Long> unknownLogins; // fin de validité par identifiant inconnu.
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder unknownHits = new LongAdder();
+    private volatile long lastPurgeMillis;
+
+    /**
+     * Constructeur avec en paramètre le bean pour injection.
+     *
+     * @param pSecurityProps les propriétés de sécurisation du serveur.
+     */
+    public UserDetailsCache(final ServerSecurityProps pSecurityProps)
+    {
+        this.enabled = pSecurityProps.getUserCache().isEnabled();
+        this.maxEntries = pSecurityProps.getUserCache().getMaxEntries();
+        this.timeToLiveMillis = TimeUnit.SECONDS.toMillis(pSecurityProps.getUserCache().getTimeToLiveSeconds());
+        this.unknownMaxEntries = pSecurityProps.getUserCache().getUnknownMaxEntries();
+        this.unknownTimeToLiveMillis = TimeUnit.SECONDS.toMillis(pSecurityProps.getUserCache().getUnknownTimeToLiveSeconds());
+        this.entries = new ConcurrentHashMap<>(Math.min(this.maxEntries, 1 << 16));
+        this.unknownLogins = new ConcurrentHashMap<>(Math.min(this.unknownMaxEntries, 1 << 16));
+    }
+
+    /**
+     * Obtenir l'utilisateur en cache.
+     *
+     * @param pLogin l'identifiant de connexion (nom d'utilisateur ou email).
+     * @return l'utilisateur, null s'il n'est pas en cache ou si son entrée a expiré.
+     */
+    @Override
+    public UserDetails getUserFromCache(final String pLogin)
+    {
+        if (!this.enabled || pLogin == null)
+        {
+            return null;
+        }
+        final var key = ServerUtil.LOWER_CASE.apply(pLogin);
+        final var entry = this.entries.get(key);
+        if (entry == null || entry.expiresAtMillis <= System.currentTimeMillis())
+        {
+            if (entry != null)
+            {
+                this.entries.remove(key, entry);
+            }
+            this.misses.increment();
+            return null;
+        }
+        this.hits.increment();
+        return entry.user;
+    }
+
+    /**
+     * Mettre en cache l'utilisateur par son nom d'utilisateur.
+     *
+     * @param pUser l'utilisateur de Spring Security.
+     */
+    @Override
+    public void putUserInCache(final UserDetails pUser)
+    {
+        this.putUserInCache(pUser.getUsername(), pUser, this.generation.get());
+    }
+
+    /**
+     * Mettre en cache l'utilisateur chargé avec l'identifiant de connexion fourni. L'utilisateur n'est pas conservé si
+     * une suppression est intervenue depuis le début de son chargement.
+     *
+     * @param pLogin      l'identifiant de connexion utilisé pour le chargement.
+     * @param pUser       l'utilisateur de Spring Security.
+     * @param pGeneration le numéro de génération obtenu avant le chargement ({@link #generation()}).
+     */
+    public void putUserInCache(final String pLogin, final UserDetails pUser, final long pGeneration)
+    {
+        if (!this.enabled || pLogin == null)
+        {
+            return;
+        }
+        final long now = System.currentTimeMillis();
+        if (this.entries.size() >= this.maxEntries)
+        {
+            this.purgeExpired(now);
+            if (this.entries.size() >= this.maxEntries)
+            {
+                return; // Cache plein : l'utilisateur sera chargé en base de données à chaque connexion.
+            }
+        }
+        final var key = ServerUtil.LOWER_CASE.apply(pLogin);
+        final var entry = new Entry(pUser, now + this.timeToLiveMillis);
+        this.entries.put(key, entry);
+        if (this.generation.get() != pGeneration)
+        {
+            this.entries.remove(key, entry); // Une suppression a eu lieu pendant le chargement.
+        }
+    }
+
+    /**
+     * Vérifier si l'identifiant de connexion est connu comme inexistant en base de données.
+     *
+     * @param pLogin l'identifiant de connexion (nom d'utilisateur ou email).
+     * @return true si une recherche récente de l'identifiant n'a trouvé aucun utilisateur, false sinon.
+     */
+    public boolean isUnknown(final String pLogin)
+    {
+        if (!this.enabled || pLogin == null)
+        {
+            return false;
+        }
+        final var key = ServerUtil.LOWER_CASE.apply(pLogin);
+        final var expiresAtMillis = this.unknownLogins.get(key);
+        if (expiresAtMillis == null)
+        {
+            return false;
+        }
+        if (expiresAtMillis <= System.currentTimeMillis())
+        {
+            this.unknownLogins.remove(key, expiresAtMillis);
+            return false;
+        }
+        this.unknownHits.increment();
+        return true;
+    }
+
+    /**
+     * Conserver l'identifiant de connexion pour lequel aucun utilisateur n'a été trouvé. L'identifiant n'est pas
+     * conservé si une création ou une modification d'utilisateur est intervenue depuis le début de la recherche.
+     *
+     * @param pLogin      l'identifiant de connexion recherché.
+     * @param pGeneration le numéro de génération obtenu avant la recherche ({@link #generation()}).
+     */
+    public void putUnknown(final String pLogin, final long pGeneration)
+    {
+        if (!this.enabled || pLogin == null)
+        {
+            return;
+        }
+        final long now = System.currentTimeMillis();
+        if (this.unknownLogins.size() >= this.unknownMaxEntries)
+        {
+            this.purgeExpired(now);
+            if (this.unknownLogins.size() >= this.unknownMaxEntries)
+            {
+                return; // Table pleine : les identifiants inconnus supplémentaires sont recherchés en base de données.
+            }
+        }
+        final var key = ServerUtil.LOWER_CASE.apply(pLogin);
+        final Long expiresAtMillis = now + this.unknownTimeToLiveMillis;
+        this.unknownLogins.put(key, expiresAtMillis);
+        if (this.generation.get() != pGeneration)
+        {
+            this.unknownLogins.remove(key, expiresAtMillis); // Un utilisateur a pu être créé pendant la recherche.
+        }
+    }
+
+    /**
+     * Supprimer l'utilisateur du cache et l'identifiant des identifiants inconnus.
+     *
+     * @param pLogin l'identifiant de connexion (nom d'utilisateur ou email).
+     */
+    @Override
+    public void removeUserFromCache(final String pLogin)
+    {
+        this.generation.incrementAndGet();
+        if (pLogin != null)
+        {
+            final var key = ServerUtil.LOWER_CASE.apply(pLogin);
+            this.entries.remove(key);
+            this.unknownLogins.remove(key);
+        }
+    }
+
+    /**
+     * Supprimer les entrées de l'utilisateur (nom d'utilisateur et email) maintenant et, si une transaction est active,
+     * de nouveau après sa fin.
+     *
+     * @param pUser l'utilisateur créé, modifié ou supprimé.
+     */
+    public void evict(final User pUser)
+    {
+        this.evict(pUser.getUsername(), pUser.getEmail());
+    }
+
+    /**
+     * Supprimer les entrées du nom d'utilisateur et de l'email fournis maintenant et, si une transaction est active, de
+     * nouveau après sa fin.
+     *
+     * @param pUsername le nom d'utilisateur.
+     * @param pEmail    l'adresse email.
+     */
+    public void evict(final String pUsername, final String pEmail)
+    {
+        this.removeUserFromCache(pUsername);
+        this.removeUserFromCache(pEmail);
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+        {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+            {
+                @Override
+                public void afterCompletion(final int pStatus)
+                {
+                    UserDetailsCache.this.removeUserFromCache(pUsername);
+                    UserDetailsCache.this.removeUserFromCache(pEmail);
+                }
+            });
+        }
+    }
+
+    /**
+     * Obtenir le numéro de génération courant, à relever avant le chargement d'un utilisateur.
+     *
+     * @return le numéro de génération.
+     */
+    public long generation()
+    {
+        return this.generation.get();
+    }
+
+    /**
+     * Vider le cache.
+     */
+    public void clear()
+    {
+        this.generation.incrementAndGet();
+        this.entries.clear();
+        this.unknownLogins.clear();
+    }
+
+    public int size()
+    {
+        return this.entries.size();
+    }
+
+    public long getHits()
+    {
+        return this.hits.sum();
+    }
+
+    public long getMisses()
+    {
+        return this.misses.sum();
+    }
+
+    public int unknownSize()
+    {
+        return this.unknownLogins.size();
+    }
+
+    public long getUnknownHits()
+    {
+        return this.unknownHits.sum();
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry pRegistry)
+    {
+        Gauge.builder("security.user.cache.size", this, UserDetailsCache::size)//
+        .description("Nombre d'utilisateurs en cache")//
+        .register(pRegistry);
+        FunctionCounter.builder("security.user.cache.requests", this, UserDetailsCache::getHits)//
+        .tag("result", "hit")//
+        .register(pRegistry);
+        FunctionCounter.builder("security.user.cache.requests", this, UserDetailsCache::getMisses)//
+        .tag("result", "miss")//
+        .register(pRegistry);
+        FunctionCounter.builder("security.user.cache.requests", this, UserDetailsCache::getUnknownHits)//
+        .tag("result", "unknown")//
+        .register(pRegistry);
+        Gauge.builder("security.user.cache.unknown.size", this, UserDetailsCache::unknownSize)//
+        .description("Nombre d'identifiants inconnus en cache")//
+        .register(pRegistry);
+    }
+
+    /**
+     * Supprimer les entrées expirées, au plus une fois par seconde.
+     *
+     * @param pNowMillis l'instant courant en millisecondes depuis l'epoch.
+     */
+    private void purgeExpired(final long pNowMillis)
+    {
+        if (pNowMillis - this.lastPurgeMillis < PURGE_INTERVAL_MILLIS)
+        {
+            return;
+        }
+        this.lastPurgeMillis = pNowMillis;
+        this.entries.values().removeIf(entry -> entry.expiresAtMillis <= pNowMillis);
+        this.unknownLogins.values().removeIf(expiresAtMillis -> expiresAtMillis <= pNowMillis);
+    }
+
+    /**
+     * Utilisateur en cache.
+     */
+    private static final class Entry
+    {
+        private final UserDetails user; // l'utilisateur de Spring Security.
+        private final long expiresAtMillis; // fin de validité de l'entrée en millisecondes depuis l'epoch.
+
+        private Entry(final UserDetails pUser, final long pExpiresAtMillis)
+        {
+            this.user = pUser;
+            this.expiresAtMillis = pExpiresAtMillis;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : package-info.java
+ * Date de création : 9 mars 2021
+ * Heure de création : 13:02:19
+ * Package : fr.vincent.tuto.server.security.cache
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+/**
+ * Caches des utilisateurs de Spring Security chargés lors de l'authentification.
+ *
+ * @author Vincent Otchoun
+ */
+package fr.vincent.tuto.server.security.cache;
@@ -0,0 +1,380 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : PasswordHasher.java
+ * Date de création : 9 mars 2021
+ * Heure de création : 18:34:02
+ * Package : fr.vincent.tuto.server.security.crypto
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.security.crypto;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import fr.vincent.tuto.common.exception.CustomAppException;
+import fr.vincent.tuto.server.config.props.ServerSecurityProps;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Chiffrement et comparaison BCrypt des mots de passe dans un pool de threads dédié et borné. Une rafale de connexions
+ * n'occupe au plus que les threads du pool (la moitié des processeurs par défaut) : les autres requêtes (lecture du
+ * catalogue) gardent les processeurs restants. Au-delà de la capacité de la file d'attente, les opérations sont
+ * rejetées immédiatement plutôt que de retenir les threads des requêtes.
+ * <p>
+ * Les opérations rendent un {@link CompletableFuture}. La vue {@link #asPasswordEncoder()} attend leur résultat au plus
+ * {@code maxWaitMillis} pour les appelants synchrones (Spring Security, conversion des utilisateurs). Les métriques
+ * security.password.hashing.* exposent la profondeur de la file, les threads actifs, la durée d'attente des
+ * opérations, le nombre d'opérations rejetées et le coût BCrypt retenu.
+ * <p>
+ * Le coût BCrypt est calibré au démarrage : le chiffrement est mesuré à un coût bas, puis le coût le plus élevé dont la
+ * durée estimée (doublée à chaque unité de coût) ne dépasse pas {@code targetMillis} est retenu, entre
+ * {@code minStrength} et {@code maxStrength}. Le coût est inscrit dans chaque mot de passe chiffré ($2a$&lt;coût&gt;$) :
+ * les mots de passe chiffrés à un coût inférieur restent vérifiables et sont signalés par {@link #upgradeEncoding(String)}.
+ *
+ * @author Vincent Otchoun
+ */
+@Slf4j
+@Component
+public class PasswordHasher implements MeterBinder, DisposableBean
+{
+    //
+    private static final String THREAD_NAME = "password-hasher-";
+    private static final String REJECTED_ERR_MSG = "Trop d'opérations de chiffrement des mots de passe en attente.";
+    private static final String TIMEOUT_ERR_MSG = "Délai d'attente du chiffrement du mot de passe dépassé.";
+    private static final String INTERRUPTED_ERR_MSG = "Chiffrement du mot de passe interrompu.";
+    private static final String CALIBRATION_MSG = "Coût BCrypt calibré : {} (chiffrement au coût {} en {} µs, durée visée {} ms).";
+
+    private static final int PROBE_STRENGTH = 8;
+    private static final int PROBE_RUNS = 3;
+    private static final String PROBE_PASSWORD = "calibration_19511982#";
+
+    private final BCryptPasswordEncoder passwordEncoder;
+    private final int strength;
+    private final long maxWaitMillis;
+    private final ThreadPoolExecutor executor;
+    private final CompositeMeterRegistry registry = new CompositeMeterRegistry();
+    private final Timer waitTimer;
+    private final Counter rejections;
+
+    /**
+     * Constructeur avec en paramètres les beans pour injection : le coût BCrypt est calibré ou fixé par les propriétés.
+     *
+     * @param pSecurityProps les propriétés de sécurisation du serveur.
+     */
+    @Autowired
+    public PasswordHasher(final ServerSecurityProps pSecurityProps)
+    {
+        this(strengthOf(pSecurityProps.getPasswordHashing()), pSecurityProps);
+    }
+
+    private PasswordHasher(final int pStrength, final ServerSecurityProps pSecurityProps)
+    {
+        this(new BCryptPasswordEncoder(pStrength), pStrength, pSecurityProps);
+    }
+
+    /**
+     * Constructeur avec en paramètres l'encodeur BCrypt et son coût.
+     *
+     * @param pPasswordEncoder l'encodeur BCrypt des mots de passe.
+     * @param pStrength        le coût BCrypt de l'encodeur.
+     * @param pSecurityProps   les propriétés de sécurisation du serveur.
+     */
+    PasswordHasher(final BCryptPasswordEncoder pPasswordEncoder, final int pStrength, final ServerSecurityProps pSecurityProps)
+    {
+        this.passwordEncoder = pPasswordEncoder;
+        this.strength = pStrength;
+        final var hashingProps = pSecurityProps.getPasswordHashing();
+        this.maxWaitMillis = hashingProps.getMaxWaitMillis();
+
+        final int configured = hashingProps.getThreads();
+        final int threads = configured > 0 ? configured : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        final var threadCount = new AtomicInteger();
+        // File bornée et rejet immédiat lorsqu'elle est pleine : l'appelant n'exécute jamais le chiffrement lui-même.
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(Math.max(1,
+        hashingProps.getQueueCapacity())), runnable -> {
+            final var thread = new Thread(runnable, THREAD_NAME + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("security.password.hashing.queue", this.executor, executor -> executor.getQueue().size())//
+        .description("Nombre d'opérations de chiffrement des mots de passe en attente")//
+        .register(this.registry);
+        Gauge.builder("security.password.hashing.active", this.executor, ThreadPoolExecutor::getActiveCount)//
+        .description("Nombre de threads en cours de chiffrement des mots de passe")//
+        .register(this.registry);
+        Gauge.builder("security.password.hashing.strength", this, PasswordHasher::getStrength)//
+        .description("Coût BCrypt des nouveaux mots de passe chiffrés")//
+        .register(this.registry);
+        this.waitTimer = Timer.builder("security.password.hashing.wait")//
+        .description("Durée d'attente des opérations de chiffrement des mots de passe dans la file")//
+        .publishPercentileHistogram()//
+        .register(this.registry);
+        this.rejections = Counter.builder("security.password.hashing.rejected")//
+        .description("Nombre d'opérations de chiffrement des mots de passe rejetées, file pleine")//
+        .register(this.registry);
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry pRegistry)
+    {
+        this.registry.add(pRegistry);
+    }
+
+    @Override
+    public void destroy() throws Exception
+    {
+        this.executor.shutdownNow();
+        this.executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    public int getStrength()
+    {
+        return this.strength;
+    }
+
+    /**
+     * Vérifier si le mot de passe chiffré l'a été à un coût inférieur au coût courant et doit être chiffré de nouveau.
+     *
+     * @param pEncodedPassword le mot de passe chiffré.
+     * @return true si le mot de passe doit être chiffré de nouveau, false sinon (ou s'il n'est pas chiffré par BCrypt).
+     */
+    public boolean upgradeEncoding(final String pEncodedPassword)
+    {
+        try
+        {
+            return this.passwordEncoder.upgradeEncoding(pEncodedPassword);
+        }
+        catch (IllegalArgumentException e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Chiffrer le mot de passe dans le pool dédié.
+     *
+     * @param pRawPassword le mot de passe en clair.
+     * @return le mot de passe chiffré, ou une {@link CustomAppException} si l'opération est rejetée.
+     */
+    public CompletableFuture<String> encode(final CharSequence pRawPassword)
+    {
+        return this.submit(() -> this.passwordEncoder.encode(pRawPassword));
+    }
+
+    /**
+     * Chiffrer le mot de passe dans le thread appelant, au coût courant. Réservé aux traitements par lot qui disposent
+     * de leur propre pool de threads : ils n'occupent pas la file du pool dédié aux connexions.
+     *
+     * @param pRawPassword le mot de passe en clair.
+     * @return le mot de passe chiffré.
+     */
+    public String encodeNow(final CharSequence pRawPassword)
+    {
+        return this.passwordEncoder.encode(pRawPassword);
+    }
+
+    /**
+     * Comparer le mot de passe en clair au mot de passe chiffré dans le pool dédié.
+     *
+     * @param pRawPassword     le mot de passe en clair.
+     * @param pEncodedPassword le mot de passe chiffré.
+     * @return true si les mots de passe correspondent, ou une {@link CustomAppException} si l'opération est rejetée.
+     */
+    public CompletableFuture<Boolean> matches(final CharSequence pRawPassword, final String pEncodedPassword)
+    {
+        return this.submit(() -> this.passwordEncoder.matches(pRawPassword, pEncodedPassword));
+    }
+
+    /**
+     * Obtenir la vue synchrone du service : chaque opération est exécutée dans le pool dédié et attendue au plus
+     * {@code maxWaitMillis}. Un rejet ou un dépassement du délai lève une {@link AuthenticationServiceException} pour
+     * la comparaison (échec de la connexion) et une {@link CustomAppException} pour le chiffrement.
+     *
+     * @return l'encodeur des mots de passe.
+     */
+    public PasswordEncoder asPasswordEncoder()
+    {
+        return new PasswordEncoder()
+        {
+            @Override
+            public String encode(final CharSequence pRawPassword)
+            {
+                return PasswordHasher.this.await(PasswordHasher.this.encode(pRawPassword));
+            }
+
+            @Override
+            public boolean matches(final CharSequence pRawPassword, final String pEncodedPassword)
+            {
+                try
+                {
+                    return PasswordHasher.this.await(PasswordHasher.this.matches(pRawPassword, pEncodedPassword));
+                }
+                catch (CustomAppException e)
+                {
+                    throw new AuthenticationServiceException(e.getMessage(), e);
+                }
+            }
+
+            @Override
+            public boolean upgradeEncoding(final String pEncodedPassword)
+            {
+                return PasswordHasher.this.upgradeEncoding(pEncodedPassword);
+            }
+        };
+    }
+
+    /**
+     * Obtenir le coût BCrypt : le coût fixe si la calibration est désactivée, sinon le coût calibré sur cette machine.
+     *
+     * @param pHashingProps les propriétés du chiffrement des mots de passe.
+     * @return le coût BCrypt.
+     */
+    static int strengthOf(final ServerSecurityProps.PasswordHashingProps pHashingProps)
+    {
+        if (pHashingProps.getTargetMillis() <= 0)
+        {
+            return pHashingProps.getStrength();
+        }
+        final var probe = new BCryptPasswordEncoder(PROBE_STRENGTH);
+        probe.encode(PROBE_PASSWORD); // Préchauffage.
+        long probeNanos = Long.MAX_VALUE;
+        for (int run = 0; run < PROBE_RUNS; run++)
+        {
+            final long start = System.nanoTime();
+            probe.encode(PROBE_PASSWORD);
+            probeNanos = Math.min(probeNanos, System.nanoTime() - start);
+        }
+        final int strength = calibrate(probeNanos, TimeUnit.MILLISECONDS.toNanos(pHashingProps.getTargetMillis()), pHashingProps
+        .getMinStrength(), pHashingProps.getMaxStrength());
+        log.info(CALIBRATION_MSG, strength, PROBE_STRENGTH, TimeUnit.NANOSECONDS.toMicros(probeNanos), pHashingProps.getTargetMillis());
+        return strength;
+    }
+
+    /**
+     * Choisir le coût BCrypt le plus élevé dont la durée estimée ne dépasse pas la durée visée. La durée double à chaque
+     * unité de coût.
+     *
+     * @param pProbeNanos  la durée mesurée d'un chiffrement au coût de mesure (8).
+     * @param pTargetNanos la durée visée d'un chiffrement.
+     * @param pMinStrength le coût minimal (au moins 4).
+     * @param pMaxStrength le coût maximal (au plus 31).
+     * @return le coût BCrypt.
+     */
+    static int calibrate(final long pProbeNanos, final long pTargetNanos, final int pMinStrength, final int pMaxStrength)
+    {
+        final int maxStrength = Math.min(31, pMaxStrength);
+        int strength = Math.max(4, pMinStrength);
+        while (strength < maxStrength && estimate(pProbeNanos, strength + 1) <= pTargetNanos)
+        {
+            strength++;
+        }
+        return strength;
+    }
+
+    private static long estimate(final long pProbeNanos, final int pStrength)
+    {
+        if (pStrength < PROBE_STRENGTH)
+        {
+            return pProbeNanos >> (PROBE_STRENGTH - pStrength);
+        }
+        final int shift = pStrength - PROBE_STRENGTH;
+        return pProbeNanos > Long.MAX_VALUE >> shift ? Long.MAX_VALUE : pProbeNanos << shift;
+    }
+
+    /**
+     * Exécuter l'opération dans le pool dédié. L'opération abandonnée par son appelant (délai dépassé) avant son début
+     * n'est pas exécutée.
+     *
+     * @param <T>        le type du résultat.
+     * @param pOperation l'opération.
+     * @return le résultat de l'opération.
+     */
+    private <T> CompletableFuture<T> submit(final Supplier<T> pOperation)
+    {
+        final var result = new CompletableFuture<T>();
+        final long queuedAt = System.nanoTime();
+        try
+        {
+            this.executor.execute(() -> {
+                this.waitTimer.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+                if (result.isDone())
+                {
+                    return;
+                }
+                try
+                {
+                    result.complete(pOperation.get());
+                }
+                catch (RuntimeException e)
+                {
+                    result.completeExceptionally(e);
+                }
+            });
+        }
+        catch (RejectedExecutionException e)
+        {
+            this.rejections.increment();
+            result.completeExceptionally(new CustomAppException(REJECTED_ERR_MSG, e));
+        }
+        return result;
+    }
+
+    /**
+     * Attendre le résultat de l'opération au plus {@code maxWaitMillis}. L'opération non terminée à l'échéance est
+     * annulée.
+     *
+     * @param <T>     le type du résultat.
+     * @param pResult le résultat de l'opération.
+     * @return le résultat.
+     */
+    private <T> T await(final CompletableFuture<T> pResult)
+    {
+        try
+        {
+            return pResult.get(this.maxWaitMillis, TimeUnit.MILLISECONDS);
+        }
+        catch (TimeoutException e)
+        {
+            pResult.cancel(false);
+            throw new CustomAppException(TIMEOUT_ERR_MSG, e);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new CustomAppException(INTERRUPTED_ERR_MSG, e);
+        }
+        catch (ExecutionException e)
+        {
+            final var cause = e.getCause();
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            throw new CustomAppException(cause);
+        }
+    }
+}
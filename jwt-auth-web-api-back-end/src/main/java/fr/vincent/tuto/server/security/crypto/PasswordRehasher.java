@@ -0,0 +1,197 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : PasswordRehasher.java
+ * Date de création : 9 mars 2021
+ * Heure de création : 19:38:14
+ * Package : fr.vincent.tuto.server.security.crypto
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.security.crypto;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.event.AuthenticationSuccessEvent;
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import fr.vincent.tuto.server.config.cache.UserLookupCache;
+import fr.vincent.tuto.server.dao.UserDAO;
+import fr.vincent.tuto.server.model.po.User;
+import fr.vincent.tuto.server.security.cache.CachedUserDetails;
+import fr.vincent.tuto.server.security.cache.UserDetailsCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Enregistrement des mots de passe chiffrés de nouveau après la connexion, pour ceux chiffrés à un coût BCrypt inférieur
+ * au coût courant du {@link PasswordHasher} (coût fixé ou calibré sur une machine moins rapide). A la connexion réussie
+ * ({@link AuthenticationSuccessEvent}), le mot de passe en clair est chiffré en arrière-plan dans le pool dédié puis
+ * enregistré depuis ce pool : la réponse de la connexion n'attend ni le chiffrement ni la transaction. Le mot de passe
+ * est enregistré à condition que le mot de passe chiffré n'ait pas été modifié entre-temps, puis les caches de
+ * l'utilisateur sont vidés. Si le pool est saturé, le nouveau chiffrement est abandonné et sera tenté de nouveau à une
+ * prochaine connexion.
+ * <p>
+ * Le gestionnaire d'authentification n'efface pas les secrets de l'authentification réussie avant la publication de
+ * l'événement : ils sont effacés ici, une fois le mot de passe en clair relevé. L'utilisateur partagé par le cache
+ * ({@link CachedUserDetails}) n'est pas modifié par cet effacement.
+ * <p>
+ * Le compteur security.password.rehash (étiquette result) compte les mots de passe remplacés (updated), déjà modifiés
+ * (stale), les chiffrements refusés par le pool (rejected) et les échecs (failed).
+ *
+ * @author Vincent Otchoun
+ */
+@Slf4j
+@Component
+public class PasswordRehasher implements MeterBinder
+{
+    //
+    private static final String REHASH_COUNTER = "security.password.rehash";
+    private static final String REHASH_ERR_MSG = "Erreur lors du nouveau chiffrement du mot de passe de l'utilisateur : {}";
+    private static final String REJECTED_MSG = "Nouveau chiffrement du mot de passe de l'utilisateur {} reporté : {}";
+
+    private final UserDAO userDAO;
+    private final UserDetailsCache userDetailsCache;
+    private final UserLookupCache userLookupCache;
+    private final PasswordHasher passwordHasher;
+    private final TransactionTemplate transactionTemplate;
+    private final CompositeMeterRegistry registry = new CompositeMeterRegistry();
+    private final Counter updated;
+    private final Counter stale;
+    private final Counter rejected;
+    private final Counter failed;
+
+    /**
+     * Constructeur avec en paramètres les beans pour injection.
+     *
+     * @param pUserDAO            le dépôt des utilisateurs.
+     * @param pUserDetailsCache   le cache des utilisateurs de Spring Security.
+     * @param pUserLookupCache    le cache des utilisateurs par nom d'utilisateur et par email.
+     * @param pPasswordHasher     le service de chiffrement des mots de passe dans son pool de threads dédié.
+     * @param pTransactionManager le gestionnaire des transactions.
+     */
+    public PasswordRehasher(final UserDAO pUserDAO, final UserDetailsCache pUserDetailsCache, final UserLookupCache pUserLookupCache,
+    final PasswordHasher pPasswordHasher, final PlatformTransactionManager pTransactionManager)
+    {
+        this.userDAO = pUserDAO;
+        this.userDetailsCache = pUserDetailsCache;
+        this.userLookupCache = pUserLookupCache;
+        this.passwordHasher = pPasswordHasher;
+        this.transactionTemplate = new TransactionTemplate(pTransactionManager);
+        this.updated = this.counter("updated");
+        this.stale = this.counter("stale");
+        this.rejected = this.counter("rejected");
+        this.failed = this.counter("failed");
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry pRegistry)
+    {
+        this.registry.add(pRegistry);
+    }
+
+    /**
+     * Soumettre le nouveau chiffrement du mot de passe de la connexion réussie s'il est chiffré à un coût dépassé, puis
+     * effacer le mot de passe en clair de l'authentification.
+     *
+     * @param pEvent l'événement de la connexion réussie.
+     */
+    @EventListener
+    public void onAuthenticationSuccess(final AuthenticationSuccessEvent pEvent)
+    {
+        final var authentication = pEvent.getAuthentication();
+        try
+        {
+            if (authentication instanceof UsernamePasswordAuthenticationToken && authentication.getPrincipal() instanceof UserDetails
+            && authentication.getCredentials() instanceof String)
+            {
+                final var user = (UserDetails) authentication.getPrincipal();
+                final var encodedPassword = user.getPassword();
+                if (encodedPassword != null && this.passwordHasher.upgradeEncoding(encodedPassword))
+                {
+                    this.rehash(user.getUsername(), encodedPassword, (String) authentication.getCredentials());
+                }
+            }
+        }
+        finally
+        {
+            if (authentication instanceof CredentialsContainer)
+            {
+                ((CredentialsContainer) authentication).eraseCredentials();
+            }
+        }
+    }
+
+    /**
+     * Chiffrer le mot de passe en clair dans le pool dédié puis l'enregistrer depuis ce pool.
+     *
+     * @param pUsername    le nom d'utilisateur.
+     * @param pOldPassword le mot de passe chiffré à remplacer.
+     * @param pRawPassword le mot de passe en clair de la connexion.
+     * @return le résultat : true si le mot de passe a été remplacé, false sinon.
+     */
+    CompletableFuture<Boolean> rehash(final String pUsername, final String pOldPassword, final String pRawPassword)
+    {
+        return this.passwordHasher.encode(pRawPassword).handle((newPassword, error) -> {
+            if (error != null)
+            {
+                this.rejected.increment();
+                log.debug(REJECTED_MSG, pUsername, error.getMessage());
+                return Boolean.FALSE;
+            }
+            return this.update(pUsername, pOldPassword, newPassword);
+        });
+    }
+
+    /**
+     * Enregistrer le nouveau mot de passe chiffré de l'utilisateur et vider ses caches.
+     *
+     * @param pUsername    le nom d'utilisateur.
+     * @param pOldPassword le mot de passe chiffré à remplacer.
+     * @param pNewPassword le nouveau mot de passe chiffré.
+     * @return true si le mot de passe a été remplacé, false sinon.
+     */
+    boolean update(final String pUsername, final String pOldPassword, final String pNewPassword)
+    {
+        try
+        {
+            final Boolean replaced = this.transactionTemplate.execute(status -> {
+                if (this.userDAO.updatePassword(pUsername, pOldPassword, pNewPassword) == 0)
+                {
+                    return Boolean.FALSE;
+                }
+                final var email = this.userDAO.findOneWithRolesByUsernameIgnoreCase(pUsername).map(User::getEmail).orElse(null);
+                this.userLookupCache.evict(pUsername, email);
+                this.userDetailsCache.evict(pUsername, email);
+                return Boolean.TRUE;
+            });
+            final boolean isReplaced = Boolean.TRUE.equals(replaced);
+            (isReplaced ? this.updated : this.stale).increment();
+            return isReplaced;
+        }
+        catch (RuntimeException e)
+        {
+            this.failed.increment();
+            log.warn(REHASH_ERR_MSG, pUsername, e);
+            return false;
+        }
+    }
+
+    private Counter counter(final String pResult)
+    {
+        return Counter.builder(REHASH_COUNTER)//
+        .description("Nombre de mots de passe chiffrés de nouveau après la connexion, par résultat")//
+        .tag("result", pResult)//
+        .register(this.registry);
+    }
+}
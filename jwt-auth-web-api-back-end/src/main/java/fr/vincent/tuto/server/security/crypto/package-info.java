@@ -0,0 +1,17 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : package-info.java
+ * Date de création : 9 mars 2021
+ * Heure de création : 18:31:27
+ * Package : fr.vincent.tuto.server.security.crypto
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+/**
+ * Services de chiffrement et de comparaison des mots de passe des utilisateurs.
+ *
+ * @author Vincent Otchoun
+ */
+package fr.vincent.tuto.server.security.crypto;
@@ -11,14 +11,32 @@
  */
 package fr.vincent.tuto.server.security.jwt;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.InitializingBean;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.stereotype.Component;
 
-import fr.vincent.tuto.common.model.mo.TokenModel;
 import fr.vincent.tuto.common.service.props.ApplicationPropsService;
-import lombok.extern.slf4j.Slf4j;
+import fr.vincent.tuto.server.config.props.ServerSecurityProps;
+import fr.vincent.tuto.server.enumeration.RoleEnum;
+import fr.vincent.tuto.server.util.AuthorityRegistry;
 
 /**
  * Service de traitement des jetons JWT. Il fournit en autres les fonctions suivantes :
@@ -29,23 +47,530 @@ import lombok.extern.slf4j.Slf4j;
  * <li>Valider le jeton d'accès JWT.</li>
  * <li>Obtenir le jeton JWT d'accès : les revendications (claims), le nom d'utilisateur, et la signature.</li>
  * </ul>
- * 
+ * Les clés de signature sont fournies par le {@link SigningKeyRing} : chaque jeton porte dans son en-tête le kid de la
+ * clé qui l'a signé et est vérifié avec cette clé, ce qui permet de changer de clé sans redémarrage. Les jetons dont la signature a
+ * déjà été vérifiée sont conservés dans le {@link VerifiedTokenCache} jusqu'à leur expiration. Le jeton est lu
+ * directement dans la valeur de l'en-tête d'autorisation par le {@link BearerTokenParser}, sans copie intermédiaire.
+ * Au format compact (vot.security-props.token-format.compact), les autorités {@link RoleEnum} sont émises sous la forme
+ * d'un masque de bits de leurs ordinaux et l'en-tête ne porte pas le type : les deux formats sont acceptés à la lecture.
+ * Chaque jeton porte un identifiant unique (jti) qui permet de le révoquer avant son expiration
+ * ({@link TokenRevocationList}). Le renouvellement glissant (vot.security-props.sliding-renewal) ne concerne que les
+ * jetons de connexion (durée de validité standard ou "se souvenir de moi", sans client_id) : il n'émet un nouveau jeton
+ * qu'au-delà d'une fraction de la durée de vie du jeton présenté, et un seul pour toutes les requêtes concurrentes qui
+ * présentent le même jeton. La durée de chaque étape et les motifs de rejet des jetons sont mesurés par les
+ * {@link AuthenticationMetrics}.
+ *
  * @author Vincent Otchoun
  */
 @Component
-@Slf4j
 public class AuthTokenProvider implements InitializingBean
 {
-    // Retourne la durée en secondes (*1000 = équivalent de getTime() en millisecondes)
-    long instant = Instant.now().getEpochSecond();
+    //
+    public static final String RS256 = "RS256";
+    public static final String SHA256_WITH_RSA = "SHA256withRSA";
+    public static final String SUBJECT_CLAIM = "sub";
+    public static final String TOKEN_ID_CLAIM = "jti";
+    public static final String ISSUED_AT_CLAIM = "iat";
+    public static final String EXPIRATION_CLAIM = "exp";
+    public static final String CLIENT_ID_CLAIM = "client_id"; // compte de service émetteur d'un jeton en lot (RFC 9068).
+    public static final String KEY_ID_HEADER = "kid";
+    public static final String ALGORITHM_HEADER = "alg";
 
-    private ApplicationPropsService propsService;
-    private TokenModel tokenModel;
+    private static final Base64.Encoder BASE64_URL_ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final char POINT = '.';
+
+    private final ApplicationPropsService propsService;
+    private final VerifiedTokenCache tokenCache;
+    private final TokenRevocationList revocationList;
+    private final SigningKeyRing keyRing;
+    private final AuthenticationMetrics metrics;
+    private final boolean compactFormat;
+    private final ServerSecurityProps.SlidingRenewalProps renewalProps;
+    private final ConcurrentHashMap<String, Renewal> renewals = new ConcurrentHashMap<>();
+    private volatile long lastRenewalPurgeSeconds;
+
+    private BearerTokenParser tokenParser;
+    private String authoritiesKey;
+    private long tokenValidityInSeconds;
+    private long tokenValidityForRememberMeInSeconds;
+
+    /**
+     * Constructeur avec en paramètres les beans pour injection.
+     *
+     * @param pPropsService le service des propriétés applicatives.
+     * @param pTokenCache     le cache des jetons dont la signature a déjà été vérifiée.
+     * @param pRevocationList la liste de révocation des jetons.
+     * @param pKeyRing        le trousseau des clés de signature.
+     * @param pSecurityProps  les propriétés de sécurisation du serveur.
+     * @param pMetrics        les métriques du chemin d'authentification.
+     */
+    public AuthTokenProvider(final ApplicationPropsService pPropsService, final VerifiedTokenCache pTokenCache, final TokenRevocationList pRevocationList,
+    final SigningKeyRing pKeyRing, final ServerSecurityProps pSecurityProps, final AuthenticationMetrics pMetrics)
+    {
+        this.propsService = pPropsService;
+        this.tokenCache = pTokenCache;
+        this.revocationList = pRevocationList;
+        this.keyRing = pKeyRing;
+        this.metrics = pMetrics;
+        this.compactFormat = pSecurityProps.getTokenFormat().isCompact();
+        this.renewalProps = pSecurityProps.getSlidingRenewal();
+    }
 
     @Override
     public void afterPropertiesSet() throws Exception
     {
-        log.info("[afterPropertiesSet] - Initialisation des variables.");
+        final var jwtProps = this.propsService.getJwtProps();
+
+        this.authoritiesKey = jwtProps.getAuthoritiesKey().trim();
+        this.tokenValidityInSeconds = jwtProps.getTokenValidity();
+        this.tokenValidityForRememberMeInSeconds = jwtProps.getTokenValidityForRememberMe();
+        this.tokenParser = new BearerTokenParser(jwtProps.getBearerToken(), this.authoritiesKey);
+    }
+
+    /**
+     * Créer le jeton JWT d'accès pour le principal authentifié.
+     *
+     * @param pAuthentication le principal authentifié.
+     * @param pRememberMe     true pour appliquer la durée de validité "se souvenir de moi", false sinon.
+     * @return le jeton JWT d'accès signé.
+     */
+    public String createToken(final Authentication pAuthentication, final boolean pRememberMe)
+    {
+        final long validity = pRememberMe ? this.tokenValidityForRememberMeInSeconds : this.tokenValidityInSeconds;
+        return this.createToken(pAuthentication.getName(), pAuthentication.getAuthorities(), validity);
+    }
+
+    /**
+     * Créer le jeton JWT d'accès pour l'utilisateur et les autorités fournis.
+     *
+     * @param pSubject           le nom de l'utilisateur.
+     * @param pAuthorities       les autorités de l'utilisateur.
+     * @param pValidityInSeconds la durée de validité du jeton en secondes.
+     * @return le jeton JWT d'accès signé.
+     */
+    public String createToken(final String pSubject, final Collection<? extends GrantedAuthority> pAuthorities, final long pValidityInSeconds)
+    {
+        return this.createToken(pSubject, pAuthorities, pValidityInSeconds, null);
+    }
+
+    /**
+     * Créer le jeton JWT d'accès pour le sujet et les autorités fournis, émis pour le compte d'un client.
+     *
+     * @param pSubject           le sujet du jeton.
+     * @param pAuthorities       les autorités du jeton.
+     * @param pValidityInSeconds la durée de validité du jeton en secondes.
+     * @param pClientId          le compte de service pour lequel le jeton est émis (client_id), null pour une connexion.
+     * @return le jeton JWT d'accès signé.
+     */
+    public String createToken(final String pSubject, final Collection<? extends GrantedAuthority> pAuthorities, final long pValidityInSeconds,
+    final String pClientId)
+    {
+        final long issuedAt = Instant.now().getEpochSecond();
+        final int roleMask = this.compactFormat ? AuthorityRegistry.roleMaskOf(pAuthorities) : -1;
+
+        final var claims = new StringBuilder(128);
+        claims.append('{');
+        appendJsonString(claims, SUBJECT_CLAIM).append(':');
+        appendJsonString(claims, pSubject).append(',');
+        appendJsonString(claims, TOKEN_ID_CLAIM).append(':');
+        appendJsonString(claims, newTokenId()).append(',');
+        appendJsonString(claims, this.authoritiesKey).append(':');
+        if (roleMask >= 0)
+        {
+            claims.append(roleMask).append(',');
+        }
+        else
+        {
+            claims.append('[');
+            var first = true;
+            for (final GrantedAuthority authority : pAuthorities)
+            {
+                if (!first)
+                {
+                    claims.append(',');
+                }
+                appendJsonString(claims, authority.getAuthority());
+                first = false;
+            }
+            claims.append("],");
+        }
+        appendJsonString(claims, ISSUED_AT_CLAIM).append(':').append(issuedAt).append(',');
+        appendJsonString(claims, EXPIRATION_CLAIM).append(':').append(issuedAt + pValidityInSeconds);
+        if (pClientId != null)
+        {
+            claims.append(',');
+            appendJsonString(claims, CLIENT_ID_CLAIM).append(':');
+            appendJsonString(claims, pClientId);
+        }
+        claims.append('}');
+
+        return this.sign(claims.toString(), roleMask >= 0);
+    }
+
+    /**
+     * Obtenir les revendications vérifiées du jeton. Un jeton déjà vérifié est servi par le cache sans nouvelle
+     * vérification de la signature.
+     *
+     * @param pToken le jeton JWT d'accès.
+     * @return les revendications vérifiées, null si le jeton est invalide ou expiré.
+     */
+    public TokenClaims getVerifiedClaims(final String pToken)
+    {
+        if (StringUtils.isBlank(pToken))
+        {
+            return null;
+        }
+        return this.getVerifiedClaims(pToken, 0, pToken.length());
+    }
+
+    /**
+     * Obtenir les revendications vérifiées du jeton porté par la valeur de l'en-tête d'autorisation (Bearer). Le jeton
+     * n'est pas extrait de l'en-tête : aucune chaîne n'est allouée lorsque le jeton est déjà dans le cache.
+     *
+     * @param pAuthorizationHeader la valeur de l'en-tête d'autorisation.
+     * @return les revendications vérifiées, null si l'en-tête n'est pas de type Bearer, ou si le jeton est invalide ou
+     *         expiré.
+     */
+    public TokenClaims resolveClaims(final String pAuthorizationHeader)
+    {
+        final long startNanos = System.nanoTime();
+        final int start = this.tokenParser.tokenStart(pAuthorizationHeader);
+        this.metrics.record(AuthenticationMetrics.Stage.HEADER_PARSING, startNanos);
+        if (start < 0)
+        {
+            return null;
+        }
+        return this.getVerifiedClaims(pAuthorizationHeader, start, pAuthorizationHeader.length());
+    }
+
+    /**
+     * Valider le jeton JWT d'accès : signature et date d'expiration.
+     *
+     * @param pToken le jeton JWT d'accès.
+     * @return true si le jeton est valide, false sinon.
+     */
+    public boolean validateToken(final String pToken)
+    {
+        return this.getVerifiedClaims(pToken) != null;
+    }
+
+    /**
+     * Révoquer le jeton avant son expiration (déconnexion).
+     *
+     * @param pToken le jeton JWT d'accès.
+     * @return true si le jeton a été révoqué, false s'il est déjà invalide ou ne porte pas d'identifiant.
+     */
+    public boolean revokeToken(final String pToken)
+    {
+        final var claims = this.getVerifiedClaims(pToken);
+        if (claims == null || claims.getTokenId() == null)
+        {
+            return false;
+        }
+        this.revocationList.revokeToken(claims.getTokenId(), claims.getExpiresAt());
+        return true;
+    }
+
+    /**
+     * Vérifier si le jeton ou son utilisateur a été révoqué ({@link TokenRevocationList}). S'applique aussi aux
+     * revendications d'une session opaque : la révocation d'un utilisateur met fin à ses sessions.
+     *
+     * @param pClaims les revendications du jeton.
+     * @return true si le jeton est révoqué, false sinon.
+     */
+    public boolean isRevoked(final TokenClaims pClaims)
+    {
+        final long startNanos = System.nanoTime();
+        final boolean revoked = this.revocationList.isRevoked(pClaims);
+        this.metrics.record(AuthenticationMetrics.Stage.REVOCATION_CHECK, startNanos);
+        if (revoked)
+        {
+            this.metrics.fail(AuthenticationMetrics.Failure.REVOKED);
+        }
+        return revoked;
+    }
+
+    /**
+     * Renouveler le jeton de connexion présenté s'il a dépassé la fraction de sa durée de vie prévue pour le
+     * renouvellement glissant. Le nouveau jeton reprend le sujet, les autorités et la durée de validité du jeton présenté.
+     * Il est partagé par toutes les requêtes qui présentent le même jeton pendant la fenêtre de partage : un jeton n'est
+     * signé qu'une fois, en dehors de tout verrou de la table des renouvellements.
+     *
+     * @param pClaims les revendications vérifiées du jeton présenté.
+     * @return le nouveau jeton signé, null si le renouvellement est désactivé ou prématuré, si le jeton ne porte pas
+     *         d'identifiant ou s'il n'est pas un jeton de connexion (jeton émis en lot pour un client, durée de validité
+     *         spécifique).
+     */
+    public String renewToken(final TokenClaims pClaims)
+    {
+        if (!this.renewalProps.isEnabled() || pClaims.getTokenId() == null || pClaims.getClientId() != null)
+        {
+            return null;
+        }
+        final long now = Instant.now().getEpochSecond();
+        final long lifetime = pClaims.getExpiresAt() - pClaims.getIssuedAt();
+        final boolean loginToken = lifetime == this.tokenValidityInSeconds || lifetime == this.tokenValidityForRememberMeInSeconds;
+        if (!loginToken || lifetime <= 0 || now - pClaims.getIssuedAt() < (long) (lifetime * this.renewalProps.getRenewAfter()))
+        {
+            return null;
+        }
+
+        final var renewal = this.renewals.get(pClaims.getTokenId());
+        if (renewal != null && renewal.sharedUntil > now)
+        {
+            return renewal.await();
+        }
+        this.purgeRenewals(now);
+        if (this.renewals.size() >= this.renewalProps.getMaxEntries())
+        {
+            // Table pleine : le jeton est renouvelé sans être partagé.
+            return this.createToken(pClaims.getSubject(), pClaims.getAuthorities(), lifetime);
+        }
+        // Le premier appel installe un renouvellement en attente puis signe hors du verrou de la table : les requêtes
+        // concurrentes attendent sa signature et reçoivent le même jeton.
+        final var created = new Renewal(Math.min(now + this.renewalProps.getShareWindowSeconds(), pClaims.getExpiresAt()));
+        final var shared = this.renewals.compute(pClaims.getTokenId(), (tokenId, current) -> current != null && current.sharedUntil > now
+        ? current : created);
+        if (shared != created)
+        {
+            return shared.await();
+        }
+        try
+        {
+            final var token = this.createToken(pClaims.getSubject(), pClaims.getAuthorities(), lifetime);
+            created.token.complete(token);
+            return token;
+        }
+        catch (RuntimeException e)
+        {
+            this.renewals.remove(pClaims.getTokenId(), created);
+            created.token.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Obtenir le principal authentifié à partir des revendications vérifiées du jeton.
+     *
+     * @param pClaims les revendications vérifiées.
+     * @param pToken  le jeton JWT d'accès.
+     * @return le principal authentifié.
+     */
+    public Authentication getAuthentication(final TokenClaims pClaims, final String pToken)
+    {
+        final var principal = new User(pClaims.getSubject(), StringUtils.EMPTY, pClaims.getAuthorities());
+        return new UsernamePasswordAuthenticationToken(principal, pToken, pClaims.getAuthorities());
+    }
+
+    public int getPendingRenewals()
+    {
+        return this.renewals.size();
+    }
+
+    public JwtSigner getJwtSigner()
+    {
+        return this.keyRing.getSigningKey();
+    }
+
+    public long getTokenValidityInSeconds()
+    {
+        return this.tokenValidityInSeconds;
+    }
+
+    public long getTokenValidityForRememberMeInSeconds()
+    {
+        return this.tokenValidityForRememberMeInSeconds;
+    }
+
+    /**
+     * Construire le jeton compact JWS (en-tête.charge.signature) à partir des revendications, avec la clé de signature
+     * courante du trousseau.
+     *
+     * @param pClaims  les revendications au format JSON.
+     * @param pCompact true pour l'en-tête du format compact.
+     * @return le jeton signé.
+     */
+    private String sign(final String pClaims, final boolean pCompact)
+    {
+        final long startNanos = System.nanoTime();
+        final var signer = this.keyRing.getSigningKey();
+        final var header = pCompact ? signer.getCompactEncodedHeader() : signer.getEncodedHeader();
+        final var payload = BASE64_URL_ENCODER.encodeToString(pClaims.getBytes(StandardCharsets.UTF_8));
+        final var signingInput = new StringBuilder(header.length() + payload.length() + 2 + signer.getEncodedSignatureLength())//
+        .append(header)//
+        .append(POINT)//
+        .append(payload);
+
+        final var bytes = signingInput.toString().getBytes(StandardCharsets.US_ASCII);
+        final var signature = signer.sign(bytes, 0, bytes.length);
+        final var token = signingInput.append(POINT).append(BASE64_URL_ENCODER.encodeToString(signature)).toString();
+        this.metrics.record(AuthenticationMetrics.Stage.TOKEN_ISSUANCE, startNanos);
+        return token;
+    }
+
+    /**
+     * Obtenir les revendications vérifiées du jeton situé entre les positions fournies.
+     *
+     * @param pSource la chaîne contenant le jeton.
+     * @param pStart  la position du premier caractère du jeton.
+     * @param pEnd    la position suivant le dernier caractère du jeton.
+     * @return les revendications vérifiées, null si le jeton est invalide, expiré ou révoqué.
+     */
+    private TokenClaims getVerifiedClaims(final CharSequence pSource, final int pStart, final int pEnd)
+    {
+        final long now = Instant.now().getEpochSecond();
+        var claims = this.tokenCache.get(pSource, pStart, pEnd, now);
+        if (claims == null)
+        {
+            claims = this.verifyAndParse(pSource, pStart, pEnd, now);
+            if (claims == null)
+            {
+                return null;
+            }
+            this.tokenCache.put(pSource, pStart, pEnd, claims, now);
+        }
+
+        // La révocation est vérifiée à chaque requête : un jeton en cache peut avoir été révoqué depuis.
+        return this.isRevoked(claims) ? null : claims;
+    }
+
+    /**
+     * Vérifier la signature du jeton puis extraire ses revendications. L'analyse et la vérification travaillent sur les
+     * tampons du thread courant : seules les revendications finales sont allouées, une fois par jeton grâce au cache.
+     *
+     * @param pSource       la chaîne contenant le jeton.
+     * @param pStart        la position du premier caractère du jeton.
+     * @param pEnd          la position suivant le dernier caractère du jeton.
+     * @param pNowInSeconds l'instant courant en secondes depuis l'epoch.
+     * @return les revendications vérifiées, null si le jeton est invalide ou expiré.
+     */
+    private TokenClaims verifyAndParse(final CharSequence pSource, final int pStart, final int pEnd, final long pNowInSeconds)
+    {
+        final long startNanos = System.nanoTime();
+        final var parsed = this.tokenParser.parse(pSource, pStart, pEnd);
+        if (parsed == null)
+        {
+            this.metrics.fail(AuthenticationMetrics.Failure.MALFORMED);
+            return null;
+        }
+        if (parsed.getExpiresAt() <= pNowInSeconds)
+        {
+            this.metrics.fail(AuthenticationMetrics.Failure.EXPIRED);
+            return null;
+        }
+        // L'algorithme est celui de la clé désignée par le kid : l'en-tête doit l'annoncer (pas de confusion d'algorithme).
+        final var verifier = this.keyRing.getVerificationKey(parsed);
+        final boolean verified = verifier != null && parsed.hasAlgorithm(verifier.getJwtAlgorithm().getNameBytes()) && verifier.verify(parsed
+        .getSigningInput(), 0, parsed.getSigningInputLength(), parsed.getSignature(), 0, parsed.getSignatureLength());
+        this.metrics.record(AuthenticationMetrics.Stage.SIGNATURE_VERIFICATION, startNanos);
+        if (!verified)
+        {
+            this.metrics.fail(AuthenticationMetrics.Failure.BAD_SIGNATURE);
+            return null;
+        }
+
+        // Autorités partagées par tous les jetons de mêmes rôles, copiées seulement en présence d'autres autorités.
+        Collection<GrantedAuthority> authorities = AuthorityRegistry.authorities(parsed.getRoleMask());
+        if (parsed.hasUnknownAuthorities())
+        {
+            final List<GrantedAuthority> all = new ArrayList<>(authorities);
+            parsed.unknownAuthorityNames().forEach(name -> all.add(new SimpleGrantedAuthority(name)));
+            authorities = Collections.unmodifiableList(all);
+        }
+        final var subject = parsed.subject();
+        if (subject == null)
+        {
+            this.metrics.fail(AuthenticationMetrics.Failure.MALFORMED);
+            return null;
+        }
+        return new TokenClaims(subject, parsed.tokenId(), parsed.clientId(), authorities, parsed.getIssuedAt(), parsed.getExpiresAt());
+    }
+
+    /**
+     * Supprimer les renouvellements dont la fenêtre de partage est écoulée, au plus une fois par seconde.
+     *
+     * @param pNowInSeconds l'instant courant en secondes depuis l'epoch.
+     */
+    private void purgeRenewals(final long pNowInSeconds)
+    {
+        if (pNowInSeconds == this.lastRenewalPurgeSeconds)
+        {
+            return;
+        }
+        this.lastRenewalPurgeSeconds = pNowInSeconds;
+        this.renewals.values().removeIf(renewal -> renewal.sharedUntil <= pNowInSeconds);
+    }
+
+    /**
+     * Générer l'identifiant unique d'un jeton : 128 bits aléatoires encodés en Base64 URL. L'identifiant n'a pas à être
+     * secret, la signature garantissant l'intégrité du jeton.
+     *
+     * @return l'identifiant du jeton.
+     */
+    private static String newTokenId()
+    {
+        final var bytes = new byte[16];
+        ThreadLocalRandom.current().nextBytes(bytes);
+        return BASE64_URL_ENCODER.encodeToString(bytes);
+    }
+
+    /**
+     * Ajouter une chaîne JSON échappée au tampon.
+     *
+     * @param pBuilder le tampon.
+     * @param pValue   la valeur à ajouter.
+     * @return le tampon.
+     */
+    static StringBuilder appendJsonString(final StringBuilder pBuilder, final String pValue)
+    {
+        pBuilder.append('"');
+        for (int i = 0; i < pValue.length(); i++)
+        {
+            final char c = pValue.charAt(i);
+            if (c == '"' || c == '\\')
+            {
+                pBuilder.append('\\').append(c);
+            }
+            else if (c < 0x20)
+            {
+                pBuilder.append(String.format("\\u%04x", (int) c));
+            }
+            else
+            {
+                pBuilder.append(c);
+            }
+        }
+        return pBuilder.append('"');
+    }
+
+    /**
+     * Jeton renouvelé partagé par les requêtes qui présentent le même jeton.
+     */
+    private static final class Renewal
+    {
+        private final CompletableFuture<String> token = new CompletableFuture<>(); // le nouveau jeton, une fois signé.
+        private final long sharedUntil; // fin de la fenêtre de partage en secondes depuis l'epoch.
+
+        private Renewal(final long pSharedUntil)
+        {
+            this.sharedUntil = pSharedUntil;
+        }
 
+        /**
+         * Attendre la signature du nouveau jeton par le premier appel.
+         *
+         * @return le nouveau jeton, null si sa signature a échoué (le jeton présenté n'est pas renouvelé).
+         */
+        private String await()
+        {
+            try
+            {
+                return this.token.join();
+            }
+            catch (CompletionException | CancellationException e)
+            {
+                return null;
+            }
+        }
     }
 }
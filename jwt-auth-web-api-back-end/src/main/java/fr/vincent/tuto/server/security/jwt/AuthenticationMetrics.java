@@ -0,0 +1,263 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : AuthenticationMetrics.java
+ * Date de création : 9 mars 2021
+ * Heure de création : 11:05:48
+ * Package : fr.vincent.tuto.server.security.jwt
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.security.jwt;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.security.authentication.AccountExpiredException;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.CredentialsExpiredException;
+import org.springframework.security.authentication.DisabledException;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
+import org.springframework.security.authentication.LockedException;
+import org.springframework.security.authentication.event.AbstractAuthenticationFailureEvent;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import fr.vincent.tuto.server.security.CustomUserDetailsService;
+import fr.vincent.tuto.server.security.throttle.LoginThrottledException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+
+/**
+ * Métriques du chemin d'authentification : la durée de chaque étape (security.authentication.stage, étiquette stage)
+ * avec histogramme de percentiles, et les échecs par motif (security.authentication.failures, étiquette reason). Les
+ * compteurs et les chronomètres sont créés une fois pour toutes dans un registre composite : tant qu'aucun registre
+ * n'est lié, un enregistrement ne coûte rien, et le chemin d'une requête n'effectue aucune recherche de métrique.
+ * <p>
+ * Les échecs de la connexion par mot de passe (mauvais mot de passe, compte verrouillé ou expiré) sont comptés à partir
+ * des événements publiés par Spring Security. Les échecs du chargement de l'utilisateur sont comptés par le
+ * {@link CustomUserDetailsService}, qui en connaît le motif.
+ *
+ * @author Vincent Otchoun
+ */
+@Component
+public class AuthenticationMetrics implements MeterBinder
+{
+    //
+    private static final String STAGE_TIMER = "security.authentication.stage";
+    private static final String FAILURE_COUNTER = "security.authentication.failures";
+
+    private final CompositeMeterRegistry registry = new CompositeMeterRegistry();
+    private final Map<Stage, Timer> timers = new EnumMap<>(Stage.class);
+    private final Map<Failure, Counter> failures = new EnumMap<>(Failure.class);
+
+    /**
+     * Étapes chronométrées du chemin d'authentification.
+     */
+    public enum Stage
+    {
+        HEADER_PARSING("header_parsing"), // lecture du jeton dans l'en-tête d'autorisation.
+        SIGNATURE_VERIFICATION("signature_verification"), // analyse et vérification de la signature d'un jeton absent du cache.
+        REVOCATION_CHECK("revocation_check"), // consultation de la liste de révocation.
+        USER_LOADING("user_loading"), // chargement de l'utilisateur en base de données.
+        PASSWORD_CHECK("password_check"), // comparaison BCrypt du mot de passe.
+        TOKEN_ISSUANCE("token_issuance"); // signature d'un nouveau jeton.
+
+        private final String tag;
+
+        Stage(final String pTag)
+        {
+            this.tag = pTag;
+        }
+
+        public String getTag()
+        {
+            return this.tag;
+        }
+    }
+
+    /**
+     * Motifs d'échec de l'authentification.
+     */
+    public enum Failure
+    {
+        MALFORMED("malformed"),
+        EXPIRED("expired"),
+        BAD_SIGNATURE("bad_signature"),
+        REVOKED("revoked"),
+        UNKNOWN_USER("unknown_user"),
+        DISABLED("disabled"),
+        LOCKED("locked"),
+        ACCOUNT_EXPIRED("account_expired"),
+        CREDENTIALS_EXPIRED("credentials_expired"),
+        BAD_CREDENTIALS("bad_credentials"),
+        THROTTLED("throttled"), // tentative refusée par la limitation des tentatives de connexion.
+        OTHER("other");
+
+        private final String tag;
+
+        Failure(final String pTag)
+        {
+            this.tag = pTag;
+        }
+
+        public String getTag()
+        {
+            return this.tag;
+        }
+    }
+
+    /**
+     * Constructeur par défaut : les métriques sont créées dans le registre composite.
+     */
+    public AuthenticationMetrics()
+    {
+        for (final Stage stage : Stage.values())
+        {
+            this.timers.put(stage, Timer.builder(STAGE_TIMER)//
+            .description("Durée des étapes de l'authentification")//
+            .tag("stage", stage.getTag())//
+            .publishPercentileHistogram()//
+            .register(this.registry));
+        }
+        for (final Failure failure : Failure.values())
+        {
+            this.failures.put(failure, Counter.builder(FAILURE_COUNTER)//
+            .description("Nombre d'échecs de l'authentification par motif")//
+            .tag("reason", failure.getTag())//
+            .register(this.registry));
+        }
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry pRegistry)
+    {
+        this.registry.add(pRegistry);
+    }
+
+    /**
+     * Enregistrer la durée d'une étape démarrée à l'instant fourni.
+     *
+     * @param pStage      l'étape.
+     * @param pStartNanos l'instant de début de l'étape ({@link System#nanoTime()}).
+     */
+    public void record(final Stage pStage, final long pStartNanos)
+    {
+        this.timers.get(pStage).record(System.nanoTime() - pStartNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Compter un échec de l'authentification.
+     *
+     * @param pFailure le motif de l'échec.
+     */
+    public void fail(final Failure pFailure)
+    {
+        this.failures.get(pFailure).increment();
+    }
+
+    /**
+     * Compter l'échec d'une authentification publié par Spring Security. Les échecs internes (chargement de
+     * l'utilisateur) sont déjà comptés avec leur motif par le {@link CustomUserDetailsService}.
+     *
+     * @param pEvent l'événement d'échec.
+     */
+    @EventListener
+    public void onAuthenticationFailure(final AbstractAuthenticationFailureEvent pEvent)
+    {
+        final var failure = failureOf(pEvent.getException());
+        if (failure != null)
+        {
+            this.fail(failure);
+        }
+    }
+
+    /**
+     * Chronométrer la comparaison des mots de passe de l'encodeur fourni.
+     *
+     * @param pPasswordEncoder l'encodeur des mots de passe.
+     * @return l'encodeur chronométré.
+     */
+    public PasswordEncoder timed(final PasswordEncoder pPasswordEncoder)
+    {
+        return new PasswordEncoder()
+        {
+            @Override
+            public String encode(final CharSequence pRawPassword)
+            {
+                return pPasswordEncoder.encode(pRawPassword);
+            }
+
+            @Override
+            public boolean matches(final CharSequence pRawPassword, final String pEncodedPassword)
+            {
+                final long start = System.nanoTime();
+                try
+                {
+                    return pPasswordEncoder.matches(pRawPassword, pEncodedPassword);
+                }
+                finally
+                {
+                    AuthenticationMetrics.this.record(Stage.PASSWORD_CHECK, start);
+                }
+            }
+
+            @Override
+            public boolean upgradeEncoding(final String pEncodedPassword)
+            {
+                return pPasswordEncoder.upgradeEncoding(pEncodedPassword);
+            }
+        };
+    }
+
+    /**
+     * Obtenir le motif d'un échec de l'authentification.
+     *
+     * @param pException l'exception de l'échec.
+     * @return le motif, null pour un échec interne déjà compté.
+     */
+    public static Failure failureOf(final AuthenticationException pException)
+    {
+        if (pException instanceof InternalAuthenticationServiceException)
+        {
+            return null;
+        }
+        if (pException instanceof LoginThrottledException)
+        {
+            return Failure.THROTTLED;
+        }
+        if (pException instanceof BadCredentialsException)
+        {
+            return Failure.BAD_CREDENTIALS;
+        }
+        if (pException instanceof LockedException)
+        {
+            return Failure.LOCKED;
+        }
+        if (pException instanceof DisabledException)
+        {
+            return Failure.DISABLED;
+        }
+        if (pException instanceof AccountExpiredException)
+        {
+            return Failure.ACCOUNT_EXPIRED;
+        }
+        if (pException instanceof CredentialsExpiredException)
+        {
+            return Failure.CREDENTIALS_EXPIRED;
+        }
+        if (pException instanceof UsernameNotFoundException)
+        {
+            return Failure.UNKNOWN_USER;
+        }
+        return Failure.OTHER;
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : BatchTokenIssuer.java
+ * Date de création : 8 mars 2021
+ * Heure de création : 16:18:09
+ * Package : fr.vincent.tuto.server.security.jwt
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.security.jwt;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import fr.vincent.tuto.common.exception.CustomAppException;
+import fr.vincent.tuto.server.config.props.ServerSecurityProps;
+import fr.vincent.tuto.server.dao.UserBatchDAO;
+import fr.vincent.tuto.server.model.dto.TokenRequestDTO;
+import fr.vincent.tuto.server.util.ServerUtil;
+
+/**
+ * Emission en lot des jetons JWT d'accès pour les comptes de service des traitements par lot (batch-client-app). Les
+ * demandes sont découpées en tâches signées en parallèle par un pool de threads borné, puis écrites dans l'ordre des
+ * demandes au fur et à mesure de leur signature : au plus deux tâches par thread sont en cours, la mémoire reste bornée
+ * quel que soit le nombre de jetons demandés. Les jetons sont signés par le {@link AuthTokenProvider}, avec la même
+ * clé et les mêmes instances de signature par thread que les jetons émis à la connexion, sans contrôle de mot de passe
+ * ni lecture en base de données. Les portées sont émises dans les autorités du jeton sous la forme SCOPE_&lt;portée&gt;
+ * et ne peuvent donc pas accorder de rôle.
+ * <p>
+ * Le sujet des jetons est préfixé par {@value #SUBJECT_PREFIX} : le caractère « : » est interdit dans les noms
+ * d'utilisateurs, un jeton émis en lot ne peut donc désigner ni un utilisateur ni un compte de service. Le compte
+ * émetteur est porté par la revendication client_id. Les sujets demandés qui reprennent le nom d'un utilisateur ou d'un
+ * compte de service sont en outre refusés, pour ne pas prêter à confusion.
+ *
+ * @author Vincent Otchoun
+ */
+@Component
+public class BatchTokenIssuer implements DisposableBean
+{
+    //
+    public static final String SCOPE_PREFIX = "SCOPE_";
+    public static final String SUBJECT_PREFIX = "batch:";
+
+    private static final String THREAD_NAME = "jwt-batch-signer-";
+    private static final String ISSUE_ERR_MSG = "Erreur lors de la signature du lot de jetons JWT.";
+    private static final String INTERRUPTED_ERR_MSG = "Signature du lot de jetons JWT interrompue.";
+
+    private final AuthTokenProvider tokenProvider;
+    private final UserBatchDAO userBatchDAO;
+    private final ServerSecurityProps.BatchIssuanceProps batchProps;
+    private final Set<String> clients;
+    private final Set<String> lowerCaseClients;
+    private final int parallelism;
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Constructeur avec en paramètres les beans pour injection.
+     *
+     * @param pTokenProvider le fournisseur des jetons JWT.
+     * @param pUserBatchDAO  l'accès par lot aux utilisateurs.
+     * @param pSecurityProps les propriétés de sécurisation du serveur.
+     */
+    public BatchTokenIssuer(final AuthTokenProvider pTokenProvider, final UserBatchDAO pUserBatchDAO, final ServerSecurityProps pSecurityProps)
+    {
+        this.tokenProvider = pTokenProvider;
+        this.userBatchDAO = pUserBatchDAO;
+        this.batchProps = pSecurityProps.getBatchIssuance();
+        this.clients = Set.of(this.batchProps.getClients());
+        this.lowerCaseClients = new HashSet<>();
+        this.clients.forEach(client -> this.lowerCaseClients.add(client.toLowerCase(Locale.ROOT)));
+
+        final int configured = this.batchProps.getParallelism();
+        this.parallelism = configured > 0 ? configured : Runtime.getRuntime().availableProcessors();
+        final var threadCount = new AtomicInteger();
+        // File bornée et exécution par l'appelant lorsqu'elle est pleine : plusieurs lots simultanés ne font que ralentir.
+        this.executor = new ThreadPoolExecutor(this.parallelism, this.parallelism, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(
+        this.parallelism * 4), runnable -> {
+            final var thread = new Thread(runnable, THREAD_NAME + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @Override
+    public void destroy() throws Exception
+    {
+        this.executor.shutdownNow();
+        this.executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Indiquer si le compte est autorisé à émettre des jetons en lot.
+     *
+     * @param pClient le nom du compte authentifié.
+     * @return true si le compte est autorisé, false sinon.
+     */
+    public boolean isClient(final String pClient)
+    {
+        return pClient != null && this.clients.contains(pClient);
+    }
+
+    public int getMaxRequests()
+    {
+        return this.batchProps.getMaxRequests();
+    }
+
+    /**
+     * Rechercher les sujets demandés qui reprennent le nom d'un compte de service ou d'un utilisateur enregistré (sans
+     * distinction de casse).
+     *
+     * @param pRequests les demandes de jetons.
+     * @return les sujets refusés, vide si toutes les demandes sont acceptées.
+     */
+    public Set<String> findRejectedSubjects(final List<TokenRequestDTO> pRequests)
+    {
+        final Set<String> subjects = new HashSet<>(pRequests.size());
+        pRequests.forEach(request -> subjects.add(request.getSubject()));
+        final Set<String> existing = this.userBatchDAO.findExistingUsernames(subjects);
+        final Set<String> rejected = new TreeSet<>();
+        subjects.stream().filter(subject -> existing.contains(ServerUtil.LOWER_CASE.apply(subject)) || this.lowerCaseClients.contains(subject
+        .toLowerCase(Locale.ROOT))).forEach(rejected::add);
+        return rejected;
+    }
+
+    /**
+     * Signer les jetons demandés et les écrire dans le flux, une ligne JSON par jeton dans l'ordre des demandes :
+     * {"index":i,"sub":"batch:...","access_token":"...","token_type":"Bearer","expires_in":n}.
+     *
+     * @param pRequests les demandes de jetons, sujets déjà contrôlés ({@link #findRejectedSubjects(List)}).
+     * @param pClient   le compte de service émetteur.
+     * @param pOutput   le flux de sortie.
+     * @throws IOException en cas d'erreur d'écriture dans le flux.
+     */
+    public void issue(final List<TokenRequestDTO> pRequests, final String pClient, final OutputStream pOutput) throws IOException
+    {
+        final int size = pRequests.size();
+        final int chunkSize = Math.max(1, this.batchProps.getChunkSize());
+        final int window = this.parallelism * 2;
+        final Deque<Future<byte[]>> inFlight = new ArrayDeque<>(window);
+        int next = 0;
+        try
+        {
+            while (next < size || !inFlight.isEmpty())
+            {
+                while (next < size && inFlight.size() < window)
+                {
+                    final int from = next;
+                    final int to = Math.min(size, from + chunkSize);
+                    inFlight.add(this.executor.submit(() -> this.signChunk(pRequests, pClient, from, to)));
+                    next = to;
+                }
+                pOutput.write(await(inFlight.poll()));
+                pOutput.flush();
+            }
+        }
+        finally
+        {
+            // Client déconnecté ou erreur : ne pas signer les jetons qui ne seront pas lus.
+            inFlight.forEach(future -> future.cancel(true));
+        }
+    }
+
+    /**
+     * Signer une tâche du lot et la sérialiser en lignes JSON.
+     *
+     * @param pRequests les demandes de jetons.
+     * @param pClient   le compte de service émetteur.
+     * @param pFrom     l'index de la première demande de la tâche.
+     * @param pTo       l'index suivant la dernière demande de la tâche.
+     * @return les lignes JSON de la tâche en UTF-8.
+     */
+    private byte[] signChunk(final List<TokenRequestDTO> pRequests, final String pClient, final int pFrom, final int pTo)
+    {
+        final long validity = this.batchProps.getValiditySeconds();
+        final var lines = new StringBuilder((pTo - pFrom) * 512);
+        for (int i = pFrom; i < pTo; i++)
+        {
+            final var subject = SUBJECT_PREFIX + pRequests.get(i).getSubject();
+            final var token = this.tokenProvider.createToken(subject, scopeAuthorities(pRequests.get(i).getScopes()), validity, pClient);
+
+            lines.append("{\"index\":").append(i).append(',');
+            AuthTokenProvider.appendJsonString(lines, AuthTokenProvider.SUBJECT_CLAIM).append(':');
+            AuthTokenProvider.appendJsonString(lines, subject);
+            lines.append(",\"access_token\":\"").append(token);
+            lines.append("\",\"token_type\":\"Bearer\",\"expires_in\":").append(validity).append("}\n");
+        }
+        return lines.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Convertir les portées demandées en autorités du jeton.
+     *
+     * @param pScopes les portées.
+     * @return les autorités SCOPE_&lt;portée&gt;.
+     */
+    private static Collection<? extends GrantedAuthority> scopeAuthorities(final List<String> pScopes)
+    {
+        if (pScopes == null || pScopes.isEmpty())
+        {
+            return Collections.emptyList();
+        }
+        final List<GrantedAuthority> authorities = new ArrayList<>(pScopes.size());
+        for (final String scope : pScopes)
+        {
+            if (scope != null)
+            {
+                authorities.add(new SimpleGrantedAuthority(SCOPE_PREFIX + scope));
+            }
+        }
+        return authorities;
+    }
+
+    /**
+     * Attendre le résultat de la tâche.
+     *
+     * @param pFuture la tâche.
+     * @return les lignes JSON de la tâche.
+     */
+    private static byte[] await(final Future<byte[]> pFuture)
+    {
+        try
+        {
+            return pFuture.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new CustomAppException(INTERRUPTED_ERR_MSG, e);
+        }
+        catch (ExecutionException e)
+        {
+            throw new CustomAppException(ISSUE_ERR_MSG, e.getCause());
+        }
+    }
+}
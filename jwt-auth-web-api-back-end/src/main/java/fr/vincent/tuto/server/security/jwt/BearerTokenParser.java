@@ -0,0 +1,918 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : BearerTokenParser.java
+ * Date de création : 6 mars 2021
+ * Heure de création : 08:36:14
+ * Package : fr.vincent.tuto.server.security.jwt
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.security.jwt;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import fr.vincent.tuto.server.enumeration.RoleEnum;
+
+/**
+ * Analyseur sans allocation des jetons JWT transmis dans l'en-tête d'autorisation (vot.jwt-props.authorization-header
+ * et vot.jwt-props.bearer-token). Il travaille directement sur les caractères de l'en-tête : les segments Base64 URL
+ * sont décodés dans des tampons réutilisés par thread et seules les revendications utiles sont extraites (sub, jti,
+ * client_id, exp, iat et la clé des autorités), ainsi que l'identifiant de la clé de signature (kid) de l'en-tête JOSE. Les autorités
+ * connues de {@link RoleEnum} sont réduites à un masque de bits. La revendication des autorités est lue sous ses deux
+ * formats : tableau des noms (format standard) ou masque de bits des ordinaux de {@link RoleEnum} (format compact).
+ * <p>
+ * L'objet {@link ParsedToken} retourné appartient au thread appelant et est réutilisé à l'analyse suivante : il ne doit
+ * ni être conservé ni partagé.
+ *
+ * @author Vincent Otchoun
+ */
+public final class BearerTokenParser
+{
+    //
+    private static final byte[] BASE64_URL_VALUES = new byte[128];
+    private static final byte[][] ROLE_NAMES;
+    private static final byte[] SUBJECT_KEY = AuthTokenProvider.SUBJECT_CLAIM.getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TOKEN_ID_KEY = AuthTokenProvider.TOKEN_ID_CLAIM.getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CLIENT_ID_KEY = AuthTokenProvider.CLIENT_ID_CLAIM.getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] EXPIRATION_KEY = AuthTokenProvider.EXPIRATION_CLAIM.getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ISSUED_AT_KEY = AuthTokenProvider.ISSUED_AT_CLAIM.getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] KEY_ID_KEY = AuthTokenProvider.KEY_ID_HEADER.getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ALGORITHM_KEY = AuthTokenProvider.ALGORITHM_HEADER.getBytes(StandardCharsets.US_ASCII);
+    private static final char POINT = '.';
+    private static final int ALL_ROLES_MASK = (1 << RoleEnum.values().length) - 1;
+
+    static
+    {
+        Arrays.fill(BASE64_URL_VALUES, (byte) -1);
+        final var alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        for (int i = 0; i < alphabet.length(); i++)
+        {
+            BASE64_URL_VALUES[alphabet.charAt(i)] = (byte) i;
+        }
+
+        final var roles = RoleEnum.values();
+        ROLE_NAMES = new byte[roles.length][];
+        for (final RoleEnum role : roles)
+        {
+            ROLE_NAMES[role.ordinal()] = role.name().getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private final String bearerPrefix;
+    private final byte[] authoritiesKey;
+    private final ThreadLocal<ParsedToken> states = ThreadLocal.withInitial(ParsedToken::new);
+
+    /**
+     * Constructeur avec paramètres.
+     *
+     * @param pBearerPrefix   le préfixe du schéma d'autorisation (Bearer).
+     * @param pAuthoritiesKey le nom de la revendication des autorités.
+     */
+    public BearerTokenParser(final String pBearerPrefix, final String pAuthoritiesKey)
+    {
+        this.bearerPrefix = pBearerPrefix.trim();
+        this.authoritiesKey = pAuthoritiesKey.trim().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Obtenir la position de début du jeton dans la valeur de l'en-tête d'autorisation.
+     *
+     * @param pHeader la valeur de l'en-tête d'autorisation.
+     * @return la position du premier caractère du jeton, -1 si l'en-tête n'est pas de type Bearer.
+     */
+    public int tokenStart(final CharSequence pHeader)
+    {
+        final int prefixLength = this.bearerPrefix.length();
+        if (pHeader == null || pHeader.length() <= prefixLength + 1)
+        {
+            return -1;
+        }
+        for (int i = 0; i < prefixLength; i++)
+        {
+            if (Character.toLowerCase(pHeader.charAt(i)) != Character.toLowerCase(this.bearerPrefix.charAt(i)))
+            {
+                return -1;
+            }
+        }
+        int start = prefixLength;
+        if (pHeader.charAt(start) != ' ')
+        {
+            return -1;
+        }
+        while (start < pHeader.length() && pHeader.charAt(start) == ' ')
+        {
+            start++;
+        }
+        return start < pHeader.length() ? start : -1;
+    }
+
+    /**
+     * Analyser le jeton compact JWS compris entre les positions fournies.
+     *
+     * @param pSource la chaîne contenant le jeton (en-tête d'autorisation ou jeton seul).
+     * @param pStart  la position du premier caractère du jeton.
+     * @param pEnd    la position suivant le dernier caractère du jeton.
+     * @return l'état d'analyse du thread courant, null si le jeton est mal formé.
+     */
+    public ParsedToken parse(final CharSequence pSource, final int pStart, int pEnd)
+    {
+        while (pEnd > pStart && pSource.charAt(pEnd - 1) == ' ')
+        {
+            pEnd--;
+        }
+
+        int firstPoint = -1;
+        int secondPoint = -1;
+        for (int i = pStart; i < pEnd; i++)
+        {
+            final char c = pSource.charAt(i);
+            if (c == POINT)
+            {
+                if (firstPoint < 0)
+                {
+                    firstPoint = i;
+                }
+                else if (secondPoint < 0)
+                {
+                    secondPoint = i;
+                }
+                else
+                {
+                    return null;
+                }
+            }
+            else if (c >= 128 || BASE64_URL_VALUES[c] < 0)
+            {
+                return null;
+            }
+        }
+        if (firstPoint <= pStart || secondPoint < 0 || secondPoint == firstPoint + 1 || secondPoint == pEnd - 1)
+        {
+            return null;
+        }
+
+        final var state = this.states.get();
+        state.reset(pSource, pStart, pEnd);
+
+        // Entrée de la signature : en-tête.charge en ASCII.
+        state.signingInputLength = secondPoint - pStart;
+        state.signingInput = ensureCapacity(state.signingInput, state.signingInputLength);
+        for (int i = pStart; i < secondPoint; i++)
+        {
+            state.signingInput[i - pStart] = (byte) pSource.charAt(i);
+        }
+
+        state.header = ensureCapacity(state.header, (firstPoint - pStart) * 3 / 4 + 3);
+        state.headerLength = decode(pSource, pStart, firstPoint, state.header);
+        state.payload = ensureCapacity(state.payload, (secondPoint - firstPoint) * 3 / 4 + 3);
+        state.payloadLength = decode(pSource, firstPoint + 1, secondPoint, state.payload);
+        state.signature = ensureCapacity(state.signature, (pEnd - secondPoint) * 3 / 4 + 3);
+        state.signatureLength = decode(pSource, secondPoint + 1, pEnd, state.signature);
+        if (state.headerLength < 0 || state.payloadLength < 0 || state.signatureLength < 0)
+        {
+            return null;
+        }
+        return readHeader(state) && this.readClaims(state) ? state : null;
+    }
+
+    /**
+     * Décoder un segment Base64 URL sans remplissage.
+     *
+     * @param pSource la chaîne source.
+     * @param pStart  la position de début du segment.
+     * @param pEnd    la position de fin du segment.
+     * @param pTarget le tampon de destination.
+     * @return le nombre d'octets décodés, -1 si le segment est invalide.
+     */
+    private static int decode(final CharSequence pSource, final int pStart, final int pEnd, final byte[] pTarget)
+    {
+        int length = 0;
+        int i = pStart;
+        for (; i + 4 <= pEnd; i += 4)
+        {
+            final int bits = BASE64_URL_VALUES[pSource.charAt(i)] << 18 | BASE64_URL_VALUES[pSource.charAt(i + 1)] << 12
+            | BASE64_URL_VALUES[pSource.charAt(i + 2)] << 6 | BASE64_URL_VALUES[pSource.charAt(i + 3)];
+            pTarget[length++] = (byte) (bits >> 16);
+            pTarget[length++] = (byte) (bits >> 8);
+            pTarget[length++] = (byte) bits;
+        }
+        final int remainder = pEnd - i;
+        if (remainder == 1)
+        {
+            return -1;
+        }
+        if (remainder >= 2)
+        {
+            int bits = BASE64_URL_VALUES[pSource.charAt(i)] << 18 | BASE64_URL_VALUES[pSource.charAt(i + 1)] << 12;
+            if (remainder == 3)
+            {
+                bits |= BASE64_URL_VALUES[pSource.charAt(i + 2)] << 6;
+            }
+            pTarget[length++] = (byte) (bits >> 16);
+            if (remainder == 3)
+            {
+                pTarget[length++] = (byte) (bits >> 8);
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Parcourir l'objet JSON de l'en-tête JOSE et repérer l'algorithme (alg) et l'identifiant de la clé de signature
+     * (kid).
+     *
+     * @param pState l'état d'analyse.
+     * @return true si l'en-tête est un objet JSON valide, false sinon.
+     */
+    private static boolean readHeader(final ParsedToken pState)
+    {
+        final var json = pState.header;
+        final int end = pState.headerLength;
+        int pos = skipWhitespace(json, 0, end);
+        if (pos >= end || json[pos] != '{')
+        {
+            return false;
+        }
+        pos = skipWhitespace(json, pos + 1, end);
+        if (pos < end && json[pos] == '}')
+        {
+            return true;
+        }
+
+        while (pos < end)
+        {
+            if (json[pos] != '"')
+            {
+                return false;
+            }
+            final int keyStart = pos + 1;
+            final int keyEnd = skipString(json, pos, end) - 1;
+            if (keyEnd < keyStart)
+            {
+                return false;
+            }
+            pos = skipWhitespace(json, keyEnd + 1, end);
+            if (pos >= end || json[pos] != ':')
+            {
+                return false;
+            }
+            pos = skipWhitespace(json, pos + 1, end);
+            if (pos >= end)
+            {
+                return false;
+            }
+
+            final int valueEnd = skipValue(json, pos, end);
+            if (valueEnd < 0)
+            {
+                return false;
+            }
+            if (equalsKey(json, keyStart, keyEnd, KEY_ID_KEY) && json[pos] == '"')
+            {
+                pState.keyIdStart = pos + 1;
+                pState.keyIdEnd = valueEnd - 1;
+            }
+            else if (equalsKey(json, keyStart, keyEnd, ALGORITHM_KEY) && json[pos] == '"')
+            {
+                pState.algorithmStart = pos + 1;
+                pState.algorithmEnd = valueEnd - 1;
+            }
+
+            pos = skipWhitespace(json, valueEnd, end);
+            if (pos >= end)
+            {
+                return false;
+            }
+            if (json[pos] == '}')
+            {
+                return true;
+            }
+            if (json[pos] != ',')
+            {
+                return false;
+            }
+            pos = skipWhitespace(json, pos + 1, end);
+        }
+        return false;
+    }
+
+    /**
+     * Parcourir l'objet JSON des revendications et extraire uniquement celles utiles à l'authentification.
+     *
+     * @param pState l'état d'analyse.
+     * @return true si la charge est un objet JSON valide, false sinon.
+     */
+    private boolean readClaims(final ParsedToken pState)
+    {
+        final var json = pState.payload;
+        final int end = pState.payloadLength;
+        int pos = skipWhitespace(json, 0, end);
+        if (pos >= end || json[pos] != '{')
+        {
+            return false;
+        }
+        pos = skipWhitespace(json, pos + 1, end);
+        if (pos < end && json[pos] == '}')
+        {
+            return true;
+        }
+
+        while (pos < end)
+        {
+            if (json[pos] != '"')
+            {
+                return false;
+            }
+            final int keyStart = pos + 1;
+            final int keyEnd = skipString(json, pos, end) - 1;
+            if (keyEnd < keyStart)
+            {
+                return false;
+            }
+            pos = skipWhitespace(json, keyEnd + 1, end);
+            if (pos >= end || json[pos] != ':')
+            {
+                return false;
+            }
+            pos = skipWhitespace(json, pos + 1, end);
+            if (pos >= end)
+            {
+                return false;
+            }
+
+            final int valueEnd;
+            if (equalsKey(json, keyStart, keyEnd, SUBJECT_KEY) && json[pos] == '"')
+            {
+                valueEnd = skipString(json, pos, end);
+                pState.subjectStart = pos + 1;
+                pState.subjectEnd = valueEnd - 1;
+                pState.subjectEscaped = indexOf(json, pState.subjectStart, pState.subjectEnd, (byte) '\\') >= 0;
+            }
+            else if (equalsKey(json, keyStart, keyEnd, TOKEN_ID_KEY) && json[pos] == '"')
+            {
+                valueEnd = skipString(json, pos, end);
+                pState.tokenIdStart = pos + 1;
+                pState.tokenIdEnd = valueEnd - 1;
+            }
+            else if (equalsKey(json, keyStart, keyEnd, CLIENT_ID_KEY) && json[pos] == '"')
+            {
+                valueEnd = skipString(json, pos, end);
+                pState.clientIdStart = pos + 1;
+                pState.clientIdEnd = valueEnd - 1;
+            }
+            else if (equalsKey(json, keyStart, keyEnd, EXPIRATION_KEY))
+            {
+                valueEnd = skipNumber(json, pos, end);
+                pState.expiresAt = parseLong(json, pos, valueEnd);
+            }
+            else if (equalsKey(json, keyStart, keyEnd, ISSUED_AT_KEY))
+            {
+                valueEnd = skipNumber(json, pos, end);
+                pState.issuedAt = parseLong(json, pos, valueEnd);
+            }
+            else if (equalsKey(json, keyStart, keyEnd, this.authoritiesKey) && json[pos] == '[')
+            {
+                valueEnd = this.readAuthorities(pState, pos, end);
+            }
+            else if (equalsKey(json, keyStart, keyEnd, this.authoritiesKey) && json[pos] >= '0' && json[pos] <= '9')
+            {
+                // Format compact : masque de bits des ordinaux, les bits sans rôle connu sont ignorés.
+                valueEnd = skipNumber(json, pos, end);
+                pState.roleMask = valueEnd < 0 ? 0 : (int) parseLong(json, pos, valueEnd) & ALL_ROLES_MASK;
+            }
+            else
+            {
+                valueEnd = skipValue(json, pos, end);
+            }
+            if (valueEnd < 0)
+            {
+                return false;
+            }
+
+            pos = skipWhitespace(json, valueEnd, end);
+            if (pos >= end)
+            {
+                return false;
+            }
+            if (json[pos] == '}')
+            {
+                return pState.subjectStart >= 0 && pState.expiresAt != Long.MIN_VALUE;
+            }
+            if (json[pos] != ',')
+            {
+                return false;
+            }
+            pos = skipWhitespace(json, pos + 1, end);
+        }
+        return false;
+    }
+
+    /**
+     * Lire le tableau des autorités : chaque autorité connue positionne son bit dans le masque des rôles.
+     *
+     * @param pState l'état d'analyse.
+     * @param pStart la position du crochet ouvrant.
+     * @param pEnd   la fin de la charge.
+     * @return la position suivant le crochet fermant, -1 si le tableau est invalide.
+     */
+    private int readAuthorities(final ParsedToken pState, final int pStart, final int pEnd)
+    {
+        final var json = pState.payload;
+        pState.authoritiesStart = pStart;
+        int pos = skipWhitespace(json, pStart + 1, pEnd);
+        if (pos < pEnd && json[pos] == ']')
+        {
+            pState.authoritiesEnd = pos + 1;
+            return pos + 1;
+        }
+        while (pos < pEnd)
+        {
+            if (json[pos] != '"')
+            {
+                return -1;
+            }
+            final int valueEnd = skipString(json, pos, pEnd);
+            if (valueEnd < 0)
+            {
+                return -1;
+            }
+            final int role = roleOf(json, pos + 1, valueEnd - 1);
+            if (role >= 0)
+            {
+                pState.roleMask |= 1 << role;
+            }
+            else
+            {
+                pState.unknownAuthorities = true;
+            }
+            pos = skipWhitespace(json, valueEnd, pEnd);
+            if (pos < pEnd && json[pos] == ']')
+            {
+                pState.authoritiesEnd = pos + 1;
+                return pos + 1;
+            }
+            if (pos >= pEnd || json[pos] != ',')
+            {
+                return -1;
+            }
+            pos = skipWhitespace(json, pos + 1, pEnd);
+        }
+        return -1;
+    }
+
+    private static int roleOf(final byte[] pJson, final int pStart, final int pEnd)
+    {
+        for (int role = 0; role < ROLE_NAMES.length; role++)
+        {
+            if (equalsKey(pJson, pStart, pEnd, ROLE_NAMES[role]))
+            {
+                return role;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean equalsKey(final byte[] pJson, final int pStart, final int pEnd, final byte[] pKey)
+    {
+        if (pEnd - pStart != pKey.length)
+        {
+            return false;
+        }
+        for (int i = 0; i < pKey.length; i++)
+        {
+            if (pJson[pStart + i] != pKey[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int skipWhitespace(final byte[] pJson, int pPos, final int pEnd)
+    {
+        while (pPos < pEnd && (pJson[pPos] == ' ' || pJson[pPos] == '\t' || pJson[pPos] == '\n' || pJson[pPos] == '\r'))
+        {
+            pPos++;
+        }
+        return pPos;
+    }
+
+    /**
+     * @return la position suivant le guillemet fermant, -1 si la chaîne n'est pas terminée.
+     */
+    private static int skipString(final byte[] pJson, final int pStart, final int pEnd)
+    {
+        for (int pos = pStart + 1; pos < pEnd; pos++)
+        {
+            if (pJson[pos] == '\\')
+            {
+                pos++;
+            }
+            else if (pJson[pos] == '"')
+            {
+                return pos + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipNumber(final byte[] pJson, int pPos, final int pEnd)
+    {
+        final int start = pPos;
+        if (pPos < pEnd && pJson[pPos] == '-')
+        {
+            pPos++;
+        }
+        while (pPos < pEnd && pJson[pPos] >= '0' && pJson[pPos] <= '9')
+        {
+            pPos++;
+        }
+        return pPos > start ? pPos : -1;
+    }
+
+    private static long parseLong(final byte[] pJson, final int pStart, final int pEnd)
+    {
+        if (pEnd < 0)
+        {
+            return Long.MIN_VALUE;
+        }
+        long value = 0;
+        final boolean negative = pJson[pStart] == '-';
+        for (int pos = negative ? pStart + 1 : pStart; pos < pEnd; pos++)
+        {
+            value = value * 10 + (pJson[pos] - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Ignorer une valeur JSON quelconque (chaîne, nombre, littéral, objet ou tableau).
+     *
+     * @return la position suivant la valeur, -1 si elle est invalide.
+     */
+    private static int skipValue(final byte[] pJson, final int pStart, final int pEnd)
+    {
+        final byte first = pJson[pStart];
+        if (first == '"')
+        {
+            return skipString(pJson, pStart, pEnd);
+        }
+        if (first == '{' || first == '[')
+        {
+            int depth = 0;
+            for (int pos = pStart; pos < pEnd; pos++)
+            {
+                final byte b = pJson[pos];
+                if (b == '"')
+                {
+                    pos = skipString(pJson, pos, pEnd) - 1;
+                    if (pos < 0)
+                    {
+                        return -1;
+                    }
+                }
+                else if (b == '{' || b == '[')
+                {
+                    depth++;
+                }
+                else if ((b == '}' || b == ']') && --depth == 0)
+                {
+                    return pos + 1;
+                }
+            }
+            return -1;
+        }
+        int pos = pStart;
+        while (pos < pEnd && pJson[pos] != ',' && pJson[pos] != '}' && pJson[pos] != ']' && pJson[pos] != ' ')
+        {
+            pos++;
+        }
+        return pos > pStart ? pos : -1;
+    }
+
+    private static int indexOf(final byte[] pJson, final int pStart, final int pEnd, final byte pValue)
+    {
+        for (int pos = pStart; pos < pEnd; pos++)
+        {
+            if (pJson[pos] == pValue)
+            {
+                return pos;
+            }
+        }
+        return -1;
+    }
+
+    private static byte[] ensureCapacity(final byte[] pBuffer, final int pLength)
+    {
+        return pBuffer.length >= pLength ? pBuffer : new byte[Math.max(pLength, pBuffer.length << 1)];
+    }
+
+    /**
+     * Résultat de l'analyse d'un jeton, réutilisé par thread. Les positions se réfèrent à la charge décodée.
+     */
+    public static final class ParsedToken
+    {
+        private CharSequence source;
+        private int tokenStart;
+        private int tokenEnd;
+        private byte[] signingInput = new byte[1024];
+        private byte[] header = new byte[128];
+        private int headerLength;
+        private int keyIdStart;
+        private int keyIdEnd;
+        private int algorithmStart;
+        private int algorithmEnd;
+        private int signingInputLength;
+        private byte[] signature = new byte[512];
+        private int signatureLength;
+        private byte[] payload = new byte[512];
+        private int payloadLength;
+        private int subjectStart;
+        private int subjectEnd;
+        private boolean subjectEscaped;
+        private int tokenIdStart;
+        private int tokenIdEnd;
+        private int clientIdStart;
+        private int clientIdEnd;
+        private long expiresAt;
+        private long issuedAt;
+        private int roleMask;
+        private boolean unknownAuthorities;
+        private int authoritiesStart;
+        private int authoritiesEnd;
+
+        private void reset(final CharSequence pSource, final int pStart, final int pEnd)
+        {
+            this.source = pSource;
+            this.tokenStart = pStart;
+            this.tokenEnd = pEnd;
+            this.keyIdStart = -1;
+            this.keyIdEnd = -1;
+            this.algorithmStart = -1;
+            this.algorithmEnd = -1;
+            this.subjectStart = -1;
+            this.subjectEnd = -1;
+            this.subjectEscaped = false;
+            this.tokenIdStart = -1;
+            this.tokenIdEnd = -1;
+            this.clientIdStart = -1;
+            this.clientIdEnd = -1;
+            this.expiresAt = Long.MIN_VALUE;
+            this.issuedAt = 0L;
+            this.roleMask = 0;
+            this.unknownAuthorities = false;
+            this.authoritiesStart = -1;
+            this.authoritiesEnd = -1;
+        }
+
+        /**
+         * Construire le nom de l'utilisateur (seule allocation, à faire une fois la signature vérifiée).
+         *
+         * @return le nom de l'utilisateur, null si une séquence d'échappement est invalide.
+         */
+        public String subject()
+        {
+            if (!this.subjectEscaped)
+            {
+                return new String(this.payload, this.subjectStart, this.subjectEnd - this.subjectStart, StandardCharsets.UTF_8);
+            }
+            return unescape(this.payload, this.subjectStart, this.subjectEnd);
+        }
+
+        /**
+         * Construire l'identifiant unique du jeton.
+         *
+         * @return l'identifiant du jeton, null si le jeton n'en porte pas ou si une séquence d'échappement est invalide.
+         */
+        public String tokenId()
+        {
+            return this.tokenIdStart < 0 ? null : unescape(this.payload, this.tokenIdStart, this.tokenIdEnd);
+        }
+
+        /**
+         * Construire le compte de service pour lequel le jeton a été émis.
+         *
+         * @return le client_id, null si le jeton n'en porte pas ou si une séquence d'échappement est invalide.
+         */
+        public String clientId()
+        {
+            return this.clientIdStart < 0 ? null : unescape(this.payload, this.clientIdStart, this.clientIdEnd);
+        }
+
+        /**
+         * Construire l'identifiant de la clé de signature de l'en-tête.
+         *
+         * @return le kid, null si l'en-tête n'en porte pas ou si une séquence d'échappement est invalide.
+         */
+        public String keyId()
+        {
+            return this.keyIdStart < 0 ? null : unescape(this.header, this.keyIdStart, this.keyIdEnd);
+        }
+
+        /**
+         * Comparer sans allocation le kid de l'en-tête à celui fourni.
+         *
+         * @param pKeyId le kid en ASCII.
+         * @return true si l'en-tête porte ce kid, false sinon.
+         */
+        public boolean hasKeyId(final byte[] pKeyId)
+        {
+            return this.keyIdStart >= 0 && equalsKey(this.header, this.keyIdStart, this.keyIdEnd, pKeyId);
+        }
+
+        public boolean hasKeyId()
+        {
+            return this.keyIdStart >= 0;
+        }
+
+        /**
+         * Comparer sans allocation l'algorithme de l'en-tête à celui fourni.
+         *
+         * @param pAlgorithm le nom JWS de l'algorithme en ASCII.
+         * @return true si l'en-tête porte cet algorithme, false sinon.
+         */
+        public boolean hasAlgorithm(final byte[] pAlgorithm)
+        {
+            return this.algorithmStart >= 0 && equalsKey(this.header, this.algorithmStart, this.algorithmEnd, pAlgorithm);
+        }
+
+        /**
+         * Obtenir les autorités qui ne sont pas des {@link RoleEnum} (chemin lent, rarement emprunté).
+         *
+         * @return les noms des autorités inconnues.
+         */
+        public List<String> unknownAuthorityNames()
+        {
+            final List<String> names = new ArrayList<>();
+            if (!this.unknownAuthorities)
+            {
+                return names;
+            }
+            int pos = this.authoritiesStart + 1;
+            while (pos < this.authoritiesEnd)
+            {
+                if (this.payload[pos] == '"')
+                {
+                    final int end = skipString(this.payload, pos, this.authoritiesEnd);
+                    final var name = roleOf(this.payload, pos + 1, end - 1) < 0 ? unescape(this.payload, pos + 1, end - 1) : null;
+                    if (name != null)
+                    {
+                        names.add(name);
+                    }
+                    pos = end;
+                }
+                else
+                {
+                    pos++;
+                }
+            }
+            return names;
+        }
+
+        public CharSequence getSource()
+        {
+            return this.source;
+        }
+
+        public int getTokenStart()
+        {
+            return this.tokenStart;
+        }
+
+        public int getTokenEnd()
+        {
+            return this.tokenEnd;
+        }
+
+        public byte[] getSigningInput()
+        {
+            return this.signingInput;
+        }
+
+        public int getSigningInputLength()
+        {
+            return this.signingInputLength;
+        }
+
+        public byte[] getSignature()
+        {
+            return this.signature;
+        }
+
+        public int getSignatureLength()
+        {
+            return this.signatureLength;
+        }
+
+        public long getExpiresAt()
+        {
+            return this.expiresAt;
+        }
+
+        public long getIssuedAt()
+        {
+            return this.issuedAt;
+        }
+
+        public int getRoleMask()
+        {
+            return this.roleMask;
+        }
+
+        public boolean hasUnknownAuthorities()
+        {
+            return this.unknownAuthorities;
+        }
+
+        /**
+         * Décoder les séquences d'échappement JSON de la chaîne. Le contenu précède la vérification de la signature (kid) :
+         * une séquence invalide ou tronquée n'est pas une erreur du serveur, la chaîne est simplement rejetée.
+         *
+         * @param pJson  le JSON encodé en UTF-8.
+         * @param pStart la position du premier caractère de la chaîne.
+         * @param pEnd   la position suivant le dernier caractère de la chaîne.
+         * @return la chaîne décodée, null si une séquence d'échappement est invalide ou tronquée.
+         */
+        private static String unescape(final byte[] pJson, final int pStart, final int pEnd)
+        {
+            final var raw = new String(pJson, pStart, pEnd - pStart, StandardCharsets.UTF_8);
+            final var builder = new StringBuilder(raw.length());
+            for (int i = 0; i < raw.length(); i++)
+            {
+                final char c = raw.charAt(i);
+                if (c != '\\')
+                {
+                    builder.append(c);
+                    continue;
+                }
+                if (i + 1 >= raw.length())
+                {
+                    return null;
+                }
+                final char next = raw.charAt(++i);
+                switch (next)
+                {
+                    case 'n':
+                        builder.append('\n');
+                        break;
+                    case 't':
+                        builder.append('\t');
+                        break;
+                    case 'r':
+                        builder.append('\r');
+                        break;
+                    case 'b':
+                        builder.append('\b');
+                        break;
+                    case 'f':
+                        builder.append('\f');
+                        break;
+                    case 'u':
+                        final int code = i + 4 < raw.length() ? hexCode(raw, i + 1) : -1;
+                        if (code < 0)
+                        {
+                            return null;
+                        }
+                        builder.append((char) code);
+                        i += 4;
+                        break;
+                    case '"':
+                    case '\\':
+                    case '/':
+                        builder.append(next);
+                        break;
+                    default:
+                        return null;
+                }
+            }
+            return builder.toString();
+        }
+
+        /**
+         * Lire les quatre chiffres hexadécimaux d'une séquence d'échappement Unicode.
+         *
+         * @param pRaw   la chaîne.
+         * @param pStart la position du premier chiffre.
+         * @return le code du caractère, -1 si un chiffre est invalide.
+         */
+        private static int hexCode(final String pRaw, final int pStart)
+        {
+            int code = 0;
+            for (int i = pStart; i < pStart + 4; i++)
+            {
+                final int digit = Character.digit(pRaw.charAt(i), 16);
+                if (digit < 0)
+                {
+                    return -1;
+                }
+                code = (code << 4) | digit;
+            }
+            return code;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : JwtAlgorithm.java
+ * Date de création : 8 mars 2021
+ * Heure de création : 09:11:42
+ * Package : fr.vincent.tuto.server.security.jwt
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.security.jwt;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.interfaces.ECKey;
+
+import javax.crypto.SecretKey;
+
+/**
+ * Algorithmes de signature JWS pris en charge (vot.security-props.key-ring.algorithm). Chaque algorithme est associé à
+ * son nom JCA et au type de clé attendu dans le magasin de clés ou le répertoire de clés.
+ *
+ * @author Vincent Otchoun
+ */
+public enum JwtAlgorithm
+{
+    HS256("HmacSHA256", null), // HMAC SHA-256, clé secrète d'au moins 256 bits.
+    RS256("SHA256withRSA", "RSA"), // RSASSA-PKCS1-v1_5 SHA-256.
+    ES256("SHA256withECDSAinP1363Format", "EC"), // ECDSA P-256 SHA-256, signature R||S de 64 octets (RFC 7518).
+    EdDSA("EdDSA", "EdDSA"); // Ed25519 ou Ed448 (RFC 8037), Java 15 ou supérieur.
+
+    private static final int HS256_MIN_KEY_LENGTH = 32;
+    private static final BigInteger P256_ORDER = new BigInteger("FFFFFFFF00000000FFFFFFFFFFFFFFFFBCE6FAADA7179E84F3B9CAC2FC632551", 16);
+
+    private final String jcaAlgorithm;
+    private final String keyAlgorithm; // algorithme de la KeyFactory des clés PEM, null pour une clé secrète.
+    private final byte[] nameBytes;
+
+    JwtAlgorithm(final String pJcaAlgorithm, final String pKeyAlgorithm)
+    {
+        this.jcaAlgorithm = pJcaAlgorithm;
+        this.keyAlgorithm = pKeyAlgorithm;
+        this.nameBytes = this.name().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    public String getJcaAlgorithm()
+    {
+        return this.jcaAlgorithm;
+    }
+
+    public String getKeyAlgorithm()
+    {
+        return this.keyAlgorithm;
+    }
+
+    public boolean isSymmetric()
+    {
+        return this.keyAlgorithm == null;
+    }
+
+    /**
+     * Obtenir le nom JWS en ASCII pour la comparaison sans allocation avec l'en-tête des jetons.
+     *
+     * @return le nom JWS.
+     */
+    byte[] getNameBytes()
+    {
+        return this.nameBytes;
+    }
+
+    /**
+     * Obtenir l'algorithme de signature correspondant à la clé.
+     *
+     * @param pKey la clé (publique ou secrète).
+     * @return l'algorithme, null si la clé n'est utilisable par aucun algorithme pris en charge.
+     */
+    public static JwtAlgorithm of(final Key pKey)
+    {
+        if (pKey instanceof SecretKey)
+        {
+            final var encoded = pKey.getEncoded();
+            return encoded != null && encoded.length >= HS256_MIN_KEY_LENGTH ? HS256 : null;
+        }
+        switch (pKey.getAlgorithm())
+        {
+            case "RSA":
+                return RS256;
+            case "EC":
+                return P256_ORDER.equals(((ECKey) pKey).getParams().getOrder()) ? ES256 : null;
+            case "EdDSA":
+            case "Ed25519":
+            case "Ed448":
+                return EdDSA;
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : JwtAuthenticationFilter.java
+ * Date de création : 8 mars 2021
+ * Heure de création : 14:22:18
+ * Package : fr.vincent.tuto.server.security.jwt
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.security.jwt;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import fr.vincent.tuto.common.service.props.ApplicationPropsService;
+import fr.vincent.tuto.server.config.props.ServerSecurityProps;
+
+/**
+ * Filtre d'authentification sans état des requêtes porteuses d'un jeton JWT d'accès (en-tête Authorization de type
+ * Bearer). Le principal authentifié est construit uniquement à partir des revendications vérifiées du jeton : le nom
+ * de l'utilisateur et ses rôles (vot.jwt-props.authorities-key). Le {@code UserDetailsService} n'est jamais sollicité :
+ * la base de données n'est consultée qu'à la connexion et à l'actualisation du jeton, l'authentification d'une requête
+ * ne coûte que du calcul sans emprunt de connexion au pool. Lorsque le mode jetons opaques est activé, un jeton de la
+ * forme d'un jeton opaque est recherché directement dans les sessions opaques ({@link OpaqueTokenStore}), sans être
+ * analysé comme un jeton JWT ; la révocation de son utilisateur est vérifiée comme pour un jeton JWT. Un jeton JWT
+ * renouvelé par le renouvellement glissant est transmis dans l'en-tête de la réponse
+ * (vot.security-props.sliding-renewal.header). Le filtre n'est pas un bean : il est inséré dans la chaîne de Spring
+ * Security par la configuration de sécurité et n'est pas enregistré une seconde fois auprès du conteneur.
+ *
+ * @author Vincent Otchoun
+ */
+public class JwtAuthenticationFilter extends OncePerRequestFilter
+{
+    //
+    private final AuthTokenProvider tokenProvider;
+    private final OpaqueTokenStore opaqueTokenStore;
+    private final String authorizationHeader;
+    private final String renewalHeader;
+
+    /**
+     * Constructeur avec paramètres.
+     *
+     * @param pTokenProvider    le fournisseur des jetons JWT.
+     * @param pOpaqueTokenStore les sessions des jetons opaques.
+     * @param pPropsService     le service des propriétés applicatives.
+     * @param pSecurityProps    les propriétés de sécurisation du serveur.
+     */
+    public JwtAuthenticationFilter(final AuthTokenProvider pTokenProvider, final OpaqueTokenStore pOpaqueTokenStore,
+    final ApplicationPropsService pPropsService, final ServerSecurityProps pSecurityProps)
+    {
+        this.tokenProvider = pTokenProvider;
+        this.opaqueTokenStore = pOpaqueTokenStore;
+        this.authorizationHeader = pPropsService.getJwtProps().getAuthorizationHeader();
+        this.renewalHeader = pSecurityProps.getSlidingRenewal().getHeader();
+    }
+
+    @Override
+    protected void doFilterInternal(final HttpServletRequest pRequest, final HttpServletResponse pResponse, final FilterChain pFilterChain)
+    throws ServletException, IOException
+    {
+        final var header = pRequest.getHeader(this.authorizationHeader);
+        if (header != null)
+        {
+            // Un jeton absent, invalide, expiré ou révoqué laisse la requête anonyme : le refus revient aux règles d'accès.
+            TokenClaims claims;
+            if (this.opaqueTokenStore.isOpaqueToken(header))
+            {
+                claims = this.opaqueTokenStore.resolveClaims(header);
+                if (claims != null && this.tokenProvider.isRevoked(claims))
+                {
+                    claims = null;
+                }
+            }
+            else
+            {
+                claims = this.tokenProvider.resolveClaims(header);
+                final var renewedToken = claims != null ? this.tokenProvider.renewToken(claims) : null;
+                if (renewedToken != null)
+                {
+                    pResponse.setHeader(this.renewalHeader, renewedToken);
+                    pResponse.addHeader(HttpHeaders.ACCESS_CONTROL_EXPOSE_HEADERS, this.renewalHeader);
+                }
+            }
+            if (claims != null)
+            {
+                final var context = SecurityContextHolder.createEmptyContext();
+                // La valeur de l'en-tête tient lieu de justificatif : le jeton n'en est pas extrait pour ne pas allouer de chaîne.
+                context.setAuthentication(this.tokenProvider.getAuthentication(claims, header));
+                SecurityContextHolder.setContext(context);
+            }
+        }
+        pFilterChain.doFilter(pRequest, pResponse);
+    }
+}
@@ -0,0 +1,320 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : JwtSigner.java
+ * Date de création : 4 mars 2021
+ * Heure de création : 08:12:47
+ * Package : fr.vincent.tuto.server.security.jwt
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.security.jwt;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.util.Base64;
+
+import javax.crypto.Mac;
+
+import fr.vincent.tuto.common.exception.CustomAppException;
+
+/**
+ * Etat de signature prêt à l'emploi des jetons JWT pour une clé du trousseau ({@link SigningKeyRing}), identifiée par
+ * son kid. Les clés sont chargées une seule fois et chaque thread dispose de ses propres instances {@link Signature} (ou
+ * {@link Mac} pour HS256) déjà initialisées : la signature d'un jeton ne recrée aucun objet cryptographique et ne
+ * partage aucun verrou entre les threads. Une clé asymétrique sans clé privée (clé retirée ou clé publique seule) sert
+ * uniquement à la vérification.
+ *
+ * @author Vincent Otchoun
+ */
+public final class JwtSigner
+{
+    //
+    private static final String SIGNER_ERR_MSG = "Erreur lors de l'initialisation de la signature des jetons JWT avec l'algorithme : ";
+    private static final String SIGN_ERR_MSG = "Erreur lors de la signature du jeton JWT.";
+    private static final String VERIFY_ONLY_ERR_MSG = "La clé ne permet pas de signer les jetons JWT, kid : ";
+    private static final String HEADER_PATTERN = "{\"alg\":\"%s\",\"typ\":\"JWT\",\"kid\":\"%s\"}";
+    private static final String COMPACT_HEADER_PATTERN = "{\"alg\":\"%s\",\"kid\":\"%s\"}";
+
+    private final JwtAlgorithm algorithm;
+    private final String keyId; // identifiant de la clé (kid) porté par l'en-tête des jetons.
+    private final byte[] keyIdBytes; // kid en ASCII pour la comparaison sans allocation.
+    private final Key signingKey; // clé privée ou clé secrète, null pour une clé de vérification seule.
+    private final Key verificationKey; // clé publique ou clé secrète.
+    private final String encodedHeader; // en-tête JOSE encodé une seule fois en Base64 URL.
+    private final String compactEncodedHeader; // en-tête JOSE sans le type (facultatif, RFC 7519), format compact.
+    private final int encodedSignatureLength; // longueur de la signature encodée en Base64 URL, 0 pour une clé de vérification seule.
+    private final ThreadLocal<Signature> signatures;
+    private final ThreadLocal<Signature> verifiers;
+    private final ThreadLocal<Mac> macs;
+    private final ThreadLocal<byte[]> macBuffers;
+
+    /**
+     * Constructeur avec paramètres.
+     *
+     * @param pAlgorithm       l'algorithme de signature.
+     * @param pKeyId           l'identifiant de la clé (kid).
+     * @param pSigningKey      la clé privée (ou la clé secrète pour HS256), null pour une clé de vérification seule.
+     * @param pVerificationKey la clé publique (ou la clé secrète pour HS256).
+     */
+    public JwtSigner(final JwtAlgorithm pAlgorithm, final String pKeyId, final Key pSigningKey, final Key pVerificationKey)
+    {
+        this.algorithm = pAlgorithm;
+        this.keyId = pKeyId;
+        this.keyIdBytes = pKeyId.getBytes(StandardCharsets.US_ASCII);
+        this.signingKey = pSigningKey;
+        this.verificationKey = pVerificationKey;
+        this.encodedHeader = encodeHeader(HEADER_PATTERN, pAlgorithm, pKeyId);
+        this.compactEncodedHeader = encodeHeader(COMPACT_HEADER_PATTERN, pAlgorithm, pKeyId);
+        this.signatures = ThreadLocal.withInitial(this::newSigningSignature);
+        this.verifiers = ThreadLocal.withInitial(this::newVerifyingSignature);
+        this.macs = ThreadLocal.withInitial(this::newMac);
+        this.macBuffers = ThreadLocal.withInitial(() -> new byte[this.macs.get().getMacLength()]);
+
+        // Echouer au chargement de la clé plutôt qu'à la première authentification.
+        if (pAlgorithm.isSymmetric())
+        {
+            this.macs.get();
+        }
+        else
+        {
+            if (pSigningKey != null)
+            {
+                this.signatures.get();
+            }
+            this.verifiers.get();
+        }
+        // La longueur des signatures ne dépend que de l'algorithme et de la clé (module RSA, courbe, HMAC).
+        this.encodedSignatureLength = pSigningKey != null ? encodedLength(this.sign(new byte[0], 0, 0).length) : 0;
+    }
+
+    /**
+     * Signer les données fournies avec la clé privée (ou la clé secrète).
+     *
+     * @param pData   les données à signer.
+     * @param pOffset la position de début des données.
+     * @param pLength la longueur des données.
+     * @return la signature.
+     */
+    public byte[] sign(final byte[] pData, final int pOffset, final int pLength)
+    {
+        if (this.signingKey == null)
+        {
+            throw new CustomAppException(VERIFY_ONLY_ERR_MSG + this.keyId);
+        }
+        if (this.algorithm.isSymmetric())
+        {
+            final var mac = this.macs.get();
+            mac.update(pData, pOffset, pLength);
+            return mac.doFinal(); // doFinal() réinitialise l'instance pour le prochain appel.
+        }
+
+        final var signature = this.signatures.get();
+        try
+        {
+            signature.update(pData, pOffset, pLength);
+            return signature.sign(); // sign() réinitialise l'instance pour le prochain appel.
+        }
+        catch (GeneralSecurityException e)
+        {
+            this.signatures.remove();
+            throw new CustomAppException(SIGN_ERR_MSG, e);
+        }
+    }
+
+    /**
+     * Vérifier la signature des données fournies avec la clé publique (ou la clé secrète, en temps constant).
+     *
+     * @param pData      les données signées.
+     * @param pOffset    la position de début des données.
+     * @param pLength    la longueur des données.
+     * @param pSignature la signature à vérifier.
+     * @param pSigOffset la position de début de la signature.
+     * @param pSigLength la longueur de la signature.
+     * @return true si la signature est valide, false sinon.
+     */
+    public boolean verify(final byte[] pData, final int pOffset, final int pLength, final byte[] pSignature, final int pSigOffset, final int pSigLength)
+    {
+        if (this.algorithm.isSymmetric())
+        {
+            return this.verifyMac(pData, pOffset, pLength, pSignature, pSigOffset, pSigLength);
+        }
+
+        final var signature = this.verifiers.get();
+        try
+        {
+            signature.update(pData, pOffset, pLength);
+            return signature.verify(pSignature, pSigOffset, pSigLength);
+        }
+        catch (GeneralSecurityException | IllegalArgumentException e)
+        {
+            this.verifiers.remove();
+            return false;
+        }
+    }
+
+    public String getAlgorithm()
+    {
+        return this.algorithm.name();
+    }
+
+    public JwtAlgorithm getJwtAlgorithm()
+    {
+        return this.algorithm;
+    }
+
+    public String getJcaAlgorithm()
+    {
+        return this.algorithm.getJcaAlgorithm();
+    }
+
+    public String getKeyId()
+    {
+        return this.keyId;
+    }
+
+    byte[] getKeyIdBytes()
+    {
+        return this.keyIdBytes;
+    }
+
+    public boolean canSign()
+    {
+        return this.signingKey != null;
+    }
+
+    /**
+     * Obtenir la clé publique de vérification.
+     *
+     * @return la clé publique, null pour une clé secrète (HS256).
+     */
+    public PublicKey getPublicKey()
+    {
+        return this.verificationKey instanceof PublicKey ? (PublicKey) this.verificationKey : null;
+    }
+
+    public String getEncodedHeader()
+    {
+        return this.encodedHeader;
+    }
+
+    public String getCompactEncodedHeader()
+    {
+        return this.compactEncodedHeader;
+    }
+
+    public int getEncodedSignatureLength()
+    {
+        return this.encodedSignatureLength;
+    }
+
+    /**
+     * Obtenir la longueur de l'encodage Base64 URL sans remplissage.
+     *
+     * @param pLength le nombre d'octets à encoder.
+     * @return le nombre de caractères encodés.
+     */
+    private static int encodedLength(final int pLength)
+    {
+        return (pLength * 4 + 2) / 3;
+    }
+
+    private static String encodeHeader(final String pPattern, final JwtAlgorithm pAlgorithm, final String pKeyId)
+    {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(String.format(pPattern, pAlgorithm.name(), pKeyId).getBytes(
+        StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Vérifier un code d'authentification HMAC : le code attendu est calculé dans le tampon du thread puis comparé en
+     * temps constant.
+     */
+    private boolean verifyMac(final byte[] pData, final int pOffset, final int pLength, final byte[] pSignature, final int pSigOffset,
+    final int pSigLength)
+    {
+        final var mac = this.macs.get();
+        final var expected = this.macBuffers.get();
+        if (pSigLength != expected.length)
+        {
+            return false;
+        }
+        try
+        {
+            mac.update(pData, pOffset, pLength);
+            mac.doFinal(expected, 0);
+        }
+        catch (GeneralSecurityException e)
+        {
+            this.macs.remove();
+            return false;
+        }
+        int diff = 0;
+        for (int i = 0; i < expected.length; i++)
+        {
+            diff |= expected[i] ^ pSignature[pSigOffset + i];
+        }
+        return diff == 0;
+    }
+
+    /**
+     * Créer une instance de signature initialisée avec la clé privée.
+     *
+     * @return l'instance de signature.
+     */
+    private Signature newSigningSignature()
+    {
+        try
+        {
+            final var signature = Signature.getInstance(this.algorithm.getJcaAlgorithm());
+            signature.initSign((PrivateKey) this.signingKey);
+            return signature;
+        }
+        catch (GeneralSecurityException e)
+        {
+            throw new CustomAppException(SIGNER_ERR_MSG + this.algorithm.getJcaAlgorithm(), e);
+        }
+    }
+
+    /**
+     * Créer une instance de signature initialisée avec la clé publique.
+     *
+     * @return l'instance de vérification.
+     */
+    private Signature newVerifyingSignature()
+    {
+        try
+        {
+            final var signature = Signature.getInstance(this.algorithm.getJcaAlgorithm());
+            signature.initVerify((PublicKey) this.verificationKey);
+            return signature;
+        }
+        catch (GeneralSecurityException e)
+        {
+            throw new CustomAppException(SIGNER_ERR_MSG + this.algorithm.getJcaAlgorithm(), e);
+        }
+    }
+
+    /**
+     * Créer une instance HMAC initialisée avec la clé secrète.
+     *
+     * @return l'instance HMAC.
+     */
+    private Mac newMac()
+    {
+        try
+        {
+            final var mac = Mac.getInstance(this.algorithm.getJcaAlgorithm());
+            mac.init(this.verificationKey);
+            return mac;
+        }
+        catch (GeneralSecurityException e)
+        {
+            throw new CustomAppException(SIGNER_ERR_MSG + this.algorithm.getJcaAlgorithm(), e);
+        }
+    }
+}
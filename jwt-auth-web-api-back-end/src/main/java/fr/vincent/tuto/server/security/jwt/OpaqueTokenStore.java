@@ -0,0 +1,614 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : OpaqueTokenStore.java
+ * Date de création : 9 mars 2021
+ * Heure de création : 08:47:33
+ * Package : fr.vincent.tuto.server.security.jwt
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.security.jwt;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import fr.vincent.tuto.common.exception.CustomAppException;
+import fr.vincent.tuto.common.service.props.ApplicationPropsService;
+import fr.vincent.tuto.server.config.props.ServerSecurityProps;
+import fr.vincent.tuto.server.enumeration.RoleEnum;
+import fr.vincent.tuto.server.util.AuthorityRegistry;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Mode jetons opaques, à côté des jetons JWT du {@link AuthTokenProvider}, pour les clients internes : le jeton est une
+ * valeur aléatoire de 256 bits et la session (nom de l'utilisateur, masque des rôles {@link RoleEnum}, dates d'émission
+ * et d'expiration) est conservée hors du tas Java, en mémoire directe ou dans un fichier projeté en mémoire
+ * (vot.security-props.opaque-token.store-file) qui conserve les sessions au redémarrage. Des millions de sessions
+ * actives n'augmentent ni la taille du tas ni la durée des collectes.
+ * <p>
+ * La table est à adressage ouvert (sondage linéaire) et à emplacements de taille fixe, indexée par l'empreinte SHA-256
+ * du jeton : le jeton lui-même n'est jamais conservé. Les lectures sont sans verrou : chaque emplacement porte un numéro
+ * de version impair pendant une écriture (seqlock), le lecteur relit l'emplacement si la version a changé. Les
+ * écritures (création, révocation, purge) sont sérialisées par un verrou. Les sessions expirées sont purgées par une
+ * tâche de fond, par étapes de quelques milliers d'emplacements, sans jamais parcourir toute la table d'un coup.
+ *
+ * @author Vincent Otchoun
+ */
+@Component
+@Slf4j
+public class OpaqueTokenStore implements InitializingBean, DisposableBean, MeterBinder
+{
+    //
+    private static final String THREAD_NAME = "opaque-token-sweeper";
+    private static final String CAPACITY_ERR_MSG = "Le nombre maximal de sessions opaques est trop grand : ";
+    private static final String FULL_ERR_MSG = "Le nombre maximal de sessions opaques actives est atteint : ";
+    private static final String USERNAME_ERR_MSG = "Le nom de l'utilisateur est trop long pour une session opaque : ";
+    private static final String DISABLED_ERR_MSG = "Le mode jetons opaques n'est pas activé (vot.security-props.opaque-token.enabled).";
+    private static final String FILE_ERR_MSG = "Erreur lors de la projection en mémoire du fichier des sessions opaques : ";
+    private static final String LOAD_MSG = "[afterPropertiesSet] - Sessions opaques : {} session(s) active(s), {} emplacement(s), stockage : {}.";
+    private static final String DIRECT_MEMORY = "mémoire directe";
+
+    // Entête du stockage.
+    private static final long MAGIC = 0x564F542D53455353L; // "VOT-SESS"
+    private static final int HEADER_SIZE = 64;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int SLOT_SIZE_OFFSET = 12;
+
+    // Emplacement d'une session : version (seqlock), rôles, expiration, empreinte, émission, nom de l'utilisateur.
+    private static final int SLOT_SIZE = 128;
+    private static final int VERSION_OFFSET = 0;
+    private static final int ROLES_OFFSET = 4;
+    private static final int EXPIRES_OFFSET = 8;
+    private static final int KEY1_OFFSET = 16;
+    private static final int KEY2_OFFSET = 24;
+    private static final int ISSUED_OFFSET = 32;
+    private static final int USERNAME_LENGTH_OFFSET = 40;
+    private static final int USERNAME_OFFSET = 42;
+    static final int MAX_USERNAME_BYTES = SLOT_SIZE - USERNAME_OFFSET;
+    private static final long EMPTY = 0L; // emplacement jamais utilisé : fin de la séquence de sondage.
+    private static final long DELETED = -1L; // emplacement libéré : la séquence de sondage continue.
+
+    private static final int TOKEN_BYTES = 32;
+    private static final int TOKEN_LENGTH = 43; // 32 octets en Base64 URL sans remplissage.
+    private static final Base64.Encoder BASE64_URL_ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final VarHandle INT_VIEW = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+
+    private final ApplicationPropsService propsService;
+    private final ServerSecurityProps.OpaqueTokenProps opaqueTokenProps;
+    private final TokenDigester digester = new TokenDigester();
+    private final SecureRandom secureRandom = new SecureRandom();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ThreadLocal<byte[]> usernameBuffers = ThreadLocal.withInitial(() -> new byte[MAX_USERNAME_BYTES]);
+    private final LongAdder swept = new LongAdder();
+
+    private BearerTokenParser tokenParser;
+    private ByteBuffer buffer;
+    private int capacity;
+    private int mask;
+    private volatile int size;
+    private int sweepCursor;
+    private ScheduledExecutorService sweeper;
+
+    /**
+     * Constructeur avec en paramètres les beans pour injection.
+     *
+     * @param pPropsService  le service des propriétés applicatives.
+     * @param pSecurityProps les propriétés de sécurisation du serveur.
+     */
+    public OpaqueTokenStore(final ApplicationPropsService pPropsService, final ServerSecurityProps pSecurityProps)
+    {
+        this.propsService = pPropsService;
+        this.opaqueTokenProps = pSecurityProps.getOpaqueToken();
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception
+    {
+        if (!this.opaqueTokenProps.isEnabled())
+        {
+            return;
+        }
+        final var jwtProps = this.propsService.getJwtProps();
+        this.tokenParser = new BearerTokenParser(jwtProps.getBearerToken(), jwtProps.getAuthoritiesKey().trim());
+
+        // Au moins deux emplacements par session : la séquence de sondage reste courte.
+        final long maxSessions = Math.max(1, this.opaqueTokenProps.getMaxSessions());
+        final long slots = Long.highestOneBit(maxSessions * 2 - 1) << 1;
+        final long length = HEADER_SIZE + slots * SLOT_SIZE;
+        if (length > Integer.MAX_VALUE)
+        {
+            throw new CustomAppException(CAPACITY_ERR_MSG + maxSessions);
+        }
+        this.capacity = (int) slots;
+        this.mask = this.capacity - 1;
+
+        final var storeFile = this.opaqueTokenProps.getStoreFile();
+        this.buffer = StringUtils.isBlank(storeFile) ? ByteBuffer.allocateDirect((int) length) : mapStoreFile(storeFile.trim(), (int) length);
+        this.buffer.order(ByteOrder.nativeOrder());
+        if (this.buffer.getLong(MAGIC_OFFSET) == MAGIC && this.buffer.getInt(CAPACITY_OFFSET) == this.capacity && this.buffer.getInt(
+        SLOT_SIZE_OFFSET) == SLOT_SIZE)
+        {
+            this.size = this.countSessions(); // sessions conservées depuis le précédent démarrage.
+        }
+        else
+        {
+            // Mémoire directe et nouveau fichier sont déjà à zéro : seul un fichier d'un autre format est effacé.
+            for (int i = 0; this.buffer.getLong(MAGIC_OFFSET) != 0L && i < (int) length; i += Long.BYTES)
+            {
+                this.buffer.putLong(i, 0L);
+            }
+            this.buffer.putLong(MAGIC_OFFSET, MAGIC);
+            this.buffer.putInt(CAPACITY_OFFSET, this.capacity);
+            this.buffer.putInt(SLOT_SIZE_OFFSET, SLOT_SIZE);
+        }
+        log.info(LOAD_MSG, this.size, this.capacity, StringUtils.isBlank(storeFile) ? DIRECT_MEMORY : storeFile);
+
+        final long interval = this.opaqueTokenProps.getSweepIntervalMillis();
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final var thread = new Thread(runnable, THREAD_NAME);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.sweeper.scheduleWithFixedDelay(this::sweep, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() throws Exception
+    {
+        if (this.sweeper != null)
+        {
+            this.sweeper.shutdown();
+            this.sweeper.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        if (this.buffer instanceof MappedByteBuffer)
+        {
+            ((MappedByteBuffer) this.buffer).force();
+        }
+    }
+
+    public boolean isEnabled()
+    {
+        return this.buffer != null;
+    }
+
+    /**
+     * Créer une session opaque pour l'utilisateur. Seules les autorités {@link RoleEnum} sont conservées.
+     *
+     * @param pUsername          le nom de l'utilisateur.
+     * @param pAuthorities       les autorités de l'utilisateur.
+     * @param pValidityInSeconds la durée de validité de la session en secondes.
+     * @return le jeton opaque.
+     */
+    public String createToken(final String pUsername, final Collection<? extends GrantedAuthority> pAuthorities, final long pValidityInSeconds)
+    {
+        if (!this.isEnabled())
+        {
+            throw new CustomAppException(DISABLED_ERR_MSG);
+        }
+        final var username = pUsername.getBytes(StandardCharsets.UTF_8);
+        if (username.length > MAX_USERNAME_BYTES)
+        {
+            throw new CustomAppException(USERNAME_ERR_MSG + pUsername);
+        }
+        int roleMask = 0;
+        for (final GrantedAuthority authority : pAuthorities)
+        {
+            final var role = AuthorityRegistry.roleOf(authority.getAuthority());
+            if (role != null)
+            {
+                roleMask |= 1 << role.ordinal();
+            }
+        }
+
+        final var bytes = new byte[TOKEN_BYTES];
+        this.secureRandom.nextBytes(bytes);
+        final var token = BASE64_URL_ENCODER.encodeToString(bytes);
+        final var probe = this.digester.digest(token, 0, token.length());
+        final long key1 = probe.longAt(0);
+        final long key2 = probe.longAt(Long.BYTES);
+        final long now = Instant.now().getEpochSecond();
+
+        this.writeLock.lock();
+        try
+        {
+            if (this.size >= this.opaqueTokenProps.getMaxSessions())
+            {
+                throw new CustomAppException(FULL_ERR_MSG + this.size);
+            }
+            int target = -1;
+            int index = this.indexOf(key1);
+            for (int n = 0; n < this.capacity; n++)
+            {
+                final int offset = this.slotOffset(index);
+                final long expiresAt = this.buffer.getLong(offset + EXPIRES_OFFSET);
+                if (expiresAt == EMPTY)
+                {
+                    target = target < 0 ? offset : target;
+                    break;
+                }
+                if (target < 0 && (expiresAt == DELETED || expiresAt <= now))
+                {
+                    target = offset; // premier emplacement libre ou expiré de la séquence.
+                }
+                index = index + 1 & this.mask;
+            }
+            final long previous = this.buffer.getLong(target + EXPIRES_OFFSET);
+            this.writeSlot(target, key1, key2, roleMask, now, now + pValidityInSeconds, username);
+            if (previous == EMPTY || previous == DELETED)
+            {
+                this.size++;
+            }
+        }
+        finally
+        {
+            this.writeLock.unlock();
+        }
+        return token;
+    }
+
+    /**
+     * Vérifier si la valeur de l'en-tête d'autorisation (Bearer) porte un jeton de la forme d'un jeton opaque : 43
+     * caractères Base64 URL, sans les points qui séparent les parties d'un jeton JWT.
+     *
+     * @param pAuthorizationHeader la valeur de l'en-tête d'autorisation.
+     * @return true si le mode jetons opaques est activé et que le jeton a la forme d'un jeton opaque, false sinon.
+     */
+    public boolean isOpaqueToken(final String pAuthorizationHeader)
+    {
+        if (!this.isEnabled())
+        {
+            return false;
+        }
+        final int start = this.tokenParser.tokenStart(pAuthorizationHeader);
+        return start >= 0 && pAuthorizationHeader.length() - start == TOKEN_LENGTH && pAuthorizationHeader.indexOf('.', start) < 0;
+    }
+
+    /**
+     * Obtenir les revendications de la session du jeton opaque porté par la valeur de l'en-tête d'autorisation (Bearer).
+     *
+     * @param pAuthorizationHeader la valeur de l'en-tête d'autorisation.
+     * @return les revendications de la session, null si l'en-tête n'est pas de type Bearer, si le jeton n'est pas un
+     *         jeton opaque, ou si la session est inconnue, révoquée ou expirée.
+     */
+    public TokenClaims resolveClaims(final String pAuthorizationHeader)
+    {
+        if (!this.isEnabled())
+        {
+            return null;
+        }
+        final int start = this.tokenParser.tokenStart(pAuthorizationHeader);
+        return start < 0 ? null : this.getClaims(pAuthorizationHeader, start, pAuthorizationHeader.length());
+    }
+
+    /**
+     * Obtenir les revendications de la session du jeton opaque.
+     *
+     * @param pToken le jeton opaque.
+     * @return les revendications de la session, null si la session est inconnue, révoquée ou expirée.
+     */
+    public TokenClaims getClaims(final String pToken)
+    {
+        return this.isEnabled() && pToken != null ? this.getClaims(pToken, 0, pToken.length()) : null;
+    }
+
+    /**
+     * Révoquer la session du jeton opaque (déconnexion).
+     *
+     * @param pToken le jeton opaque.
+     * @return true si la session a été révoquée, false si elle est inconnue.
+     */
+    public boolean revokeToken(final String pToken)
+    {
+        if (!this.isEnabled() || pToken == null || pToken.length() != TOKEN_LENGTH)
+        {
+            return false;
+        }
+        final var probe = this.digester.digest(pToken, 0, pToken.length());
+        final long key1 = probe.longAt(0);
+        final long key2 = probe.longAt(Long.BYTES);
+
+        this.writeLock.lock();
+        try
+        {
+            final int offset = this.find(key1, key2);
+            if (offset < 0)
+            {
+                return false;
+            }
+            this.writeExpiresAt(offset, DELETED);
+            this.size--;
+            return true;
+        }
+        finally
+        {
+            this.writeLock.unlock();
+        }
+    }
+
+    /**
+     * Etape de purge incrémentale : les sessions expirées des emplacements suivants sont libérées, et les emplacements
+     * libérés qui précèdent un emplacement vide redeviennent vides pour raccourcir les séquences de sondage.
+     */
+    public void sweep()
+    {
+        final long now = Instant.now().getEpochSecond();
+        final int batchSize = Math.min(this.capacity, Math.max(1, this.opaqueTokenProps.getSweepBatchSize()));
+
+        this.writeLock.lock();
+        try
+        {
+            for (int n = 0; n < batchSize; n++)
+            {
+                final int index = this.sweepCursor;
+                final int offset = this.slotOffset(index);
+                final long expiresAt = this.buffer.getLong(offset + EXPIRES_OFFSET);
+                if (expiresAt > 0 && expiresAt <= now)
+                {
+                    this.writeExpiresAt(offset, DELETED);
+                    this.size--;
+                    this.swept.increment();
+                }
+                else if (expiresAt == EMPTY)
+                {
+                    // Aucune séquence de sondage ne traverse un emplacement libéré suivi d'un emplacement vide.
+                    int previous = index - 1 & this.mask;
+                    while (previous != index && this.buffer.getLong(this.slotOffset(previous) + EXPIRES_OFFSET) == DELETED)
+                    {
+                        this.writeExpiresAt(this.slotOffset(previous), EMPTY);
+                        previous = previous - 1 & this.mask;
+                    }
+                }
+                this.sweepCursor = index + 1 & this.mask;
+            }
+        }
+        finally
+        {
+            this.writeLock.unlock();
+        }
+    }
+
+    public int size()
+    {
+        return this.size;
+    }
+
+    public int getCapacity()
+    {
+        return this.capacity;
+    }
+
+    public long getSwept()
+    {
+        return this.swept.sum();
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry pRegistry)
+    {
+        Gauge.builder("security.jwt.opaque.sessions", this, OpaqueTokenStore::size)//
+        .description("Nombre de sessions opaques actives")//
+        .register(pRegistry);
+        Gauge.builder("security.jwt.opaque.capacity", this, OpaqueTokenStore::getCapacity)//
+        .description("Nombre d'emplacements de la table des sessions opaques")//
+        .register(pRegistry);
+        FunctionCounter.builder("security.jwt.opaque.swept", this, OpaqueTokenStore::getSwept)//
+        .description("Nombre de sessions opaques expirées purgées")//
+        .register(pRegistry);
+    }
+
+    /**
+     * Lire sans verrou la session du jeton opaque situé entre les positions fournies.
+     */
+    private TokenClaims getClaims(final CharSequence pSource, final int pStart, final int pEnd)
+    {
+        if (pEnd - pStart != TOKEN_LENGTH)
+        {
+            return null;
+        }
+        final var probe = this.digester.digest(pSource, pStart, pEnd);
+        final long key1 = probe.longAt(0);
+        final long key2 = probe.longAt(Long.BYTES);
+        final long now = Instant.now().getEpochSecond();
+
+        int index = this.indexOf(key1);
+        for (int n = 0; n < this.capacity; n++)
+        {
+            final int offset = this.slotOffset(index);
+            final long expiresAt = this.buffer.getLong(offset + EXPIRES_OFFSET);
+            if (expiresAt == EMPTY)
+            {
+                return null;
+            }
+            if (expiresAt != DELETED && this.buffer.getLong(offset + KEY1_OFFSET) == key1 && this.buffer.getLong(offset + KEY2_OFFSET) == key2)
+            {
+                return this.readSlot(offset, key1, key2, now);
+            }
+            index = index + 1 & this.mask;
+        }
+        return null;
+    }
+
+    /**
+     * Lire l'emplacement de manière cohérente (seqlock) : la lecture est recommencée si une écriture l'a modifié.
+     */
+    private TokenClaims readSlot(final int pOffset, final long pKey1, final long pKey2, final long pNowInSeconds)
+    {
+        final var username = this.usernameBuffers.get();
+        while (true)
+        {
+            final int before = (int) INT_VIEW.getAcquire(this.buffer, pOffset + VERSION_OFFSET);
+            if ((before & 1) != 0)
+            {
+                Thread.onSpinWait();
+                continue;
+            }
+            final long expiresAt = this.buffer.getLong(pOffset + EXPIRES_OFFSET);
+            final long key1 = this.buffer.getLong(pOffset + KEY1_OFFSET);
+            final long key2 = this.buffer.getLong(pOffset + KEY2_OFFSET);
+            final long issuedAt = this.buffer.getLong(pOffset + ISSUED_OFFSET);
+            final int roleMask = this.buffer.getInt(pOffset + ROLES_OFFSET);
+            final int length = Math.min(MAX_USERNAME_BYTES, Math.max(0, this.buffer.getShort(pOffset + USERNAME_LENGTH_OFFSET)));
+            for (int i = 0; i < length; i++)
+            {
+                username[i] = this.buffer.get(pOffset + USERNAME_OFFSET + i);
+            }
+            VarHandle.loadLoadFence();
+            if ((int) INT_VIEW.getAcquire(this.buffer, pOffset + VERSION_OFFSET) != before)
+            {
+                continue;
+            }
+            // Emplacement libéré puis réutilisé entre-temps : la session du jeton n'existe plus.
+            if (key1 != pKey1 || key2 != pKey2 || expiresAt == DELETED || expiresAt <= pNowInSeconds)
+            {
+                return null;
+            }
+            return new TokenClaims(new String(username, 0, length, StandardCharsets.UTF_8), null, AuthorityRegistry.authorities(
+            roleMask), issuedAt, expiresAt);
+        }
+    }
+
+    /**
+     * Ecrire une session dans l'emplacement : la version est impaire pendant l'écriture, l'expiration est écrite en
+     * dernier.
+     */
+    private void writeSlot(final int pOffset, final long pKey1, final long pKey2, final int pRoleMask, final long pIssuedAt, final long pExpiresAt,
+    final byte[] pUsername)
+    {
+        final int version = this.beginWrite(pOffset);
+        this.buffer.putLong(pOffset + KEY1_OFFSET, pKey1);
+        this.buffer.putLong(pOffset + KEY2_OFFSET, pKey2);
+        this.buffer.putLong(pOffset + ISSUED_OFFSET, pIssuedAt);
+        this.buffer.putInt(pOffset + ROLES_OFFSET, pRoleMask);
+        this.buffer.putShort(pOffset + USERNAME_LENGTH_OFFSET, (short) pUsername.length);
+        for (int i = 0; i < pUsername.length; i++)
+        {
+            this.buffer.put(pOffset + USERNAME_OFFSET + i, pUsername[i]);
+        }
+        this.buffer.putLong(pOffset + EXPIRES_OFFSET, pExpiresAt);
+        INT_VIEW.setRelease(this.buffer, pOffset + VERSION_OFFSET, version + 2);
+    }
+
+    private void writeExpiresAt(final int pOffset, final long pExpiresAt)
+    {
+        final int version = this.beginWrite(pOffset);
+        this.buffer.putLong(pOffset + EXPIRES_OFFSET, pExpiresAt);
+        INT_VIEW.setRelease(this.buffer, pOffset + VERSION_OFFSET, version + 2);
+    }
+
+    private int beginWrite(final int pOffset)
+    {
+        final int version = (int) INT_VIEW.get(this.buffer, pOffset + VERSION_OFFSET);
+        INT_VIEW.setOpaque(this.buffer, pOffset + VERSION_OFFSET, version + 1);
+        VarHandle.storeStoreFence();
+        return version;
+    }
+
+    /**
+     * Rechercher l'emplacement d'une session (sous le verrou d'écriture).
+     *
+     * @return la position de l'emplacement, -1 si la session est inconnue.
+     */
+    private int find(final long pKey1, final long pKey2)
+    {
+        int index = this.indexOf(pKey1);
+        for (int n = 0; n < this.capacity; n++)
+        {
+            final int offset = this.slotOffset(index);
+            final long expiresAt = this.buffer.getLong(offset + EXPIRES_OFFSET);
+            if (expiresAt == EMPTY)
+            {
+                return -1;
+            }
+            if (expiresAt != DELETED && this.buffer.getLong(offset + KEY1_OFFSET) == pKey1 && this.buffer.getLong(offset + KEY2_OFFSET) == pKey2)
+            {
+                return offset;
+            }
+            index = index + 1 & this.mask;
+        }
+        return -1;
+    }
+
+    private int countSessions()
+    {
+        int count = 0;
+        for (int index = 0; index < this.capacity; index++)
+        {
+            final long expiresAt = this.buffer.getLong(this.slotOffset(index) + EXPIRES_OFFSET);
+            if (expiresAt != EMPTY && expiresAt != DELETED)
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int indexOf(final long pKey1)
+    {
+        // L'empreinte est uniformément distribuée : ses bits de poids faible suffisent.
+        return (int) pKey1 & this.mask;
+    }
+
+    private int slotOffset(final int pIndex)
+    {
+        return HEADER_SIZE + pIndex * SLOT_SIZE;
+    }
+
+    /**
+     * Projeter le fichier des sessions en mémoire. Un fichier d'une autre taille (capacité modifiée) est réinitialisé.
+     *
+     * @param pStoreFile le chemin du fichier.
+     * @param pLength    la taille attendue du fichier.
+     * @return la projection du fichier.
+     */
+    private static MappedByteBuffer mapStoreFile(final String pStoreFile, final int pLength)
+    {
+        final var path = Paths.get(pStoreFile).toAbsolutePath();
+        try
+        {
+            Files.createDirectories(path.getParent());
+            try (var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE))
+            {
+                if (channel.size() != pLength)
+                {
+                    channel.truncate(0);
+                }
+                return channel.map(FileChannel.MapMode.READ_WRITE, 0, pLength);
+            }
+        }
+        catch (IOException e)
+        {
+            throw new CustomAppException(FILE_ERR_MSG + path, e);
+        }
+    }
+}
@@ -0,0 +1,687 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : RefreshTokenStore.java
+ * Date de création : 7 mars 2021
+ * Heure de création : 10:02:45
+ * Package : fr.vincent.tuto.server.security.jwt
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.security.jwt;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import fr.vincent.tuto.common.exception.CustomAppException;
+import fr.vincent.tuto.common.service.props.ApplicationPropsService;
+import fr.vincent.tuto.server.config.props.ServerSecurityProps;
+import fr.vincent.tuto.server.dao.RefreshTokenDAO;
+import fr.vincent.tuto.server.model.po.RefreshToken;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Magasin des jetons d'actualisation (refresh tokens). Un jeton est de la forme {@code famille.secret} : la famille
+ * identifie la session de l'utilisateur et seule l'empreinte SHA-256 du secret courant est conservée.
+ * <ul>
+ * <li>Rotation à usage unique : chaque actualisation remplace le jeton courant de la famille par un nouveau jeton.</li>
+ * <li>Détection de réutilisation : un jeton déjà remplacé présenté de nouveau révoque toute la famille. Le jeton
+ * précédent rejoué pendant un court délai (requêtes concurrentes d'un même client mobile) renvoie le jeton courant.</li>
+ * <li>Les familles actives sont conservées en mémoire dans une table segmentée par famille ; une famille absente est
+ * relue depuis la base de données. La table est bornée : au-delà de sa capacité, des familles déjà persistées et hors
+ * délai de grâce sont déchargées de la mémoire.</li>
+ * <li>La modification des identifiants ou la suppression d'un utilisateur révoque toutes ses familles.</li>
+ * <li>Les familles modifiées sont écrites en base par lots, en différé, par une tâche de fond : une actualisation
+ * n'effectue jamais d'écriture synchrone en base sur le thread de la requête.</li>
+ * </ul>
+ *
+ * @author Vincent Otchoun
+ */
+@Component
+@Slf4j
+public class RefreshTokenStore implements InitializingBean, DisposableBean, MeterBinder
+{
+    //
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private static final String DIGEST_ERR_MSG = "Erreur lors du calcul de l'empreinte du jeton d'actualisation.";
+    private static final String FLUSH_ERR_MSG = "[flush] - Erreur lors de l'écriture différée de {} famille(s) de jetons d'actualisation : {}";
+    private static final String REUSE_MSG = "[rotate] - Réutilisation du jeton d'actualisation détectée, révocation de la famille : {} (utilisateur : {}).";
+    private static final String THREAD_NAME = "jwt-refresh-token-writer";
+    private static final Base64.Encoder BASE64_URL_ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder BASE64_URL_DECODER = Base64.getUrlDecoder();
+    private static final long PURGE_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final int FAMILY_ID_BYTES = 16;
+    private static final int FAMILY_ID_LENGTH = 22; // 16 octets en Base64 URL sans remplissage.
+    private static final int SECRET_BYTES = 32;
+    private static final int EVICTION_SCAN = 64; // nombre maximal de familles examinées par déchargement.
+    private static final char POINT = '.';
+
+    private final ApplicationPropsService propsService;
+    private final RefreshTokenDAO refreshTokenDAO;
+    private final TransactionTemplate transactionTemplate;
+    private final ServerSecurityProps.RefreshTokenProps refreshTokenProps;
+    private final Shard[] shards;
+    private final int maxFamiliesPerShard;
+    private final SecureRandom secureRandom = new SecureRandom();
+    private final ThreadLocal<MessageDigest> digests = ThreadLocal.withInitial(RefreshTokenStore::newMessageDigest);
+    private final AtomicInteger pendingWrites = new AtomicInteger();
+    private final LongAdder rotations = new LongAdder();
+    private final LongAdder reuses = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    private long refreshTokenValidityInSeconds;
+    private ScheduledExecutorService writer;
+    private long lastPurgeMillis;
+
+    /**
+     * Constructeur avec en paramètres les beans pour injection.
+     *
+     * @param pPropsService       le service des propriétés applicatives.
+     * @param pRefreshTokenDAO    le dépôt des familles de jetons d'actualisation.
+     * @param pTransactionManager le gestionnaire des transactions.
+     * @param pSecurityProps      les propriétés de sécurisation du serveur.
+     */
+    public RefreshTokenStore(final ApplicationPropsService pPropsService, final RefreshTokenDAO pRefreshTokenDAO,
+    final PlatformTransactionManager pTransactionManager, final ServerSecurityProps pSecurityProps)
+    {
+        this.propsService = pPropsService;
+        this.refreshTokenDAO = pRefreshTokenDAO;
+        this.transactionTemplate = new TransactionTemplate(pTransactionManager);
+        this.refreshTokenProps = pSecurityProps.getRefreshToken();
+
+        final int shardCount = Integer.highestOneBit(Math.max(1, this.refreshTokenProps.getShardCount()));
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++)
+        {
+            this.shards[i] = new Shard();
+        }
+        this.maxFamiliesPerShard = Math.max(1, this.refreshTokenProps.getMaxFamilies() / shardCount);
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception
+    {
+        this.refreshTokenValidityInSeconds = this.propsService.getJwtProps().getRefreshTokenValidity();
+
+        final long interval = this.refreshTokenProps.getFlushIntervalMillis();
+        this.writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final var thread = new Thread(runnable, THREAD_NAME);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.writer.scheduleWithFixedDelay(this::flushAll, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() throws Exception
+    {
+        if (this.writer != null)
+        {
+            this.writer.shutdown();
+            this.writer.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        this.flushAll(); // ne pas perdre les dernières rotations à l'arrêt.
+    }
+
+    /**
+     * Créer une nouvelle famille de jetons d'actualisation pour l'utilisateur (connexion).
+     *
+     * @param pUsername le login de l'utilisateur.
+     * @return le jeton d'actualisation.
+     */
+    public String issue(final String pUsername)
+    {
+        final var familyId = this.randomString(FAMILY_ID_BYTES);
+        final var secret = this.randomString(SECRET_BYTES);
+        final long now = Instant.now().getEpochSecond();
+
+        final var family = new Family(familyId, pUsername, now);
+        family.tokenHash = this.digest(secret);
+        family.expiresAt = now + this.refreshTokenValidityInSeconds;
+        final var shard = this.shardOf(familyId);
+        synchronized (family)
+        {
+            shard.families.put(familyId, family);
+            this.markDirty(family);
+        }
+        this.trim(shard, now);
+        return familyId + POINT + secret;
+    }
+
+    /**
+     * Actualiser le jeton : le jeton présenté est consommé et remplacé par un nouveau jeton de la même famille.
+     *
+     * @param pRefreshToken le jeton d'actualisation présenté.
+     * @return le résultat de la rotation.
+     */
+    public Rotation rotate(final String pRefreshToken)
+    {
+        byte[] presentedHash = null;
+        for (var family = this.findFamily(pRefreshToken); family != null; family = this.findFamily(pRefreshToken))
+        {
+            if (presentedHash == null)
+            {
+                presentedHash = this.digest(pRefreshToken.substring(FAMILY_ID_LENGTH + 1));
+            }
+            synchronized (family)
+            {
+                // Une famille déchargée entre-temps est relue : son état en base est à jour.
+                if (!family.unloaded)
+                {
+                    return this.rotate(family, presentedHash, Instant.now().getEpochSecond());
+                }
+            }
+        }
+        this.rejections.increment();
+        return Rotation.INVALID;
+    }
+
+    /**
+     * Révoquer la famille du jeton (déconnexion).
+     *
+     * @param pRefreshToken le jeton d'actualisation.
+     * @return true si la famille a été révoquée, false si le jeton est inconnu.
+     */
+    public boolean revoke(final String pRefreshToken)
+    {
+        for (var family = this.findFamily(pRefreshToken); family != null; family = this.findFamily(pRefreshToken))
+        {
+            synchronized (family)
+            {
+                if (!family.unloaded)
+                {
+                    this.revoke(family);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Révoquer toutes les familles de l'utilisateur (modification des identifiants, désactivation ou suppression du
+     * compte). Les familles persistées sont révoquées en base dans la transaction courante, puis celles présentes en
+     * mémoire : une famille chargée avant la mise à jour de la base est ainsi révoquée elle aussi.
+     *
+     * @param pUsername le login de l'utilisateur.
+     */
+    public void revokeUser(final String pUsername)
+    {
+        this.transactionTemplate.executeWithoutResult(status -> this.refreshTokenDAO.revokeByUsername(pUsername));
+        for (final Shard shard : this.shards)
+        {
+            for (final Family family : shard.families.values())
+            {
+                if (family.username.equals(pUsername))
+                {
+                    synchronized (family)
+                    {
+                        this.revoke(family);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Ecrire en base toutes les familles modifiées, par lots, puis retirer de la mémoire les familles expirées ou
+     * révoquées déjà persistées.
+     */
+    public void flushAll()
+    {
+        try
+        {
+            while (this.flush() == this.refreshTokenProps.getBatchSize())
+            {
+                // Lot complet : d'autres familles attendent.
+            }
+            this.sweep(Instant.now().getEpochSecond());
+        }
+        catch (RuntimeException e)
+        {
+            log.error(FLUSH_ERR_MSG, this.pendingWrites.get(), e.getMessage(), e);
+        }
+    }
+
+    public int size()
+    {
+        int size = 0;
+        for (final Shard shard : this.shards)
+        {
+            size += shard.families.size();
+        }
+        return size;
+    }
+
+    public int getPendingWrites()
+    {
+        return this.pendingWrites.get();
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry pRegistry)
+    {
+        Gauge.builder("security.jwt.refresh.families", this, RefreshTokenStore::size)//
+        .description("Nombre de familles de jetons d'actualisation en mémoire")//
+        .register(pRegistry);
+        Gauge.builder("security.jwt.refresh.pending.writes", this, RefreshTokenStore::getPendingWrites)//
+        .description("Nombre de familles de jetons d'actualisation en attente d'écriture")//
+        .register(pRegistry);
+        FunctionCounter.builder("security.jwt.refresh.requests", this.rotations, LongAdder::sum).tag("result", "rotated").register(pRegistry);
+        FunctionCounter.builder("security.jwt.refresh.requests", this.reuses, LongAdder::sum).tag("result", "reused").register(pRegistry);
+        FunctionCounter.builder("security.jwt.refresh.requests", this.rejections, LongAdder::sum).tag("result", "rejected").register(pRegistry);
+    }
+
+    /**
+     * Ecrire un lot de familles modifiées dans une seule transaction : une lecture groupée des lignes existantes, puis
+     * des insertions et mises à jour regroupées par Hibernate. En cas d'échec les familles sont de nouveau marquées
+     * modifiées pour être réécrites au prochain passage.
+     *
+     * @return le nombre de familles écrites.
+     */
+    private int flush()
+    {
+        final int batchSize = this.refreshTokenProps.getBatchSize();
+        final List<Family> batch = new ArrayList<>();
+        for (final Shard shard : this.shards)
+        {
+            Family family;
+            while (batch.size() < batchSize && (family = shard.dirtyFamilies.poll()) != null)
+            {
+                batch.add(family);
+            }
+        }
+        if (batch.isEmpty())
+        {
+            return 0;
+        }
+
+        final List<RefreshToken> snapshots = new ArrayList<>(batch.size());
+        for (final Family family : batch)
+        {
+            synchronized (family)
+            {
+                family.dirty = false;
+                this.pendingWrites.decrementAndGet();
+                snapshots.add(family.toEntity());
+            }
+        }
+
+        try
+        {
+            this.transactionTemplate.executeWithoutResult(status -> {
+                final Map<String, RefreshToken> existing = this.refreshTokenDAO.findAllById(snapshots.stream()//
+                .map(RefreshToken::getFamilyId)//
+                .collect(Collectors.toList()))//
+                .stream()//
+                .collect(Collectors.toMap(RefreshToken::getFamilyId, Function.identity()));
+
+                final List<RefreshToken> entities = new ArrayList<>(snapshots.size());
+                for (final RefreshToken snapshot : snapshots)
+                {
+                    final var entity = existing.get(snapshot.getFamilyId());
+                    if (entity == null)
+                    {
+                        entities.add(snapshot);
+                    }
+                    else
+                    {
+                        entity.setTokenHash(snapshot.getTokenHash());
+                        entity.setGeneration(snapshot.getGeneration());
+                        entity.setExpiresAt(snapshot.getExpiresAt());
+                        entity.setRevoked(snapshot.getRevoked());
+                        entities.add(entity);
+                    }
+                }
+                this.refreshTokenDAO.saveAll(entities);
+            });
+        }
+        catch (RuntimeException e)
+        {
+            for (final Family family : batch)
+            {
+                synchronized (family)
+                {
+                    this.markDirty(family);
+                }
+            }
+            throw e;
+        }
+        return batch.size();
+    }
+
+    /**
+     * Retirer de la mémoire les familles expirées ou révoquées déjà persistées et purger la base au plus une fois par
+     * minute.
+     *
+     * @param pNowInSeconds l'instant courant en secondes depuis l'epoch.
+     */
+    private void sweep(final long pNowInSeconds)
+    {
+        for (final Shard shard : this.shards)
+        {
+            shard.families.values().removeIf(family -> family.isEvictable(pNowInSeconds));
+        }
+
+        final long nowMillis = System.currentTimeMillis();
+        if (nowMillis - this.lastPurgeMillis >= PURGE_INTERVAL_MILLIS)
+        {
+            this.lastPurgeMillis = nowMillis;
+            this.transactionTemplate.executeWithoutResult(status -> this.refreshTokenDAO.deleteExpired(pNowInSeconds));
+        }
+    }
+
+    /**
+     * Effectuer la rotation du jeton présenté. Doit être appelé en détenant le verrou de la famille.
+     *
+     * @param pFamily        la famille du jeton.
+     * @param pPresentedHash l'empreinte du secret présenté.
+     * @param pNowInSeconds  l'instant courant en secondes depuis l'epoch.
+     * @return le résultat de la rotation.
+     */
+    private Rotation rotate(final Family pFamily, final byte[] pPresentedHash, final long pNowInSeconds)
+    {
+        if (pFamily.revoked)
+        {
+            this.rejections.increment();
+            return Rotation.INVALID;
+        }
+        if (!MessageDigest.isEqual(pFamily.tokenHash, pPresentedHash))
+        {
+            // Rejeu du jeton précédent par des requêtes concurrentes du même client : renvoyer le jeton courant.
+            if (pFamily.lastIssuedToken != null && MessageDigest.isEqual(pFamily.previousHash, pPresentedHash) && pNowInSeconds
+            - pFamily.rotatedAt <= this.refreshTokenProps.getReuseGraceSeconds())
+            {
+                return new Rotation(Rotation.Status.ROTATED, pFamily.username, pFamily.lastIssuedToken);
+            }
+            this.revoke(pFamily);
+            this.reuses.increment();
+            log.warn(REUSE_MSG, pFamily.familyId, pFamily.username);
+            return new Rotation(Rotation.Status.REUSED, pFamily.username, null);
+        }
+        if (pFamily.expiresAt <= pNowInSeconds)
+        {
+            this.rejections.increment();
+            return new Rotation(Rotation.Status.EXPIRED, pFamily.username, null);
+        }
+
+        final var secret = this.randomString(SECRET_BYTES);
+        final var refreshToken = pFamily.familyId + POINT + secret;
+        pFamily.previousHash = pFamily.tokenHash;
+        pFamily.tokenHash = this.digest(secret);
+        pFamily.generation++;
+        pFamily.expiresAt = pNowInSeconds + this.refreshTokenValidityInSeconds;
+        pFamily.rotatedAt = pNowInSeconds;
+        pFamily.lastIssuedToken = refreshToken;
+        this.markDirty(pFamily);
+        this.rotations.increment();
+        return new Rotation(Rotation.Status.ROTATED, pFamily.username, refreshToken);
+    }
+
+    /**
+     * Révoquer la famille. Doit être appelé en détenant le verrou de la famille.
+     *
+     * @param pFamily la famille.
+     */
+    private void revoke(final Family pFamily)
+    {
+        if (!pFamily.revoked)
+        {
+            pFamily.revoked = true;
+            pFamily.lastIssuedToken = null;
+            this.markDirty(pFamily);
+        }
+    }
+
+    /**
+     * Ramener le segment sous sa capacité en déchargeant de la mémoire des familles déjà persistées et hors délai de
+     * grâce : elles seront relues depuis la base si besoin. Les familles en attente d'écriture ne sont jamais
+     * déchargées. Le parcours reprend là où le précédent s'est arrêté et examine au plus {@link #EVICTION_SCAN}
+     * familles.
+     *
+     * @param pShard        le segment.
+     * @param pNowInSeconds l'instant courant en secondes depuis l'epoch.
+     */
+    private void trim(final Shard pShard, final long pNowInSeconds)
+    {
+        if (pShard.families.size() <= this.maxFamiliesPerShard)
+        {
+            return;
+        }
+        synchronized (pShard)
+        {
+            int excess = pShard.families.size() - this.maxFamiliesPerShard;
+            for (int scanned = 0; excess > 0 && scanned < EVICTION_SCAN; scanned++)
+            {
+                if (pShard.evictionCursor == null || !pShard.evictionCursor.hasNext())
+                {
+                    pShard.evictionCursor = pShard.families.values().iterator();
+                    if (!pShard.evictionCursor.hasNext())
+                    {
+                        return;
+                    }
+                }
+                final var family = pShard.evictionCursor.next();
+                synchronized (family)
+                {
+                    if (family.isUnloadable(pNowInSeconds, this.refreshTokenProps.getReuseGraceSeconds()) && pShard.families.remove(
+                    family.familyId, family))
+                    {
+                        family.unloaded = true;
+                        excess--;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Obtenir la famille du jeton depuis la mémoire ou, à défaut, depuis la base de données (lecture seule).
+     *
+     * @param pRefreshToken le jeton d'actualisation.
+     * @return la famille, null si le jeton est mal formé ou la famille inconnue.
+     */
+    private Family findFamily(final String pRefreshToken)
+    {
+        if (pRefreshToken == null || pRefreshToken.length() <= FAMILY_ID_LENGTH + 1 || pRefreshToken.charAt(FAMILY_ID_LENGTH) != POINT)
+        {
+            return null;
+        }
+        final var familyId = pRefreshToken.substring(0, FAMILY_ID_LENGTH);
+        final var shard = this.shardOf(familyId);
+        final var family = shard.families.get(familyId);
+        if (family != null)
+        {
+            return family;
+        }
+
+        final var loaded = this.refreshTokenDAO.findById(familyId).map(Family::from).orElse(null);
+        if (loaded == null)
+        {
+            return null;
+        }
+        final var previous = shard.families.putIfAbsent(familyId, loaded);
+        if (previous != null)
+        {
+            return previous;
+        }
+        this.trim(shard, Instant.now().getEpochSecond());
+        return loaded;
+    }
+
+    /**
+     * Marquer la famille comme modifiée : elle est mise une seule fois dans la file d'écriture de son segment. Doit être
+     * appelé en détenant le verrou de la famille.
+     *
+     * @param pFamily la famille.
+     */
+    private void markDirty(final Family pFamily)
+    {
+        if (!pFamily.dirty)
+        {
+            pFamily.dirty = true;
+            this.pendingWrites.incrementAndGet();
+            this.shardOf(pFamily.familyId).dirtyFamilies.add(pFamily);
+        }
+    }
+
+    private Shard shardOf(final String pFamilyId)
+    {
+        final int hash = pFamilyId.hashCode();
+        return this.shards[(hash ^ hash >>> 16) & this.shards.length - 1];
+    }
+
+    private String randomString(final int pBytes)
+    {
+        final var bytes = new byte[pBytes];
+        this.secureRandom.nextBytes(bytes);
+        return BASE64_URL_ENCODER.encodeToString(bytes);
+    }
+
+    private byte[] digest(final String pSecret)
+    {
+        return this.digests.get().digest(pSecret.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static MessageDigest newMessageDigest()
+    {
+        try
+        {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new CustomAppException(DIGEST_ERR_MSG, e);
+        }
+    }
+
+    /**
+     * Résultat de la rotation d'un jeton d'actualisation.
+     */
+    @Getter
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    public static final class Rotation
+    {
+        static final Rotation INVALID = new Rotation(Status.INVALID, null, null);
+
+        /**
+         * Issue de la rotation.
+         */
+        public enum Status
+        {
+            ROTATED, // nouveau jeton émis.
+            INVALID, // jeton mal formé, inconnu ou famille révoquée.
+            EXPIRED, // jeton expiré.
+            REUSED // jeton déjà consommé : la famille a été révoquée.
+        }
+
+        private final Status status;
+        private final String username; // le login de l'utilisateur de la famille, null si le jeton est inconnu.
+        private final String refreshToken; // le nouveau jeton d'actualisation si la rotation a réussi.
+
+        public boolean isRotated()
+        {
+            return this.status == Status.ROTATED;
+        }
+    }
+
+    /**
+     * Segment de la table des familles avec sa file des familles en attente d'écriture.
+     */
+    private static final class Shard
+    {
+        private final ConcurrentHashMap<String, Family> families = new ConcurrentHashMap<>();
+        private final ConcurrentLinkedQueue<Family> dirtyFamilies = new ConcurrentLinkedQueue<>();
+        private Iterator<Family> evictionCursor; // protégé par le moniteur du segment.
+    }
+
+    /**
+     * Etat en mémoire d'une famille de jetons, protégé par le moniteur de l'instance.
+     */
+    private static final class Family
+    {
+        private final String familyId;
+        private final String username;
+        private final long issuedAt;
+        private byte[] tokenHash;
+        private byte[] previousHash;
+        private String lastIssuedToken; // dernier jeton émis, conservé en mémoire seulement pour le délai de grâce.
+        private long rotatedAt;
+        private int generation;
+        private long expiresAt;
+        private boolean revoked;
+        private boolean dirty;
+        private boolean unloaded; // retirée de la table par le déchargement : la famille doit être relue.
+
+        private Family(final String pFamilyId, final String pUsername, final long pIssuedAt)
+        {
+            this.familyId = pFamilyId;
+            this.username = pUsername;
+            this.issuedAt = pIssuedAt;
+        }
+
+        private static Family from(final RefreshToken pEntity)
+        {
+            final var family = new Family(pEntity.getFamilyId(), pEntity.getUsername(), pEntity.getIssuedAt());
+            family.tokenHash = BASE64_URL_DECODER.decode(pEntity.getTokenHash());
+            family.generation = pEntity.getGeneration();
+            family.expiresAt = pEntity.getExpiresAt();
+            family.revoked = pEntity.getRevoked();
+            return family;
+        }
+
+        private RefreshToken toEntity()
+        {
+            return RefreshToken.builder()//
+            .familyId(this.familyId)//
+            .username(this.username)//
+            .tokenHash(BASE64_URL_ENCODER.encodeToString(this.tokenHash))//
+            .generation(this.generation)//
+            .issuedAt(this.issuedAt)//
+            .expiresAt(this.expiresAt)//
+            .revoked(this.revoked)//
+            .build();
+        }
+
+        private synchronized boolean isEvictable(final long pNowInSeconds)
+        {
+            return !this.dirty && (this.revoked || this.expiresAt <= pNowInSeconds);
+        }
+
+        private boolean isUnloadable(final long pNowInSeconds, final long pGraceSeconds)
+        {
+            return !this.dirty && (this.revoked || this.expiresAt <= pNowInSeconds || pNowInSeconds - this.rotatedAt > pGraceSeconds);
+        }
+    }
+}
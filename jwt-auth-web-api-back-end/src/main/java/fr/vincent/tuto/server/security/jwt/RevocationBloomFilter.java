@@ -0,0 +1,121 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : RevocationBloomFilter.java
+ * Date de création : 6 mars 2021
+ * Heure de création : 14:02:27
+ * Package : fr.vincent.tuto.server.security.jwt
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.security.jwt;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtre de Bloom des révocations. Il répond sans verrou et sans allocation au cas courant « jeton non révoqué » : une
+ * réponse négative est certaine, une réponse positive doit être confirmée par l'ensemble exact des révocations.
+ *
+ * @author Vincent Otchoun
+ */
+final class RevocationBloomFilter
+{
+    //
+    private static final double LN2 = Math.log(2);
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+
+    /**
+     * Constructeur avec paramètres.
+     *
+     * @param pExpectedEntries   le nombre d'éléments attendus.
+     * @param pFalsePositiveRate le taux de faux positifs visé.
+     */
+    RevocationBloomFilter(final int pExpectedEntries, final double pFalsePositiveRate)
+    {
+        final int expected = Math.max(pExpectedEntries, 1);
+        final long bits = Math.max(64L, (long) Math.ceil(-expected * Math.log(pFalsePositiveRate) / (LN2 * LN2)));
+        this.words = new AtomicLongArray((int) ((bits + 63) >>> 6));
+        this.bitCount = (long) this.words.length() << 6;
+        this.hashCount = Math.max(1, (int) Math.round((double) this.bitCount / expected * LN2));
+    }
+
+    /**
+     * Ajouter l'empreinte d'un élément au filtre.
+     *
+     * @param pHash l'empreinte 64 bits de l'élément.
+     */
+    void add(final long pHash)
+    {
+        final int h1 = (int) pHash;
+        final int h2 = (int) (pHash >>> 32);
+        for (int i = 1; i <= this.hashCount; i++)
+        {
+            final long bit = ((h1 + (long) i * h2) & Long.MAX_VALUE) % this.bitCount;
+            final int index = (int) (bit >>> 6);
+            final long mask = 1L << bit;
+            long word;
+            do
+            {
+                word = this.words.get(index);
+            }
+            while ((word & mask) == 0 && !this.words.compareAndSet(index, word, word | mask));
+        }
+    }
+
+    /**
+     * Vérifier si l'élément a pu être ajouté au filtre.
+     *
+     * @param pHash l'empreinte 64 bits de l'élément.
+     * @return false si l'élément n'a jamais été ajouté, true s'il a pu l'être.
+     */
+    boolean mightContain(final long pHash)
+    {
+        final int h1 = (int) pHash;
+        final int h2 = (int) (pHash >>> 32);
+        for (int i = 1; i <= this.hashCount; i++)
+        {
+            final long bit = ((h1 + (long) i * h2) & Long.MAX_VALUE) % this.bitCount;
+            if ((this.words.get((int) (bit >>> 6)) & 1L << bit) == 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Calculer l'empreinte 64 bits d'une chaîne (sans allocation).
+     *
+     * @param pSeed  la graine qui distingue les espaces de noms (identifiant de jeton, utilisateur).
+     * @param pValue la chaîne.
+     * @return l'empreinte.
+     */
+    static long hash(final long pSeed, final CharSequence pValue)
+    {
+        long hash = pSeed ^ pValue.length() * 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < pValue.length(); i++)
+        {
+            hash = (hash ^ pValue.charAt(i)) * 0xBF58476D1CE4E5B9L;
+            hash ^= hash >>> 31;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        return hash ^ hash >>> 33;
+    }
+
+    int getHashCount()
+    {
+        return this.hashCount;
+    }
+
+    long getBitCount()
+    {
+        return this.bitCount;
+    }
+}
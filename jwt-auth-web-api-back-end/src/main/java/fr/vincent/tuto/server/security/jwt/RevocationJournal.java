@@ -0,0 +1,180 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : RevocationJournal.java
+ * Date de création : 6 mars 2021
+ * Heure de création : 14:31:55
+ * Package : fr.vincent.tuto.server.security.jwt
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.security.jwt;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+
+import fr.vincent.tuto.common.exception.CustomAppException;
+import fr.vincent.tuto.server.security.jwt.TokenRevocationList.Revocation;
+
+/**
+ * Journal persistant des révocations : une ligne par révocation (type|expiration|révocation|clé) ajoutée en fin de
+ * fichier, puis réécriture compacte du fichier sans les révocations expirées lors de chaque reconstruction.
+ *
+ * @author Vincent Otchoun
+ */
+final class RevocationJournal
+{
+    //
+    private static final String LOAD_ERR_MSG = "Erreur lors du chargement du journal des révocations : ";
+    private static final String WRITE_ERR_MSG = "Erreur lors de l'écriture du journal des révocations : ";
+    private static final String SEPARATOR = "|";
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private final Path file;
+    private FileChannel channel;
+
+    /**
+     * Constructeur avec paramètre.
+     *
+     * @param pFile le fichier du journal.
+     */
+    RevocationJournal(final Path pFile)
+    {
+        this.file = pFile;
+    }
+
+    /**
+     * Lire les révocations du journal puis l'ouvrir en ajout.
+     *
+     * @return les révocations enregistrées (y compris les révocations expirées et remplacées).
+     */
+    synchronized List<Revocation> open()
+    {
+        final List<Revocation> revocations = new ArrayList<>();
+        try
+        {
+            if (this.file.getParent() != null)
+            {
+                Files.createDirectories(this.file.getParent());
+            }
+            if (Files.exists(this.file))
+            {
+                for (final String line : Files.readAllLines(this.file, StandardCharsets.UTF_8))
+                {
+                    final var revocation = parse(line);
+                    if (revocation != null)
+                    {
+                        revocations.add(revocation);
+                    }
+                }
+            }
+            this.channel = FileChannel.open(this.file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            return revocations;
+        }
+        catch (IOException e)
+        {
+            throw new CustomAppException(LOAD_ERR_MSG + this.file, e);
+        }
+    }
+
+    /**
+     * Ajouter la révocation en fin de journal et forcer son écriture sur disque.
+     *
+     * @param pRevocation la révocation.
+     */
+    synchronized void append(final Revocation pRevocation)
+    {
+        try
+        {
+            this.channel.write(ByteBuffer.wrap(format(pRevocation).getBytes(StandardCharsets.UTF_8)));
+            this.channel.force(false);
+        }
+        catch (IOException e)
+        {
+            throw new CustomAppException(WRITE_ERR_MSG + this.file, e);
+        }
+    }
+
+    /**
+     * Réécrire le journal avec les seules révocations fournies. Le fichier est remplacé de manière atomique.
+     *
+     * @param pRevocations les révocations encore actives.
+     */
+    synchronized void rewrite(final Collection<Revocation> pRevocations)
+    {
+        final var tmpFile = this.file.resolveSibling(this.file.getFileName() + TMP_SUFFIX);
+        try
+        {
+            final var builder = new StringBuilder(pRevocations.size() * 64);
+            pRevocations.forEach(revocation -> builder.append(format(revocation)));
+            Files.write(tmpFile, builder.toString().getBytes(StandardCharsets.UTF_8));
+
+            this.channel.close();
+            Files.move(tmpFile, this.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            this.channel = FileChannel.open(this.file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        catch (IOException e)
+        {
+            throw new CustomAppException(WRITE_ERR_MSG + this.file, e);
+        }
+    }
+
+    /**
+     * Fermer le journal.
+     */
+    synchronized void close()
+    {
+        try
+        {
+            if (this.channel != null)
+            {
+                this.channel.close();
+            }
+        }
+        catch (IOException e)
+        {
+            throw new CustomAppException(WRITE_ERR_MSG + this.file, e);
+        }
+    }
+
+    private static String format(final Revocation pRevocation)
+    {
+        return pRevocation.getType().name() + SEPARATOR + pRevocation.getExpiresAt() + SEPARATOR + pRevocation.getRevokedAt() + SEPARATOR
+        + pRevocation.getKey() + System.lineSeparator();
+    }
+
+    /**
+     * Lire une ligne du journal, la clé (dernier champ) pouvant contenir le séparateur.
+     *
+     * @param pLine la ligne.
+     * @return la révocation, null si la ligne est incomplète (écriture interrompue).
+     */
+    private static Revocation parse(final String pLine)
+    {
+        final var fields = StringUtils.split(pLine, SEPARATOR, 4);
+        if (fields.length != 4)
+        {
+            return null;
+        }
+        try
+        {
+            return new Revocation(Revocation.Type.valueOf(fields[0]), fields[3], Long.parseLong(fields[2]), Long.parseLong(fields[1]));
+        }
+        catch (IllegalArgumentException e)
+        {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : SigningBenchmark.java
+ * Date de création : 8 mars 2021
+ * Heure de création : 10:37:05
+ * Package : fr.vincent.tuto.server.security.jwt
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.security.jwt;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Micro-benchmark de signature et de vérification des jetons JWT exécuté au démarrage sur un seul thread : le résultat
+ * est un débit par cœur mesuré sur le matériel de production, pour comparer les algorithmes de signature sans
+ * modification du code. Chaque mesure est précédée d'une phase de chauffe (compilation JIT, initialisation des
+ * instances par thread) égale au quart de sa durée.
+ *
+ * @author Vincent Otchoun
+ */
+final class SigningBenchmark
+{
+    //
+    private static final byte[] SAMPLE_SIGNING_INPUT = ("eyJhbGciOiJSUzI1NiIsInR5cCI6IkpXVCIsImtpZCI6IkFBQUFBQUFBQUFBQUFBQUFBQUFBQUEifQ."
+    + "eyJzdWIiOiJhZG1pbiIsImp0aSI6IkFBQUFBQUFBQUFBQUFBQUFBQUFBQUEiLCJhdXRoIjpbIlJPTEVfQURNSU4iLCJST0xFX1VTRVIiXSwiaWF0IjoxNjE1MT"
+    + "g0MDAwLCJleHAiOjE2MTUyNzA0MDB9").getBytes(StandardCharsets.US_ASCII);
+
+    private SigningBenchmark()
+    {
+        // Classe utilitaire.
+    }
+
+    /**
+     * Mesurer le débit de signature puis de vérification de la clé.
+     *
+     * @param pSigner         la clé de signature.
+     * @param pDurationMillis la durée de mesure de chaque opération en millisecondes.
+     * @return le résultat de la mesure.
+     */
+    static Result run(final JwtSigner pSigner, final long pDurationMillis)
+    {
+        final long durationNanos = TimeUnit.MILLISECONDS.toNanos(pDurationMillis);
+        final var signature = pSigner.sign(SAMPLE_SIGNING_INPUT, 0, SAMPLE_SIGNING_INPUT.length);
+
+        measureSign(pSigner, durationNanos / 4);
+        final double signOpsPerSecond = measureSign(pSigner, durationNanos);
+        measureVerify(pSigner, signature, durationNanos / 4);
+        final double verifyOpsPerSecond = measureVerify(pSigner, signature, durationNanos);
+        return new Result(pSigner.getAlgorithm(), signOpsPerSecond, verifyOpsPerSecond);
+    }
+
+    private static double measureSign(final JwtSigner pSigner, final long pDurationNanos)
+    {
+        final long start = System.nanoTime();
+        long elapsed;
+        long operations = 0;
+        do
+        {
+            pSigner.sign(SAMPLE_SIGNING_INPUT, 0, SAMPLE_SIGNING_INPUT.length);
+            operations++;
+            elapsed = System.nanoTime() - start;
+        }
+        while (elapsed < pDurationNanos);
+        return operations * 1e9 / elapsed;
+    }
+
+    private static double measureVerify(final JwtSigner pSigner, final byte[] pSignature, final long pDurationNanos)
+    {
+        final long start = System.nanoTime();
+        long elapsed;
+        long operations = 0;
+        int valid = 0;
+        do
+        {
+            if (pSigner.verify(SAMPLE_SIGNING_INPUT, 0, SAMPLE_SIGNING_INPUT.length, pSignature, 0, pSignature.length))
+            {
+                valid++;
+            }
+            operations++;
+            elapsed = System.nanoTime() - start;
+        }
+        while (elapsed < pDurationNanos);
+        return valid == operations ? operations * 1e9 / elapsed : 0.0;
+    }
+
+    /**
+     * Débits mesurés en opérations par seconde sur un cœur.
+     */
+    @Getter
+    @AllArgsConstructor
+    static final class Result
+    {
+        private final String algorithm;
+        private final double signOpsPerSecond;
+        private final double verifyOpsPerSecond;
+    }
+}
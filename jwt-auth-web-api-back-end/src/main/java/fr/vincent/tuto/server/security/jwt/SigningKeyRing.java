@@ -0,0 +1,647 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : SigningKeyRing.java
+ * Date de création : 7 mars 2021
+ * Heure de création : 14:26:53
+ * Package : fr.vincent.tuto.server.security.jwt
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.security.jwt;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchService;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.UnrecoverableKeyException;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.SecretKey;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.stereotype.Component;
+
+import fr.vincent.tuto.common.exception.CustomAppException;
+import fr.vincent.tuto.common.service.props.ApplicationPropsService;
+import fr.vincent.tuto.server.config.props.ServerSecurityProps;
+import fr.vincent.tuto.server.security.jwt.BearerTokenParser.ParsedToken;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Trousseau des clés de signature des jetons JWT. Chaque clé est identifiée par un kid dérivé de sa clé publique et
+ * porté par l'en-tête des jetons qu'elle signe. Les clés proviennent :
+ * <ul>
+ * <li>du magasin de clés (vot.crypto-props.*) : ses entrées de clé privée ou secrète servent à la vérification, l'alias
+ * configuré (vot.crypto-props.alias-keystore) à la signature. Les certificats de confiance (autorités, partenaires) sont
+ * ignorés. Une clé secrète (magasin PKCS12 ou JCEKS) sert à HS256 ;</li>
+ * <li>du répertoire de clés (vot.security-props.key-ring.key-directory) : une clé publique {@code <nom>.pub} (X.509 PEM)
+ * et, pour signer, sa clé privée {@code <nom>.key} (PKCS#8 PEM). La clé privée la plus récente du répertoire remplace
+ * l'alias du magasin pour la signature. Supprimer la clé privée retire la clé de la signature.</li>
+ * </ul>
+ * L'algorithme de signature (vot.security-props.key-ring.algorithm : HS256, RS256, ES256 ou EdDSA) est déduit du type
+ * de chaque clé ; seule une clé de l'algorithme configuré peut signer. Au démarrage, un micro-benchmark de signature et
+ * de vérification de la clé de signature publie le débit mesuré par cœur dans les journaux et les métriques.
+ * Le trousseau est un état immuable publié par une seule référence volatile : la signature et la vérification le lisent
+ * sans verrou. Les modifications du magasin ou du répertoire sont détectées par une tâche de fond qui construit le
+ * nouveau trousseau à côté de l'ancien, en réutilisant les clés inchangées déjà initialisées, puis le substitue. Une
+ * clé qui disparaît des sources reste utilisable pour la vérification pendant la durée de validité maximale des jetons.
+ *
+ * @author Vincent Otchoun
+ */
+@Component
+@Slf4j
+public class SigningKeyRing implements InitializingBean, DisposableBean, MeterBinder
+{
+    //
+    private static final String KEY_ID_DIGEST = "SHA-256";
+    private static final String PUBLIC_KEY_SUFFIX = ".pub";
+    private static final String PRIVATE_KEY_SUFFIX = ".key";
+    private static final String PEM_BOUNDARY = "-----";
+    private static final String KEYSTORE_ERR_MSG = "Erreur lors du chargement des clés de signature depuis le magasin de clés : ";
+    private static final String DIRECTORY_ERR_MSG = "Erreur lors du chargement des clés de signature depuis le répertoire : ";
+    private static final String NO_SIGNING_KEY_ERR_MSG = "Aucune clé de signature des jetons JWT pour l'algorithme %s, alias : %s";
+    private static final String ALGORITHM_ERR_MSG = "Algorithme de signature des jetons JWT non pris en charge : ";
+    private static final String KEY_FORMAT_ERR_MSG = "Format de clé PEM non reconnu : ";
+    private static final String BENCHMARK_MSG = "[benchmark] - Signature des jetons JWT {} : {} signatures/s et {} vérifications/s par cœur.";
+    private static final String UNSUPPORTED_KEY_MSG = "[load] - Clé ignorée, algorithme non pris en charge : {} ({}).";
+    private static final String INIT_MSG = "[reload] - Trousseau des clés JWT : {} clé(s), signature avec l'algorithme : {}, kid : {}.";
+    private static final String RELOAD_ERR_MSG = "[reload] - Erreur lors du rechargement du trousseau des clés JWT, le trousseau courant est conservé : {}";
+    private static final String WATCH_ERR_MSG = "[watch] - Erreur lors de la surveillance des clés de signature des jetons JWT.";
+    private static final String THREAD_NAME = "jwt-key-ring-watcher";
+    private static final long PRUNE_INTERVAL_SECONDS = 60;
+
+    private final ApplicationPropsService propsService;
+    private final ServerSecurityProps.KeyRingProps keyRingProps;
+
+    private volatile Ring ring = Ring.EMPTY;
+    private JwtAlgorithm algorithm;
+    private SigningBenchmark.Result benchmark;
+    private long retentionInSeconds;
+    private WatchService watchService;
+    private Thread watcher;
+
+    /**
+     * Constructeur avec en paramètres les beans pour injection.
+     *
+     * @param pPropsService  le service des propriétés applicatives.
+     * @param pSecurityProps les propriétés de sécurisation du serveur.
+     */
+    public SigningKeyRing(final ApplicationPropsService pPropsService, final ServerSecurityProps pSecurityProps)
+    {
+        this.propsService = pPropsService;
+        this.keyRingProps = pSecurityProps.getKeyRing();
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception
+    {
+        final var jwtProps = this.propsService.getJwtProps();
+        this.retentionInSeconds = Math.max(jwtProps.getTokenValidity(), jwtProps.getTokenValidityForRememberMe());
+        this.algorithm = algorithmOf(this.algorithmName());
+
+        // Au démarrage une erreur de chargement est fatale.
+        this.ring = this.load(this.ring, Instant.now().getEpochSecond());
+        log.info(INIT_MSG, this.ring.keys.size(), this.ring.signingKey.getAlgorithm(), this.ring.signingKey.getKeyId());
+
+        if (this.keyRingProps.getBenchmarkMillis() > 0)
+        {
+            this.benchmark = SigningBenchmark.run(this.ring.signingKey, this.keyRingProps.getBenchmarkMillis());
+            log.info(BENCHMARK_MSG, this.benchmark.getAlgorithm(), Math.round(this.benchmark.getSignOpsPerSecond()), Math.round(this.benchmark
+            .getVerifyOpsPerSecond()));
+        }
+        if (this.keyRingProps.isWatch())
+        {
+            this.startWatcher();
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception
+    {
+        if (this.watchService != null)
+        {
+            this.watchService.close();
+        }
+        if (this.watcher != null)
+        {
+            this.watcher.interrupt();
+        }
+    }
+
+    /**
+     * Obtenir la clé de signature courante.
+     *
+     * @return la clé de signature.
+     */
+    public JwtSigner getSigningKey()
+    {
+        return this.ring.signingKey;
+    }
+
+    /**
+     * Obtenir la clé de vérification du jeton analysé. Le cas courant (jeton signé avec la clé de signature courante) est
+     * tranché sans allocation ; un jeton sans kid est vérifié avec la clé de signature courante.
+     *
+     * @param pParsed le jeton analysé.
+     * @return la clé de vérification, null si le kid est inconnu.
+     */
+    public JwtSigner getVerificationKey(final ParsedToken pParsed)
+    {
+        final var current = this.ring;
+        if (!pParsed.hasKeyId() || pParsed.hasKeyId(current.signingKey.getKeyIdBytes()))
+        {
+            return current.signingKey;
+        }
+        final var keyId = pParsed.keyId();
+        return keyId != null ? current.keys.get(keyId) : null;
+    }
+
+    /**
+     * Obtenir la clé de vérification par son identifiant.
+     *
+     * @param pKeyId l'identifiant de la clé (kid).
+     * @return la clé, null si elle est inconnue.
+     */
+    public JwtSigner getVerificationKey(final String pKeyId)
+    {
+        return this.ring.keys.get(pKeyId);
+    }
+
+    /**
+     * Obtenir toutes les clés de vérification du trousseau, y compris les clés retirées encore utilisables.
+     *
+     * @return les clés de vérification.
+     */
+    public Collection<JwtSigner> getVerificationKeys()
+    {
+        return this.ring.keys.values();
+    }
+
+    /**
+     * Recharger le trousseau depuis le magasin de clés et le répertoire de clés puis le substituer au trousseau courant.
+     * Les requêtes en cours continuent avec le trousseau qu'elles ont lu.
+     *
+     * @return true si le trousseau a été rechargé, false en cas d'erreur (le trousseau courant est conservé).
+     */
+    public synchronized boolean reload()
+    {
+        try
+        {
+            final var reloaded = this.load(this.ring, Instant.now().getEpochSecond());
+            final boolean rotated = reloaded.signingKey != this.ring.signingKey;
+            this.ring = reloaded;
+            if (rotated)
+            {
+                log.info(INIT_MSG, reloaded.keys.size(), reloaded.signingKey.getAlgorithm(), reloaded.signingKey.getKeyId());
+            }
+            return true;
+        }
+        catch (RuntimeException e)
+        {
+            log.error(RELOAD_ERR_MSG, e.getMessage(), e);
+            return false;
+        }
+    }
+
+    public int size()
+    {
+        return this.ring.keys.size();
+    }
+
+    /**
+     * Obtenir le résultat du micro-benchmark de démarrage.
+     *
+     * @return le résultat, null si le benchmark est désactivé (vot.security-props.key-ring.benchmark-millis=0).
+     */
+    public SigningBenchmark.Result getBenchmark()
+    {
+        return this.benchmark;
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry pRegistry)
+    {
+        Gauge.builder("security.jwt.keys", this, SigningKeyRing::size)//
+        .description("Nombre de clés de vérification des jetons JWT dans le trousseau")//
+        .register(pRegistry);
+        Gauge.builder("security.jwt.signing.benchmark", this, keyRing -> keyRing.benchmark == null ? Double.NaN
+        : keyRing.benchmark.getSignOpsPerSecond())//
+        .description("Débit de signature des jetons JWT mesuré au démarrage (opérations par seconde et par cœur)")//
+        .tag("algorithm", this.algorithmName())//
+        .tag("operation", "sign")//
+        .register(pRegistry);
+        Gauge.builder("security.jwt.signing.benchmark", this, keyRing -> keyRing.benchmark == null ? Double.NaN
+        : keyRing.benchmark.getVerifyOpsPerSecond())//
+        .description("Débit de vérification des jetons JWT mesuré au démarrage (opérations par seconde et par cœur)")//
+        .tag("algorithm", this.algorithmName())//
+        .tag("operation", "verify")//
+        .register(pRegistry);
+    }
+
+    /**
+     * Construire le nouveau trousseau. Les clés déjà présentes dans le trousseau précédent sont réutilisées telles quelles
+     * (instances de signature déjà initialisées par thread) ; les clés disparues sont conservées pour la vérification
+     * jusqu'à la fin de leur délai de rétention.
+     *
+     * @param pPrevious     le trousseau précédent.
+     * @param pNowInSeconds l'instant courant en secondes depuis l'epoch.
+     * @return le nouveau trousseau.
+     */
+    private Ring load(final Ring pPrevious, final long pNowInSeconds)
+    {
+        final Map<String, JwtSigner> keys = new LinkedHashMap<>();
+        final var keystoreSigningKey = this.loadKeystore(pPrevious, keys);
+        final var directorySigningKey = this.loadDirectory(pPrevious, keys);
+        final var signingKey = directorySigningKey != null ? directorySigningKey : keystoreSigningKey;
+        if (signingKey == null)
+        {
+            throw new CustomAppException(String.format(NO_SIGNING_KEY_ERR_MSG, this.algorithm, this.propsService.getCryptoProps()
+            .getAliasKeystore()));
+        }
+
+        final Map<String, Long> retiredUntil = new HashMap<>();
+        pPrevious.keys.forEach((keyId, key) -> {
+            if (!keys.containsKey(keyId))
+            {
+                final long until = pPrevious.retiredUntil.getOrDefault(keyId, pNowInSeconds + this.retentionInSeconds);
+                if (until > pNowInSeconds)
+                {
+                    keys.put(keyId, key);
+                    retiredUntil.put(keyId, until);
+                }
+            }
+        });
+        return new Ring(signingKey, Collections.unmodifiableMap(keys), Collections.unmodifiableMap(retiredUntil));
+    }
+
+    /**
+     * Charger les entrées de clé privée ou secrète du magasin de clés. Les certificats de confiance ne sont pas des clés
+     * du trousseau : un jeton signé par une autorité ou un partenaire importé dans le magasin n'est pas accepté.
+     *
+     * @param pPrevious le trousseau précédent.
+     * @param pKeys     les clés chargées.
+     * @return la clé de l'alias configuré, null si elle est absente, sans clé privée ou d'un autre algorithme.
+     */
+    private JwtSigner loadKeystore(final Ring pPrevious, final Map<String, JwtSigner> pKeys)
+    {
+        final var cryptoProps = this.propsService.getCryptoProps();
+        final var location = cryptoProps.getKeystoreFileLocation().trim();
+        final var signingAlias = cryptoProps.getAliasKeystore().trim();
+        final var keyPassword = cryptoProps.getKeyPassword().toCharArray();
+
+        try (final InputStream inputStream = Files.newInputStream(Paths.get(location)))
+        {
+            final var keyStore = KeyStore.getInstance(cryptoProps.getKeyStoreType().trim());
+            keyStore.load(inputStream, cryptoProps.getKeystorePassword().toCharArray());
+
+            JwtSigner signingKey = null;
+            for (final String alias : Collections.list(keyStore.aliases()))
+            {
+                final JwtSigner key;
+                if (!keyStore.isKeyEntry(alias))
+                {
+                    continue;
+                }
+                if (keyStore.entryInstanceOf(alias, KeyStore.SecretKeyEntry.class))
+                {
+                    final var secretKey = secretKeyOf(keyStore, alias, keyPassword);
+                    key = secretKey == null ? null : this.toKey(pPrevious, secretKey, secretKey, alias);
+                }
+                else
+                {
+                    final var certificate = keyStore.getCertificate(alias);
+                    key = certificate == null ? null
+                    : this.toKey(pPrevious, certificate.getPublicKey(), privateKeyOf(keyStore, alias, keyPassword), alias);
+                }
+                if (key == null)
+                {
+                    continue;
+                }
+                pKeys.put(key.getKeyId(), key);
+                if (signingAlias.equals(alias) && key.canSign() && key.getJwtAlgorithm() == this.algorithm)
+                {
+                    signingKey = key;
+                }
+            }
+            return signingKey;
+        }
+        catch (IOException | GeneralSecurityException e)
+        {
+            throw new CustomAppException(KEYSTORE_ERR_MSG + location, e);
+        }
+    }
+
+    /**
+     * Charger les paires de clés PEM du répertoire de clés.
+     *
+     * @param pPrevious le trousseau précédent.
+     * @param pKeys     les clés chargées.
+     * @return la clé dont la clé privée est la plus récente, null si le répertoire n'en contient pas.
+     */
+    private JwtSigner loadDirectory(final Ring pPrevious, final Map<String, JwtSigner> pKeys)
+    {
+        final var directory = this.keyDirectory();
+        if (directory == null || !Files.isDirectory(directory))
+        {
+            return null;
+        }
+
+        JwtSigner signingKey = null;
+        long signingKeyModified = Long.MIN_VALUE;
+        try (final DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + PUBLIC_KEY_SUFFIX))
+        {
+            for (final Path publicKeyFile : files)
+            {
+                final var name = StringUtils.removeEnd(publicKeyFile.getFileName().toString(), PUBLIC_KEY_SUFFIX);
+                final var privateKeyFile = publicKeyFile.resolveSibling(name + PRIVATE_KEY_SUFFIX);
+                final var publicKey = publicKeyOf(readPem(publicKeyFile), publicKeyFile);
+                PrivateKey privateKey = null;
+                long modified = Long.MIN_VALUE;
+                try
+                {
+                    modified = Files.getLastModifiedTime(privateKeyFile).toMillis();
+                    privateKey = KeyFactory.getInstance(publicKey.getAlgorithm()).generatePrivate(new PKCS8EncodedKeySpec(readPem(privateKeyFile)));
+                }
+                catch (NoSuchFileException e)
+                {
+                    // Clé de vérification seule, ou clé privée retirée de la signature.
+                }
+
+                final var key = this.toKey(pPrevious, publicKey, privateKey, name);
+                if (key == null)
+                {
+                    continue;
+                }
+                pKeys.put(key.getKeyId(), key);
+                if (key.canSign() && key.getJwtAlgorithm() == this.algorithm && modified > signingKeyModified)
+                {
+                    signingKey = key;
+                    signingKeyModified = modified;
+                }
+            }
+            return signingKey;
+        }
+        catch (IOException | GeneralSecurityException | IllegalArgumentException e)
+        {
+            throw new CustomAppException(DIRECTORY_ERR_MSG + directory, e);
+        }
+    }
+
+    /**
+     * Obtenir la clé du trousseau correspondant à la paire fournie, en réutilisant celle du trousseau précédent lorsque
+     * la paire est inchangée. La capacité de signer ne dépend que des sources de ce chargement : une clé dont la clé
+     * privée a disparu devient une clé de vérification seule.
+     *
+     * @param pPrevious   le trousseau précédent.
+     * @param pVerificationKey la clé publique (ou la clé secrète).
+     * @param pSigningKey      la clé privée (ou la clé secrète), null pour une clé de vérification seule.
+     * @param pName            le nom de la clé dans sa source (journalisation).
+     * @return la clé, null si l'algorithme de la clé n'est pas pris en charge.
+     */
+    private JwtSigner toKey(final Ring pPrevious, final Key pVerificationKey, final Key pSigningKey, final String pName)
+    {
+        final var keyAlgorithm = JwtAlgorithm.of(pVerificationKey);
+        if (keyAlgorithm == null)
+        {
+            log.warn(UNSUPPORTED_KEY_MSG, pVerificationKey.getAlgorithm(), pName);
+            return null;
+        }
+        final var keyId = keyIdOf(pVerificationKey);
+        final var previous = pPrevious.keys.get(keyId);
+        if (previous != null && previous.canSign() == (pSigningKey != null))
+        {
+            return previous;
+        }
+        return new JwtSigner(keyAlgorithm, keyId, pSigningKey, pVerificationKey);
+    }
+
+    private String algorithmName()
+    {
+        return StringUtils.trimToEmpty(this.keyRingProps.getAlgorithm());
+    }
+
+    private Path keyDirectory()
+    {
+        final var directory = this.keyRingProps.getKeyDirectory();
+        return StringUtils.isBlank(directory) ? null : Paths.get(directory.trim());
+    }
+
+    /**
+     * Démarrer la surveillance du répertoire du magasin de clés et du répertoire de clés. Une rafale d'événements
+     * (copie d'un fichier, remplacement de plusieurs fichiers) provoque un seul rechargement.
+     *
+     * @throws IOException en cas d'erreur d'enregistrement des répertoires.
+     */
+    private void startWatcher() throws IOException
+    {
+        this.watchService = Paths.get(".").getFileSystem().newWatchService();
+        final var keystoreDirectory = Paths.get(this.propsService.getCryptoProps().getKeystoreFileLocation().trim()).toAbsolutePath().getParent();
+        final var keyDirectory = this.keyDirectory();
+        for (final Path directory : Arrays.asList(keystoreDirectory, keyDirectory))
+        {
+            if (directory != null && Files.isDirectory(directory))
+            {
+                directory.register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+            }
+        }
+
+        this.watcher = new Thread(this::watch, THREAD_NAME);
+        this.watcher.setDaemon(true);
+        this.watcher.start();
+    }
+
+    private void watch()
+    {
+        try
+        {
+            while (!Thread.currentThread().isInterrupted())
+            {
+                var key = this.watchService.poll(PRUNE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+                if (key == null)
+                {
+                    // Purger les clés retirées arrivées en fin de rétention.
+                    if (!this.ring.retiredUntil.isEmpty())
+                    {
+                        this.reload();
+                    }
+                    continue;
+                }
+                while (key != null)
+                {
+                    key.pollEvents();
+                    key.reset();
+                    key = this.watchService.poll(this.keyRingProps.getReloadDelayMillis(), TimeUnit.MILLISECONDS);
+                }
+                this.reload();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch (ClosedWatchServiceException e)
+        {
+            // Arrêt de l'application.
+        }
+        catch (RuntimeException e)
+        {
+            log.error(WATCH_ERR_MSG, e);
+        }
+    }
+
+    /**
+     * Identifiant de la clé : empreinte SHA-256 tronquée à 128 bits de la clé publique encodée (X.509) ou de la clé
+     * secrète, en Base64 URL. Il est stable pour une même clé quelle que soit sa source ou son alias, et ne permet pas de
+     * retrouver une clé secrète.
+     *
+     * @param pKey la clé publique ou secrète.
+     * @return le kid.
+     */
+    static String keyIdOf(final Key pKey)
+    {
+        try
+        {
+            final var digest = MessageDigest.getInstance(KEY_ID_DIGEST).digest(pKey.getEncoded());
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 16));
+        }
+        catch (GeneralSecurityException e)
+        {
+            throw new CustomAppException(e);
+        }
+    }
+
+    private static JwtAlgorithm algorithmOf(final String pName)
+    {
+        try
+        {
+            return JwtAlgorithm.valueOf(pName);
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new CustomAppException(ALGORITHM_ERR_MSG + pName, e);
+        }
+    }
+
+    /**
+     * Lire une clé publique X.509 quel que soit son algorithme (RSA, EC ou EdDSA).
+     *
+     * @param pEncoded la clé encodée.
+     * @param pFile    le fichier de la clé (message d'erreur).
+     * @return la clé publique.
+     */
+    private static PublicKey publicKeyOf(final byte[] pEncoded, final Path pFile)
+    {
+        for (final JwtAlgorithm candidate : JwtAlgorithm.values())
+        {
+            if (candidate.isSymmetric())
+            {
+                continue;
+            }
+            try
+            {
+                return KeyFactory.getInstance(candidate.getKeyAlgorithm()).generatePublic(new X509EncodedKeySpec(pEncoded));
+            }
+            catch (GeneralSecurityException e)
+            {
+                // Algorithme suivant (ou algorithme absent de la JVM, EdDSA avant Java 15).
+            }
+        }
+        throw new CustomAppException(KEY_FORMAT_ERR_MSG + pFile);
+    }
+
+    private static SecretKey secretKeyOf(final KeyStore pKeyStore, final String pAlias, final char[] pKeyPassword) throws GeneralSecurityException
+    {
+        try
+        {
+            final var key = pKeyStore.getKey(pAlias, pKeyPassword);
+            return key instanceof SecretKey ? (SecretKey) key : null;
+        }
+        catch (UnrecoverableKeyException e)
+        {
+            return null;
+        }
+    }
+
+    private static PrivateKey privateKeyOf(final KeyStore pKeyStore, final String pAlias, final char[] pKeyPassword)
+    throws GeneralSecurityException
+    {
+        if (!pKeyStore.isKeyEntry(pAlias))
+        {
+            return null;
+        }
+        try
+        {
+            final var key = pKeyStore.getKey(pAlias, pKeyPassword);
+            return key instanceof PrivateKey ? (PrivateKey) key : null;
+        }
+        catch (UnrecoverableKeyException e)
+        {
+            // Clé protégée par un autre mot de passe : vérification seule.
+            return null;
+        }
+    }
+
+    private static byte[] readPem(final Path pFile) throws IOException
+    {
+        final var builder = new StringBuilder();
+        for (final String line : Files.readAllLines(pFile, StandardCharsets.US_ASCII))
+        {
+            if (!line.startsWith(PEM_BOUNDARY))
+            {
+                builder.append(line.trim());
+            }
+        }
+        return Base64.getDecoder().decode(builder.toString());
+    }
+
+    /**
+     * Etat immuable du trousseau.
+     */
+    private static final class Ring
+    {
+        private static final Ring EMPTY = new Ring(null, Collections.emptyMap(), Collections.emptyMap());
+
+        private final JwtSigner signingKey;
+        private final Map<String, JwtSigner> keys; // toutes les clés de vérification par kid.
+        private final Map<String, Long> retiredUntil; // fin de rétention des clés retirées des sources.
+
+        private Ring(final JwtSigner pSigningKey, final Map<String, JwtSigner> pKeys, final Map<String, Long> pRetiredUntil)
+        {
+            this.signingKey = pSigningKey;
+            this.keys = pKeys;
+            this.retiredUntil = pRetiredUntil;
+        }
+    }
+}
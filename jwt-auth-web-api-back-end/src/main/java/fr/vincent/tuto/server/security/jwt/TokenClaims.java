@@ -0,0 +1,87 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : TokenClaims.java
+ * Date de création : 5 mars 2021
+ * Heure de création : 09:21:53
+ * Package : fr.vincent.tuto.server.security.jwt
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.security.jwt;
+
+import java.util.Collection;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import fr.vincent.tuto.server.util.AuthorityRegistry;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Revendications (claims) d'un jeton JWT dont la signature a été vérifiée. L'objet est immuable et peut donc être
+ * partagé entre les requêtes qui présentent le même jeton. Les autorités sont conservées telles quelles : elles doivent
+ * être immuables, en général l'ensemble partagé fourni par l'{@link AuthorityRegistry}.
+ * 
+ * @author Vincent Otchoun
+ */
+@Getter
+@ToString
+public final class TokenClaims
+{
+    private final String subject; // le nom de l'utilisateur.
+    private final String tokenId; // l'identifiant unique du jeton (jti), null pour un jeton qui n'en porte pas.
+    private final String clientId; // le compte de service d'un jeton émis en lot (client_id), null pour une connexion.
+    private final Collection<GrantedAuthority> authorities; // les autorités de l'utilisateur, immuables.
+    private final long issuedAt; // date d'émission en secondes depuis l'epoch.
+    private final long expiresAt; // date d'expiration en secondes depuis l'epoch.
+
+    /**
+     * Constructeur avec paramètres.
+     * 
+     * @param pSubject     le nom de l'utilisateur.
+     * @param pTokenId     l'identifiant unique du jeton.
+     * @param pAuthorities les autorités immuables de l'utilisateur.
+     * @param pIssuedAt    la date d'émission en secondes.
+     * @param pExpiresAt   la date d'expiration en secondes.
+     */
+    public TokenClaims(final String pSubject, final String pTokenId, final Collection<GrantedAuthority> pAuthorities, final long pIssuedAt,
+    final long pExpiresAt)
+    {
+        this(pSubject, pTokenId, null, pAuthorities, pIssuedAt, pExpiresAt);
+    }
+
+    /**
+     * Constructeur avec paramètres, pour un jeton émis pour le compte d'un client.
+     * 
+     * @param pSubject     le sujet du jeton.
+     * @param pTokenId     l'identifiant unique du jeton.
+     * @param pClientId    le compte de service du jeton, null pour une connexion.
+     * @param pAuthorities les autorités immuables du jeton.
+     * @param pIssuedAt    la date d'émission en secondes.
+     * @param pExpiresAt   la date d'expiration en secondes.
+     */
+    public TokenClaims(final String pSubject, final String pTokenId, final String pClientId, final Collection<GrantedAuthority> pAuthorities,
+    final long pIssuedAt, final long pExpiresAt)
+    {
+        this.subject = pSubject;
+        this.tokenId = pTokenId;
+        this.clientId = pClientId;
+        this.authorities = pAuthorities;
+        this.issuedAt = pIssuedAt;
+        this.expiresAt = pExpiresAt;
+    }
+
+    /**
+     * Vérifier si le jeton est expiré à l'instant fourni.
+     * 
+     * @param pNowInSeconds l'instant courant en secondes depuis l'epoch.
+     * @return true si le jeton est expiré, false sinon.
+     */
+    public boolean isExpired(final long pNowInSeconds)
+    {
+        return this.expiresAt <= pNowInSeconds;
+    }
+}
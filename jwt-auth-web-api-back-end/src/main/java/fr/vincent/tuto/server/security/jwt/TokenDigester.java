@@ -0,0 +1,140 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : TokenDigester.java
+ * Date de création : 8 mars 2021
+ * Heure de création : 17:41:30
+ * Package : fr.vincent.tuto.server.security.jwt
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.security.jwt;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import fr.vincent.tuto.common.exception.CustomAppException;
+
+/**
+ * Calcul de l'empreinte SHA-256 des jetons JWT utilisée comme clé des caches. Le tampon, l'instance
+ * {@link MessageDigest} et la clé de recherche sont propres au thread courant et à l'instance : chaque cache dispose de
+ * son propre calculateur, la clé de recherche de l'un n'est jamais écrasée par l'autre.
+ *
+ * @author Vincent Otchoun
+ */
+final class TokenDigester
+{
+    //
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private static final String DIGEST_ERR_MSG = "Erreur lors du calcul de l'empreinte du jeton JWT.";
+    private static final int DIGEST_LENGTH = 32;
+
+    private final ThreadLocal<MessageDigest> digests = ThreadLocal.withInitial(TokenDigester::newMessageDigest);
+    private final ThreadLocal<DigestKey> probes = ThreadLocal.withInitial(DigestKey::new);
+    private final ThreadLocal<byte[]> buffers = ThreadLocal.withInitial(() -> new byte[1024]);
+
+    /**
+     * Calculer l'empreinte du jeton dans la clé de recherche propre au thread courant.
+     *
+     * @param pSource la chaîne contenant le jeton JWT.
+     * @param pStart  la position du premier caractère du jeton.
+     * @param pEnd    la position suivant le dernier caractère du jeton.
+     * @return la clé de recherche du thread courant (à copier avant insertion).
+     */
+    DigestKey digest(final CharSequence pSource, final int pStart, final int pEnd)
+    {
+        final int length = pEnd - pStart;
+        var buffer = this.buffers.get();
+        if (buffer.length < length)
+        {
+            buffer = new byte[Math.max(length, buffer.length << 1)];
+            this.buffers.set(buffer);
+        }
+        for (int i = 0; i < length; i++)
+        {
+            buffer[i] = (byte) pSource.charAt(pStart + i); // un jeton JWT compact ne contient que des caractères ASCII.
+        }
+
+        final var probe = this.probes.get();
+        final var messageDigest = this.digests.get();
+        try
+        {
+            messageDigest.update(buffer, 0, length);
+            messageDigest.digest(probe.bytes, 0, DIGEST_LENGTH);
+        }
+        catch (DigestException e)
+        {
+            messageDigest.reset();
+            throw new CustomAppException(DIGEST_ERR_MSG, e);
+        }
+        probe.rehash();
+        return probe;
+    }
+
+    private static MessageDigest newMessageDigest()
+    {
+        try
+        {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new CustomAppException(DIGEST_ERR_MSG, e);
+        }
+    }
+
+    /**
+     * Empreinte d'un jeton utilisée comme clé de cache. Les instances de recherche sont réutilisées par thread, les
+     * instances insérées dans une table sont des copies immuables.
+     */
+    static final class DigestKey
+    {
+        private final byte[] bytes = new byte[DIGEST_LENGTH];
+        private int hash;
+
+        private void rehash()
+        {
+            // L'empreinte est uniformément distribuée : ses 4 premiers octets suffisent.
+            this.hash = (this.bytes[0] & 0xFF) << 24 | (this.bytes[1] & 0xFF) << 16 | (this.bytes[2] & 0xFF) << 8 | (this.bytes[3] & 0xFF);
+        }
+
+        /**
+         * Lire 8 octets de l'empreinte (ordre gros-boutiste).
+         *
+         * @param pIndex la position du premier octet.
+         * @return la valeur lue.
+         */
+        long longAt(final int pIndex)
+        {
+            long value = 0;
+            for (int i = pIndex; i < pIndex + Long.BYTES; i++)
+            {
+                value = value << 8 | (this.bytes[i] & 0xFF);
+            }
+            return value;
+        }
+
+        DigestKey copy()
+        {
+            final var key = new DigestKey();
+            System.arraycopy(this.bytes, 0, key.bytes, 0, DIGEST_LENGTH);
+            key.hash = this.hash;
+            return key;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(final Object pObject)
+        {
+            return this == pObject || pObject instanceof DigestKey && Arrays.equals(this.bytes, ((DigestKey) pObject).bytes);
+        }
+    }
+}
@@ -0,0 +1,295 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : TokenIntrospector.java
+ * Date de création : 8 mars 2021
+ * Heure de création : 17:56:12
+ * Package : fr.vincent.tuto.server.security.jwt
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.security.jwt;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import fr.vincent.tuto.common.service.props.ApplicationPropsService;
+import fr.vincent.tuto.server.config.props.ServerSecurityProps;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Introspection des jetons JWT d'accès (RFC 7662) pour les services qui ne détiennent pas les clés de vérification. La
+ * réponse JSON est sérialisée une seule fois puis conservée en octets dans un cache de courte durée dont la clé est
+ * l'empreinte SHA-256 du jeton : une nouvelle introspection du même jeton ne coûte qu'un calcul d'empreinte, une
+ * recherche dans une table de hachage et la consultation de la liste de révocation, sans encodage JSON. Les réponses
+ * inactives sont également conservées, un jeton invalide ne redevenant pas valide. Cache plein, une insertion évince
+ * l'entrée qui expire le plus tôt parmi un petit échantillon, comme le {@link VerifiedTokenCache}.
+ * <p>
+ * Le taux de succès du cache est exposé par Micrometer (security.jwt.introspection.*).
+ *
+ * @author Vincent Otchoun
+ */
+@Component
+public class TokenIntrospector implements MeterBinder
+{
+    //
+    private static final byte[] INACTIVE_RESPONSE = "{\"active\":false}".getBytes(StandardCharsets.US_ASCII);
+    private static final long PURGE_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(1);
+    private static final int EVICTION_SAMPLE = 8;
+
+    private final AuthTokenProvider tokenProvider;
+    private final TokenRevocationList revocationList;
+    private final ApplicationPropsService propsService;
+    private final long cacheTtlSeconds;
+    private final int maxEntries;
+    private final ConcurrentHashMap<TokenDigester.DigestKey, Entry> entries;
+    private final TokenDigester digester = new TokenDigester();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private volatile long lastPurgeMillis;
+    private final Object evictionLock = new Object();
+    private Iterator<Map.Entry<TokenDigester.DigestKey, Entry>> evictionCursor; // protégé par evictionLock.
+
+    /**
+     * Constructeur avec en paramètres les beans pour injection.
+     *
+     * @param pTokenProvider  le fournisseur des jetons JWT.
+     * @param pRevocationList la liste de révocation des jetons.
+     * @param pPropsService   le service des propriétés applicatives.
+     * @param pSecurityProps  les propriétés de sécurisation du serveur.
+     */
+    public TokenIntrospector(final AuthTokenProvider pTokenProvider, final TokenRevocationList pRevocationList,
+    final ApplicationPropsService pPropsService, final ServerSecurityProps pSecurityProps)
+    {
+        this.tokenProvider = pTokenProvider;
+        this.revocationList = pRevocationList;
+        this.propsService = pPropsService;
+        this.cacheTtlSeconds = pSecurityProps.getIntrospection().getCacheTtlSeconds();
+        this.maxEntries = pSecurityProps.getIntrospection().getMaxEntries();
+        this.entries = new ConcurrentHashMap<>(Math.min(this.maxEntries, 1 << 16));
+    }
+
+    /**
+     * Obtenir la réponse d'introspection sérialisée du jeton. Le tableau retourné est partagé entre les appels et ne
+     * doit pas être modifié.
+     *
+     * @param pToken le jeton JWT d'accès.
+     * @return la réponse JSON en UTF-8 : {"active":false} si le jeton est invalide, expiré ou révoqué.
+     */
+    public byte[] introspect(final String pToken)
+    {
+        if (StringUtils.isBlank(pToken))
+        {
+            return INACTIVE_RESPONSE;
+        }
+
+        final long now = Instant.now().getEpochSecond();
+        final var probe = this.digester.digest(pToken, 0, pToken.length());
+        final var entry = this.entries.get(probe);
+        if (entry != null && entry.cachedUntil > now)
+        {
+            this.hits.increment();
+            // Une révocation postérieure à la mise en cache doit être visible immédiatement.
+            return entry.claims != null && this.revocationList.isRevoked(entry.claims) ? INACTIVE_RESPONSE : entry.response;
+        }
+
+        this.misses.increment();
+        final var claims = this.tokenProvider.getVerifiedClaims(pToken);
+        final var response = claims == null ? INACTIVE_RESPONSE : this.serialize(claims);
+        final long cachedUntil = claims == null ? now + this.cacheTtlSeconds : Math.min(now + this.cacheTtlSeconds, claims.getExpiresAt());
+        this.put(probe, new Entry(response, claims, cachedUntil), now);
+        return response;
+    }
+
+    /**
+     * Vider le cache.
+     */
+    public void clear()
+    {
+        this.entries.clear();
+    }
+
+    public int size()
+    {
+        return this.entries.size();
+    }
+
+    public long getHits()
+    {
+        return this.hits.sum();
+    }
+
+    public long getMisses()
+    {
+        return this.misses.sum();
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry pRegistry)
+    {
+        Gauge.builder("security.jwt.introspection.cache.size", this, TokenIntrospector::size)//
+        .description("Nombre de réponses d'introspection en cache")//
+        .register(pRegistry);
+        FunctionCounter.builder("security.jwt.introspection.requests", this, TokenIntrospector::getHits)//
+        .tag("result", "hit")//
+        .register(pRegistry);
+        FunctionCounter.builder("security.jwt.introspection.requests", this, TokenIntrospector::getMisses)//
+        .tag("result", "miss")//
+        .register(pRegistry);
+    }
+
+    /**
+     * Conserver la réponse dans le cache, en évinçant une autre réponse si le cache est plein.
+     *
+     * @param pProbe        la clé de recherche du thread courant.
+     * @param pEntry        la réponse à conserver.
+     * @param pNowInSeconds l'instant courant en secondes depuis l'epoch.
+     */
+    private void put(final TokenDigester.DigestKey pProbe, final Entry pEntry, final long pNowInSeconds)
+    {
+        if (pEntry.cachedUntil <= pNowInSeconds)
+        {
+            return;
+        }
+        if (this.entries.size() >= this.maxEntries)
+        {
+            this.purgeExpired(pNowInSeconds);
+            if (this.entries.size() >= this.maxEntries)
+            {
+                this.evict();
+            }
+        }
+        this.entries.put(pProbe.copy(), pEntry);
+    }
+
+    /**
+     * Evincer la réponse qui expire le plus tôt parmi les suivantes du curseur d'éviction.
+     */
+    private void evict()
+    {
+        synchronized (this.evictionLock)
+        {
+            Map.Entry<TokenDigester.DigestKey, Entry> victim = null;
+            for (int n = 0; n < EVICTION_SAMPLE; n++)
+            {
+                if (this.evictionCursor == null || !this.evictionCursor.hasNext())
+                {
+                    this.evictionCursor = this.entries.entrySet().iterator();
+                    if (!this.evictionCursor.hasNext())
+                    {
+                        break;
+                    }
+                }
+                final var candidate = this.evictionCursor.next();
+                if (victim == null || candidate.getValue().cachedUntil < victim.getValue().cachedUntil)
+                {
+                    victim = candidate;
+                }
+            }
+            if (victim != null)
+            {
+                this.entries.remove(victim.getKey(), victim.getValue());
+            }
+        }
+    }
+
+    /**
+     * Supprimer les entrées expirées, au plus une fois par seconde.
+     *
+     * @param pNowInSeconds l'instant courant en secondes depuis l'epoch.
+     */
+    private void purgeExpired(final long pNowInSeconds)
+    {
+        final long nowMillis = System.currentTimeMillis();
+        if (nowMillis - this.lastPurgeMillis < PURGE_INTERVAL_MILLIS)
+        {
+            return;
+        }
+        this.lastPurgeMillis = nowMillis;
+        this.entries.values().removeIf(entry -> entry.cachedUntil <= pNowInSeconds);
+    }
+
+    /**
+     * Sérialiser la réponse d'un jeton actif : les portées (autorités SCOPE_&lt;portée&gt;) sont regroupées dans
+     * "scope", l'ensemble des autorités est émis sous la clé des autorités des jetons.
+     *
+     * @param pClaims les revendications vérifiées.
+     * @return la réponse JSON en UTF-8.
+     */
+    private byte[] serialize(final TokenClaims pClaims)
+    {
+        final var json = new StringBuilder(256);
+        json.append("{\"active\":true,");
+        AuthTokenProvider.appendJsonString(json, AuthTokenProvider.SUBJECT_CLAIM).append(':');
+        AuthTokenProvider.appendJsonString(json, pClaims.getSubject()).append(',');
+        json.append("\"username\":");
+        AuthTokenProvider.appendJsonString(json, pClaims.getSubject()).append(',');
+        if (pClaims.getTokenId() != null)
+        {
+            AuthTokenProvider.appendJsonString(json, AuthTokenProvider.TOKEN_ID_CLAIM).append(':');
+            AuthTokenProvider.appendJsonString(json, pClaims.getTokenId()).append(',');
+        }
+
+        final var scope = new StringBuilder();
+        AuthTokenProvider.appendJsonString(json, this.propsService.getJwtProps().getAuthoritiesKey().trim()).append(":[");
+        var first = true;
+        for (final GrantedAuthority authority : pClaims.getAuthorities())
+        {
+            final var name = authority.getAuthority();
+            if (name.startsWith(BatchTokenIssuer.SCOPE_PREFIX))
+            {
+                if (scope.length() > 0)
+                {
+                    scope.append(' ');
+                }
+                scope.append(name, BatchTokenIssuer.SCOPE_PREFIX.length(), name.length());
+            }
+            if (!first)
+            {
+                json.append(',');
+            }
+            AuthTokenProvider.appendJsonString(json, name);
+            first = false;
+        }
+        json.append("],");
+        if (scope.length() > 0)
+        {
+            json.append("\"scope\":");
+            AuthTokenProvider.appendJsonString(json, scope.toString()).append(',');
+        }
+        json.append("\"token_type\":\"Bearer\",");
+        AuthTokenProvider.appendJsonString(json, AuthTokenProvider.ISSUED_AT_CLAIM).append(':').append(pClaims.getIssuedAt()).append(',');
+        AuthTokenProvider.appendJsonString(json, AuthTokenProvider.EXPIRATION_CLAIM).append(':').append(pClaims.getExpiresAt());
+        return json.append('}').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Réponse d'introspection en cache.
+     */
+    private static final class Entry
+    {
+        private final byte[] response; // réponse JSON sérialisée.
+        private final TokenClaims claims; // revendications du jeton actif, null pour une réponse inactive.
+        private final long cachedUntil; // fin de validité de l'entrée en secondes depuis l'epoch.
+
+        private Entry(final byte[] pResponse, final TokenClaims pClaims, final long pCachedUntil)
+        {
+            this.response = pResponse;
+            this.claims = pClaims;
+            this.cachedUntil = pCachedUntil;
+        }
+    }
+}
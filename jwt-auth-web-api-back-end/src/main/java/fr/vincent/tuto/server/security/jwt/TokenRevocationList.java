@@ -0,0 +1,305 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : TokenRevocationList.java
+ * Date de création : 6 mars 2021
+ * Heure de création : 13:47:08
+ * Package : fr.vincent.tuto.server.security.jwt
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.security.jwt;
+
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.stereotype.Component;
+
+import fr.vincent.tuto.common.service.props.ApplicationPropsService;
+import fr.vincent.tuto.server.config.props.ServerSecurityProps;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Liste de révocation des jetons JWT d'accès avant leur expiration. Deux types de révocation sont gérés :
+ * <ul>
+ * <li>la révocation d'un jeton par son identifiant (jti), par exemple à la déconnexion ;</li>
+ * <li>la révocation de tous les jetons d'un utilisateur émis jusqu'à l'instant de révocation, lorsque son compte est
+ * modifié ou supprimé.</li>
+ * </ul>
+ * Le cas courant « jeton non révoqué » est tranché par un filtre de Bloom, sans verrou et sans accès à la base de
+ * données. Les réponses positives du filtre sont confirmées par l'ensemble exact des révocations, trié par date
+ * d'expiration pour que les révocations devenues inutiles soient purgées dans l'ordre. Le filtre est reconstruit
+ * périodiquement en tâche de fond à partir des seules révocations actives. Les révocations sont persistées dans un
+ * journal (vot.security-props.revocation.store-file) relu au démarrage.
+ *
+ * @author Vincent Otchoun
+ */
+@Component
+@Slf4j
+public class TokenRevocationList implements InitializingBean, DisposableBean, MeterBinder
+{
+    //
+    private static final long TOKEN_SEED = 0x5DEECE66DL;
+    private static final long SUBJECT_SEED = 0x2545F4914F6CDD1DL;
+    private static final String LOAD_MSG = "[afterPropertiesSet] - Chargement de {} révocation(s) de jetons JWT actives depuis : {}.";
+    private static final String REBUILD_ERR_MSG = "[rebuild] - Erreur lors de la reconstruction de la liste de révocation des jetons JWT.";
+    private static final String THREAD_NAME = "jwt-revocation-rebuild";
+
+    private final ApplicationPropsService propsService;
+    private final ServerSecurityProps.RevocationProps revocationProps;
+    private final ConcurrentHashMap<String, Revocation> revokedTokens = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Revocation> revokedSubjects = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Revocation> revocationsByExpiry = new ConcurrentSkipListSet<>(Revocation.BY_EXPIRY);
+    private final Object writeLock = new Object();
+
+    private volatile RevocationBloomFilter bloomFilter;
+    private RevocationJournal journal;
+    private ScheduledExecutorService scheduler;
+    private long maxTokenValidityInSeconds;
+
+    /**
+     * Constructeur avec en paramètres les beans pour injection.
+     *
+     * @param pPropsService  le service des propriétés applicatives.
+     * @param pSecurityProps les propriétés de sécurisation du serveur.
+     */
+    public TokenRevocationList(final ApplicationPropsService pPropsService, final ServerSecurityProps pSecurityProps)
+    {
+        this.propsService = pPropsService;
+        this.revocationProps = pSecurityProps.getRevocation();
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception
+    {
+        final var jwtProps = this.propsService.getJwtProps();
+        this.maxTokenValidityInSeconds = Math.max(jwtProps.getTokenValidity(), jwtProps.getTokenValidityForRememberMe());
+
+        final long now = Instant.now().getEpochSecond();
+        this.journal = new RevocationJournal(Paths.get(this.revocationProps.getStoreFile().trim()));
+        this.journal.open().stream()//
+        .filter(revocation -> !revocation.isExpired(now))//
+        .forEach(this::register);
+        this.rebuild();
+        log.info(LOAD_MSG, this.revocationsByExpiry.size(), this.revocationProps.getStoreFile());
+
+        final long interval = this.revocationProps.getRebuildIntervalSeconds();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final var thread = new Thread(runnable, THREAD_NAME);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleWithFixedDelay(this::rebuildQuietly, interval, interval, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void destroy() throws Exception
+    {
+        if (this.scheduler != null)
+        {
+            this.scheduler.shutdownNow();
+        }
+        if (this.journal != null)
+        {
+            this.journal.close();
+        }
+    }
+
+    /**
+     * Révoquer un jeton par son identifiant jusqu'à son expiration.
+     *
+     * @param pTokenId   l'identifiant du jeton (jti).
+     * @param pExpiresAt la date d'expiration du jeton en secondes depuis l'epoch.
+     */
+    public void revokeToken(final String pTokenId, final long pExpiresAt)
+    {
+        final long now = Instant.now().getEpochSecond();
+        if (pTokenId == null || pExpiresAt <= now)
+        {
+            return;
+        }
+        this.revoke(new Revocation(Revocation.Type.T, pTokenId, now, pExpiresAt));
+    }
+
+    /**
+     * Révoquer tous les jetons de l'utilisateur émis avant la seconde courante. La date d'émission des jetons (iat) est
+     * en secondes : les jetons émis pendant la seconde de la révocation restent valides, pour ne pas rejeter celui obtenu
+     * juste après (nouveau mot de passe, nouveaux rôles).
+     *
+     * @param pSubject le nom de l'utilisateur.
+     */
+    public void revokeSubject(final String pSubject)
+    {
+        if (pSubject == null)
+        {
+            return;
+        }
+        final long now = Instant.now().getEpochSecond();
+        this.revoke(new Revocation(Revocation.Type.S, pSubject, now, now + this.maxTokenValidityInSeconds));
+    }
+
+    /**
+     * Vérifier si le jeton a été révoqué. Sans verrou ni allocation lorsque le filtre de Bloom écarte le jeton.
+     *
+     * @param pClaims les revendications vérifiées du jeton.
+     * @return true si le jeton ou son utilisateur a été révoqué, false sinon.
+     */
+    public boolean isRevoked(final TokenClaims pClaims)
+    {
+        final var filter = this.bloomFilter;
+        final var tokenId = pClaims.getTokenId();
+        if (tokenId != null && filter.mightContain(RevocationBloomFilter.hash(TOKEN_SEED, tokenId)) && this.revokedTokens.containsKey(tokenId))
+        {
+            return true;
+        }
+        if (filter.mightContain(RevocationBloomFilter.hash(SUBJECT_SEED, pClaims.getSubject())))
+        {
+            final var revocation = this.revokedSubjects.get(pClaims.getSubject());
+            return revocation != null && pClaims.getIssuedAt() < revocation.getRevokedAt();
+        }
+        return false;
+    }
+
+    /**
+     * Purger les révocations expirées, reconstruire le filtre de Bloom à partir des révocations actives et compacter le
+     * journal.
+     */
+    public void rebuild()
+    {
+        synchronized (this.writeLock)
+        {
+            this.purgeExpired(Instant.now().getEpochSecond());
+            final var filter = new RevocationBloomFilter(Math.max(this.revocationProps.getExpectedEntries(), this.revocationsByExpiry.size()),
+            this.revocationProps.getFalsePositiveRate());
+            this.revocationsByExpiry.forEach(revocation -> filter.add(hash(revocation)));
+            this.bloomFilter = filter;
+            this.journal.rewrite(this.revocationsByExpiry);
+        }
+    }
+
+    public int size()
+    {
+        return this.revocationsByExpiry.size();
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry pRegistry)
+    {
+        Gauge.builder("security.jwt.revocation.size", this, TokenRevocationList::size)//
+        .description("Nombre de révocations de jetons JWT actives")//
+        .register(pRegistry);
+    }
+
+    /**
+     * Enregistrer, persister et publier une révocation dans le filtre de Bloom. Les écritures sont rares et sérialisées
+     * avec la reconstruction du filtre pour qu'aucune révocation ne soit perdue lors du remplacement du filtre.
+     *
+     * @param pRevocation la révocation.
+     */
+    private void revoke(final Revocation pRevocation)
+    {
+        synchronized (this.writeLock)
+        {
+            this.register(pRevocation);
+            if (this.bloomFilter != null)
+            {
+                this.bloomFilter.add(hash(pRevocation));
+            }
+            this.journal.append(pRevocation);
+        }
+    }
+
+    /**
+     * Enregistrer une révocation dans l'ensemble exact. Une nouvelle révocation d'utilisateur remplace la précédente.
+     *
+     * @param pRevocation la révocation.
+     */
+    private void register(final Revocation pRevocation)
+    {
+        final var revocations = pRevocation.getType() == Revocation.Type.T ? this.revokedTokens : this.revokedSubjects;
+        final var previous = revocations.put(pRevocation.getKey(), pRevocation);
+        if (previous != null)
+        {
+            this.revocationsByExpiry.remove(previous);
+        }
+        this.revocationsByExpiry.add(pRevocation);
+    }
+
+    /**
+     * Purger dans l'ordre des dates d'expiration les révocations devenues inutiles.
+     *
+     * @param pNowInSeconds l'instant courant en secondes depuis l'epoch.
+     */
+    private void purgeExpired(final long pNowInSeconds)
+    {
+        while (!this.revocationsByExpiry.isEmpty() && this.revocationsByExpiry.first().isExpired(pNowInSeconds))
+        {
+            final var revocation = this.revocationsByExpiry.pollFirst();
+            final var revocations = revocation.getType() == Revocation.Type.T ? this.revokedTokens : this.revokedSubjects;
+            revocations.remove(revocation.getKey(), revocation);
+        }
+    }
+
+    private void rebuildQuietly()
+    {
+        try
+        {
+            this.rebuild();
+        }
+        catch (RuntimeException e)
+        {
+            log.error(REBUILD_ERR_MSG, e);
+        }
+    }
+
+    private static long hash(final Revocation pRevocation)
+    {
+        return RevocationBloomFilter.hash(pRevocation.getType() == Revocation.Type.T ? TOKEN_SEED : SUBJECT_SEED, pRevocation.getKey());
+    }
+
+    /**
+     * Révocation d'un jeton (T) ou de tous les jetons d'un utilisateur (S).
+     */
+    @Getter
+    @AllArgsConstructor
+    static final class Revocation
+    {
+        static final Comparator<Revocation> BY_EXPIRY = Comparator.comparingLong(Revocation::getExpiresAt)//
+        .thenComparing(Revocation::getType)//
+        .thenComparing(Revocation::getKey)//
+        .thenComparingLong(Revocation::getRevokedAt);
+
+        /**
+         * Type de révocation.
+         */
+        enum Type
+        {
+            T, // jeton révoqué par son identifiant.
+            S // jetons de l'utilisateur révoqués.
+        }
+
+        private final Type type;
+        private final String key; // identifiant du jeton ou nom de l'utilisateur.
+        private final long revokedAt; // date de révocation en secondes depuis l'epoch.
+        private final long expiresAt; // date à partir de laquelle la révocation est inutile.
+
+        boolean isExpired(final long pNowInSeconds)
+        {
+            return this.expiresAt <= pNowInSeconds;
+        }
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : VerifiedTokenCache.java
+ * Date de création : 5 mars 2021
+ * Heure de création : 10:17:02
+ * Package : fr.vincent.tuto.server.security.jwt
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.security.jwt;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.stereotype.Component;
+
+import fr.vincent.tuto.server.config.props.ServerSecurityProps;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Cache borné des jetons JWT dont la signature a déjà été vérifiée. La clé est l'empreinte SHA-256 du jeton et la
+ * valeur ses revendications vérifiées : une requête qui présente de nouveau le même jeton évite la vérification RSA au
+ * prix d'une seule recherche dans une table de hachage. Chaque entrée expire exactement à l'expiration du jeton. Cache
+ * plein de jetons valides, une insertion évince l'entrée qui expire le plus tôt parmi un petit échantillon, prélevé par
+ * un curseur qui parcourt la table de proche en proche : le cache continue de servir les jetons récents après une rafale.
+ * <p>
+ * Le taux de succès du cache est exposé par Micrometer (security.jwt.cache.*).
+ * 
+ * @author Vincent Otchoun
+ */
+@Component
+public class VerifiedTokenCache implements MeterBinder
+{
+    //
+    private static final long PURGE_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(1);
+    private static final int EVICTION_SAMPLE = 8;
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final ConcurrentHashMap<TokenDigester.DigestKey, TokenClaims> entries;
+    private final TokenDigester digester = new TokenDigester();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private volatile long lastPurgeMillis;
+    private final Object evictionLock = new Object();
+    private Iterator<Map.Entry<TokenDigester.DigestKey, TokenClaims>> evictionCursor; // protégé par evictionLock.
+
+    /**
+     * Constructeur avec en paramètre le bean pour injection.
+     * 
+     * @param pSecurityProps les propriétés de sécurisation du serveur.
+     */
+    public VerifiedTokenCache(final ServerSecurityProps pSecurityProps)
+    {
+        this.enabled = pSecurityProps.getTokenCache().isEnabled();
+        this.maxEntries = pSecurityProps.getTokenCache().getMaxEntries();
+        this.entries = new ConcurrentHashMap<>(Math.min(this.maxEntries, 1 << 16));
+    }
+
+    /**
+     * Obtenir les revendications déjà vérifiées du jeton.
+     * 
+     * @param pToken        le jeton JWT.
+     * @param pNowInSeconds l'instant courant en secondes depuis l'epoch.
+     * @return les revendications vérifiées, null si le jeton n'est pas dans le cache ou s'il est expiré.
+     */
+    public TokenClaims get(final CharSequence pToken, final long pNowInSeconds)
+    {
+        return this.get(pToken, 0, pToken.length(), pNowInSeconds);
+    }
+
+    /**
+     * Obtenir les revendications déjà vérifiées du jeton situé entre les positions fournies (par exemple dans la valeur
+     * de l'en-tête d'autorisation), sans extraire le jeton.
+     * 
+     * @param pSource       la chaîne contenant le jeton JWT.
+     * @param pStart        la position du premier caractère du jeton.
+     * @param pEnd          la position suivant le dernier caractère du jeton.
+     * @param pNowInSeconds l'instant courant en secondes depuis l'epoch.
+     * @return les revendications vérifiées, null si le jeton n'est pas dans le cache ou s'il est expiré.
+     */
+    public TokenClaims get(final CharSequence pSource, final int pStart, final int pEnd, final long pNowInSeconds)
+    {
+        if (!this.enabled)
+        {
+            return null;
+        }
+
+        final var probe = this.digester.digest(pSource, pStart, pEnd);
+        final var claims = this.entries.get(probe);
+        if (claims == null)
+        {
+            this.misses.increment();
+            return null;
+        }
+        if (claims.isExpired(pNowInSeconds))
+        {
+            this.entries.remove(probe, claims);
+            this.misses.increment();
+            return null;
+        }
+        this.hits.increment();
+        return claims;
+    }
+
+    /**
+     * Mettre en cache les revendications vérifiées du jeton jusqu'à son expiration.
+     * 
+     * @param pToken        le jeton JWT dont la signature a été vérifiée.
+     * @param pClaims       les revendications vérifiées.
+     * @param pNowInSeconds l'instant courant en secondes depuis l'epoch.
+     */
+    public void put(final CharSequence pToken, final TokenClaims pClaims, final long pNowInSeconds)
+    {
+        this.put(pToken, 0, pToken.length(), pClaims, pNowInSeconds);
+    }
+
+    /**
+     * Mettre en cache les revendications vérifiées du jeton situé entre les positions fournies.
+     * 
+     * @param pSource       la chaîne contenant le jeton JWT dont la signature a été vérifiée.
+     * @param pStart        la position du premier caractère du jeton.
+     * @param pEnd          la position suivant le dernier caractère du jeton.
+     * @param pClaims       les revendications vérifiées.
+     * @param pNowInSeconds l'instant courant en secondes depuis l'epoch.
+     */
+    public void put(final CharSequence pSource, final int pStart, final int pEnd, final TokenClaims pClaims, final long pNowInSeconds)
+    {
+        if (!this.enabled || pClaims.isExpired(pNowInSeconds))
+        {
+            return;
+        }
+        if (this.entries.size() >= this.maxEntries)
+        {
+            this.purgeExpired(pNowInSeconds);
+            if (this.entries.size() >= this.maxEntries)
+            {
+                this.evict();
+            }
+        }
+        this.entries.put(this.digester.digest(pSource, pStart, pEnd).copy(), pClaims);
+    }
+
+    /**
+     * Retirer le jeton du cache.
+     * 
+     * @param pToken le jeton JWT.
+     */
+    public void invalidate(final CharSequence pToken)
+    {
+        this.entries.remove(this.digester.digest(pToken, 0, pToken.length()));
+    }
+
+    /**
+     * Vider le cache.
+     */
+    public void clear()
+    {
+        this.entries.clear();
+    }
+
+    public int size()
+    {
+        return this.entries.size();
+    }
+
+    public long getHits()
+    {
+        return this.hits.sum();
+    }
+
+    public long getMisses()
+    {
+        return this.misses.sum();
+    }
+
+    /**
+     * Obtenir le taux de succès du cache.
+     * 
+     * @return le taux de succès entre 0 et 1.
+     */
+    public double getHitRate()
+    {
+        final long hit = this.hits.sum();
+        final long total = hit + this.misses.sum();
+        return total == 0 ? 0d : (double) hit / total;
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry pRegistry)
+    {
+        Gauge.builder("security.jwt.cache.size", this, VerifiedTokenCache::size)//
+        .description("Nombre de jetons JWT vérifiés en cache")//
+        .register(pRegistry);
+        Gauge.builder("security.jwt.cache.hit.ratio", this, VerifiedTokenCache::getHitRate)//
+        .description("Taux de succès du cache des jetons JWT vérifiés")//
+        .register(pRegistry);
+        FunctionCounter.builder("security.jwt.cache.requests", this, VerifiedTokenCache::getHits)//
+        .tag("result", "hit")//
+        .register(pRegistry);
+        FunctionCounter.builder("security.jwt.cache.requests", this, VerifiedTokenCache::getMisses)//
+        .tag("result", "miss")//
+        .register(pRegistry);
+    }
+
+    /**
+     * Evincer l'entrée qui expire le plus tôt parmi les suivantes du curseur d'éviction. Les clés étant des empreintes
+     * SHA-256, l'ordre de la table est sans rapport avec l'âge des jetons.
+     */
+    private void evict()
+    {
+        synchronized (this.evictionLock)
+        {
+            Map.Entry<TokenDigester.DigestKey, TokenClaims> victim = null;
+            for (int n = 0; n < EVICTION_SAMPLE; n++)
+            {
+                if (this.evictionCursor == null || !this.evictionCursor.hasNext())
+                {
+                    this.evictionCursor = this.entries.entrySet().iterator();
+                    if (!this.evictionCursor.hasNext())
+                    {
+                        break;
+                    }
+                }
+                final var candidate = this.evictionCursor.next();
+                if (victim == null || candidate.getValue().getExpiresAt() < victim.getValue().getExpiresAt())
+                {
+                    victim = candidate;
+                }
+            }
+            if (victim != null)
+            {
+                this.entries.remove(victim.getKey(), victim.getValue());
+            }
+        }
+    }
+
+    /**
+     * Supprimer les entrées expirées, au plus une fois par seconde.
+     * 
+     * @param pNowInSeconds l'instant courant en secondes depuis l'epoch.
+     */
+    private void purgeExpired(final long pNowInSeconds)
+    {
+        final long nowMillis = System.currentTimeMillis();
+        if (nowMillis - this.lastPurgeMillis < PURGE_INTERVAL_MILLIS)
+        {
+            return;
+        }
+        this.lastPurgeMillis = nowMillis;
+        this.entries.values().removeIf(claims -> claims.isExpired(pNowInSeconds));
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : LoginThrottle.java
+ * Date de création : 9 mars 2021
+ * Heure de création : 20:26:55
+ * Package : fr.vincent.tuto.server.security.throttle
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.security.throttle;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import fr.vincent.tuto.server.config.props.ServerSecurityProps;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+
+/**
+ * Limitation des tentatives de connexion par seaux de jetons, par nom d'utilisateur et par adresse du client. Chaque
+ * tentative prend un jeton dans le seau de l'adresse et dans celui du nom d'utilisateur, et la connexion réussie les
+ * rend : seuls les échecs épuisent les seaux, qui se remplissent de nouveau avec le temps. Une tentative sans jeton est
+ * refusée avant le chargement de l'utilisateur et la comparaison BCrypt.
+ * <p>
+ * Les seaux sont des tables de taille fixe (mémoire bornée, quel que soit le nombre de noms ou d'adresses) d'entiers
+ * longs modifiés par compare-and-set, sans verrou. Un seau contient sa date de mise à jour et son nombre de jetons en
+ * millièmes. Chaque clé est répartie sur deux seaux par une fonction de hachage initialisée aléatoirement au démarrage
+ * et la tentative est autorisée si l'un d'eux a un jeton : une collision ne prive pas une clé de ses tentatives tant
+ * que son second seau n'est pas épuisé, et les collisions ne peuvent pas être calculées à l'avance.
+ *
+ * @author Vincent Otchoun
+ */
+@Component
+public class LoginThrottle implements MeterBinder
+{
+    //
+    private static final String THROTTLED_MSG = "Trop de tentatives de connexion, veuillez réessayer plus tard.";
+    private static final String REJECTED_COUNTER = "security.login.throttle.rejected";
+
+    private final boolean enabled;
+    private final LongSupplier nanoClock;
+    private final long originNanos;
+    private final long seed = new SecureRandom().nextLong();
+    private final BucketTable usernames;
+    private final BucketTable addresses;
+    private final CompositeMeterRegistry registry = new CompositeMeterRegistry();
+    private final Counter usernameRejections;
+    private final Counter addressRejections;
+
+    /**
+     * Constructeur avec en paramètres les beans pour injection.
+     *
+     * @param pSecurityProps les propriétés de sécurisation du serveur.
+     */
+    @Autowired
+    public LoginThrottle(final ServerSecurityProps pSecurityProps)
+    {
+        this(pSecurityProps, System::nanoTime);
+    }
+
+    /**
+     * Constructeur avec en paramètres les propriétés et l'horloge.
+     *
+     * @param pSecurityProps les propriétés de sécurisation du serveur.
+     * @param pNanoClock     l'horloge monotone en nanosecondes.
+     */
+    LoginThrottle(final ServerSecurityProps pSecurityProps, final LongSupplier pNanoClock)
+    {
+        final var throttleProps = pSecurityProps.getLoginThrottle();
+        this.enabled = throttleProps.isEnabled();
+        this.nanoClock = pNanoClock;
+        this.originNanos = pNanoClock.getAsLong();
+        final int slots = Integer.highestOneBit(Math.max(2, throttleProps.getSlots()));
+        this.usernames = new BucketTable(slots, throttleProps.getUsernameCapacity(), throttleProps.getUsernameRefillPerMinute());
+        this.addresses = new BucketTable(slots, throttleProps.getAddressCapacity(), throttleProps.getAddressRefillPerMinute());
+        this.usernameRejections = this.counter("username");
+        this.addressRejections = this.counter("address");
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry pRegistry)
+    {
+        this.registry.add(pRegistry);
+    }
+
+    /**
+     * Prendre un jeton pour la tentative de connexion.
+     *
+     * @param pUsername      l'identifiant de connexion (nom d'utilisateur ou email, sans distinction de casse).
+     * @param pClientAddress l'adresse du client, null si elle est inconnue.
+     * @throws LoginThrottledException si le nom d'utilisateur ou l'adresse n'a plus de tentative.
+     */
+    public void acquire(final String pUsername, final String pClientAddress)
+    {
+        if (!this.enabled)
+        {
+            return;
+        }
+        final long now = this.now();
+        final long addressHash = pClientAddress != null ? this.hash(pClientAddress) : 0L;
+        if (pClientAddress != null && !this.addresses.take(addressHash, now))
+        {
+            this.addressRejections.increment();
+            throw new LoginThrottledException(THROTTLED_MSG);
+        }
+        if (!this.usernames.take(this.hash(pUsername), now))
+        {
+            if (pClientAddress != null)
+            {
+                this.addresses.give(addressHash, now);
+            }
+            this.usernameRejections.increment();
+            throw new LoginThrottledException(THROTTLED_MSG);
+        }
+    }
+
+    /**
+     * Rendre le jeton de la tentative de connexion réussie.
+     *
+     * @param pUsername      l'identifiant de connexion.
+     * @param pClientAddress l'adresse du client, null si elle est inconnue.
+     */
+    public void release(final String pUsername, final String pClientAddress)
+    {
+        if (!this.enabled)
+        {
+            return;
+        }
+        final long now = this.now();
+        this.usernames.give(this.hash(pUsername), now);
+        if (pClientAddress != null)
+        {
+            this.addresses.give(this.hash(pClientAddress), now);
+        }
+    }
+
+    /**
+     * Obtenir l'instant courant en millisecondes depuis la création, à partir de 1 : un seau vide (0) n'a jamais servi.
+     *
+     * @return l'instant courant.
+     */
+    private long now()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(this.nanoClock.getAsLong() - this.originNanos) + 1;
+    }
+
+    /**
+     * Hacher la clé sans distinction de casse (FNV-1a initialisé aléatoirement, puis mélange final de MurmurHash3).
+     *
+     * @param pKey la clé, null équivaut à la chaîne vide.
+     * @return le hachage sur 64 bits.
+     */
+    private long hash(final String pKey)
+    {
+        long hash = this.seed;
+        if (pKey != null)
+        {
+            for (int i = 0; i < pKey.length(); i++)
+            {
+                hash ^= Character.toLowerCase(pKey.charAt(i));
+                hash *= 0x100000001B3L;
+            }
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private Counter counter(final String pKey)
+    {
+        return Counter.builder(REJECTED_COUNTER)//
+        .description("Nombre de tentatives de connexion refusées avant l'authentification, par clé épuisée")//
+        .tag("key", pKey)//
+        .register(this.registry);
+    }
+
+    /**
+     * Table de taille fixe de seaux de jetons. Un seau est un entier long : la date de son dernier remplissage en
+     * millisecondes (bits de poids fort) et son nombre de jetons en millièmes (22 bits de poids faible).
+     * <p>
+     * Le remplissage se fait par pas entiers (par exemple 1 millième toutes les 12 ms pour 5 jetons par minute) et la
+     * date n'avance que de la durée des pas ajoutés : le reste est conservé, et des tentatives rapprochées n'empêchent
+     * pas le seau de se remplir.
+     */
+    private static final class BucketTable
+    {
+        private static final int TIME_SHIFT = 22;
+        private static final long TOKENS_MASK = (1L << TIME_SHIFT) - 1;
+        private static final long TOKEN = 1000L; // un jeton en millièmes.
+
+        private final AtomicLongArray buckets;
+        private final int mask;
+        private final long capacity; // nombre maximal de jetons en millièmes.
+        private final long stepMillis; // durée d'un pas de remplissage.
+        private final long stepTokens; // jetons regagnés par pas de remplissage, en millièmes.
+        private final long fullRefillMillis; // durée du remplissage d'un seau vide.
+
+        private BucketTable(final int pSlots, final int pCapacity, final int pRefillPerMinute)
+        {
+            this.buckets = new AtomicLongArray(pSlots);
+            this.mask = pSlots - 1;
+            this.capacity = Math.min(TOKENS_MASK / TOKEN, Math.max(1, pCapacity)) * TOKEN;
+            // refillPerMinute * TOKEN millièmes par 60 000 ms, soit refillPerMinute millièmes par 60 ms, réduits.
+            final long refillPerMinute = Math.max(1, pRefillPerMinute);
+            final long divisor = BigInteger.valueOf(refillPerMinute).gcd(BigInteger.valueOf(60)).longValue();
+            this.stepMillis = 60 / divisor;
+            this.stepTokens = refillPerMinute / divisor;
+            this.fullRefillMillis = this.capacity * 60 / refillPerMinute;
+        }
+
+        /**
+         * Prendre un jeton dans les deux seaux de la clé.
+         *
+         * @param pHash le hachage de la clé.
+         * @param pNow  l'instant courant.
+         * @return true si l'un des seaux avait un jeton, false sinon.
+         */
+        private boolean take(final long pHash, final long pNow)
+        {
+            final boolean first = this.take((int) pHash & this.mask, pNow);
+            final boolean second = this.take((int) (pHash >>> 32) & this.mask, pNow);
+            return first || second;
+        }
+
+        private boolean take(final int pIndex, final long pNow)
+        {
+            while (true)
+            {
+                final long bucket = this.buckets.get(pIndex);
+                final long refilled = this.refill(bucket, pNow);
+                final boolean taken = (refilled & TOKENS_MASK) >= TOKEN;
+                if (this.buckets.compareAndSet(pIndex, bucket, taken ? refilled - TOKEN : refilled))
+                {
+                    return taken;
+                }
+            }
+        }
+
+        /**
+         * Rendre un jeton aux deux seaux de la clé.
+         *
+         * @param pHash le hachage de la clé.
+         * @param pNow  l'instant courant.
+         */
+        private void give(final long pHash, final long pNow)
+        {
+            this.give((int) pHash & this.mask, pNow);
+            this.give((int) (pHash >>> 32) & this.mask, pNow);
+        }
+
+        private void give(final int pIndex, final long pNow)
+        {
+            while (true)
+            {
+                final long bucket = this.buckets.get(pIndex);
+                final long refilled = this.refill(bucket, pNow);
+                final long tokens = (refilled & TOKENS_MASK) + TOKEN;
+                // Seau plein : il ne se remplit plus, sa date est celle de l'instant courant.
+                final long given = tokens < this.capacity ? refilled + TOKEN : Math.max(pNow, refilled >>> TIME_SHIFT) << TIME_SHIFT
+                | this.capacity;
+                if (this.buckets.compareAndSet(pIndex, bucket, given))
+                {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Remplir le seau jusqu'à l'instant courant, par pas entiers.
+         *
+         * @param pBucket le seau.
+         * @param pNow    l'instant courant.
+         * @return le seau rempli : date avancée de la durée des pas ajoutés, ou instant courant s'il est plein.
+         */
+        private long refill(final long pBucket, final long pNow)
+        {
+            if (pBucket == 0L)
+            {
+                return pNow << TIME_SHIFT | this.capacity; // Seau jamais utilisé : plein.
+            }
+            final long tokens = pBucket & TOKENS_MASK;
+            final long refilledAt = pBucket >>> TIME_SHIFT;
+            if (tokens >= this.capacity)
+            {
+                return Math.max(pNow, refilledAt) << TIME_SHIFT | this.capacity; // Un seau plein ne se remplit plus.
+            }
+            final long elapsed = pNow - refilledAt;
+            if (elapsed < this.stepMillis)
+            {
+                return pBucket; // Aucun pas écoulé, ou instant antérieur relevé par un autre thread.
+            }
+            final long steps = elapsed / this.stepMillis;
+            if (elapsed >= this.fullRefillMillis || tokens + steps * this.stepTokens >= this.capacity)
+            {
+                return pNow << TIME_SHIFT | this.capacity;
+            }
+            return refilledAt + steps * this.stepMillis << TIME_SHIFT | tokens + steps * this.stepTokens;
+        }
+    }
+}
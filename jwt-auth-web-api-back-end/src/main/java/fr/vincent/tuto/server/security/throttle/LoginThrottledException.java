@@ -0,0 +1,39 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : LoginThrottledException.java
+ * Date de création : 9 mars 2021
+ * Heure de création : 20:23:40
+ * Package : fr.vincent.tuto.server.security.throttle
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.security.throttle;
+
+import org.springframework.security.authentication.AccountStatusException;
+
+/**
+ * Tentative de connexion refusée par le {@link LoginThrottle} avant le chargement de l'utilisateur et la comparaison
+ * du mot de passe. En tant que {@link AccountStatusException}, elle interrompt l'authentification sans consulter les
+ * autres fournisseurs.
+ *
+ * @author Vincent Otchoun
+ */
+public class LoginThrottledException extends AccountStatusException
+{
+    /**
+     * 
+     */
+    private static final long serialVersionUID = 4286911379427156328L;
+
+    /**
+     * Constructeur avec en paramètre le message de l'erreur.
+     *
+     * @param pMessage le message de l'erreur.
+     */
+    public LoginThrottledException(final String pMessage)
+    {
+        super(pMessage);
+    }
+}
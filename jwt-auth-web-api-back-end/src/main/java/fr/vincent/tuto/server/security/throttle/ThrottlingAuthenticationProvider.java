@@ -0,0 +1,84 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : ThrottlingAuthenticationProvider.java
+ * Date de création : 9 mars 2021
+ * Heure de création : 20:49:31
+ * Package : fr.vincent.tuto.server.security.throttle
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.security.throttle;
+
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * Fournisseur d'authentification qui soumet chaque tentative au {@link LoginThrottle} avant de la confier au fournisseur
+ * délégué (chargement de l'utilisateur et comparaison BCrypt). Le jeton de la tentative est rendu si l'authentification
+ * réussit. L'adresse du client est celle des détails de l'authentification ou, à défaut, celle de la requête courante.
+ *
+ * @author Vincent Otchoun
+ */
+public class ThrottlingAuthenticationProvider implements AuthenticationProvider
+{
+    //
+    private final AuthenticationProvider delegate;
+    private final LoginThrottle loginThrottle;
+
+    /**
+     * Constructeur avec en paramètres le fournisseur délégué et la limitation des tentatives.
+     *
+     * @param pDelegate      le fournisseur d'authentification délégué.
+     * @param pLoginThrottle la limitation des tentatives de connexion.
+     */
+    public ThrottlingAuthenticationProvider(final AuthenticationProvider pDelegate, final LoginThrottle pLoginThrottle)
+    {
+        this.delegate = pDelegate;
+        this.loginThrottle = pLoginThrottle;
+    }
+
+    @Override
+    public Authentication authenticate(final Authentication pAuthentication)
+    {
+        final var username = pAuthentication.getName();
+        final var clientAddress = clientAddressOf(pAuthentication);
+        this.loginThrottle.acquire(username, clientAddress);
+        final var result = this.delegate.authenticate(pAuthentication);
+        if (result != null)
+        {
+            this.loginThrottle.release(username, clientAddress);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean supports(final Class<?> pAuthentication)
+    {
+        return this.delegate.supports(pAuthentication);
+    }
+
+    /**
+     * Obtenir l'adresse du client de la tentative de connexion.
+     *
+     * @param pAuthentication la demande d'authentification.
+     * @return l'adresse du client, null si elle est inconnue.
+     */
+    public static String clientAddressOf(final Authentication pAuthentication)
+    {
+        if (pAuthentication.getDetails() instanceof WebAuthenticationDetails)
+        {
+            return ((WebAuthenticationDetails) pAuthentication.getDetails()).getRemoteAddress();
+        }
+        final var attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes)
+        {
+            return ((ServletRequestAttributes) attributes).getRequest().getRemoteAddr();
+        }
+        return null;
+    }
+}
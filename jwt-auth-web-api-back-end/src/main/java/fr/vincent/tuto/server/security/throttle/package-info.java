@@ -0,0 +1,17 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : package-info.java
+ * Date de création : 9 mars 2021
+ * Heure de création : 20:21:09
+ * Package : fr.vincent.tuto.server.security.throttle
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+/**
+ * Limitation des tentatives de connexion par mot de passe.
+ *
+ * @author Vincent Otchoun
+ */
+package fr.vincent.tuto.server.security.throttle;
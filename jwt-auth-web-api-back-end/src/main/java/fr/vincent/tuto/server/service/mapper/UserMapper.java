@@ -13,19 +13,22 @@ package fr.vincent.tuto.server.service.mapper;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import fr.vincent.tuto.common.mapper.GenericObjectMapper;
 import fr.vincent.tuto.server.enumeration.RoleEnum;
 import fr.vincent.tuto.server.model.dto.UserDTO;
 import fr.vincent.tuto.server.model.po.User;
+import fr.vincent.tuto.server.security.crypto.PasswordHasher;
+import fr.vincent.tuto.server.util.AuthorityRegistry;
 
 /**
  * Service de conversion/transformation d'un objet de type {@link User} en son objet de tranfert de ses données
@@ -37,18 +40,19 @@ import fr.vincent.tuto.server.model.po.User;
 public class UserMapper extends GenericObjectMapper<User, UserDTO>
 {
     //
-    private final BCryptPasswordEncoder passwordEncoder;
+    private final PasswordEncoder passwordEncoder;
 
     /**
      * Constructeur avec paramètres pour injection du beans en dépendances.
      * 
-     * @param pModelMapper le bean de conversion des modèles selon le type.
+     * @param pPasswordHasher le service de chiffrement des mots de passe dans son pool de threads dédié.
+     * @param pModelMapper    le bean de conversion des modèles selon le type.
      */
     @Autowired
-    protected UserMapper(final BCryptPasswordEncoder pPasswordEncoder, final ModelMapper pModelMapper)
+    protected UserMapper(final PasswordHasher pPasswordHasher, final ModelMapper pModelMapper)
     {
         super(pModelMapper);
-        this.passwordEncoder = pPasswordEncoder;
+        this.passwordEncoder = pPasswordHasher.asPasswordEncoder();
     }
 
     @Override
@@ -59,7 +63,7 @@ public class UserMapper extends GenericObjectMapper<User, UserDTO>
             return null;
         }
 
-        // Chiffer le mot de passe avant la persistance
+        // Chiffer le mot de passe avant la persistance (dans le pool de threads dédié, attente bornée)
         final var userPassword = pUserDTO.getPassword();
         final var encryptedPassword = this.passwordEncoder.encode(userPassword);
 
@@ -69,7 +73,7 @@ public class UserMapper extends GenericObjectMapper<User, UserDTO>
         .stream()//
         .filter(Objects::nonNull)//
         .map(RoleEnum::valueOf)//
-        .collect(Collectors.toSet())//
+        .collect(Collectors.toCollection(() -> EnumSet.noneOf(RoleEnum.class)))//
         ;
 
         return this.modelMapper.map(UserDTO.class, User.UserBuilder.class)//
@@ -107,14 +111,8 @@ public class UserMapper extends GenericObjectMapper<User, UserDTO>
             return null;
         }
 
-        // Récupérer les rôles de l'utilisateur sous forme de chaîne de caractères
-        final var roles = Optional.ofNullable(pUser.getRoles())//
-        .orElseGet(Collections::emptySet)//
-        .stream()//
-        .filter(Objects::nonNull)//
-        .map(RoleEnum::getAuthority)//
-        .collect(Collectors.toSet())//
-        ;
+        // Récupérer les rôles de l'utilisateur sous forme de chaîne de caractères (ensemble partagé par combinaison de rôles)
+        final var roles = AuthorityRegistry.authorityNames(pUser.getRoles());
 
         return this.modelMapper.map(User.class, UserDTO.UserDTOBuilder.class)//
         .id(pUser.getId())//
@@ -0,0 +1,505 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : UserProvisioningService.java
+ * Date de création : 9 mars 2021
+ * Heure de création : 22:04:12
+ * Package : fr.vincent.tuto.server.service.user
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.service.user;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import fr.vincent.tuto.common.exception.CustomAppException;
+import fr.vincent.tuto.server.config.cache.UserLookupCache;
+import fr.vincent.tuto.server.config.props.ServerSecurityProps;
+import fr.vincent.tuto.server.dao.UserBatchDAO;
+import fr.vincent.tuto.server.enumeration.RoleEnum;
+import fr.vincent.tuto.server.model.dto.UserDTO;
+import fr.vincent.tuto.server.model.po.User;
+import fr.vincent.tuto.server.security.cache.UserDetailsCache;
+import fr.vincent.tuto.server.security.crypto.PasswordHasher;
+import fr.vincent.tuto.server.util.AuthorityRegistry;
+import fr.vincent.tuto.server.util.ServerUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Création en masse des utilisateurs du SI à partir d'un flux de {@link UserDTO} (tableau JSON ou une valeur JSON par
+ * ligne). Le flux est lu et traité par lots de taille bornée : les utilisateurs de chaque lot sont validés par les
+ * contraintes du {@link UserDTO}, comparés aux utilisateurs existants en deux requêtes (sans distinction de casse), leurs mots de passe chiffrés en parallèle dans un pool dédié (un thread
+ * par processeur, sans occuper le pool de chiffrement des connexions), puis insérés en un lot JDBC dans une
+ * transaction. Si le lot est refusé par la base de données (utilisateur créé entre-temps), ses utilisateurs sont
+ * insérés un par un : seule la violation d'une contrainte d'unicité est signalée comme un doublon.
+ * <p>
+ * Au-delà de {@code maxRows} utilisateurs, la lecture du flux s'arrête : le reste du flux n'est pas analysé et un seul
+ * résultat REJECTED est écrit, à l'index du premier utilisateur refusé.
+ * <p>
+ * Le résultat de chaque utilisateur est écrit dans l'ordre du flux, une ligne JSON par utilisateur, dès la fin de son
+ * lot : {"index":i,"username":"...","status":"CREATED"} et, en cas d'échec, un message. Le compteur
+ * users.provisioning.rows (étiquette status) compte les utilisateurs par résultat.
+ *
+ * @author Vincent Otchoun
+ */
+@Slf4j
+@Service
+public class UserProvisioningService implements MeterBinder, DisposableBean
+{
+    //
+    private static final String THREAD_NAME = "user-provisioning-";
+    private static final String ROWS_COUNTER = "users.provisioning.rows";
+    private static final String READ_ERR_MSG = "Erreur lors de la lecture du flux des utilisateurs à créer.";
+    private static final String INTERRUPTED_ERR_MSG = "Création en masse des utilisateurs interrompue.";
+    private static final String BATCH_ERR_MSG = "Lot d'utilisateurs refusé par la base de données, insertion un par un : {}";
+    private static final String INSERT_ERR_MSG = "Erreur lors de l'insertion de l'utilisateur : {}";
+
+    private static final String UNREADABLE_MSG = "Utilisateur illisible : ";
+    private static final String MAX_ROWS_MSG = "Nombre maximal d'utilisateurs par appel atteint, les utilisateurs suivants ne sont pas lus.";
+    private static final String USERNAME_DUPLICATE_MSG = "Nom d'utilisateur déjà utilisé.";
+    private static final String EMAIL_DUPLICATE_MSG = "Adresse email déjà utilisée.";
+    private static final String ALREADY_EXISTS_MSG = "Nom d'utilisateur ou adresse email déjà utilisé.";
+    private static final String HASH_ERR_MSG = "Erreur lors du chiffrement du mot de passe.";
+    private static final String INSERT_FAILED_MSG = "Erreur lors de l'enregistrement de l'utilisateur.";
+
+    /**
+     * Résultat de la création d'un utilisateur.
+     */
+    public enum RowStatus
+    {
+        CREATED, // utilisateur créé.
+        DUPLICATE, // nom d'utilisateur ou email déjà utilisé, en base ou plus haut dans le flux.
+        INVALID, // utilisateur illisible ou invalide.
+        REJECTED, // au-delà du nombre maximal d'utilisateurs par appel : le reste du flux n'est pas lu.
+        FAILED // erreur de chiffrement ou d'enregistrement.
+    }
+
+    private final PasswordHasher passwordHasher;
+    private final UserBatchDAO userBatchDAO;
+    private final UserDetailsCache userDetailsCache;
+    private final UserLookupCache userLookupCache;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final ServerSecurityProps.UserProvisioningProps provisioningProps;
+    private final ThreadPoolExecutor executor;
+    private final CompositeMeterRegistry registry = new CompositeMeterRegistry();
+    private final Map<RowStatus, Counter> counters = new EnumMap<>(RowStatus.class);
+
+    /**
+     * Constructeur avec en paramètres les beans pour injection.
+     *
+     * @param pPasswordHasher     le service de chiffrement des mots de passe.
+     * @param pUserBatchDAO       le dépôt JDBC des écritures en masse des utilisateurs.
+     * @param pUserDetailsCache   le cache des utilisateurs de Spring Security.
+     * @param pUserLookupCache    le cache des utilisateurs par nom d'utilisateur et par email.
+     * @param pTransactionManager le gestionnaire des transactions.
+     * @param pObjectMapper       le convertisseur JSON.
+     * @param pValidator          le validateur des utilisateurs à créer.
+     * @param pSecurityProps      les propriétés de sécurisation du serveur.
+     */
+    public UserProvisioningService(final PasswordHasher pPasswordHasher, final UserBatchDAO pUserBatchDAO, final UserDetailsCache pUserDetailsCache,
+    final UserLookupCache pUserLookupCache, final PlatformTransactionManager pTransactionManager, final ObjectMapper pObjectMapper,
+    final Validator pValidator, final ServerSecurityProps pSecurityProps)
+    {
+        this.passwordHasher = pPasswordHasher;
+        this.userBatchDAO = pUserBatchDAO;
+        this.userDetailsCache = pUserDetailsCache;
+        this.userLookupCache = pUserLookupCache;
+        this.transactionTemplate = new TransactionTemplate(pTransactionManager);
+        this.objectMapper = pObjectMapper;
+        this.validator = pValidator;
+        this.provisioningProps = pSecurityProps.getUserProvisioning();
+
+        final int configured = this.provisioningProps.getParallelism();
+        final int parallelism = configured > 0 ? configured : Runtime.getRuntime().availableProcessors();
+        final var threadCount = new AtomicInteger();
+        // File bornée et exécution par l'appelant lorsqu'elle est pleine : plusieurs appels simultanés ne font que ralentir.
+        this.executor = new ThreadPoolExecutor(parallelism, parallelism, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(Math.max(1,
+        this.chunkSize())), runnable -> {
+            final var thread = new Thread(runnable, THREAD_NAME + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+
+        for (final RowStatus status : RowStatus.values())
+        {
+            this.counters.put(status, Counter.builder(ROWS_COUNTER)//
+            .tag("status", status.name().toLowerCase())//
+            .description("Nombre d'utilisateurs traités par la création en masse")//
+            .register(this.registry));
+        }
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry pRegistry)
+    {
+        this.registry.add(pRegistry);
+    }
+
+    @Override
+    public void destroy() throws Exception
+    {
+        this.executor.shutdownNow();
+        this.executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Créer les utilisateurs lus dans le flux d'entrée et écrire leurs résultats dans le flux de sortie, une ligne JSON
+     * par utilisateur dans l'ordre du flux. Une erreur de syntaxe JSON interrompt la lecture après l'écriture des
+     * résultats des utilisateurs déjà lus. La lecture s'arrête aussi au-delà du nombre maximal d'utilisateurs par appel.
+     *
+     * @param pInput  le flux des utilisateurs à créer (mots de passe en clair).
+     * @param pOutput le flux des résultats.
+     * @throws IOException en cas d'erreur d'écriture dans le flux de sortie.
+     */
+    public void provision(final InputStream pInput, final OutputStream pOutput) throws IOException
+    {
+        final int chunkSize = this.chunkSize();
+        final int maxRows = this.provisioningProps.getMaxRows();
+        final Set<String> usernames = new HashSet<>();
+        final Set<String> emails = new HashSet<>();
+        final List<Row> chunk = new ArrayList<>(chunkSize);
+        final JsonGenerator generator = this.objectMapper.getFactory().createGenerator(pOutput);
+        try (MappingIterator<UserDTO> values = this.objectMapper.readerFor(UserDTO.class).readValues(pInput))
+        {
+            int index = 0;
+            while (this.hasNext(values, chunk, generator))
+            {
+                final var row = new Row(index++);
+                if (row.index >= maxRows)
+                {
+                    // Le reste du flux n'est ni lu ni analysé : un seul résultat pour tous les utilisateurs refusés.
+                    row.reject(RowStatus.REJECTED, MAX_ROWS_MSG);
+                    chunk.add(row);
+                    break;
+                }
+                try
+                {
+                    row.dto = values.nextValue();
+                }
+                catch (JsonMappingException e)
+                {
+                    row.reject(RowStatus.INVALID, UNREADABLE_MSG + e.getOriginalMessage());
+                }
+                if (row.status == null)
+                {
+                    this.validate(row, usernames, emails);
+                }
+                chunk.add(row);
+                if (chunk.size() >= chunkSize)
+                {
+                    this.process(chunk, generator);
+                }
+            }
+            this.process(chunk, generator);
+        }
+    }
+
+    /**
+     * Indiquer si le flux contient un autre utilisateur. En cas d'erreur de syntaxe, les résultats du lot en cours sont
+     * écrits avant l'interruption.
+     */
+    private boolean hasNext(final MappingIterator<UserDTO> pValues, final List<Row> pChunk, final JsonGenerator pGenerator) throws IOException
+    {
+        try
+        {
+            return pValues.hasNextValue();
+        }
+        catch (IOException e)
+        {
+            this.process(pChunk, pGenerator);
+            throw new CustomAppException(READ_ERR_MSG, e);
+        }
+    }
+
+    /**
+     * Valider l'utilisateur par les contraintes du {@link UserDTO} et vérifier que son nom d'utilisateur et son email
+     * n'apparaissent pas plus haut dans le flux (sans distinction de casse). Le message est celui de la première
+     * contrainte non respectée, par ordre des propriétés.
+     *
+     * @param pRow       la ligne à valider.
+     * @param pUsernames les noms d'utilisateurs déjà retenus, en minuscules.
+     * @param pEmails    les adresses email déjà retenues, en minuscules.
+     */
+    private void validate(final Row pRow, final Set<String> pUsernames, final Set<String> pEmails)
+    {
+        final var dto = pRow.dto;
+        if (dto == null)
+        {
+            pRow.reject(RowStatus.INVALID, UNREADABLE_MSG + "null");
+            return;
+        }
+        final var violation = this.validator.validate(dto).stream()//
+        .min(Comparator.<ConstraintViolation<UserDTO>, String> comparing(v -> v.getPropertyPath().toString())//
+        .thenComparing(ConstraintViolation::getMessage));
+        if (violation.isPresent())
+        {
+            pRow.reject(RowStatus.INVALID, violation.get().getMessage());
+            return;
+        }
+        final var username = dto.getUsername();
+        final var email = dto.getEmail();
+        final var roles = EnumSet.noneOf(RoleEnum.class);
+        dto.getRoles().forEach(name -> roles.add(AuthorityRegistry.roleOf(name)));
+        final var usernameKey = ServerUtil.LOWER_CASE.apply(username);
+        if (!pUsernames.add(usernameKey))
+        {
+            pRow.reject(RowStatus.DUPLICATE, USERNAME_DUPLICATE_MSG);
+            return;
+        }
+        if (!pEmails.add(ServerUtil.LOWER_CASE.apply(email)))
+        {
+            pUsernames.remove(usernameKey);
+            pRow.reject(RowStatus.DUPLICATE, EMAIL_DUPLICATE_MSG);
+            return;
+        }
+        pRow.roles = roles;
+    }
+
+    /**
+     * Traiter le lot : écarter les utilisateurs existants, chiffrer les mots de passe en parallèle, insérer le lot,
+     * vider les caches des utilisateurs créés et écrire les résultats. Le lot est vidé.
+     *
+     * @param pChunk     les lignes du lot.
+     * @param pGenerator le générateur JSON du flux des résultats.
+     * @throws IOException en cas d'erreur d'écriture dans le flux de sortie.
+     */
+    private void process(final List<Row> pChunk, final JsonGenerator pGenerator) throws IOException
+    {
+        if (pChunk.isEmpty())
+        {
+            return;
+        }
+        this.rejectExisting(pChunk);
+        final var pending = this.hash(pChunk);
+        if (!pending.isEmpty())
+        {
+            this.insert(pending);
+        }
+        for (final Row row : pChunk)
+        {
+            if (row.status == RowStatus.CREATED)
+            {
+                this.userLookupCache.evict(row.user.getUsername(), row.user.getEmail());
+                this.userDetailsCache.evict(row.user.getUsername(), row.user.getEmail());
+            }
+            this.counters.get(row.status).increment();
+            write(row, pGenerator);
+        }
+        pGenerator.flush();
+        pChunk.clear();
+    }
+
+    /**
+     * Ecarter les utilisateurs dont le nom d'utilisateur ou l'email est déjà enregistré, sans distinction de casse.
+     *
+     * @param pChunk les lignes du lot.
+     */
+    private void rejectExisting(final List<Row> pChunk)
+    {
+        final var candidates = pChunk.stream().filter(Row::isPending).collect(Collectors.toList());
+        if (candidates.isEmpty())
+        {
+            return;
+        }
+        final var existingUsernames = this.userBatchDAO.findExistingUsernames(candidates.stream().map(row -> row.dto.getUsername()).collect(
+        Collectors.toList()));
+        final var existingEmails = this.userBatchDAO.findExistingEmails(candidates.stream().map(row -> row.dto.getEmail()).collect(Collectors
+        .toList()));
+        for (final Row row : candidates)
+        {
+            if (existingUsernames.contains(ServerUtil.LOWER_CASE.apply(row.dto.getUsername())))
+            {
+                row.reject(RowStatus.DUPLICATE, USERNAME_DUPLICATE_MSG);
+            }
+            else if (existingEmails.contains(ServerUtil.LOWER_CASE.apply(row.dto.getEmail())))
+            {
+                row.reject(RowStatus.DUPLICATE, EMAIL_DUPLICATE_MSG);
+            }
+        }
+    }
+
+    /**
+     * Chiffrer en parallèle les mots de passe des utilisateurs retenus du lot et construire les utilisateurs à insérer.
+     * Le mot de passe en clair n'est pas conservé.
+     *
+     * @param pChunk les lignes du lot.
+     * @return les lignes dont l'utilisateur est prêt à être inséré.
+     */
+    private List<Row> hash(final List<Row> pChunk)
+    {
+        final List<Row> pending = new ArrayList<>(pChunk.size());
+        final List<Future<String>> passwords = new ArrayList<>(pChunk.size());
+        for (final Row row : pChunk)
+        {
+            if (row.isPending())
+            {
+                final var rawPassword = row.dto.getPassword();
+                row.dto.setPassword(null);
+                pending.add(row);
+                passwords.add(this.executor.submit(() -> this.passwordHasher.encodeNow(rawPassword)));
+            }
+        }
+        final List<Row> ready = new ArrayList<>(pending.size());
+        for (int i = 0; i < pending.size(); i++)
+        {
+            final var row = pending.get(i);
+            try
+            {
+                row.user = User.builder()//
+                .username(row.dto.getUsername())//
+                .password(passwords.get(i).get())//
+                .email(row.dto.getEmail())//
+                .accountExpired(Boolean.FALSE)//
+                .accountLocked(Boolean.FALSE)//
+                .credentialsExpired(Boolean.FALSE)//
+                .enabled(Boolean.TRUE)//
+                .roles(row.roles)//
+                .build();
+                ready.add(row);
+            }
+            catch (InterruptedException e)
+            {
+                passwords.forEach(future -> future.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new CustomAppException(INTERRUPTED_ERR_MSG, e);
+            }
+            catch (ExecutionException e)
+            {
+                log.error(HASH_ERR_MSG, e.getCause());
+                row.reject(RowStatus.FAILED, HASH_ERR_MSG);
+            }
+        }
+        return ready;
+    }
+
+    /**
+     * Insérer les utilisateurs en un lot JDBC dans une transaction ; si le lot est refusé, les insérer un par un, chacun
+     * dans sa transaction.
+     *
+     * @param pRows les lignes dont l'utilisateur est prêt à être inséré.
+     */
+    private void insert(final List<Row> pRows)
+    {
+        final var users = pRows.stream().map(row -> row.user).collect(Collectors.toList());
+        try
+        {
+            this.transactionTemplate.executeWithoutResult(status -> this.userBatchDAO.insertAll(users));
+            pRows.forEach(row -> row.status = RowStatus.CREATED);
+            return;
+        }
+        catch (DataAccessException e)
+        {
+            log.warn(BATCH_ERR_MSG, e.getMessage());
+        }
+        for (final Row row : pRows)
+        {
+            try
+            {
+                this.transactionTemplate.executeWithoutResult(status -> this.userBatchDAO.insertAll(List.of(row.user)));
+                row.status = RowStatus.CREATED;
+            }
+            catch (DuplicateKeyException e)
+            {
+                row.reject(RowStatus.DUPLICATE, ALREADY_EXISTS_MSG);
+            }
+            catch (DataAccessException e)
+            {
+                log.error(INSERT_ERR_MSG, row.user.getUsername(), e);
+                row.reject(RowStatus.FAILED, INSERT_FAILED_MSG);
+            }
+        }
+    }
+
+    private int chunkSize()
+    {
+        return Math.max(1, this.provisioningProps.getChunkSize());
+    }
+
+    /**
+     * Ecrire le résultat de la ligne : {"index":i,"username":"...","status":"...","message":"..."}.
+     */
+    private static void write(final Row pRow, final JsonGenerator pGenerator) throws IOException
+    {
+        pGenerator.writeStartObject();
+        pGenerator.writeNumberField("index", pRow.index);
+        if (pRow.dto != null && pRow.dto.getUsername() != null)
+        {
+            pGenerator.writeStringField("username", pRow.dto.getUsername());
+        }
+        pGenerator.writeStringField("status", pRow.status.name());
+        if (pRow.message != null)
+        {
+            pGenerator.writeStringField("message", pRow.message);
+        }
+        pGenerator.writeEndObject();
+        pGenerator.writeRaw('\n');
+    }
+
+    /**
+     * Utilisateur lu dans le flux et son résultat.
+     */
+    private static final class Row
+    {
+        private final int index; // position dans le flux.
+        private UserDTO dto; // utilisateur lu, null s'il est illisible.
+        private Set<RoleEnum> roles; // rôles validés.
+        private User user; // utilisateur à insérer, mot de passe chiffré.
+        private RowStatus status; // résultat, null tant que l'utilisateur est en cours de création.
+        private String message; // motif de l'échec.
+
+        private Row(final int pIndex)
+        {
+            this.index = pIndex;
+        }
+
+        private boolean isPending()
+        {
+            return this.status == null;
+        }
+
+        private void reject(final RowStatus pStatus, final String pMessage)
+        {
+            this.status = pStatus;
+            this.message = pMessage;
+        }
+    }
+}
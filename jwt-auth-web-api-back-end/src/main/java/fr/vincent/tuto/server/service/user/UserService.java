@@ -12,7 +12,9 @@
 package fr.vincent.tuto.server.service.user;
 
 import java.util.Collection;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -24,12 +26,20 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.Assert;
 
 import fr.vincent.tuto.common.exception.CustomAppException;
+import fr.vincent.tuto.server.config.cache.UserLookupCache;
 import fr.vincent.tuto.server.dao.UserDAO;
+import fr.vincent.tuto.server.enumeration.RoleEnum;
 import fr.vincent.tuto.server.model.po.User;
+import fr.vincent.tuto.server.security.cache.UserDetailsCache;
+import fr.vincent.tuto.server.security.jwt.RefreshTokenStore;
+import fr.vincent.tuto.server.security.jwt.TokenRevocationList;
 import fr.vincent.tuto.server.service.contract.IUserService;
 
 /**
- * Service des fonctionnalités de gestion des utilisateurs du SI.
+ * Service des fonctionnalités de gestion des utilisateurs du SI. La modification ou la suppression d'un utilisateur
+ * révoque les jetons JWT d'accès et les jetons d'actualisation qui lui ont été émis. Toute création, modification ou suppression d'un utilisateur
+ * le supprime du cache des utilisateurs de Spring Security ({@link UserDetailsCache}) et du cache des recherches
+ * d'utilisateurs ({@link UserLookupCache}) : un utilisateur créé n'y reste pas marqué comme inconnu.
  * 
  * @author Vincent Otchoun
  */
@@ -44,16 +54,29 @@ public class UserService implements IUserService
     private static final String FIND_BY_ID_MSG = "Erreur lors de la recherche des informations d'un utilisteur et ses rôles avec son identifiant.";
 
     private final UserDAO userDAO;
+    private final TokenRevocationList tokenRevocationList;
+    private final UserDetailsCache userDetailsCache;
+    private final UserLookupCache userLookupCache;
+    private final RefreshTokenStore refreshTokenStore;
 
     /**
-     * Construteur avec paramètre pour l'injetion du bean des DAO dans le service.
+     * Construteur avec paramètres pour l'injetion des beans dans le service.
      * 
-     * @param pUserDAO le dépôt Spring Data JPA pour l'entité {@link User}
+     * @param pUserDAO             le dépôt Spring Data JPA pour l'entité {@link User}
+     * @param pTokenRevocationList la liste de révocation des jetons JWT.
+     * @param pUserDetailsCache    le cache des utilisateurs de Spring Security.
+     * @param pUserLookupCache     le cache des recherches d'utilisateurs par nom d'utilisateur ou email.
+     * @param pRefreshTokenStore   le magasin des jetons d'actualisation.
      */
     @Autowired
-    public UserService(final UserDAO pUserDAO)
+    public UserService(final UserDAO pUserDAO, final TokenRevocationList pTokenRevocationList, final UserDetailsCache pUserDetailsCache,
+    final UserLookupCache pUserLookupCache, final RefreshTokenStore pRefreshTokenStore)
     {
         this.userDAO = pUserDAO;
+        this.tokenRevocationList = pTokenRevocationList;
+        this.userDetailsCache = pUserDetailsCache;
+        this.userLookupCache = pUserLookupCache;
+        this.refreshTokenStore = pRefreshTokenStore;
     }
 
     /**
@@ -71,6 +94,7 @@ public class UserService implements IUserService
         {
             final User user = this.userDAO.save(pUser);
             Assert.notNull(user, SAVE_MSG);
+            this.evictCaches(user.getUsername(), user.getEmail());
             return user;
         }
         catch (Exception e)
@@ -257,7 +281,12 @@ public class UserService implements IUserService
         try
         {
             this.getWithRolesById(pUserId)//
-            .ifPresent(this.userDAO::delete);
+            .ifPresent(user -> {
+                this.userDAO.delete(user);
+                this.tokenRevocationList.revokeSubject(user.getUsername());
+                this.refreshTokenStore.revokeUser(user.getUsername());
+                this.evictCaches(user.getUsername(), user.getEmail());
+            });
         }
         catch (Exception e)
         {
@@ -275,9 +304,24 @@ public class UserService implements IUserService
         {
             this.getWithRolesById(pUserId)//
             .ifPresent(user -> {
+                // Etat antérieur relevé avant l'enregistrement : l'entité chargée peut être celle mise à jour.
                 final Long id = user.getId();
+                final String username = user.getUsername();
+                final String email = user.getEmail();
+                final String password = user.getPassword();
+                final Set<RoleEnum> roles = user.getRoles() != null ? Set.copyOf(user.getRoles()) : Set.of();
+                final boolean active = isActive(user);
                 pUser.setId(id);
-                this.createUser(pUser);
+                final User updated = this.createUser(pUser);
+                // Seules les modifications qui touchent à la sécurité invalident les jetons déjà émis (pas l'email).
+                if (!Objects.equals(username, updated.getUsername()) || !Objects.equals(password, updated.getPassword()) || !roles.equals(
+                updated.getRoles() != null ? Set.copyOf(updated.getRoles()) : Set.of()) || active && !isActive(updated))
+                {
+                    this.tokenRevocationList.revokeSubject(username);
+                    this.refreshTokenStore.revokeUser(username);
+                }
+                // Le nom d'utilisateur ou l'email ont pu changer : les anciennes entrées sont aussi supprimées.
+                this.evictCaches(username, email);
             });
         }
         catch (Exception e)
@@ -285,4 +329,28 @@ public class UserService implements IUserService
             throw new CustomAppException(e);
         }
     }
+
+    /**
+     * Vérifier si le compte de l'utilisateur permet de s'authentifier (activé, ni verrouillé ni expiré).
+     *
+     * @param pUser l'utilisateur.
+     * @return true si le compte est actif, false sinon.
+     */
+    private static boolean isActive(final User pUser)
+    {
+        return Boolean.TRUE.equals(pUser.getEnabled()) && !Boolean.TRUE.equals(pUser.getAccountLocked()) && !Boolean.TRUE.equals(pUser
+        .getAccountExpired()) && !Boolean.TRUE.equals(pUser.getCredentialsExpired());
+    }
+
+    /**
+     * Supprimer l'utilisateur des caches des recherches et des utilisateurs de Spring Security.
+     * 
+     * @param pUsername le nom d'utilisateur.
+     * @param pEmail    l'adresse email.
+     */
+    private void evictCaches(final String pUsername, final String pEmail)
+    {
+        this.userLookupCache.evict(pUsername, pEmail);
+        this.userDetailsCache.evict(pUsername, pEmail);
+    }
 }
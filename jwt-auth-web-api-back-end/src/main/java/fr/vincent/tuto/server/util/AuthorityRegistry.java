@@ -0,0 +1,181 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : AuthorityRegistry.java
+ * Date de création : 9 mars 2021
+ * Heure de création : 16:48:03
+ * Package : fr.vincent.tuto.server.util
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import fr.vincent.tuto.server.enumeration.RoleEnum;
+
+/**
+ * Registre des autorités des utilisateurs : une collection immuable d'autorités (les instances de {@link RoleEnum},
+ * dans l'ordre de leurs ordinaux) est calculée une fois pour chaque combinaison de rôles et retrouvée par son masque de
+ * bits des ordinaux. Les utilisateurs de mêmes rôles partagent la même collection : aucune autorité n'est allouée par
+ * requête et les comparaisons d'autorités se réduisent à des comparaisons d'identité.
+ *
+ * @author Vincent Otchoun
+ */
+public final class AuthorityRegistry
+{
+    //
+    private static final RoleEnum[] ROLES = RoleEnum.values();
+    public static final int ALL_ROLES_MASK = (1 << ROLES.length) - 1;
+
+    private static final Map<String, RoleEnum> ROLES_BY_NAME = Arrays.stream(ROLES).collect(Collectors.toUnmodifiableMap(RoleEnum::name, Function
+    .identity()));
+    private static final Set<GrantedAuthority>[] AUTHORITIES_BY_MASK = newAuthoritiesByMask();
+    private static final Set<String>[] NAMES_BY_MASK = newNamesByMask();
+
+    private AuthorityRegistry()
+    {
+        // Classe utilitaire.
+    }
+
+    /**
+     * Obtenir les autorités de la combinaison de rôles.
+     *
+     * @param pRoleMask le masque de bits des ordinaux des rôles (les bits inconnus sont ignorés).
+     * @return la collection immuable et partagée des autorités.
+     */
+    public static Set<GrantedAuthority> authorities(final int pRoleMask)
+    {
+        return AUTHORITIES_BY_MASK[pRoleMask & ALL_ROLES_MASK];
+    }
+
+    /**
+     * Obtenir les autorités des rôles.
+     *
+     * @param pRoles les rôles, null ou vide pour aucun rôle.
+     * @return la collection immuable et partagée des autorités.
+     */
+    public static Set<GrantedAuthority> authorities(final Collection<RoleEnum> pRoles)
+    {
+        return AUTHORITIES_BY_MASK[roleMask(pRoles)];
+    }
+
+    /**
+     * Obtenir les noms des autorités des rôles.
+     *
+     * @param pRoles les rôles, null ou vide pour aucun rôle.
+     * @return l'ensemble immuable et partagé des noms des autorités.
+     */
+    public static Set<String> authorityNames(final Collection<RoleEnum> pRoles)
+    {
+        return NAMES_BY_MASK[roleMask(pRoles)];
+    }
+
+    /**
+     * Obtenir une nouvelle copie modifiable des rôles de la combinaison.
+     *
+     * @param pRoleMask le masque de bits des ordinaux des rôles (les bits inconnus sont ignorés).
+     * @return les rôles.
+     */
+    public static Set<RoleEnum> roles(final int pRoleMask)
+    {
+        final var roles = EnumSet.noneOf(RoleEnum.class);
+        for (final RoleEnum role : ROLES)
+        {
+            if ((pRoleMask & 1 << role.ordinal()) != 0)
+            {
+                roles.add(role);
+            }
+        }
+        return roles;
+    }
+
+    /**
+     * Réduire les rôles à un masque de bits de leurs ordinaux.
+     *
+     * @param pRoles les rôles, null ou vide pour aucun rôle (les éléments null sont ignorés).
+     * @return le masque de bits.
+     */
+    public static int roleMask(final Collection<RoleEnum> pRoles)
+    {
+        int roleMask = 0;
+        if (pRoles != null)
+        {
+            for (final RoleEnum role : pRoles)
+            {
+                if (role != null)
+                {
+                    roleMask |= 1 << role.ordinal();
+                }
+            }
+        }
+        return roleMask;
+    }
+
+    /**
+     * Réduire les autorités à un masque de bits des ordinaux de {@link RoleEnum}.
+     *
+     * @param pAuthorities les autorités.
+     * @return le masque de bits, -1 si une autorité n'est pas un rôle connu.
+     */
+    public static int roleMaskOf(final Collection<? extends GrantedAuthority> pAuthorities)
+    {
+        int roleMask = 0;
+        for (final GrantedAuthority authority : pAuthorities)
+        {
+            final var role = roleOf(authority.getAuthority());
+            if (role == null)
+            {
+                return -1;
+            }
+            roleMask |= 1 << role.ordinal();
+        }
+        return roleMask;
+    }
+
+    /**
+     * Obtenir le rôle par son nom.
+     *
+     * @param pName le nom de l'autorité.
+     * @return le rôle, null si l'autorité n'est pas un rôle connu.
+     */
+    public static RoleEnum roleOf(final String pName)
+    {
+        return pName != null ? ROLES_BY_NAME.get(pName) : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<GrantedAuthority>[] newAuthoritiesByMask()
+    {
+        final Set<GrantedAuthority>[] authoritiesByMask = (Set<GrantedAuthority>[]) new Set<?>[ALL_ROLES_MASK + 1];
+        for (int mask = 0; mask <= ALL_ROLES_MASK; mask++)
+        {
+            authoritiesByMask[mask] = Collections.unmodifiableSet(roles(mask));
+        }
+        return authoritiesByMask;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<String>[] newNamesByMask()
+    {
+        final Set<String>[] namesByMask = (Set<String>[]) new Set<?>[ALL_ROLES_MASK + 1];
+        for (int mask = 0; mask <= ALL_ROLES_MASK; mask++)
+        {
+            final Set<String> names = new LinkedHashSet<>();
+            roles(mask).forEach(role -> names.add(role.getAuthority()));
+            namesByMask[mask] = Collections.unmodifiableSet(names);
+        }
+        return namesByMask;
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : LoginClassifier.java
+ * Date de création : 9 mars 2021
+ * Heure de création : 15:26:40
+ * Package : fr.vincent.tuto.server.util
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.util;
+
+/**
+ * Classification d'un identifiant de connexion en adresse email ou en nom d'utilisateur, en un seul parcours des
+ * caractères et sans allocation. Le résultat est celui des expressions régulières {@link ServerUtil#EMAIL_REGEX} et
+ * {@link ServerUtil#LOGIN_REGEX} appliquées à l'identifiant entier. Les méthodes sont sans état et utilisables par
+ * plusieurs threads.
+ *
+ * @author Vincent Otchoun
+ */
+public final class LoginClassifier
+{
+    // Classes des caractères ASCII.
+    private static final int ATEXT = 1; // partie locale de l'email : \w et !#$%&'*+/=?`{|}~^-
+    private static final int LOGIN = 2; // nom d'utilisateur : _.@, lettres, chiffres et -
+    private static final int LABEL = 4; // étiquette du domaine de l'email : lettres, chiffres et -
+    private static final int ALPHA = 8; // domaine de premier niveau de l'email : lettres
+
+    private static final int MIN_TLD_LENGTH = 2;
+    private static final int MAX_TLD_LENGTH = 6;
+
+    private static final byte[] CLASSES = new byte[128];
+
+    static
+    {
+        for (char c = 'a'; c <= 'z'; c++)
+        {
+            CLASSES[c] = ATEXT | LOGIN | LABEL | ALPHA;
+            CLASSES[Character.toUpperCase(c)] = ATEXT | LOGIN | LABEL | ALPHA;
+        }
+        for (char c = '0'; c <= '9'; c++)
+        {
+            CLASSES[c] = ATEXT | LOGIN | LABEL;
+        }
+        CLASSES['_'] = ATEXT | LOGIN;
+        CLASSES['-'] = ATEXT | LOGIN | LABEL;
+        CLASSES['.'] = LOGIN;
+        CLASSES['@'] = LOGIN;
+        for (final char c : "!#$%&'*+/=?`{|}~^".toCharArray())
+        {
+            CLASSES[c] = ATEXT;
+        }
+    }
+
+    // États de la reconnaissance de l'email.
+    private static final int LOCAL_START = 0; // début d'un mot de la partie locale.
+    private static final int LOCAL = 1; // dans un mot de la partie locale.
+    private static final int LABEL_START = 2; // début d'une étiquette du domaine.
+    private static final int IN_LABEL = 3; // dans une étiquette du domaine.
+    private static final int NOT_EMAIL = 4;
+
+    /**
+     * Nature d'un identifiant de connexion.
+     */
+    public enum Kind
+    {
+        EMAIL, // conforme à ServerUtil.EMAIL_REGEX.
+        USERNAME, // conforme à ServerUtil.LOGIN_REGEX, mais pas à ServerUtil.EMAIL_REGEX.
+        INVALID // conforme à aucune des deux.
+    }
+
+    private LoginClassifier()
+    {
+        // Classe utilitaire.
+    }
+
+    /**
+     * Classer l'identifiant de connexion.
+     *
+     * @param pLogin l'identifiant de connexion.
+     * @return la nature de l'identifiant, {@link Kind#INVALID} s'il est null.
+     */
+    public static Kind classify(final CharSequence pLogin)
+    {
+        if (pLogin == null)
+        {
+            return Kind.INVALID;
+        }
+        final int length = pLogin.length();
+        boolean login = true;
+        int state = LOCAL_START;
+        int domainDots = 0;
+        int tldLength = 0;
+        boolean tldAlpha = true;
+        for (int i = 0; i < length; i++)
+        {
+            final char c = pLogin.charAt(i);
+            final int classes = c < 128 ? CLASSES[c] : 0;
+            login &= (classes & LOGIN) != 0;
+            switch (state)
+            {
+                case LOCAL_START:
+                    state = (classes & ATEXT) != 0 ? LOCAL : NOT_EMAIL;
+                    break;
+                case LOCAL:
+                    if (c == '.')
+                    {
+                        state = LOCAL_START;
+                    }
+                    else if (c == '@')
+                    {
+                        state = LABEL_START;
+                    }
+                    else if ((classes & ATEXT) == 0)
+                    {
+                        state = NOT_EMAIL;
+                    }
+                    break;
+                case LABEL_START:
+                case IN_LABEL:
+                    if (c == '.' && state == IN_LABEL)
+                    {
+                        state = LABEL_START;
+                        domainDots++;
+                        tldLength = 0;
+                        tldAlpha = true;
+                    }
+                    else if ((classes & LABEL) != 0)
+                    {
+                        state = IN_LABEL;
+                        tldLength++;
+                        tldAlpha &= (classes & ALPHA) != 0;
+                    }
+                    else
+                    {
+                        state = NOT_EMAIL;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            if (state == NOT_EMAIL && !login)
+            {
+                return Kind.INVALID;
+            }
+        }
+        if (state == IN_LABEL && domainDots > 0 && tldAlpha && tldLength >= MIN_TLD_LENGTH && tldLength <= MAX_TLD_LENGTH)
+        {
+            return Kind.EMAIL;
+        }
+        return login ? Kind.USERNAME : Kind.INVALID;
+    }
+
+    /**
+     * Vérifier si l'identifiant de connexion est une adresse email.
+     *
+     * @param pLogin l'identifiant de connexion.
+     * @return true si l'identifiant est conforme à {@link ServerUtil#EMAIL_REGEX}, false sinon.
+     */
+    public static boolean isEmail(final CharSequence pLogin)
+    {
+        return classify(pLogin) == Kind.EMAIL;
+    }
+}
@@ -27,7 +27,6 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.AuthorityUtils;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.User;
 
 import com.google.common.collect.Sets;
@@ -35,6 +34,7 @@ import com.google.common.collect.Sets;
 import fr.vincent.tuto.common.constants.AppConstants;
 import fr.vincent.tuto.common.exception.CustomAppException;
 import fr.vincent.tuto.server.enumeration.RoleEnum;
+import fr.vincent.tuto.server.security.cache.CachedUserDetails;
 import lombok.experimental.UtilityClass;
 
 /**
@@ -53,6 +53,7 @@ public final class ServerUtil
     public static final String SERVER_INTERNAL_ERROR = "Erreur interne du serveur.";
     public static final String SERVER_UNAVAILABLE_MSG = "Service non disponible suite à une erreur interne du serveur.";
     public static final String ACCESS_DENIED = "Accès non autorisés.";
+    public static final String TOO_MANY_LOGINS_MSG = "Trop de tentatives de connexion.";
     
     // Catégorie de produits
     public static final String CATEGORY_NAME = "Le nom de la catégorie de produits ne peut pas être nul.";
@@ -78,6 +79,10 @@ public final class ServerUtil
     public static final String PWD_VALIDATION_MSG = "Veuillez fournir un mot de passe de 8 caractères ou plus avec au moins 1 chiffre et 1 lettre";
     public static final String EMAIL_VALIDATION_MSG = "Veuillez fournir un email valide";
 
+    // Emission des jetons en lot
+    public static final String TOKEN_SUBJECT_MSG = "Le sujet du jeton ne peut pas être null ou vide et ne contient que des lettres, chiffres et les caractères _.@-";
+    public static final String TOKEN_SCOPE_MSG = "La portée du jeton ne contient que des lettres, chiffres et les caractères _.:-";
+
     public static final String ACCOUNT_MSG_DEF = "Indique si le compte de l'utilisateur a expiré.";
     public static final String ID_MSG_DEF = "Identifiant technique auto-généré de l'objet en base.";
     public static final String LOCKED_MSG_DEF = "Indique si l'utilisateur est verrouillé ou déverrouillé.";
@@ -87,11 +92,10 @@ public final class ServerUtil
 
     // GESTION DU CACHE
     public static final String HIBERNATE_CACHE_MANAGER = "hibernate.javax.cache.cache_manager";
-    public static final String POINT_ROLES = ".roles";
     public static final String POINT_PRODUCTS = ".products";
     public static final String USERS_BY_USERNAME_CACHE = "usersByUsername";
     public static final String USERS_BY_EMAIL_CACHE = "usersByEmail";
-    public static final String USERS_ROLES_ATTRIBUTE_PATHS = "roles";
+    public static final String USERS_CACHE_RESOLVER = "userLookupCache";
     public static final String CATEGORY_PRODUCTS_ATTRIBUTE_PATHS = "products";
     public static final String CATEGORY_BY_NAME_CACHE = "categoriesByName";
 
@@ -123,6 +127,7 @@ public final class ServerUtil
     public static final Pattern EMAI_PATTERN = Pattern.compile(EMAIL_REGEX);
     public static final String LOGIN_REGEX = "^[_.@A-Za-z0-9-]*$";
     public static final Pattern LOGIN_PATTERN = Pattern.compile(LOGIN_REGEX);
+    public static final String SCOPE_REGEX = "^[_.:A-Za-z0-9-]+$";
 
     // SWAGGER
     private static final String SWAGGER_UI_URL = "/swagger-ui/index.html";
@@ -157,7 +162,9 @@ public final class ServerUtil
 
     // Fonctions utilitaires
     /**
-     * Creation de Spring Security User.
+     * Creation de Spring Security User. Les indicateurs de verrouillage et d'expiration du compte et du mot de passe sont
+     * reportés sur l'utilisateur : Spring Security refuse alors l'authentification avec le motif correspondant.
+     * L'utilisateur créé est partagé par le cache des utilisateurs : l'effacement des secrets ne le modifie pas.
      * 
      * @param pUsername login de l'utilisateur.
      * @param pUser     les informations de l'utilisateur en base de données.
@@ -173,11 +180,10 @@ public final class ServerUtil
             throw new CustomAppException(message);
         }
 
-        final Set<SimpleGrantedAuthority> grantedAuthorities = pUser.getRoles()//
-        .stream()//
-        .map(role -> new SimpleGrantedAuthority(role.getAuthority()))//
-        .collect(Collectors.toSet());
-        return new User(pUser.getUsername(), pUser.getPassword(), grantedAuthorities);
+        // Autorités partagées par tous les utilisateurs de mêmes rôles.
+        final Set<GrantedAuthority> grantedAuthorities = AuthorityRegistry.authorities(pUser.getRoles());
+        return new CachedUserDetails(pUser.getUsername(), pUser.getPassword(), true, BooleanUtils.isNotTrue(pUser.getAccountExpired()), BooleanUtils.isNotTrue(pUser
+        .getCredentialsExpired()), BooleanUtils.isNotTrue(pUser.getAccountLocked()), grantedAuthorities);
     }
 
     /**
@@ -90,4 +90,17 @@ class ServerCacheConfigTest
 
         assertThat(cacheManagerCustomizer).isNotNull();
     }
+
+    /**
+     * Test method for
+     * {@link fr.vincent.tuto.server.config.cache.ServerCacheConfig#userLookupCache(fr.vincent.tuto.common.service.props.ApplicationPropsService)}.
+     */
+    @Test
+    void testUserLookupCache()
+    {
+        final var userLookupCache = this.serverCacheConfig.userLookupCache(this.propsService);
+
+        assertThat(userLookupCache).isNotNull();
+        assertThat(userLookupCache.size()).isZero();
+    }
 }
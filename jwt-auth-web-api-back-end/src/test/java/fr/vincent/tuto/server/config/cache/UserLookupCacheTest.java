@@ -0,0 +1,170 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : UserLookupCacheTest.java
+ * Date de création : 9 mars 2021
+ * Heure de création : 14:52:18
+ * Package : fr.vincent.tuto.server.config.cache
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.config.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.cache.interceptor.CacheOperationInvocationContext;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import fr.vincent.tuto.server.enumeration.RoleEnum;
+import fr.vincent.tuto.server.model.po.User;
+import fr.vincent.tuto.server.util.ServerUtil;
+import fr.vincent.tuto.server.utils.TestsDataUtils;
+
+/**
+ * Classe des Tests Unitaires des objets de type {@link UserLookupCache}
+ *
+ * @author Vincent Otchoun
+ */
+class UserLookupCacheTest
+{
+    private UserLookupCache userLookupCache;
+    private User admin;
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        this.userLookupCache = new UserLookupCache(100L, 600L);
+        this.admin = TestsDataUtils.createUserWithSet(Set.of(RoleEnum.ROLE_ADMIN), "Admin", "admin_19511982#", "Admin.Test@Live.fr");
+    }
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @AfterEach
+    void tearDown() throws Exception
+    {
+        this.userLookupCache = null;
+        this.admin = null;
+    }
+
+    @Test
+    void testPut()
+    {
+        this.userLookupCache.getUsernameIndex().put("Admin", this.admin);
+
+        assertThat(this.userLookupCache.getUsernameIndex().get("admin").get()).isSameAs(this.admin);
+        assertThat(this.userLookupCache.getUsernameIndex().get("ADMIN").get()).isSameAs(this.admin);
+        // L'utilisateur est atteint par son email sans nouvelle recherche ni nouvelle copie.
+        assertThat(this.userLookupCache.getEmailIndex().get("admin.test@live.fr").get()).isSameAs(this.admin);
+        assertThat(this.userLookupCache.getEmailIndex().get("admin")).isNull();
+        assertThat(this.userLookupCache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void testPut_NullValue()
+    {
+        this.userLookupCache.getUsernameIndex().put("ghost", null);
+
+        assertThat(this.userLookupCache.getUsernameIndex().get("ghost")).isNull();
+        assertThat(this.userLookupCache.size()).isZero();
+    }
+
+    @Test
+    void testEvict()
+    {
+        this.userLookupCache.getEmailIndex().put("admin.test@live.fr", this.admin);
+
+        this.userLookupCache.getUsernameIndex().evict("ADMIN");
+
+        assertThat(this.userLookupCache.getUsernameIndex().get("admin")).isNull();
+        assertThat(this.userLookupCache.getEmailIndex().get("admin.test@live.fr")).isNull();
+        assertThat(this.userLookupCache.size()).isZero();
+    }
+
+    @Test
+    void testPut_EmailChanged()
+    {
+        this.userLookupCache.getUsernameIndex().put("admin", this.admin);
+        final var updated = TestsDataUtils.createUserWithSet(Set.of(RoleEnum.ROLE_ADMIN), "admin", "admin_19511982#", "admin.new@live.fr");
+
+        this.userLookupCache.getUsernameIndex().put("admin", updated);
+
+        assertThat(this.userLookupCache.getEmailIndex().get("admin.test@live.fr")).isNull();
+        assertThat(this.userLookupCache.getEmailIndex().get("admin.new@live.fr").get()).isSameAs(updated);
+        assertThat(this.userLookupCache.getUsernameIndex().get("admin").get()).isSameAs(updated);
+    }
+
+    @Test
+    void testEvict_AfterCompletion()
+    {
+        TransactionSynchronizationManager.initSynchronization();
+        try
+        {
+            this.userLookupCache.evict("admin", "admin.test@live.fr");
+            // Rechargement concurrent de l'état antérieur avant la fin de la transaction.
+            this.userLookupCache.getUsernameIndex().put("admin", this.admin);
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(synchronization -> synchronization.afterCompletion(
+            TransactionSynchronization.STATUS_COMMITTED));
+        }
+        finally
+        {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(this.userLookupCache.getUsernameIndex().get("admin")).isNull();
+        assertThat(this.userLookupCache.size()).isZero();
+    }
+
+    @Test
+    void testExpiredAndFull()
+    {
+        final var expiring = new UserLookupCache(100L, 0L);
+        expiring.getUsernameIndex().put("admin", this.admin);
+
+        assertThat(expiring.getEmailIndex().get("admin.test@live.fr")).isNull();
+        assertThat(expiring.size()).isZero();
+
+        final var bounded = new UserLookupCache(1L, 600L);
+        bounded.getUsernameIndex().put("admin", this.admin);
+        bounded.getUsernameIndex().put("client", TestsDataUtils.createUserWithSet(Set.of(RoleEnum.ROLE_USER), "client", "client_19511982#",
+        "client.test@live.fr"));
+
+        assertThat(bounded.getUsernameIndex().get("admin")).isNotNull();
+        assertThat(bounded.getUsernameIndex().get("client")).isNull();
+    }
+
+    @Test
+    void testGet_ValueLoader()
+    {
+        final var loaded = this.userLookupCache.getUsernameIndex().get("admin", () -> this.admin);
+
+        assertThat(loaded).isSameAs(this.admin);
+        assertThat(this.userLookupCache.getUsernameIndex().<User> get("admin", () -> null)).isSameAs(this.admin);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void testResolveCaches()
+    {
+        final CacheOperationInvocationContext<?> context = Mockito.mock(CacheOperationInvocationContext.class, Mockito.RETURNS_DEEP_STUBS);
+        Mockito.when(context.getOperation().getCacheNames()).thenReturn(Set.of(ServerUtil.USERS_BY_EMAIL_CACHE), Set.of(
+        ServerUtil.USERS_BY_USERNAME_CACHE));
+
+        assertThat(this.userLookupCache.resolveCaches(context)).hasSize(1).first().isSameAs(this.userLookupCache.getEmailIndex());
+        assertThat(this.userLookupCache.resolveCaches(context)).hasSize(1).first().isSameAs(this.userLookupCache.getUsernameIndex());
+        assertThat(this.userLookupCache.getUsernameIndex().getName()).isEqualTo(ServerUtil.USERS_BY_USERNAME_CACHE);
+        assertThat(this.userLookupCache.getEmailIndex().getNativeCache()).isSameAs(this.userLookupCache);
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : RoleSetConverterTest.java
+ * Date de création : 9 mars 2021
+ * Heure de création : 18:05:51
+ * Package : fr.vincent.tuto.server.model.po
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.model.po;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import fr.vincent.tuto.server.enumeration.RoleEnum;
+
+/**
+ * Classe des Tests Unitaires des objets de type {@link RoleSetConverter}
+ *
+ * @author Vincent Otchoun
+ */
+class RoleSetConverterTest
+{
+    private RoleSetConverter converter;
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        this.converter = new RoleSetConverter();
+    }
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @AfterEach
+    void tearDown() throws Exception
+    {
+        this.converter = null;
+    }
+
+    @Test
+    void testConvertToDatabaseColumn()
+    {
+        assertThat(this.converter.convertToDatabaseColumn(Set.of(RoleEnum.ROLE_USER))).isEqualTo(1);
+        assertThat(this.converter.convertToDatabaseColumn(Set.of(RoleEnum.ROLE_ADMIN))).isEqualTo(2);
+        assertThat(this.converter.convertToDatabaseColumn(Set.of(RoleEnum.ROLE_USER, RoleEnum.ROLE_MODERATOR))).isEqualTo(5);
+        assertThat(this.converter.convertToDatabaseColumn(EnumSet.allOf(RoleEnum.class))).isEqualTo(15);
+        assertThat(this.converter.convertToDatabaseColumn(null)).isZero();
+    }
+
+    @Test
+    void testConvertToEntityAttribute()
+    {
+        final var roles = this.converter.convertToEntityAttribute(5);
+
+        assertThat(roles).containsExactly(RoleEnum.ROLE_USER, RoleEnum.ROLE_MODERATOR);
+        assertThat(this.converter.convertToEntityAttribute(null)).isEmpty();
+        // Les rôles restent modifiables par l'entité.
+        roles.add(RoleEnum.ROLE_ADMIN);
+        assertThat(this.converter.convertToDatabaseColumn(roles)).isEqualTo(7);
+    }
+}
@@ -42,6 +42,7 @@ import fr.vincent.tuto.server.config.BackEndServerRootConfig;
 import fr.vincent.tuto.server.config.db.PersistenceContextConfig;
 import fr.vincent.tuto.server.enumeration.RoleEnum;
 import fr.vincent.tuto.server.model.po.User;
+import fr.vincent.tuto.server.security.jwt.AuthenticationMetrics;
 import fr.vincent.tuto.server.service.contract.IUserService;
 import fr.vincent.tuto.server.service.user.UserService;
 import fr.vincent.tuto.server.util.ServerUtil;
@@ -55,7 +56,7 @@ import fr.vincent.tuto.server.utils.TestsDataUtils;
 @RunWith(SpringRunner.class)
 @TestPropertySource(value = { "classpath:back-end-db-common-test.properties", "classpath:back-end-application-test.properties", "classpath:back-end-tls-test.properties" })
 @ContextConfiguration(name = "customUserDetailsServiceTest", classes = { BackEndServerRootConfig.class, DatabasePropsService.class, PersistenceContextConfig.class,
-        UserService.class, CustomUserDetailsService.class })
+        UserService.class, CustomUserDetailsService.class, AuthenticationMetrics.class })
 @SpringBootTest
 @ActiveProfiles("test")
 @TestInstance(Lifecycle.PER_CLASS)
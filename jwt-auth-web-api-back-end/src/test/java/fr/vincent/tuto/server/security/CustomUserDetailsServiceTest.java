@@ -41,11 +41,15 @@ import fr.vincent.tuto.common.exception.CustomAppException;
 import fr.vincent.tuto.common.service.props.DatabasePropsService;
 import fr.vincent.tuto.server.config.BackEndServerRootConfig;
 import fr.vincent.tuto.server.config.db.PersistenceContextConfig;
+import fr.vincent.tuto.server.config.props.ServerSecurityProps;
 import fr.vincent.tuto.server.enumeration.RoleEnum;
 import fr.vincent.tuto.server.model.po.User;
+import fr.vincent.tuto.server.security.cache.UserDetailsCache;
+import fr.vincent.tuto.server.security.jwt.AuthenticationMetrics;
 import fr.vincent.tuto.server.service.contract.IUserService;
 import fr.vincent.tuto.server.util.ServerUtil;
 import fr.vincent.tuto.server.utils.TestsDataUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 /**
  * Classe des Tests Unitaires des objets de type {@link CustomUserDetailsService}
@@ -55,7 +59,7 @@ import fr.vincent.tuto.server.utils.TestsDataUtils;
 @RunWith(SpringRunner.class)
 @TestPropertySource(value = { "classpath:back-end-db-common-test.properties", "classpath:back-end-application-test.properties", "classpath:back-end-tls-test.properties" })
 @ContextConfiguration(name = "customUserDetailsServiceTest", classes = { BackEndServerRootConfig.class, DatabasePropsService.class, PersistenceContextConfig.class,
-        CustomUserDetailsService.class })
+        CustomUserDetailsService.class, AuthenticationMetrics.class })
 @SpringBootTest(webEnvironment = WebEnvironment.NONE)
 @ActiveProfiles("test")
 class CustomUserDetailsServiceTest
@@ -66,6 +70,8 @@ class CustomUserDetailsServiceTest
     private IUserService userService;
 
     private CustomUserDetailsService userDetailsService;
+    private AuthenticationMetrics metrics;
+    private UserDetailsCache userCache;
 
     private User user;
     private Set<RoleEnum> roles = Sets.newHashSet();
@@ -76,7 +82,9 @@ class CustomUserDetailsServiceTest
     @BeforeEach
     void setUp() throws Exception
     {
-        this.userDetailsService = new CustomUserDetailsService(this.userService);
+        this.metrics = new AuthenticationMetrics();
+        this.userCache = new UserDetailsCache(new ServerSecurityProps());
+        this.userDetailsService = new CustomUserDetailsService(this.userService, this.metrics, this.userCache);
 
         // Création des droits de l'utilisateur
         this.roles.add(RoleEnum.ROLE_ADMIN);
@@ -205,4 +213,60 @@ class CustomUserDetailsServiceTest
     {
         assertThat(this.userDetailsService).isNotNull();
     }
+
+    @Test
+    void testLoadUserByUsername_Metrics()
+    {
+        final var registry = new SimpleMeterRegistry();
+        this.metrics.bindTo(registry);
+        this.user.setEnabled(Boolean.FALSE);
+        BDDMockito.given(this.userService.getWithRolesByEmailIgnoreCase(Mockito.any(String.class))).willReturn(Optional.empty());
+        BDDMockito.given(this.userService.getWithRolesByUsernameIgnoreCase(Mockito.any(String.class))).willReturn(Optional.of(this.user));
+
+        assertThrows(CustomAppException.class, () -> this.userDetailsService.loadUserByUsername(TestsDataUtils.USER_TWO_EMAIL));
+        assertThrows(CustomAppException.class, () -> this.userDetailsService.loadUserByUsername(this.user.getUsername()));
+
+        assertThat(registry.get("security.authentication.stage").tag("stage", "user_loading").timer().count()).isEqualTo(2L);
+        assertThat(registry.get("security.authentication.failures").tag("reason", "unknown_user").counter().count()).isEqualTo(1.0);
+        assertThat(registry.get("security.authentication.failures").tag("reason", "disabled").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void testLoadUserByUsername_FromCache()
+    {
+        BDDMockito.given(this.userService.getWithRolesByUsernameIgnoreCase(Mockito.any(String.class))).willReturn(Optional.of(this.user));
+
+        final UserDetails first = this.userDetailsService.loadUserByUsername("TEST");
+        final UserDetails second = this.userDetailsService.loadUserByUsername("test");
+
+        assertThat(second).isSameAs(first);
+        assertThat(this.userCache.getHits()).isEqualTo(1L);
+        verify(this.userService, times(1)).getWithRolesByUsernameIgnoreCase(any(String.class));
+
+        this.userCache.evict(this.user);
+        this.userDetailsService.loadUserByUsername("test");
+
+        verify(this.userService, times(2)).getWithRolesByUsernameIgnoreCase(any(String.class));
+    }
+
+    @Test
+    void testLoadUserByUsername_Unknown()
+    {
+        BDDMockito.given(this.userService.getWithRolesByUsernameIgnoreCase(Mockito.any(String.class))).willThrow(new CustomAppException(
+        "Erreur lors de la recherche des informations d'un utilisateur par son login."));
+
+        assertThrows(CustomAppException.class, () -> this.userDetailsService.loadUserByUsername("Unknown"));
+        final var exception = assertThrows(CustomAppException.class, () -> this.userDetailsService.loadUserByUsername("unknown"));
+
+        assertThat(exception.getMessage()).contains("Erreur lors de la recherche des informations");
+        assertThat(exception.getStackTrace()).isEmpty();
+        verify(this.userService, times(1)).getWithRolesByUsernameIgnoreCase(any(String.class));
+
+        // La création de l'utilisateur supprime l'identifiant des identifiants inconnus.
+        BDDMockito.willReturn(Optional.of(this.user)).given(this.userService).getWithRolesByUsernameIgnoreCase(Mockito.any(String.class));
+        this.userCache.evict("unknown", null);
+
+        assertThat(this.userDetailsService.loadUserByUsername("unknown")).isNotNull();
+        verify(this.userService, times(2)).getWithRolesByUsernameIgnoreCase(any(String.class));
+    }
 }
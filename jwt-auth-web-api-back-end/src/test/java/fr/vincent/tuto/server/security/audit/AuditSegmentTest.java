@@ -0,0 +1,71 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : AuditSegmentTest.java
+ * Date de création : 9 mars 2021
+ * Heure de création : 23:58:42
+ * Package : fr.vincent.tuto.server.security.audit
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.security.audit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Classe des Tests Unitaires des objets de type {@link AuditSegment}
+ *
+ * @author Vincent Otchoun
+ */
+class AuditSegmentTest
+{
+    @TempDir
+    Path directory;
+
+    @Test
+    void testSeal_ClosesUnpublishedSlots()
+    {
+        final var segment = AuditSegment.create(this.directory.resolve(AuditSegment.fileName(1, AuditSegment.OPEN_SUFFIX)), 1, 4);
+        assertThat(segment.append(1000L, 11L, 1, 0)).isTrue();
+        final int late = segment.reserve(); // écrivain retardataire : emplacement réservé, horodatage non publié.
+        assertThat(late).isEqualTo(1);
+
+        final var sealed = segment.seal(this.directory);
+
+        assertThat(segment.write(late, 2000L, 22L, 2, 1)).isFalse();
+        assertThat(segment.append(3000L, 33L, 3, 0)).isFalse();
+        assertThat(segment.reserve()).isNegative();
+        assertThat(this.timestamps(sealed)).containsExactly(1000L);
+        assertThat(Files.exists(segment.getFile())).isFalse();
+    }
+
+    @Test
+    void testSeal_KeepsPublishedSlots()
+    {
+        final var segment = AuditSegment.create(this.directory.resolve(AuditSegment.fileName(1, AuditSegment.OPEN_SUFFIX)), 1, 4);
+        final int first = segment.reserve();
+        final int second = segment.reserve();
+        assertThat(segment.write(second, 2000L, 22L, 2, 1)).isTrue();
+        assertThat(segment.write(first, 1000L, 11L, 1, 0)).isTrue();
+
+        final var sealed = segment.seal(this.directory);
+
+        assertThat(this.timestamps(sealed)).containsExactly(1000L, 2000L);
+    }
+
+    private List<Long> timestamps(final AuditSegment pSegment)
+    {
+        final List<Long> timestamps = new ArrayList<>();
+        pSegment.forEach(0L, Long.MAX_VALUE, new AuthenticationAuditRecord(), record -> timestamps.add(record.getTimestampMillis()));
+        return timestamps;
+    }
+}
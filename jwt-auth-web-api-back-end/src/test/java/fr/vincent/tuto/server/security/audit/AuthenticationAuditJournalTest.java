@@ -0,0 +1,287 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : AuthenticationAuditJournalTest.java
+ * Date de création : 9 mars 2021
+ * Heure de création : 23:41:17
+ * Package : fr.vincent.tuto.server.security.audit
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.security.audit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.event.AuthenticationFailureBadCredentialsEvent;
+import org.springframework.security.authentication.event.AuthenticationFailureLockedEvent;
+import org.springframework.security.authentication.event.AuthenticationFailureServiceExceptionEvent;
+import org.springframework.security.authentication.event.AuthenticationSuccessEvent;
+
+import fr.vincent.tuto.common.exception.CustomAppException;
+import fr.vincent.tuto.server.config.props.ServerSecurityProps;
+import fr.vincent.tuto.server.security.jwt.AuthenticationMetrics.Failure;
+import fr.vincent.tuto.server.security.throttle.LoginThrottledException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Classe des Tests Unitaires des objets de type {@link AuthenticationAuditJournal}
+ *
+ * @author Vincent Otchoun
+ */
+class AuthenticationAuditJournalTest
+{
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    @TempDir
+    Path root;
+
+    private Path directory;
+    private Path keyFile;
+    private ServerSecurityProps securityProps;
+    private AuthenticationAuditJournal journal;
+    private SimpleMeterRegistry meterRegistry;
+    private long now;
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        this.directory = this.root.resolve("audit");
+        this.keyFile = this.root.resolve("keys").resolve("audit-journal.key");
+        this.securityProps = new ServerSecurityProps();
+        this.securityProps.getAuditJournal().setDirectory(this.directory.toString());
+        this.securityProps.getAuditJournal().setKeyFile(this.keyFile.toString());
+        this.securityProps.getAuditJournal().setSegmentRecords(16);
+        this.securityProps.getAuditJournal().setFlushIntervalMillis(10);
+        this.now = System.currentTimeMillis();
+        this.journal = this.newJournal();
+    }
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @AfterEach
+    void tearDown() throws Exception
+    {
+        this.journal.destroy();
+    }
+
+    @Test
+    void testAppendAndRead()
+    {
+        assertThat(this.journal.append(this.now - 3, "Admin", "10.0.0.1", null)).isTrue();
+        assertThat(this.journal.append(this.now - 2, "partner", "10.0.0.2", Failure.BAD_CREDENTIALS)).isTrue();
+        assertThat(this.journal.append(this.now - 1, "ADMIN", null, Failure.THROTTLED)).isTrue();
+
+        final List<Object[]> records = new ArrayList<>();
+        final long count = this.journal.read(this.now - 2, this.now, record -> records.add(new Object[] { record.getTimestampMillis(), record
+        .getUsernameHash(), record.getClientId(), record.isSuccess(), record.getReason() }));
+
+        assertThat(count).isEqualTo(2);
+        assertThat(records).extracting(values -> tuple(values)).containsExactly(//
+        tuple(this.now - 2, this.journal.usernameHash("partner"), this.journal.clientId("10.0.0.2"), false, Failure.BAD_CREDENTIALS), //
+        tuple(this.now - 1, this.journal.usernameHash("admin"), 0, false, Failure.THROTTLED));
+        assertThat(this.journal.read(this.now - 3, this.now - 3, record -> assertThat(record.isSuccess()).isTrue())).isEqualTo(1);
+        assertThat(this.journal.usernameHash("Admin")).isEqualTo(this.journal.usernameHash("admin")).isNotZero();
+        assertThat(this.meterRegistry.get("security.audit.records").tag("result", "appended").counter().count()).isEqualTo(3.0);
+    }
+
+    @Test
+    void testAppend_RollOverAndRestart() throws Exception
+    {
+        this.securityProps.getAuditJournal().setSegmentRecords(4);
+        this.journal.destroy();
+        this.journal = this.newJournal();
+
+        for (int i = 0; i < 10; i++)
+        {
+            assertThat(this.journal.append(this.now - 10 + i, "user" + i, "10.0.0.1", null)).isTrue();
+            if (i % 4 == 3)
+            {
+                this.journal.awaitMaintenance(); // le segment de réserve est préparé.
+            }
+        }
+        assertThat(this.timestamps()).hasSize(10);
+
+        this.journal.destroy();
+        assertThat(this.files(AuditSegment.SEALED_SUFFIX)).hasSize(3);
+        assertThat(this.files(AuditSegment.OPEN_SUFFIX)).isEmpty();
+
+        final long usernameHash = this.journal.usernameHash("user3");
+        this.journal = this.newJournal();
+        assertThat(this.timestamps()).hasSize(10).isSorted();
+        assertThat(this.journal.usernameHash("user3")).isEqualTo(usernameHash);
+    }
+
+    @Test
+    void testSeal_SortsRecords() throws Exception
+    {
+        this.journal.append(this.now - 1, "user", null, null);
+        this.journal.append(this.now - 3, "user", null, null);
+        this.journal.append(this.now - 2, "user", null, null);
+        assertThat(this.timestamps()).containsExactly(this.now - 1, this.now - 3, this.now - 2);
+
+        this.journal.destroy();
+        this.journal = this.newJournal();
+
+        assertThat(this.timestamps()).containsExactly(this.now - 3, this.now - 2, this.now - 1);
+        assertThat(this.journal.read(this.now - 2, this.now - 2, record -> {
+        })).isEqualTo(1);
+    }
+
+    @Test
+    void testMaintenance_DeletesExpiredSegments() throws Exception
+    {
+        this.securityProps.getAuditJournal().setRetentionDays(1);
+        this.journal.append(this.now - 48 * HOUR, "user", null, null);
+        this.journal.destroy();
+        assertThat(this.files(AuditSegment.SEALED_SUFFIX)).hasSize(1);
+        this.journal = this.newJournal();
+
+        this.journal.awaitMaintenance();
+
+        assertThat(this.files(AuditSegment.SEALED_SUFFIX)).isEmpty();
+        assertThat(this.timestamps()).isEmpty();
+    }
+
+    @Test
+    void testAppend_Concurrent() throws Exception
+    {
+        this.securityProps.getAuditJournal().setSegmentRecords(64);
+        this.journal.destroy();
+        this.journal = this.newJournal();
+
+        final int threads = 4;
+        final int appends = 1000;
+        final var start = new CountDownLatch(1);
+        final List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++)
+        {
+            final var writer = new Thread(() -> {
+                try
+                {
+                    start.await();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                for (int i = 0; i < appends; i++)
+                {
+                    this.journal.append(this.now - i, "user", "10.0.0.1", Failure.BAD_CREDENTIALS);
+                }
+            });
+            writer.start();
+            writers.add(writer);
+        }
+        start.countDown();
+        for (final Thread writer : writers)
+        {
+            writer.join();
+        }
+
+        final double appended = this.meterRegistry.get("security.audit.records").tag("result", "appended").counter().count();
+        final double dropped = this.meterRegistry.get("security.audit.records").tag("result", "dropped").counter().count();
+        assertThat(appended + dropped).isEqualTo(threads * appends);
+        assertThat(appended).isGreaterThanOrEqualTo(64);
+        assertThat(this.timestamps()).hasSize((int) appended).allMatch(timestamp -> timestamp > this.now - appends);
+    }
+
+    @Test
+    void testAfterPropertiesSet_KeyOutsideJournalDirectory() throws Exception
+    {
+        final long usernameHash = this.journal.usernameHash("admin");
+
+        assertThat(Files.size(this.keyFile)).isEqualTo(32);
+        try (var files = Files.list(this.directory))
+        {
+            assertThat(files.filter(file -> file.getFileName().toString().endsWith(".key"))).isEmpty();
+        }
+        this.journal.destroy();
+        this.journal = this.newJournal();
+        assertThat(this.journal.usernameHash("ADMIN")).isEqualTo(usernameHash);
+    }
+
+    @Test
+    void testAfterPropertiesSet_TruncatedKey_ShouldFail() throws Exception
+    {
+        this.journal.destroy();
+        final var key = Files.readAllBytes(this.keyFile);
+        Files.write(this.keyFile, Arrays.copyOf(key, 8));
+
+        assertThatThrownBy(this::newJournal).isInstanceOf(CustomAppException.class).hasMessageContaining(this.keyFile.toString());
+        assertThat(Files.size(this.keyFile)).isEqualTo(8); // le fichier n'est pas remplacé.
+    }
+
+    @Test
+    void testAfterPropertiesSet_KeyInsideJournalDirectory_ShouldFail() throws Exception
+    {
+        this.securityProps.getAuditJournal().setKeyFile(this.directory.resolve("audit-journal.key").toString());
+
+        assertThatThrownBy(this::newJournal).isInstanceOf(CustomAppException.class);
+    }
+
+    @Test
+    void testEventListeners()
+    {
+        final var request = new UsernamePasswordAuthenticationToken("Admin", "bad");
+        this.journal.onAuthenticationSuccess(new AuthenticationSuccessEvent(request));
+        this.journal.onAuthenticationFailure(new AuthenticationFailureBadCredentialsEvent(request, new BadCredentialsException("bad")));
+        this.journal.onAuthenticationFailure(new AuthenticationFailureLockedEvent(request, new LoginThrottledException("throttled")));
+        this.journal.onAuthenticationFailure(new AuthenticationFailureServiceExceptionEvent(request, new InternalAuthenticationServiceException(
+        "internal")));
+
+        final List<Failure> reasons = new ArrayList<>();
+        this.journal.read(0, Long.MAX_VALUE, record -> {
+            assertThat(record.getUsernameHash()).isEqualTo(this.journal.usernameHash("admin"));
+            reasons.add(record.getReason());
+        });
+
+        assertThat(reasons).containsExactly(null, Failure.BAD_CREDENTIALS, Failure.THROTTLED, Failure.OTHER);
+    }
+
+    private AuthenticationAuditJournal newJournal() throws Exception
+    {
+        final var auditJournal = new AuthenticationAuditJournal(this.securityProps);
+        auditJournal.afterPropertiesSet();
+        this.meterRegistry = new SimpleMeterRegistry();
+        auditJournal.bindTo(this.meterRegistry);
+        return auditJournal;
+    }
+
+    private List<Long> timestamps()
+    {
+        final List<Long> timestamps = new ArrayList<>();
+        this.journal.read(0, Long.MAX_VALUE, record -> timestamps.add(record.getTimestampMillis()));
+        return timestamps;
+    }
+
+    private List<Path> files(final String pSuffix) throws Exception
+    {
+        try (var files = Files.list(this.directory))
+        {
+            return files.filter(file -> file.getFileName().toString().endsWith(pSuffix)).collect(Collectors.toList());
+        }
+    }
+}
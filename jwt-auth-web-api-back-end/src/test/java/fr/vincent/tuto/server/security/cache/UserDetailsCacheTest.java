@@ -0,0 +1,211 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : UserDetailsCacheTest.java
+ * Date de création : 9 mars 2021
+ * Heure de création : 13:41:07
+ * Package : fr.vincent.tuto.server.security.cache
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.security.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import fr.vincent.tuto.server.config.props.ServerSecurityProps;
+import fr.vincent.tuto.server.enumeration.RoleEnum;
+import fr.vincent.tuto.server.model.po.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Classe des Tests Unitaires des objets de type {@link UserDetailsCache}
+ *
+ * @author Vincent Otchoun
+ */
+class UserDetailsCacheTest
+{
+    private UserDetailsCache userDetailsCache;
+    private ServerSecurityProps securityProps;
+    private UserDetails admin;
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        this.securityProps = new ServerSecurityProps();
+        this.userDetailsCache = new UserDetailsCache(this.securityProps);
+        this.admin = new org.springframework.security.core.userdetails.User("admin", "secret", List.of(RoleEnum.ROLE_ADMIN));
+    }
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @AfterEach
+    void tearDown() throws Exception
+    {
+        this.userDetailsCache = null;
+        this.admin = null;
+    }
+
+    @Test
+    void testGetUserFromCache()
+    {
+        assertThat(this.userDetailsCache.getUserFromCache("admin")).isNull();
+
+        this.userDetailsCache.putUserInCache(this.admin);
+        this.userDetailsCache.putUserInCache("Admin.Test@Live.fr", this.admin, this.userDetailsCache.generation());
+
+        assertThat(this.userDetailsCache.getUserFromCache("ADMIN")).isSameAs(this.admin);
+        assertThat(this.userDetailsCache.getUserFromCache("admin.test@live.fr")).isSameAs(this.admin);
+        assertThat(this.userDetailsCache.getUserFromCache(null)).isNull();
+        assertThat(this.userDetailsCache.size()).isEqualTo(2);
+        assertThat(this.userDetailsCache.getHits()).isEqualTo(2L);
+        assertThat(this.userDetailsCache.getMisses()).isEqualTo(1L);
+    }
+
+    @Test
+    void testEvict()
+    {
+        this.userDetailsCache.putUserInCache(this.admin);
+        this.userDetailsCache.putUserInCache("admin.test@live.fr", this.admin, this.userDetailsCache.generation());
+        this.userDetailsCache.putUserInCache(new org.springframework.security.core.userdetails.User("client", "secret", List.of(
+        RoleEnum.ROLE_USER)));
+
+        this.userDetailsCache.evict(User.builder().username("Admin").email("admin.test@live.fr").build());
+
+        assertThat(this.userDetailsCache.getUserFromCache("admin")).isNull();
+        assertThat(this.userDetailsCache.getUserFromCache("admin.test@live.fr")).isNull();
+        assertThat(this.userDetailsCache.getUserFromCache("client")).isNotNull();
+        assertThat(this.userDetailsCache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void testPutUserInCache_StaleGeneration()
+    {
+        final var generation = this.userDetailsCache.generation();
+        // Suppression intervenue pendant le chargement de l'utilisateur.
+        this.userDetailsCache.removeUserFromCache("admin");
+
+        this.userDetailsCache.putUserInCache("admin", this.admin, generation);
+
+        assertThat(this.userDetailsCache.getUserFromCache("admin")).isNull();
+        assertThat(this.userDetailsCache.size()).isZero();
+    }
+
+    @Test
+    void testIsUnknown()
+    {
+        this.userDetailsCache.putUnknown("Ghost", this.userDetailsCache.generation());
+        this.userDetailsCache.putUnknown("ghost.test@live.fr", this.userDetailsCache.generation());
+
+        assertThat(this.userDetailsCache.isUnknown("ghost")).isTrue();
+        assertThat(this.userDetailsCache.isUnknown("GHOST.TEST@LIVE.FR")).isTrue();
+        assertThat(this.userDetailsCache.isUnknown("admin")).isFalse();
+        assertThat(this.userDetailsCache.isUnknown(null)).isFalse();
+        assertThat(this.userDetailsCache.unknownSize()).isEqualTo(2);
+        assertThat(this.userDetailsCache.getUnknownHits()).isEqualTo(2L);
+
+        // Création de l'utilisateur.
+        this.userDetailsCache.evict(User.builder().username("ghost").email("ghost.test@live.fr").build());
+
+        assertThat(this.userDetailsCache.isUnknown("ghost")).isFalse();
+        assertThat(this.userDetailsCache.isUnknown("ghost.test@live.fr")).isFalse();
+        assertThat(this.userDetailsCache.unknownSize()).isZero();
+    }
+
+    @Test
+    void testPutUnknown_StaleGeneration()
+    {
+        final var generation = this.userDetailsCache.generation();
+        // Création de l'utilisateur pendant la recherche.
+        this.userDetailsCache.evict("ghost", "ghost.test@live.fr");
+
+        this.userDetailsCache.putUnknown("ghost", generation);
+
+        assertThat(this.userDetailsCache.isUnknown("ghost")).isFalse();
+    }
+
+    @Test
+    void testPutUnknown_ExpiredAndFull()
+    {
+        this.securityProps.getUserCache().setUnknownTimeToLiveSeconds(0);
+        final var expiring = new UserDetailsCache(this.securityProps);
+        expiring.putUnknown("ghost", expiring.generation());
+
+        assertThat(expiring.isUnknown("ghost")).isFalse();
+        assertThat(expiring.unknownSize()).isZero();
+
+        this.securityProps.getUserCache().setUnknownTimeToLiveSeconds(60);
+        this.securityProps.getUserCache().setUnknownMaxEntries(1);
+        final var bounded = new UserDetailsCache(this.securityProps);
+        bounded.putUnknown("ghost1", bounded.generation());
+        bounded.putUnknown("ghost2", bounded.generation());
+
+        assertThat(bounded.isUnknown("ghost1")).isTrue();
+        assertThat(bounded.isUnknown("ghost2")).isFalse();
+    }
+
+    @Test
+    void testGetUserFromCache_Expired()
+    {
+        this.securityProps.getUserCache().setTimeToLiveSeconds(0);
+        final var cache = new UserDetailsCache(this.securityProps);
+        cache.putUserInCache(this.admin);
+
+        assertThat(cache.getUserFromCache("admin")).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void testPutUserInCache_Full()
+    {
+        this.securityProps.getUserCache().setMaxEntries(1);
+        final var cache = new UserDetailsCache(this.securityProps);
+        cache.putUserInCache(this.admin);
+        cache.putUserInCache(new org.springframework.security.core.userdetails.User("client", "secret", List.of(RoleEnum.ROLE_USER)));
+
+        assertThat(cache.getUserFromCache("admin")).isSameAs(this.admin);
+        assertThat(cache.getUserFromCache("client")).isNull();
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void testDisabled()
+    {
+        this.securityProps.getUserCache().setEnabled(false);
+        final var cache = new UserDetailsCache(this.securityProps);
+        cache.putUserInCache(this.admin);
+
+        assertThat(cache.getUserFromCache("admin")).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void testBindTo()
+    {
+        final var registry = new SimpleMeterRegistry();
+        this.userDetailsCache.bindTo(registry);
+        this.userDetailsCache.putUserInCache(this.admin);
+        this.userDetailsCache.getUserFromCache("admin");
+        this.userDetailsCache.getUserFromCache("client");
+        this.userDetailsCache.putUnknown("ghost", this.userDetailsCache.generation());
+        this.userDetailsCache.isUnknown("ghost");
+        this.userDetailsCache.clear();
+
+        assertThat(registry.get("security.user.cache.size").gauge().value()).isZero();
+        assertThat(registry.get("security.user.cache.requests").tag("result", "hit").functionCounter().count()).isEqualTo(1.0);
+        assertThat(registry.get("security.user.cache.requests").tag("result", "miss").functionCounter().count()).isEqualTo(1.0);
+        assertThat(registry.get("security.user.cache.requests").tag("result", "unknown").functionCounter().count()).isEqualTo(1.0);
+        assertThat(registry.get("security.user.cache.unknown.size").gauge().value()).isZero();
+    }
+}
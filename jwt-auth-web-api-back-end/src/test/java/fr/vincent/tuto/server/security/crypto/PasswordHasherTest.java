@@ -0,0 +1,195 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : PasswordHasherTest.java
+ * Date de création : 9 mars 2021
+ * Heure de création : 19:02:45
+ * Package : fr.vincent.tuto.server.security.crypto
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.security.crypto;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import fr.vincent.tuto.common.exception.CustomAppException;
+import fr.vincent.tuto.server.config.props.ServerSecurityProps;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Classe des Tests Unitaires des objets de type {@link PasswordHasher}
+ *
+ * @author Vincent Otchoun
+ */
+class PasswordHasherTest
+{
+    private ServerSecurityProps securityProps;
+    private CountDownLatch release;
+    private PasswordHasher passwordHasher;
+    private SimpleMeterRegistry meterRegistry;
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        this.securityProps = new ServerSecurityProps();
+        this.securityProps.getPasswordHashing().setThreads(1);
+        this.securityProps.getPasswordHashing().setQueueCapacity(1);
+        this.securityProps.getPasswordHashing().setMaxWaitMillis(2000);
+        this.release = new CountDownLatch(0);
+        this.passwordHasher = new PasswordHasher(new BCryptPasswordEncoder(4)
+        {
+            @Override
+            public String encode(final CharSequence pRawPassword)
+            {
+                try
+                {
+                    // Bloquer le thread de chiffrement jusqu'à la libération par le test.
+                    PasswordHasherTest.this.release.await(5, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                return super.encode(pRawPassword);
+            }
+        }, 4, this.securityProps);
+        this.meterRegistry = new SimpleMeterRegistry();
+        this.passwordHasher.bindTo(this.meterRegistry);
+    }
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @AfterEach
+    void tearDown() throws Exception
+    {
+        this.release.countDown();
+        this.passwordHasher.destroy();
+        this.passwordHasher = null;
+    }
+
+    @Test
+    void testEncodeAndMatches()
+    {
+        final var encoded = this.passwordHasher.encode("admin_19511982#").join();
+
+        assertThat(encoded).startsWith("$2a$04$");
+        assertThat(this.passwordHasher.matches("admin_19511982#", encoded).join()).isTrue();
+        assertThat(this.passwordHasher.matches("autre_19511982#", encoded).join()).isFalse();
+        // La comparaison n'est pas exécutée par le thread appelant.
+        assertThat(this.passwordHasher.encode("x").thenApply(value -> Thread.currentThread().getName()).join()).startsWith("password-hasher-");
+        assertThat(this.meterRegistry.get("security.password.hashing.wait").timer().count()).isEqualTo(4);
+    }
+
+    @Test
+    void testEncode_Rejected()
+    {
+        this.release = new CountDownLatch(1);
+
+        final var running = this.passwordHasher.encode("running_19511982#");
+        final var queued = this.passwordHasher.encode("queued_19511982#");
+        final var rejected = this.passwordHasher.encode("rejected_19511982#");
+
+        final var exception = assertThrows(CompletionException.class, rejected::join);
+        assertThat(exception.getCause()).isInstanceOf(CustomAppException.class);
+        assertThat(this.meterRegistry.get("security.password.hashing.rejected").counter().count()).isEqualTo(1.0);
+        assertThat(this.meterRegistry.get("security.password.hashing.queue").gauge().value()).isEqualTo(1.0);
+
+        this.release.countDown();
+        assertThat(running.join()).startsWith("$2a$04$");
+        assertThat(queued.join()).startsWith("$2a$04$");
+    }
+
+    @Test
+    void testAsPasswordEncoder()
+    {
+        final var passwordEncoder = this.passwordHasher.asPasswordEncoder();
+        final var encoded = passwordEncoder.encode("admin_19511982#");
+
+        assertThat(passwordEncoder.matches("admin_19511982#", encoded)).isTrue();
+        assertThat(passwordEncoder.upgradeEncoding(encoded)).isFalse();
+    }
+
+    @Test
+    void testUpgradeEncoding() throws Exception
+    {
+        final var stronger = new PasswordHasher(new BCryptPasswordEncoder(5), 5, this.securityProps);
+        try
+        {
+            assertThat(stronger.getStrength()).isEqualTo(5);
+            assertThat(stronger.upgradeEncoding(new BCryptPasswordEncoder(4).encode("admin_19511982#"))).isTrue();
+            assertThat(stronger.upgradeEncoding(new BCryptPasswordEncoder(6).encode("admin_19511982#"))).isFalse();
+            assertThat(stronger.upgradeEncoding("{noop}admin_19511982#")).isFalse();
+        }
+        finally
+        {
+            stronger.destroy();
+        }
+    }
+
+    @Test
+    void testCalibrate()
+    {
+        final long probeNanos = TimeUnit.MILLISECONDS.toNanos(4); // 4 ms au coût 8 : 64 ms au coût 12, 128 ms au coût 13.
+
+        assertThat(PasswordHasher.calibrate(probeNanos, TimeUnit.MILLISECONDS.toNanos(100), 10, 16)).isEqualTo(12);
+        assertThat(PasswordHasher.calibrate(probeNanos, TimeUnit.MILLISECONDS.toNanos(128), 10, 16)).isEqualTo(13);
+        assertThat(PasswordHasher.calibrate(probeNanos, TimeUnit.MILLISECONDS.toNanos(1), 10, 16)).isEqualTo(10);
+        assertThat(PasswordHasher.calibrate(probeNanos, Long.MAX_VALUE, 10, 16)).isEqualTo(16);
+        assertThat(PasswordHasher.calibrate(probeNanos, TimeUnit.MILLISECONDS.toNanos(1), 2, 16)).isEqualTo(6);
+
+        this.securityProps.getPasswordHashing().setTargetMillis(0);
+        assertThat(PasswordHasher.strengthOf(this.securityProps.getPasswordHashing())).isEqualTo(12);
+    }
+
+    @Test
+    void testAsPasswordEncoder_Timeout() throws Exception
+    {
+        this.securityProps.getPasswordHashing().setMaxWaitMillis(50);
+        final var encoded = new BCryptPasswordEncoder(4).encode("admin_19511982#");
+        this.release = new CountDownLatch(1);
+        final var blocked = new PasswordHasher(new BCryptPasswordEncoder(4)
+        {
+            @Override
+            public boolean matches(final CharSequence pRawPassword, final String pEncodedPassword)
+            {
+                try
+                {
+                    PasswordHasherTest.this.release.await(5, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                return super.matches(pRawPassword, pEncodedPassword);
+            }
+        }, 4, this.securityProps);
+        try
+        {
+            final var passwordEncoder = blocked.asPasswordEncoder();
+
+            // La comparaison non terminée à l'échéance fait échouer l'authentification.
+            assertThrows(AuthenticationServiceException.class, () -> passwordEncoder.matches("admin_19511982#", encoded));
+            this.release.countDown();
+        }
+        finally
+        {
+            blocked.destroy();
+        }
+    }
+}
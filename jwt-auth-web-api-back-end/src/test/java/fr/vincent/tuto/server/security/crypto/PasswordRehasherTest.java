@@ -0,0 +1,169 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : PasswordRehasherTest.java
+ * Date de création : 9 mars 2021
+ * Heure de création : 20:04:36
+ * Package : fr.vincent.tuto.server.security.crypto
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.security.crypto;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.authentication.event.AuthenticationSuccessEvent;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import fr.vincent.tuto.server.config.cache.UserLookupCache;
+import fr.vincent.tuto.server.config.props.ServerSecurityProps;
+import fr.vincent.tuto.server.dao.UserDAO;
+import fr.vincent.tuto.server.enumeration.RoleEnum;
+import fr.vincent.tuto.server.security.cache.CachedUserDetails;
+import fr.vincent.tuto.server.security.cache.UserDetailsCache;
+import fr.vincent.tuto.server.util.AuthorityRegistry;
+import fr.vincent.tuto.server.utils.TestsDataUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Classe des Tests Unitaires des objets de type {@link PasswordRehasher}
+ *
+ * @author Vincent Otchoun
+ */
+class PasswordRehasherTest
+{
+    private static final String RAW_PASSWORD = "admin_19511982#";
+
+    private PasswordHasher passwordHasher;
+    private UserDAO userDAO;
+    private UserDetailsCache userDetailsCache;
+    private UserLookupCache userLookupCache;
+    private PasswordRehasher passwordRehasher;
+    private SimpleMeterRegistry meterRegistry;
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        this.passwordHasher = new PasswordHasher(new BCryptPasswordEncoder(5), 5, new ServerSecurityProps());
+        this.userDAO = mock(UserDAO.class);
+        this.userDetailsCache = mock(UserDetailsCache.class);
+        this.userLookupCache = mock(UserLookupCache.class);
+        this.passwordRehasher = new PasswordRehasher(this.userDAO, this.userDetailsCache, this.userLookupCache, this.passwordHasher, mock(
+        PlatformTransactionManager.class));
+        this.meterRegistry = new SimpleMeterRegistry();
+        this.passwordRehasher.bindTo(this.meterRegistry);
+    }
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @AfterEach
+    void tearDown() throws Exception
+    {
+        this.passwordHasher.destroy();
+        this.passwordRehasher = null;
+    }
+
+    @Test
+    void testOnAuthenticationSuccess_Outdated()
+    {
+        final var oldPassword = new BCryptPasswordEncoder(4).encode(RAW_PASSWORD);
+        final var user = TestsDataUtils.createUserWithSet(Set.of(RoleEnum.ROLE_ADMIN), "admin", oldPassword, TestsDataUtils.ADMIN_EMAIL_LOWER);
+        when(this.userDAO.findOneWithRolesByUsernameIgnoreCase("admin")).thenReturn(Optional.of(user));
+        final var caller = Thread.currentThread();
+        when(this.userDAO.updatePassword(eq("admin"), eq(oldPassword), anyString())).thenAnswer(invocation -> {
+            assertThat(Thread.currentThread()).isNotSameAs(caller); // La connexion n'attend pas le nouveau chiffrement.
+            return 1;
+        });
+
+        this.login(oldPassword);
+
+        final var newPassword = ArgumentCaptor.forClass(String.class);
+        verify(this.userDAO, timeout(5000)).updatePassword(eq("admin"), eq(oldPassword), newPassword.capture());
+        verify(this.userLookupCache, timeout(5000)).evict("admin", TestsDataUtils.ADMIN_EMAIL_LOWER);
+        verify(this.userDetailsCache).evict("admin", TestsDataUtils.ADMIN_EMAIL_LOWER);
+        verify(this.userLookupCache).evict("admin", TestsDataUtils.ADMIN_EMAIL_LOWER);
+        assertThat(newPassword.getValue()).startsWith("$2a$05$");
+        assertThat(new BCryptPasswordEncoder().matches(RAW_PASSWORD, newPassword.getValue())).isTrue();
+        assertThat(this.meterRegistry.get("security.password.rehash").tag("result", "updated").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void testOnAuthenticationSuccess_UpToDate()
+    {
+        final var password = new BCryptPasswordEncoder(5).encode(RAW_PASSWORD);
+
+        this.login(password);
+
+        verify(this.userDAO, never()).updatePassword(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void testOnAuthenticationSuccess_ShouldEraseCredentials()
+    {
+        final var password = new BCryptPasswordEncoder(5).encode(RAW_PASSWORD);
+
+        final var result = this.login(password);
+
+        assertThat(result.getCredentials()).isNull();
+        assertThat(((UserDetails) result.getPrincipal()).getPassword()).isEqualTo(password); // utilisateur partagé par le cache.
+    }
+
+    @Test
+    void testRehash_Rejected() throws Exception
+    {
+        this.passwordHasher.destroy(); // pool arrêté : les opérations sont rejetées.
+
+        assertThat(this.passwordRehasher.rehash("admin", "old", RAW_PASSWORD).join()).isFalse();
+
+        verify(this.userDAO, never()).updatePassword(anyString(), anyString(), anyString());
+        assertThat(this.meterRegistry.get("security.password.rehash").tag("result", "rejected").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void testUpdate_Stale()
+    {
+        when(this.userDAO.updatePassword("admin", "old", "new")).thenReturn(0);
+
+        assertThat(this.passwordRehasher.update("admin", "old", "new")).isFalse();
+
+        verify(this.userDetailsCache, never()).evict(anyString(), anyString());
+        assertThat(this.meterRegistry.get("security.password.rehash").tag("result", "stale").counter().count()).isEqualTo(1.0);
+    }
+
+    private Authentication login(final String pEncodedPassword)
+    {
+        final var authorities = List.copyOf(AuthorityRegistry.authorities(Set.of(RoleEnum.ROLE_ADMIN)));
+        final var principal = new CachedUserDetails("admin", pEncodedPassword, true, true, true, true, authorities);
+        final var provider = new DaoAuthenticationProvider();
+        provider.setUserDetailsService(username -> principal);
+        provider.setPasswordEncoder(this.passwordHasher.asPasswordEncoder());
+        final var result = provider.authenticate(new UsernamePasswordAuthenticationToken("admin", RAW_PASSWORD));
+        this.passwordRehasher.onAuthenticationSuccess(new AuthenticationSuccessEvent(result));
+        return result;
+    }
+}
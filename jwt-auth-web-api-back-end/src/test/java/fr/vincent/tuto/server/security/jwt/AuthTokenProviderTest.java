@@ -0,0 +1,463 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : AuthTokenProviderTest.java
+ * Date de création : 4 mars 2021
+ * Heure de création : 10:05:18
+ * Package : fr.vincent.tuto.server.security.jwt
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.security.jwt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.Signature;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import fr.vincent.tuto.common.service.props.ApplicationPropsService;
+import fr.vincent.tuto.server.config.props.ServerSecurityProps;
+import fr.vincent.tuto.server.enumeration.RoleEnum;
+import fr.vincent.tuto.server.util.AuthorityRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Classe des Tests Unitaires des objets de type {@link AuthTokenProvider}
+ *
+ * @author Vincent Otchoun
+ */
+class AuthTokenProviderTest
+{
+    private static final String CRYPTO_VALUE = "my-app-recette";
+
+    private AuthTokenProvider tokenProvider;
+    private VerifiedTokenCache tokenCache;
+    private TokenRevocationList revocationList;
+    private SigningKeyRing keyRing;
+    private ApplicationPropsService propsService;
+    private ServerSecurityProps securityProps;
+    private AuthenticationMetrics metrics;
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        final var propsService = this.propsService = Mockito.mock(ApplicationPropsService.class, Mockito.RETURNS_DEEP_STUBS);
+        Mockito.when(propsService.getJwtProps().getAuthoritiesKey()).thenReturn("auth");
+        Mockito.when(propsService.getJwtProps().getBearerToken()).thenReturn("Bearer ");
+        Mockito.when(propsService.getJwtProps().getTokenValidity()).thenReturn(86400L);
+        Mockito.when(propsService.getJwtProps().getTokenValidityForRememberMe()).thenReturn(2592000L);
+        Mockito.when(propsService.getCryptoProps().getKeystoreFileLocation()).thenReturn("./src/test/resources/crypto/my-app-recette-keystore.jks");
+        Mockito.when(propsService.getCryptoProps().getKeystorePassword()).thenReturn(CRYPTO_VALUE);
+        Mockito.when(propsService.getCryptoProps().getKeyPassword()).thenReturn(CRYPTO_VALUE);
+        Mockito.when(propsService.getCryptoProps().getAliasKeystore()).thenReturn(CRYPTO_VALUE);
+        Mockito.when(propsService.getCryptoProps().getKeyStoreType()).thenReturn("JKS");
+
+        final var securityProps = this.securityProps = new ServerSecurityProps();
+        securityProps.getKeyRing().setWatch(false);
+        securityProps.getKeyRing().setBenchmarkMillis(0);
+        securityProps.getKeyRing().setKeyDirectory(this.tempDir.resolve("keys").toString());
+        securityProps.getRevocation().setStoreFile(this.tempDir.resolve("revoked-tokens.log").toString());
+        this.tokenCache = new VerifiedTokenCache(securityProps);
+        this.metrics = new AuthenticationMetrics();
+        this.revocationList = new TokenRevocationList(propsService, securityProps);
+        this.revocationList.afterPropertiesSet();
+        this.keyRing = new SigningKeyRing(propsService, securityProps);
+        this.keyRing.afterPropertiesSet();
+        this.tokenProvider = new AuthTokenProvider(propsService, this.tokenCache, this.revocationList, this.keyRing, securityProps, this.metrics);
+        this.tokenProvider.afterPropertiesSet();
+    }
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @AfterEach
+    void tearDown() throws Exception
+    {
+        this.revocationList.destroy();
+        this.keyRing.destroy();
+        this.tokenProvider = null;
+    }
+
+    @Test
+    void testCreateToken() throws Exception
+    {
+        final var authentication = new UsernamePasswordAuthenticationToken("admin", null, List.of(RoleEnum.ROLE_ADMIN, RoleEnum.ROLE_USER));
+
+        final var token = this.tokenProvider.createToken(authentication, false);
+        final var parts = token.split("\\.");
+
+        assertThat(parts).hasSize(3);
+        final var header = new String(Base64.getUrlDecoder().decode(parts[0]), StandardCharsets.UTF_8);
+        final var claims = new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8);
+        assertThat(header).contains("\"alg\":\"RS256\"").contains("\"kid\":\"" + this.keyRing.getSigningKey().getKeyId() + "\"");
+        assertThat(claims).contains("\"sub\":\"admin\"").containsPattern("\"jti\":\"[\\w-]{22}\"").contains("\"auth\":[\"ROLE_ADMIN\",\"ROLE_USER\"]");
+
+        final var verifier = Signature.getInstance(AuthTokenProvider.SHA256_WITH_RSA);
+        verifier.initVerify(this.tokenProvider.getJwtSigner().getPublicKey());
+        verifier.update((parts[0] + "." + parts[1]).getBytes(StandardCharsets.US_ASCII));
+        assertThat(verifier.verify(Base64.getUrlDecoder().decode(parts[2]))).isTrue();
+        assertThat(parts[2]).hasSize(this.tokenProvider.getJwtSigner().getEncodedSignatureLength());
+    }
+
+    @Test
+    void testCreateToken_RememberMe()
+    {
+        final var authentication = new UsernamePasswordAuthenticationToken("admin", null, List.of(RoleEnum.ROLE_USER));
+
+        final var token = this.tokenProvider.createToken(authentication, true);
+        final var claims = new String(Base64.getUrlDecoder().decode(token.split("\\.")[1]), StandardCharsets.UTF_8);
+        final var iat = Long.parseLong(claims.replaceAll(".*\"iat\":(\\d+).*", "$1"));
+        final var exp = Long.parseLong(claims.replaceAll(".*\"exp\":(\\d+).*", "$1"));
+
+        assertThat(exp - iat).isEqualTo(2592000L);
+    }
+
+    @Test
+    void testGetVerifiedClaims()
+    {
+        final var token = this.tokenProvider.createToken("admin", List.of(RoleEnum.ROLE_ADMIN, RoleEnum.ROLE_USER), 60L);
+
+        final var claims = this.tokenProvider.getVerifiedClaims(token);
+
+        assertThat(claims).isNotNull();
+        assertThat(claims.getSubject()).isEqualTo("admin");
+        assertThat(claims.getTokenId()).hasSize(22);
+        assertThat(claims.getAuthorities()).containsExactlyInAnyOrder(RoleEnum.ROLE_ADMIN, RoleEnum.ROLE_USER);
+        assertThat(claims.getAuthorities()).isSameAs(AuthorityRegistry.authorities(Set.of(RoleEnum.ROLE_ADMIN, RoleEnum.ROLE_USER)));
+        assertThat(claims.getExpiresAt() - claims.getIssuedAt()).isEqualTo(60L);
+    }
+
+    @Test
+    void testGetVerifiedClaims_ShouldHitCache()
+    {
+        final var token = this.tokenProvider.createToken("admin", List.of(RoleEnum.ROLE_ADMIN), 60L);
+
+        final var first = this.tokenProvider.getVerifiedClaims(token);
+        final var second = this.tokenProvider.getVerifiedClaims(token);
+
+        assertThat(second).isSameAs(first);
+        assertThat(this.tokenCache.getHits()).isEqualTo(1L);
+        assertThat(this.tokenCache.getMisses()).isEqualTo(1L);
+        assertThat(this.tokenCache.getHitRate()).isEqualTo(0.5d);
+    }
+
+    @Test
+    void testResolveClaims()
+    {
+        final var token = this.tokenProvider.createToken("admin", List.of(RoleEnum.ROLE_ADMIN, new SimpleGrantedAuthority("SCOPE_read")), 60L);
+
+        final var claims = this.tokenProvider.resolveClaims("Bearer " + token);
+
+        assertThat(claims).isNotNull();
+        assertThat(claims.getSubject()).isEqualTo("admin");
+        assertThat(claims.getAuthorities()).extracting("authority").containsExactlyInAnyOrder("ROLE_ADMIN", "SCOPE_read");
+        assertThat(this.tokenProvider.resolveClaims("bearer  " + token)).isSameAs(claims);
+        assertThat(this.tokenProvider.getVerifiedClaims(token)).isSameAs(claims);
+        assertThat(this.tokenProvider.resolveClaims("Basic " + token)).isNull();
+        assertThat(this.tokenProvider.resolveClaims("Bearer")).isNull();
+        assertThat(this.tokenProvider.resolveClaims(null)).isNull();
+    }
+
+    @Test
+    void testValidateToken_WithTamperedToken()
+    {
+        final var token = this.tokenProvider.createToken("user", List.of(RoleEnum.ROLE_USER), 60L);
+        final var parts = token.split("\\.");
+        final var forgedClaims = Base64.getUrlEncoder().withoutPadding().encodeToString("{\"sub\":\"user\",\"auth\":[\"ROLE_ADMIN\"],\"iat\":1,\"exp\":9999999999}"
+        .getBytes(StandardCharsets.UTF_8));
+
+        assertThat(this.tokenProvider.validateToken(token)).isTrue();
+        assertThat(this.tokenProvider.validateToken(parts[0] + "." + forgedClaims + "." + parts[2])).isFalse();
+        assertThat(this.tokenProvider.validateToken("not.a.token")).isFalse();
+        assertThat(this.tokenProvider.validateToken(null)).isFalse();
+    }
+
+    @Test
+    void testValidateToken_WithOtherAlgorithmInHeader()
+    {
+        final var token = this.tokenProvider.createToken("admin", List.of(RoleEnum.ROLE_ADMIN), 60L);
+        final var header = new String(Base64.getUrlDecoder().decode(token.substring(0, token.indexOf('.'))), StandardCharsets.UTF_8);
+        final var forgedHeader = Base64.getUrlEncoder().withoutPadding().encodeToString(header.replace("RS256", "HS256").getBytes(
+        StandardCharsets.UTF_8));
+
+        assertThat(this.tokenProvider.validateToken(forgedHeader + token.substring(token.indexOf('.')))).isFalse();
+    }
+
+    @Test
+    void testValidateToken_WithMalformedKeyIdEscape()
+    {
+        final var token = this.tokenProvider.createToken("admin", List.of(RoleEnum.ROLE_ADMIN), 60L);
+        final var forgedHeader = Base64.getUrlEncoder().withoutPadding().encodeToString("{\"alg\":\"RS256\",\"kid\":\"\\uZZZZ\"}".getBytes(
+        StandardCharsets.UTF_8));
+        final var forged = forgedHeader + token.substring(token.indexOf('.'));
+
+        assertThat(this.tokenProvider.validateToken(forged)).isFalse();
+        assertThat(this.tokenProvider.getVerifiedClaims(forged)).isNull();
+    }
+
+    @Test
+    void testRevokeToken()
+    {
+        final var token = this.tokenProvider.createToken("user", List.of(RoleEnum.ROLE_USER), 60L);
+        final var other = this.tokenProvider.createToken("user", List.of(RoleEnum.ROLE_USER), 60L);
+
+        assertThat(this.tokenProvider.validateToken(token)).isTrue();
+        assertThat(this.tokenProvider.revokeToken(token)).isTrue();
+
+        assertThat(this.tokenProvider.validateToken(token)).isFalse();
+        assertThat(this.tokenProvider.validateToken(other)).isTrue();
+        assertThat(this.tokenProvider.revokeToken(token)).isFalse();
+    }
+
+    @Test
+    void testValidateToken_WithRevokedSubject() throws Exception
+    {
+        final var token = this.tokenProvider.createToken("user", List.of(RoleEnum.ROLE_USER), 60L);
+        assertThat(this.tokenProvider.validateToken(token)).isTrue();
+        final long issuedAt = this.tokenProvider.getVerifiedClaims(token).getIssuedAt();
+        while (Instant.now().getEpochSecond() == issuedAt)
+        {
+            Thread.sleep(10); // la révocation vaut pour les jetons émis avant sa seconde.
+        }
+
+        this.revocationList.revokeSubject("user");
+
+        assertThat(this.tokenProvider.validateToken(token)).isFalse();
+        assertThat(this.tokenProvider.resolveClaims("Bearer " + token)).isNull();
+        // Le jeton obtenu après la révocation (par exemple avec le nouveau mot de passe) est valide.
+        assertThat(this.tokenProvider.validateToken(this.tokenProvider.createToken("user", List.of(RoleEnum.ROLE_USER), 60L))).isTrue();
+    }
+
+    @Test
+    void testValidateToken_WithExpiredToken()
+    {
+        final var token = this.tokenProvider.createToken("user", List.of(RoleEnum.ROLE_USER), -1L);
+
+        assertThat(this.tokenProvider.validateToken(token)).isFalse();
+    }
+
+    @Test
+    void testValidateToken_AfterKeyRotation() throws Exception
+    {
+        final var previousKeyId = this.keyRing.getSigningKey().getKeyId();
+        final var previousToken = this.tokenProvider.createToken("user", List.of(RoleEnum.ROLE_USER), 60L);
+        SigningKeyRingTest.writeKeyPair(Files.createDirectories(this.tempDir.resolve("keys")), "key-2", true);
+
+        assertThat(this.keyRing.reload()).isTrue();
+        final var token = this.tokenProvider.createToken("user", List.of(RoleEnum.ROLE_USER), 60L);
+
+        assertThat(this.keyRing.getSigningKey().getKeyId()).isNotEqualTo(previousKeyId);
+        assertThat(new String(Base64.getUrlDecoder().decode(token.split("\\.")[0]), StandardCharsets.UTF_8)).contains(this.keyRing
+        .getSigningKey().getKeyId());
+        this.tokenCache.clear();
+        assertThat(this.tokenProvider.validateToken(previousToken)).isTrue();
+        assertThat(this.tokenProvider.validateToken(token)).isTrue();
+    }
+
+    @Test
+    void testCreateToken_WithCompactFormat() throws Exception
+    {
+        final var standardToken = this.tokenProvider.createToken("admin", List.of(RoleEnum.ROLE_ADMIN, RoleEnum.ROLE_USER), 60L);
+        this.securityProps.getTokenFormat().setCompact(true);
+        final var compactProvider = new AuthTokenProvider(this.propsService, this.tokenCache, this.revocationList, this.keyRing, this.securityProps,
+        this.metrics);
+        compactProvider.afterPropertiesSet();
+
+        final var token = compactProvider.createToken("admin", List.of(RoleEnum.ROLE_ADMIN, RoleEnum.ROLE_USER), 60L);
+        final var parts = token.split("\\.");
+        final var header = new String(Base64.getUrlDecoder().decode(parts[0]), StandardCharsets.UTF_8);
+        final var claims = new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8);
+
+        assertThat(header).doesNotContain("typ").contains("\"alg\":\"RS256\"");
+        assertThat(claims).contains("\"auth\":3,");
+        assertThat(token.length()).isLessThan(standardToken.length());
+        assertThat(compactProvider.getVerifiedClaims(token).getAuthorities()).containsExactly(RoleEnum.ROLE_USER, RoleEnum.ROLE_ADMIN);
+        // Les deux formats sont acceptés par les deux configurations.
+        assertThat(compactProvider.validateToken(standardToken)).isTrue();
+        this.tokenCache.clear();
+        assertThat(this.tokenProvider.getVerifiedClaims(token).getAuthorities()).containsExactly(RoleEnum.ROLE_USER, RoleEnum.ROLE_ADMIN);
+    }
+
+    @Test
+    void testCreateToken_WithCompactFormatAndUnknownAuthority() throws Exception
+    {
+        this.securityProps.getTokenFormat().setCompact(true);
+        final var compactProvider = new AuthTokenProvider(this.propsService, this.tokenCache, this.revocationList, this.keyRing, this.securityProps,
+        this.metrics);
+        compactProvider.afterPropertiesSet();
+
+        final var token = compactProvider.createToken("admin", List.of(RoleEnum.ROLE_ADMIN, new SimpleGrantedAuthority("SCOPE_read")), 60L);
+        final var claims = new String(Base64.getUrlDecoder().decode(token.split("\\.")[1]), StandardCharsets.UTF_8);
+
+        assertThat(claims).contains("\"auth\":[\"ROLE_ADMIN\",\"SCOPE_read\"]");
+        assertThat(compactProvider.getVerifiedClaims(token).getAuthorities()).extracting("authority").containsExactly("ROLE_ADMIN",
+        "SCOPE_read");
+    }
+
+    @Test
+    void testGetAuthentication()
+    {
+        final var token = this.tokenProvider.createToken("user", List.of(RoleEnum.ROLE_USER), 60L);
+
+        final var authentication = this.tokenProvider.getAuthentication(this.tokenProvider.getVerifiedClaims(token), token);
+
+        assertThat(authentication.getName()).isEqualTo("user");
+        assertThat(authentication.getAuthorities()).extracting("authority").containsExactly("ROLE_USER");
+    }
+
+    @Test
+    void testIsNotNullResource()
+    {
+        assertThat(this.tokenProvider.getJwtSigner()).isNotNull();
+        assertThat(this.tokenProvider.getTokenValidityInSeconds()).isEqualTo(86400L);
+    }
+
+    @Test
+    void testRenewToken()
+    {
+        final var claims = this.tokenProvider.getVerifiedClaims(this.tokenProvider.createToken("user", List.of(RoleEnum.ROLE_USER), 86400L));
+        assertThat(this.tokenProvider.renewToken(claims)).isNull();
+
+        this.securityProps.getSlidingRenewal().setRenewAfter(0.0);
+        final var renewed = this.tokenProvider.renewToken(claims);
+        final var renewedClaims = this.tokenProvider.getVerifiedClaims(renewed);
+
+        assertThat(renewedClaims).isNotNull();
+        assertThat(renewedClaims.getSubject()).isEqualTo("user");
+        assertThat(renewedClaims.getTokenId()).isNotEqualTo(claims.getTokenId());
+        assertThat(renewedClaims.getAuthorities()).extracting("authority").containsExactly("ROLE_USER");
+        assertThat(renewedClaims.getExpiresAt() - renewedClaims.getIssuedAt()).isEqualTo(86400L);
+        assertThat(this.tokenProvider.renewToken(claims)).isSameAs(renewed);
+        assertThat(this.tokenProvider.getPendingRenewals()).isEqualTo(1);
+    }
+
+    @Test
+    void testRenewToken_ClientToken()
+    {
+        this.securityProps.getSlidingRenewal().setRenewAfter(0.0);
+        final var token = this.tokenProvider.createToken("batch:report", List.of(RoleEnum.ROLE_USER), 86400L, "batch-client-app");
+        final var claims = this.tokenProvider.getVerifiedClaims(token);
+
+        assertThat(claims.getClientId()).isEqualTo("batch-client-app");
+        assertThat(this.tokenProvider.renewToken(claims)).isNull();
+        assertThat(this.tokenProvider.getPendingRenewals()).isZero();
+    }
+
+    @Test
+    void testRenewToken_BatchLifetime()
+    {
+        this.securityProps.getSlidingRenewal().setRenewAfter(0.0);
+        final var claims = this.tokenProvider.getVerifiedClaims(this.tokenProvider.createToken("user", List.of(RoleEnum.ROLE_USER), 300L));
+
+        assertThat(claims.getClientId()).isNull();
+        assertThat(this.tokenProvider.renewToken(claims)).isNull();
+    }
+
+    @Test
+    void testRenewToken_RememberMe()
+    {
+        this.securityProps.getSlidingRenewal().setRenewAfter(0.0);
+        final var claims = this.tokenProvider.getVerifiedClaims(this.tokenProvider.createToken("user", List.of(RoleEnum.ROLE_USER), 2592000L));
+
+        final var renewedClaims = this.tokenProvider.getVerifiedClaims(this.tokenProvider.renewToken(claims));
+
+        assertThat(renewedClaims.getExpiresAt() - renewedClaims.getIssuedAt()).isEqualTo(2592000L);
+    }
+
+    @Test
+    void testRenewToken_Disabled()
+    {
+        this.securityProps.getSlidingRenewal().setRenewAfter(0.0);
+        this.securityProps.getSlidingRenewal().setEnabled(false);
+        final var claims = this.tokenProvider.getVerifiedClaims(this.tokenProvider.createToken("user", List.of(RoleEnum.ROLE_USER), 86400L));
+
+        assertThat(this.tokenProvider.renewToken(claims)).isNull();
+    }
+
+    @Test
+    void testRenewToken_Concurrent() throws Exception
+    {
+        this.securityProps.getSlidingRenewal().setRenewAfter(0.0);
+        final var claims = this.tokenProvider.getVerifiedClaims(this.tokenProvider.createToken("user", List.of(RoleEnum.ROLE_USER), 86400L));
+        final var executor = Executors.newFixedThreadPool(8);
+        final var start = new CountDownLatch(1);
+        try
+        {
+            final List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++)
+            {
+                final Callable<String> renewal = () -> {
+                    start.await();
+                    return this.tokenProvider.renewToken(claims);
+                };
+                results.add(executor.submit(renewal));
+            }
+            start.countDown();
+
+            final Set<String> tokens = new HashSet<>();
+            for (final Future<String> result : results)
+            {
+                tokens.add(result.get(10, TimeUnit.SECONDS));
+            }
+            assertThat(tokens).hasSize(1).doesNotContainNull();
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testMetrics()
+    {
+        final var registry = new SimpleMeterRegistry();
+        this.metrics.bindTo(registry);
+        final var token = this.tokenProvider.createToken("user", List.of(RoleEnum.ROLE_USER), 60L);
+        final var revoked = this.tokenProvider.createToken("user", List.of(RoleEnum.ROLE_USER), 60L);
+        this.tokenProvider.revokeToken(revoked);
+
+        assertThat(this.tokenProvider.resolveClaims("Bearer " + token)).isNotNull();
+        assertThat(this.tokenProvider.resolveClaims("Bearer " + token)).isNotNull();
+        assertThat(this.tokenProvider.resolveClaims("Bearer " + revoked)).isNull();
+        assertThat(this.tokenProvider.resolveClaims("Bearer " + token.substring(0, token.length() - 4) + "AAAA")).isNull();
+        assertThat(this.tokenProvider.resolveClaims("Bearer not-a-token")).isNull();
+        assertThat(this.tokenProvider.validateToken(this.tokenProvider.createToken("user", List.of(RoleEnum.ROLE_USER), 0L))).isFalse();
+
+        assertThat(registry.get("security.authentication.stage").tag("stage", "token_issuance").timer().count()).isEqualTo(3L);
+        assertThat(registry.get("security.authentication.stage").tag("stage", "header_parsing").timer().count()).isEqualTo(5L);
+        // Le second appel est servi par le cache : seule la première vérification de chaque jeton est chronométrée.
+        assertThat(registry.get("security.authentication.stage").tag("stage", "signature_verification").timer().count()).isEqualTo(3L);
+        assertThat(registry.get("security.authentication.failures").tag("reason", "revoked").counter().count()).isEqualTo(1.0);
+        assertThat(registry.get("security.authentication.failures").tag("reason", "bad_signature").counter().count()).isEqualTo(1.0);
+        assertThat(registry.get("security.authentication.failures").tag("reason", "malformed").counter().count()).isEqualTo(1.0);
+        assertThat(registry.get("security.authentication.failures").tag("reason", "expired").counter().count()).isEqualTo(1.0);
+    }
+}
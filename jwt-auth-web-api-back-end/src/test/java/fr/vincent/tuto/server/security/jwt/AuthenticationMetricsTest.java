@@ -0,0 +1,109 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : AuthenticationMetricsTest.java
+ * Date de création : 9 mars 2021
+ * Heure de création : 11:38:14
+ * Package : fr.vincent.tuto.server.security.jwt
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.security.jwt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
+import org.springframework.security.authentication.LockedException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.event.AuthenticationFailureBadCredentialsEvent;
+import org.springframework.security.authentication.event.AuthenticationFailureLockedEvent;
+import org.springframework.security.authentication.event.AuthenticationFailureServiceExceptionEvent;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import fr.vincent.tuto.server.security.throttle.LoginThrottledException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Classe des Tests Unitaires des objets de type {@link AuthenticationMetrics}
+ *
+ * @author Vincent Otchoun
+ */
+class AuthenticationMetricsTest
+{
+    private AuthenticationMetrics metrics;
+    private SimpleMeterRegistry registry;
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        this.metrics = new AuthenticationMetrics();
+        this.registry = new SimpleMeterRegistry();
+        this.metrics.bindTo(this.registry);
+    }
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @AfterEach
+    void tearDown() throws Exception
+    {
+        this.metrics = null;
+    }
+
+    @Test
+    void testBindTo()
+    {
+        assertThat(this.registry.get("security.authentication.stage").timers()).hasSize(AuthenticationMetrics.Stage.values().length);
+        assertThat(this.registry.get("security.authentication.failures").counters()).hasSize(AuthenticationMetrics.Failure.values().length);
+    }
+
+    @Test
+    void testRecord()
+    {
+        this.metrics.record(AuthenticationMetrics.Stage.HEADER_PARSING, System.nanoTime());
+        this.metrics.fail(AuthenticationMetrics.Failure.EXPIRED);
+
+        assertThat(this.registry.get("security.authentication.stage").tag("stage", "header_parsing").timer().count()).isEqualTo(1L);
+        assertThat(this.registry.get("security.authentication.failures").tag("reason", "expired").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void testTimed()
+    {
+        final var encoder = new BCryptPasswordEncoder(4);
+        final var encoded = encoder.encode("secret");
+        final var timed = this.metrics.timed(encoder);
+
+        assertThat(timed.matches("secret", encoded)).isTrue();
+        assertThat(timed.matches("other", encoded)).isFalse();
+        assertThat(timed.upgradeEncoding(encoded)).isFalse();
+        assertThat(this.registry.get("security.authentication.stage").tag("stage", "password_check").timer().count()).isEqualTo(2L);
+    }
+
+    @Test
+    void testOnAuthenticationFailure()
+    {
+        final var authentication = new UsernamePasswordAuthenticationToken("admin", "secret");
+
+        this.metrics.onAuthenticationFailure(new AuthenticationFailureBadCredentialsEvent(authentication, new BadCredentialsException("bad")));
+        this.metrics.onAuthenticationFailure(new AuthenticationFailureLockedEvent(authentication, new LockedException("locked")));
+        // Échec interne : le motif a déjà été compté par le chargement de l'utilisateur.
+        this.metrics.onAuthenticationFailure(new AuthenticationFailureServiceExceptionEvent(authentication,
+        new InternalAuthenticationServiceException("internal")));
+
+        assertThat(this.registry.get("security.authentication.failures").tag("reason", "bad_credentials").counter().count()).isEqualTo(1.0);
+        assertThat(this.registry.get("security.authentication.failures").tag("reason", "locked").counter().count()).isEqualTo(1.0);
+        assertThat(this.registry.get("security.authentication.failures").tag("reason", "other").counter().count()).isZero();
+        assertThat(AuthenticationMetrics.failureOf(new AuthenticationServiceException("other"))).isEqualTo(AuthenticationMetrics.Failure.OTHER);
+        assertThat(AuthenticationMetrics.failureOf(new LoginThrottledException("throttled"))).isEqualTo(AuthenticationMetrics.Failure.THROTTLED);
+    }
+}
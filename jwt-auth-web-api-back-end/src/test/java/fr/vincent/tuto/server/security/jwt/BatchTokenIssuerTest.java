@@ -0,0 +1,187 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : BatchTokenIssuerTest.java
+ * Date de création : 8 mars 2021
+ * Heure de création : 17:12:54
+ * Package : fr.vincent.tuto.server.security.jwt
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.security.jwt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import fr.vincent.tuto.common.service.props.ApplicationPropsService;
+import fr.vincent.tuto.server.config.props.ServerSecurityProps;
+import fr.vincent.tuto.server.dao.UserBatchDAO;
+import fr.vincent.tuto.server.model.dto.TokenRequestDTO;
+
+/**
+ * Classe des Tests Unitaires des objets de type {@link BatchTokenIssuer}
+ *
+ * @author Vincent Otchoun
+ */
+class BatchTokenIssuerTest
+{
+    private static final String CRYPTO_VALUE = "my-app-recette";
+    private static final String CLIENT = "batch-client-app";
+
+    private BatchTokenIssuer batchTokenIssuer;
+    private AuthTokenProvider tokenProvider;
+    private TokenRevocationList revocationList;
+    private SigningKeyRing keyRing;
+    private UserBatchDAO userBatchDAO;
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        final var propsService = Mockito.mock(ApplicationPropsService.class, Mockito.RETURNS_DEEP_STUBS);
+        Mockito.when(propsService.getJwtProps().getAuthoritiesKey()).thenReturn("auth");
+        Mockito.when(propsService.getJwtProps().getBearerToken()).thenReturn("Bearer ");
+        Mockito.when(propsService.getJwtProps().getTokenValidity()).thenReturn(86400L);
+        Mockito.when(propsService.getJwtProps().getTokenValidityForRememberMe()).thenReturn(2592000L);
+        Mockito.when(propsService.getCryptoProps().getKeystoreFileLocation()).thenReturn("./src/test/resources/crypto/my-app-recette-keystore.jks");
+        Mockito.when(propsService.getCryptoProps().getKeystorePassword()).thenReturn(CRYPTO_VALUE);
+        Mockito.when(propsService.getCryptoProps().getKeyPassword()).thenReturn(CRYPTO_VALUE);
+        Mockito.when(propsService.getCryptoProps().getAliasKeystore()).thenReturn(CRYPTO_VALUE);
+        Mockito.when(propsService.getCryptoProps().getKeyStoreType()).thenReturn("JKS");
+
+        final var securityProps = new ServerSecurityProps();
+        securityProps.getKeyRing().setWatch(false);
+        securityProps.getKeyRing().setBenchmarkMillis(0);
+        securityProps.getRevocation().setStoreFile(this.tempDir.resolve("revoked-tokens.log").toString());
+        securityProps.getBatchIssuance().setParallelism(3);
+        securityProps.getBatchIssuance().setChunkSize(16);
+        securityProps.getBatchIssuance().setValiditySeconds(120);
+        this.revocationList = new TokenRevocationList(propsService, securityProps);
+        this.revocationList.afterPropertiesSet();
+        this.keyRing = new SigningKeyRing(propsService, securityProps);
+        this.keyRing.afterPropertiesSet();
+        this.tokenProvider = new AuthTokenProvider(propsService, new VerifiedTokenCache(securityProps), this.revocationList, this.keyRing,
+        securityProps, new AuthenticationMetrics());
+        this.tokenProvider.afterPropertiesSet();
+        this.userBatchDAO = Mockito.mock(UserBatchDAO.class);
+        this.batchTokenIssuer = new BatchTokenIssuer(this.tokenProvider, this.userBatchDAO, securityProps);
+    }
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @AfterEach
+    void tearDown() throws Exception
+    {
+        this.batchTokenIssuer.destroy();
+        this.revocationList.destroy();
+        this.keyRing.destroy();
+        this.batchTokenIssuer = null;
+    }
+
+    @Test
+    void testIssue() throws Exception
+    {
+        final var requests = IntStream.range(0, 200).mapToObj(i -> TokenRequestDTO.builder()//
+        .subject("worker-" + i)//
+        .scopes(List.of("products:read", "partition-" + i % 7))//
+        .build())//
+        .collect(Collectors.toList());
+        final var output = new ByteArrayOutputStream();
+
+        this.batchTokenIssuer.issue(requests, CLIENT, output);
+
+        final var lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(200);
+        for (int i = 0; i < lines.length; i++)
+        {
+            assertThat(lines[i]).startsWith("{\"index\":" + i + ",\"sub\":\"batch:worker-" + i + "\",\"access_token\":\"")//
+            .endsWith("\",\"token_type\":\"Bearer\",\"expires_in\":120}");
+            final var token = lines[i].replaceAll(".*\"access_token\":\"([^\"]+)\".*", "$1");
+            final var claims = this.tokenProvider.getVerifiedClaims(token);
+            assertThat(claims).isNotNull();
+            assertThat(claims.getSubject()).isEqualTo("batch:worker-" + i);
+            assertThat(payload(token)).contains("\"client_id\":\"" + CLIENT + "\"");
+            assertThat(claims.getExpiresAt() - claims.getIssuedAt()).isEqualTo(120L);
+            assertThat(claims.getAuthorities()).extracting("authority").containsExactly("SCOPE_products:read", "SCOPE_partition-" + i % 7);
+        }
+    }
+
+    @Test
+    void testIssue_WithoutScopes() throws Exception
+    {
+        final var output = new ByteArrayOutputStream();
+
+        this.batchTokenIssuer.issue(List.of(TokenRequestDTO.builder().subject("worker").build()), CLIENT, output);
+
+        final var token = output.toString(StandardCharsets.UTF_8).replaceAll("(?s).*\"access_token\":\"([^\"]+)\".*", "$1");
+        final var claims = this.tokenProvider.getVerifiedClaims(token);
+        assertThat(claims).isNotNull();
+        assertThat(claims.getAuthorities()).isEmpty();
+    }
+
+    @Test
+    void testIssue_Disconnected()
+    {
+        final var requests = IntStream.range(0, 500).mapToObj(i -> TokenRequestDTO.builder().subject("worker-" + i).build()).collect(Collectors
+        .toList());
+        final var output = new OutputStream()
+        {
+            @Override
+            public void write(final int pByte) throws IOException
+            {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        assertThatThrownBy(() -> this.batchTokenIssuer.issue(requests, CLIENT, output)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void testIsClient()
+    {
+        assertThat(this.batchTokenIssuer.isClient("batch-client-app")).isTrue();
+        assertThat(this.batchTokenIssuer.isClient("web-client-app")).isFalse();
+        assertThat(this.batchTokenIssuer.isClient(null)).isFalse();
+        assertThat(this.batchTokenIssuer.getMaxRequests()).isEqualTo(10000);
+    }
+
+    @Test
+    void testFindRejectedSubjects()
+    {
+        Mockito.when(this.userBatchDAO.findExistingUsernames(Mockito.anyCollection())).thenReturn(Set.of("admin"));
+        final var requests = List.of("Admin", "Batch-Client-App", "web-client-app", "worker").stream()//
+        .map(subject -> TokenRequestDTO.builder().subject(subject).build())//
+        .collect(Collectors.toList());
+
+        assertThat(this.batchTokenIssuer.findRejectedSubjects(requests)).containsExactly("Admin", "Batch-Client-App");
+    }
+
+    private static String payload(final String pToken)
+    {
+        return new String(Base64.getUrlDecoder().decode(pToken.split("\\.")[1]), StandardCharsets.UTF_8);
+    }
+}
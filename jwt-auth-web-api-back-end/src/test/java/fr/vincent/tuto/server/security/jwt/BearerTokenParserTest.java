@@ -0,0 +1,189 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : BearerTokenParserTest.java
+ * Date de création : 6 mars 2021
+ * Heure de création : 09:12:40
+ * Package : fr.vincent.tuto.server.security.jwt
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.security.jwt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import fr.vincent.tuto.server.enumeration.RoleEnum;
+
+/**
+ * Classe des Tests Unitaires des objets de type {@link BearerTokenParser}
+ *
+ * @author Vincent Otchoun
+ */
+class BearerTokenParserTest
+{
+    private static final String HEADER = encode("{\"alg\":\"RS256\",\"typ\":\"JWT\"}");
+    private static final String SIGNATURE = encode("signature");
+
+    private BearerTokenParser tokenParser;
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        this.tokenParser = new BearerTokenParser("Bearer", "auth");
+    }
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @AfterEach
+    void tearDown() throws Exception
+    {
+        this.tokenParser = null;
+    }
+
+    @Test
+    void testTokenStart()
+    {
+        assertThat(this.tokenParser.tokenStart("Bearer abc")).isEqualTo(7);
+        assertThat(this.tokenParser.tokenStart("bearer   abc")).isEqualTo(9);
+        assertThat(this.tokenParser.tokenStart("Bearerabc")).isEqualTo(-1);
+        assertThat(this.tokenParser.tokenStart("Basic abc")).isEqualTo(-1);
+        assertThat(this.tokenParser.tokenStart("Bearer   ")).isEqualTo(-1);
+        assertThat(this.tokenParser.tokenStart(null)).isEqualTo(-1);
+    }
+
+    @Test
+    void testParse()
+    {
+        final var header = "Bearer " + token("{\"sub\":\"admin\",\"auth\":[\"ROLE_ADMIN\",\"ROLE_USER\"],\"iat\":100,\"exp\":200}");
+
+        final var parsed = this.tokenParser.parse(header, this.tokenParser.tokenStart(header), header.length());
+
+        assertThat(parsed).isNotNull();
+        assertThat(parsed.subject()).isEqualTo("admin");
+        assertThat(parsed.getIssuedAt()).isEqualTo(100L);
+        assertThat(parsed.getExpiresAt()).isEqualTo(200L);
+        assertThat(parsed.getRoleMask()).isEqualTo(1 << RoleEnum.ROLE_ADMIN.ordinal() | 1 << RoleEnum.ROLE_USER.ordinal());
+        assertThat(parsed.hasUnknownAuthorities()).isFalse();
+        assertThat(new String(parsed.getSigningInput(), 0, parsed.getSigningInputLength(), StandardCharsets.US_ASCII)).isEqualTo(header
+        .substring(7, header.lastIndexOf('.')));
+        assertThat(new String(parsed.getSignature(), 0, parsed.getSignatureLength(), StandardCharsets.US_ASCII)).isEqualTo("signature");
+    }
+
+    @Test
+    void testParse_ShouldReuseThreadState()
+    {
+        final var first = token("{\"sub\":\"a\",\"exp\":1}");
+        final var second = token("{\"sub\":\"b\",\"exp\":2}");
+
+        final var parsedFirst = this.tokenParser.parse(first, 0, first.length());
+        final var parsedSecond = this.tokenParser.parse(second, 0, second.length());
+
+        assertThat(parsedSecond).isSameAs(parsedFirst);
+        assertThat(parsedSecond.subject()).isEqualTo("b");
+        assertThat(parsedSecond.getRoleMask()).isZero();
+    }
+
+    @Test
+    void testParse_WithUnknownAuthoritiesAndEscapes()
+    {
+        final var token = token("{ \"iss\" : {\"a\":[1,\"}\"]}, \"sub\" : \"j\\\"doe\\u00e9\", \"auth\" : [\"SCOPE_read\", \"ROLE_USER\"], \"exp\" : 5 }");
+
+        final var parsed = this.tokenParser.parse(token, 0, token.length());
+
+        assertThat(parsed).isNotNull();
+        assertThat(parsed.subject()).isEqualTo("j\"doeé");
+        assertThat(parsed.getRoleMask()).isEqualTo(1 << RoleEnum.ROLE_USER.ordinal());
+        assertThat(parsed.hasUnknownAuthorities()).isTrue();
+        assertThat(parsed.unknownAuthorityNames()).containsExactly("SCOPE_read");
+    }
+
+    @Test
+    void testParse_WithRoleMask()
+    {
+        final var token = token("{\"sub\":\"admin\",\"auth\":6,\"iat\":100,\"exp\":200}");
+
+        final var parsed = this.tokenParser.parse(token, 0, token.length());
+
+        assertThat(parsed.getRoleMask()).isEqualTo(1 << RoleEnum.ROLE_ADMIN.ordinal() | 1 << RoleEnum.ROLE_MODERATOR.ordinal());
+        assertThat(parsed.hasUnknownAuthorities()).isFalse();
+        assertThat(parsed.unknownAuthorityNames()).isEmpty();
+        assertThat(parsed.getExpiresAt()).isEqualTo(200L);
+
+        final var outOfRange = token("{\"sub\":\"admin\",\"auth\":65537,\"exp\":200}");
+        assertThat(this.tokenParser.parse(outOfRange, 0, outOfRange.length()).getRoleMask()).isEqualTo(1);
+    }
+
+    @Test
+    void testParse_WithKeyId()
+    {
+        final var claims = encode("{\"sub\":\"admin\",\"exp\":200}");
+        final var withKeyId = encode("{\"alg\":\"RS256\",\"typ\":\"JWT\",\"kid\":\"key-1\"}") + "." + claims + "." + SIGNATURE;
+
+        final var parsed = this.tokenParser.parse(withKeyId, 0, withKeyId.length());
+
+        assertThat(parsed.hasKeyId()).isTrue();
+        assertThat(parsed.keyId()).isEqualTo("key-1");
+        assertThat(parsed.hasKeyId("key-1".getBytes(StandardCharsets.US_ASCII))).isTrue();
+        assertThat(parsed.hasKeyId("key-2".getBytes(StandardCharsets.US_ASCII))).isFalse();
+
+        final var withoutKeyId = token("{\"sub\":\"admin\",\"exp\":200}");
+        assertThat(this.tokenParser.parse(withoutKeyId, 0, withoutKeyId.length()).hasKeyId()).isFalse();
+        final var badHeader = encode("{\"kid\"}") + "." + claims + "." + SIGNATURE;
+        assertThat(this.tokenParser.parse(badHeader, 0, badHeader.length())).isNull();
+    }
+
+    @Test
+    void testParse_WithMalformedEscapes()
+    {
+        final var claims = encode("{\"sub\":\"admin\",\"exp\":200}");
+        for (final String keyId : new String[] { "\\uZZZZ", "key\\u00", "key\\u", "key\\x" })
+        {
+            final var token = encode("{\"alg\":\"RS256\",\"kid\":\"" + keyId + "\"}") + "." + claims + "." + SIGNATURE;
+
+            final var parsed = this.tokenParser.parse(token, 0, token.length());
+
+            assertThat(parsed.hasKeyId()).isTrue();
+            assertThat(parsed.keyId()).isNull();
+        }
+        final var badSubject = token("{\"sub\":\"adm\\u12G4in\",\"auth\":[\"SCOPE_\\u00\"],\"exp\":200}");
+        final var parsed = this.tokenParser.parse(badSubject, 0, badSubject.length());
+        assertThat(parsed.subject()).isNull();
+        assertThat(parsed.unknownAuthorityNames()).isEmpty();
+    }
+
+    @Test
+    void testParse_WithMalformedToken()
+    {
+        assertThat(this.tokenParser.parse("abc", 0, 3)).isNull();
+        assertThat(this.tokenParser.parse("a.b.c.d", 0, 7)).isNull();
+        assertThat(this.tokenParser.parse("a..c", 0, 4)).isNull();
+        final var noSubject = token("{\"exp\":5}");
+        assertThat(this.tokenParser.parse(noSubject, 0, noSubject.length())).isNull();
+        final var notJson = token("[\"sub\"]");
+        assertThat(this.tokenParser.parse(notJson, 0, notJson.length())).isNull();
+        final var invalidChar = token("{\"sub\":\"a\",\"exp\":5}").replace('-', '+') + "+";
+        assertThat(this.tokenParser.parse(invalidChar, 0, invalidChar.length())).isNull();
+    }
+
+    private static String token(final String pClaims)
+    {
+        return HEADER + "." + encode(pClaims) + "." + SIGNATURE;
+    }
+
+    private static String encode(final String pValue)
+    {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(pValue.getBytes(StandardCharsets.UTF_8));
+    }
+}
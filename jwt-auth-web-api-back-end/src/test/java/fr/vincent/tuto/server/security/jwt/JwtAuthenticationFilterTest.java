@@ -0,0 +1,270 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : JwtAuthenticationFilterTest.java
+ * Date de création : 8 mars 2021
+ * Heure de création : 15:02:41
+ * Package : fr.vincent.tuto.server.security.jwt
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.security.jwt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+
+import fr.vincent.tuto.common.service.props.ApplicationPropsService;
+import fr.vincent.tuto.server.config.props.ServerSecurityProps;
+import fr.vincent.tuto.server.enumeration.RoleEnum;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Classe des Tests Unitaires des objets de type {@link JwtAuthenticationFilter}
+ *
+ * @author Vincent Otchoun
+ */
+class JwtAuthenticationFilterTest
+{
+    private static final String CRYPTO_VALUE = "my-app-recette";
+    private static final String AUTHORIZATION = "Authorization";
+
+    private JwtAuthenticationFilter authenticationFilter;
+    private AuthTokenProvider tokenProvider;
+    private OpaqueTokenStore opaqueTokenStore;
+    private TokenRevocationList revocationList;
+    private SigningKeyRing keyRing;
+    private ServerSecurityProps securityProps;
+    private SimpleMeterRegistry meterRegistry;
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        final var propsService = Mockito.mock(ApplicationPropsService.class, Mockito.RETURNS_DEEP_STUBS);
+        Mockito.when(propsService.getJwtProps().getAuthoritiesKey()).thenReturn("auth");
+        Mockito.when(propsService.getJwtProps().getBearerToken()).thenReturn("Bearer ");
+        Mockito.when(propsService.getJwtProps().getAuthorizationHeader()).thenReturn(AUTHORIZATION);
+        Mockito.when(propsService.getJwtProps().getTokenValidity()).thenReturn(86400L);
+        Mockito.when(propsService.getJwtProps().getTokenValidityForRememberMe()).thenReturn(2592000L);
+        Mockito.when(propsService.getCryptoProps().getKeystoreFileLocation()).thenReturn("./src/test/resources/crypto/my-app-recette-keystore.jks");
+        Mockito.when(propsService.getCryptoProps().getKeystorePassword()).thenReturn(CRYPTO_VALUE);
+        Mockito.when(propsService.getCryptoProps().getKeyPassword()).thenReturn(CRYPTO_VALUE);
+        Mockito.when(propsService.getCryptoProps().getAliasKeystore()).thenReturn(CRYPTO_VALUE);
+        Mockito.when(propsService.getCryptoProps().getKeyStoreType()).thenReturn("JKS");
+
+        final var securityProps = this.securityProps = new ServerSecurityProps();
+        securityProps.getKeyRing().setWatch(false);
+        securityProps.getKeyRing().setBenchmarkMillis(0);
+        securityProps.getRevocation().setStoreFile(this.tempDir.resolve("revoked-tokens.log").toString());
+        securityProps.getOpaqueToken().setEnabled(true);
+        securityProps.getOpaqueToken().setMaxSessions(100);
+        this.revocationList = new TokenRevocationList(propsService, securityProps);
+        this.revocationList.afterPropertiesSet();
+        this.keyRing = new SigningKeyRing(propsService, securityProps);
+        this.keyRing.afterPropertiesSet();
+        final var metrics = new AuthenticationMetrics();
+        this.meterRegistry = new SimpleMeterRegistry();
+        metrics.bindTo(this.meterRegistry);
+        this.tokenProvider = new AuthTokenProvider(propsService, new VerifiedTokenCache(securityProps), this.revocationList, this.keyRing,
+        securityProps, metrics);
+        this.tokenProvider.afterPropertiesSet();
+        this.opaqueTokenStore = new OpaqueTokenStore(propsService, securityProps);
+        this.opaqueTokenStore.afterPropertiesSet();
+        this.authenticationFilter = new JwtAuthenticationFilter(this.tokenProvider, this.opaqueTokenStore, propsService, securityProps);
+        SecurityContextHolder.clearContext();
+    }
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @AfterEach
+    void tearDown() throws Exception
+    {
+        SecurityContextHolder.clearContext();
+        this.opaqueTokenStore.destroy();
+        this.revocationList.destroy();
+        this.keyRing.destroy();
+        this.authenticationFilter = null;
+    }
+
+    @Test
+    void testDoFilter()
+    {
+        final var token = this.tokenProvider.createToken("admin", List.of(RoleEnum.ROLE_ADMIN, RoleEnum.ROLE_USER), 60L);
+        final var request = new MockHttpServletRequest();
+        request.addHeader(AUTHORIZATION, "Bearer " + token);
+        final var chain = new MockFilterChain();
+
+        final var response = this.doFilter(request, chain);
+
+        final var authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertThat(chain.getRequest()).isSameAs(request);
+        assertThat(response.getHeader("X-Renewed-Token")).isNull();
+        assertThat(authentication).isNotNull();
+        assertThat(authentication.isAuthenticated()).isTrue();
+        assertThat(authentication.getName()).isEqualTo("admin");
+        assertThat(authentication.getPrincipal()).isInstanceOf(User.class);
+        assertThat(authentication.getAuthorities()).extracting("authority").containsExactlyInAnyOrder("ROLE_ADMIN", "ROLE_USER");
+    }
+
+    @Test
+    void testDoFilter_WithoutHeader()
+    {
+        final var chain = new MockFilterChain();
+
+        this.doFilter(new MockHttpServletRequest(), chain);
+
+        assertThat(chain.getRequest()).isNotNull();
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+    }
+
+    @Test
+    void testDoFilter_InvalidToken()
+    {
+        final var token = this.tokenProvider.createToken("admin", List.of(RoleEnum.ROLE_ADMIN), 60L);
+        final var request = new MockHttpServletRequest();
+        request.addHeader(AUTHORIZATION, "Bearer " + token.substring(0, token.length() - 4) + "AAAA");
+        final var chain = new MockFilterChain();
+
+        this.doFilter(request, chain);
+
+        assertThat(chain.getRequest()).isNotNull();
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+    }
+
+    @Test
+    void testDoFilter_NotBearer()
+    {
+        final var request = new MockHttpServletRequest();
+        request.addHeader(AUTHORIZATION, "Basic YWRtaW46YWRtaW4=");
+        final var chain = new MockFilterChain();
+
+        this.doFilter(request, chain);
+
+        assertThat(chain.getRequest()).isNotNull();
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+    }
+
+    @Test
+    void testDoFilter_RevokedToken()
+    {
+        final var token = this.tokenProvider.createToken("admin", List.of(RoleEnum.ROLE_USER), 60L);
+        this.tokenProvider.revokeToken(token);
+        final var request = new MockHttpServletRequest();
+        request.addHeader(AUTHORIZATION, "Bearer " + token);
+        final var chain = new MockFilterChain();
+
+        this.doFilter(request, chain);
+
+        assertThat(chain.getRequest()).isNotNull();
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+    }
+
+    @Test
+    void testDoFilter_OpaqueToken()
+    {
+        final var token = this.opaqueTokenStore.createToken("admin", List.of(RoleEnum.ROLE_USER), 60L);
+        final var request = new MockHttpServletRequest();
+        request.addHeader(AUTHORIZATION, "Bearer " + token);
+        final var chain = new MockFilterChain();
+
+        this.doFilter(request, chain);
+
+        final var authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertThat(chain.getRequest()).isSameAs(request);
+        assertThat(authentication).isNotNull();
+        assertThat(authentication.getName()).isEqualTo("admin");
+        assertThat(authentication.getAuthorities()).extracting("authority").containsExactly("ROLE_USER");
+    }
+
+    @Test
+    void testDoFilter_OpaqueToken_RevokedSubject() throws Exception
+    {
+        final var token = this.opaqueTokenStore.createToken("admin", List.of(RoleEnum.ROLE_USER), 60L);
+        final long issuedAt = this.opaqueTokenStore.getClaims(token).getIssuedAt();
+        while (Instant.now().getEpochSecond() == issuedAt)
+        {
+            Thread.sleep(10); // la révocation vaut pour les sessions ouvertes avant sa seconde.
+        }
+        this.revocationList.revokeSubject("admin");
+        final var request = new MockHttpServletRequest();
+        request.addHeader(AUTHORIZATION, "Bearer " + token);
+        final var chain = new MockFilterChain();
+
+        this.doFilter(request, chain);
+
+        assertThat(chain.getRequest()).isNotNull();
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+        assertThat(this.failures("revoked")).isEqualTo(1.0);
+    }
+
+    @Test
+    void testDoFilter_OpaqueToken_NotParsedAsJwt()
+    {
+        final var request = new MockHttpServletRequest();
+        request.addHeader(AUTHORIZATION, "Bearer " + "A".repeat(43));
+
+        this.doFilter(request, new MockFilterChain());
+
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+        assertThat(this.failures("malformed")).isZero();
+    }
+
+    @Test
+    void testDoFilter_SlidingRenewal()
+    {
+        this.securityProps.getSlidingRenewal().setRenewAfter(0.0);
+        final var token = this.tokenProvider.createToken("admin", List.of(RoleEnum.ROLE_USER), 86400L);
+        final var request = new MockHttpServletRequest();
+        request.addHeader(AUTHORIZATION, "Bearer " + token);
+
+        final var response = this.doFilter(request, new MockFilterChain());
+        final var renewed = response.getHeader("X-Renewed-Token");
+
+        assertThat(renewed).isNotNull().isNotEqualTo(token);
+        assertThat(response.getHeader("Access-Control-Expose-Headers")).isEqualTo("X-Renewed-Token");
+        assertThat(this.tokenProvider.getVerifiedClaims(renewed).getSubject()).isEqualTo("admin");
+        assertThat(SecurityContextHolder.getContext().getAuthentication().getName()).isEqualTo("admin");
+        // Une seconde requête avec le même jeton reçoit le même jeton renouvelé.
+        assertThat(this.doFilter(request, new MockFilterChain()).getHeader("X-Renewed-Token")).isEqualTo(renewed);
+    }
+
+    private double failures(final String pReason)
+    {
+        return this.meterRegistry.get("security.authentication.failures").tag("reason", pReason).counter().count();
+    }
+
+    private MockHttpServletResponse doFilter(final MockHttpServletRequest pRequest, final MockFilterChain pChain)
+    {
+        final var response = new MockHttpServletResponse();
+        try
+        {
+            this.authenticationFilter.doFilter(pRequest, response, pChain);
+            return response;
+        }
+        catch (Exception e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : OpaqueTokenStoreTest.java
+ * Date de création : 9 mars 2021
+ * Heure de création : 10:12:26
+ * Package : fr.vincent.tuto.server.security.jwt
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.security.jwt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import fr.vincent.tuto.common.exception.CustomAppException;
+import fr.vincent.tuto.common.service.props.ApplicationPropsService;
+import fr.vincent.tuto.server.config.props.ServerSecurityProps;
+import fr.vincent.tuto.server.enumeration.RoleEnum;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Classe des Tests Unitaires des objets de type {@link OpaqueTokenStore}
+ *
+ * @author Vincent Otchoun
+ */
+class OpaqueTokenStoreTest
+{
+    private OpaqueTokenStore opaqueTokenStore;
+    private ApplicationPropsService propsService;
+    private ServerSecurityProps securityProps;
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        this.propsService = Mockito.mock(ApplicationPropsService.class, Mockito.RETURNS_DEEP_STUBS);
+        Mockito.when(this.propsService.getJwtProps().getAuthoritiesKey()).thenReturn("auth");
+        Mockito.when(this.propsService.getJwtProps().getBearerToken()).thenReturn("Bearer ");
+
+        this.securityProps = new ServerSecurityProps();
+        this.securityProps.getOpaqueToken().setEnabled(true);
+        this.securityProps.getOpaqueToken().setMaxSessions(1000);
+        this.securityProps.getOpaqueToken().setSweepIntervalMillis(60000);
+        this.opaqueTokenStore = new OpaqueTokenStore(this.propsService, this.securityProps);
+        this.opaqueTokenStore.afterPropertiesSet();
+    }
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @AfterEach
+    void tearDown() throws Exception
+    {
+        this.opaqueTokenStore.destroy();
+        this.opaqueTokenStore = null;
+    }
+
+    @Test
+    void testCreateToken()
+    {
+        final var token = this.opaqueTokenStore.createToken("admin", List.of(RoleEnum.ROLE_ADMIN, RoleEnum.ROLE_USER, new SimpleGrantedAuthority(
+        "SCOPE_read")), 60L);
+
+        final var claims = this.opaqueTokenStore.getClaims(token);
+
+        assertThat(token).hasSize(43).doesNotContain(".");
+        assertThat(claims).isNotNull();
+        assertThat(claims.getSubject()).isEqualTo("admin");
+        assertThat(claims.getTokenId()).isNull();
+        assertThat(claims.getAuthorities()).containsExactly(RoleEnum.ROLE_USER, RoleEnum.ROLE_ADMIN);
+        assertThat(claims.getExpiresAt() - claims.getIssuedAt()).isEqualTo(60L);
+        assertThat(this.opaqueTokenStore.size()).isEqualTo(1);
+        assertThat(this.opaqueTokenStore.getCapacity()).isEqualTo(2048);
+    }
+
+    @Test
+    void testResolveClaims()
+    {
+        final var token = this.opaqueTokenStore.createToken("émilie", List.of(RoleEnum.ROLE_MODERATOR), 60L);
+
+        assertThat(this.opaqueTokenStore.resolveClaims("Bearer " + token).getSubject()).isEqualTo("émilie");
+        assertThat(this.opaqueTokenStore.resolveClaims("Basic " + token)).isNull();
+        assertThat(this.opaqueTokenStore.resolveClaims("Bearer " + token.substring(1) + "A")).isNull();
+        assertThat(this.opaqueTokenStore.resolveClaims("Bearer a.b.c")).isNull();
+        assertThat(this.opaqueTokenStore.resolveClaims(null)).isNull();
+    }
+
+    @Test
+    void testRevokeToken()
+    {
+        final var token = this.opaqueTokenStore.createToken("admin", List.of(RoleEnum.ROLE_USER), 60L);
+
+        assertThat(this.opaqueTokenStore.revokeToken(token)).isTrue();
+        assertThat(this.opaqueTokenStore.revokeToken(token)).isFalse();
+        assertThat(this.opaqueTokenStore.getClaims(token)).isNull();
+        assertThat(this.opaqueTokenStore.size()).isZero();
+    }
+
+    @Test
+    void testSweep()
+    {
+        final List<String> expired = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+        {
+            expired.add(this.opaqueTokenStore.createToken("user" + i, List.of(RoleEnum.ROLE_USER), 0L));
+        }
+        final var live = this.opaqueTokenStore.createToken("admin", List.of(RoleEnum.ROLE_USER), 60L);
+        assertThat(this.opaqueTokenStore.getClaims(expired.get(0))).isNull();
+        // Une création peut réutiliser un emplacement expiré rencontré sur sa séquence de sondage.
+        final var sizeBeforeSweep = this.opaqueTokenStore.size();
+        assertThat(sizeBeforeSweep).isBetween(1, 101);
+
+        // Une étape ne parcourt qu'une partie de la table.
+        this.securityProps.getOpaqueToken().setSweepBatchSize(512);
+        for (int i = 0; i < 4; i++)
+        {
+            this.opaqueTokenStore.sweep();
+        }
+
+        assertThat(this.opaqueTokenStore.size()).isEqualTo(1);
+        assertThat(this.opaqueTokenStore.getSwept()).isEqualTo(sizeBeforeSweep - 1L);
+        assertThat(this.opaqueTokenStore.getClaims(live)).isNotNull();
+    }
+
+    @Test
+    void testCreateToken_Full()
+    {
+        this.securityProps.getOpaqueToken().setMaxSessions(2);
+        this.opaqueTokenStore.createToken("user1", List.of(RoleEnum.ROLE_USER), 60L);
+        this.opaqueTokenStore.createToken("user2", List.of(RoleEnum.ROLE_USER), 60L);
+
+        assertThatThrownBy(() -> this.opaqueTokenStore.createToken("user3", List.of(RoleEnum.ROLE_USER), 60L)).isInstanceOf(
+        CustomAppException.class);
+    }
+
+    @Test
+    void testCreateToken_UsernameTooLong()
+    {
+        final var username = StringUtils.repeat('a', OpaqueTokenStore.MAX_USERNAME_BYTES + 1);
+
+        assertThatThrownBy(() -> this.opaqueTokenStore.createToken(username, List.of(RoleEnum.ROLE_USER), 60L)).isInstanceOf(
+        CustomAppException.class);
+    }
+
+    @Test
+    void testStoreFile() throws Exception
+    {
+        final var storeFile = this.tempDir.resolve("sessions/opaque-sessions.dat").toString();
+        this.securityProps.getOpaqueToken().setStoreFile(storeFile);
+        final var store = new OpaqueTokenStore(this.propsService, this.securityProps);
+        store.afterPropertiesSet();
+        final var token = store.createToken("admin", List.of(RoleEnum.ROLE_ADMIN), 60L);
+        store.destroy();
+
+        final var restarted = new OpaqueTokenStore(this.propsService, this.securityProps);
+        restarted.afterPropertiesSet();
+        try
+        {
+            assertThat(restarted.size()).isEqualTo(1);
+            assertThat(restarted.getClaims(token).getSubject()).isEqualTo("admin");
+        }
+        finally
+        {
+            restarted.destroy();
+        }
+    }
+
+    @Test
+    void testDisabled() throws Exception
+    {
+        this.securityProps.getOpaqueToken().setEnabled(false);
+        final var store = new OpaqueTokenStore(this.propsService, this.securityProps);
+        store.afterPropertiesSet();
+
+        assertThat(store.isEnabled()).isFalse();
+        assertThat(store.resolveClaims("Bearer " + StringUtils.repeat('A', 43))).isNull();
+        assertThatThrownBy(() -> store.createToken("admin", List.of(RoleEnum.ROLE_USER), 60L)).isInstanceOf(CustomAppException.class);
+        store.destroy();
+    }
+
+    @Test
+    void testConcurrentReaders() throws Exception
+    {
+        final var stable = this.opaqueTokenStore.createToken("stable", List.of(RoleEnum.ROLE_USER), 60L);
+        final var running = new AtomicBoolean(true);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            final List<Future<Integer>> readers = new ArrayList<>();
+            for (int i = 0; i < 3; i++)
+            {
+                readers.add(executor.submit(() -> {
+                    int failures = 0;
+                    while (running.get())
+                    {
+                        final var claims = this.opaqueTokenStore.getClaims(stable);
+                        if (claims == null || !"stable".equals(claims.getSubject()))
+                        {
+                            failures++;
+                        }
+                    }
+                    return failures;
+                }));
+            }
+            // Créations, révocations et purges simultanées sur les autres emplacements.
+            for (int i = 0; i < 5000; i++)
+            {
+                final var token = this.opaqueTokenStore.createToken("user" + i, List.of(RoleEnum.ROLE_USER), i % 2 == 0 ? 0L : 60L);
+                this.opaqueTokenStore.revokeToken(token);
+                this.opaqueTokenStore.sweep();
+            }
+            running.set(false);
+            for (final Future<Integer> reader : readers)
+            {
+                assertThat(reader.get(10, TimeUnit.SECONDS)).isZero();
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+        assertThat(this.opaqueTokenStore.size()).isEqualTo(1);
+    }
+
+    @Test
+    void testBindTo()
+    {
+        final var registry = new SimpleMeterRegistry();
+        this.opaqueTokenStore.bindTo(registry);
+        this.opaqueTokenStore.createToken("admin", List.of(RoleEnum.ROLE_USER), 60L);
+
+        assertThat(registry.get("security.jwt.opaque.sessions").gauge().value()).isEqualTo(1.0);
+        assertThat(registry.get("security.jwt.opaque.capacity").gauge().value()).isEqualTo(2048.0);
+    }
+}
@@ -0,0 +1,300 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : RefreshTokenStoreTest.java
+ * Date de création : 7 mars 2021
+ * Heure de création : 11:18:37
+ * Package : fr.vincent.tuto.server.security.jwt
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.security.jwt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionSystemException;
+
+import fr.vincent.tuto.common.service.props.ApplicationPropsService;
+import fr.vincent.tuto.server.config.props.ServerSecurityProps;
+import fr.vincent.tuto.server.dao.RefreshTokenDAO;
+import fr.vincent.tuto.server.model.po.RefreshToken;
+import fr.vincent.tuto.server.security.jwt.RefreshTokenStore.Rotation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Classe des Tests Unitaires des objets de type {@link RefreshTokenStore}
+ *
+ * @author Vincent Otchoun
+ */
+class RefreshTokenStoreTest
+{
+    private RefreshTokenDAO refreshTokenDAO;
+    private PlatformTransactionManager transactionManager;
+    private ServerSecurityProps securityProps;
+    private RefreshTokenStore refreshTokenStore;
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        final var propsService = Mockito.mock(ApplicationPropsService.class, Mockito.RETURNS_DEEP_STUBS);
+        when(propsService.getJwtProps().getRefreshTokenValidity()).thenReturn(86400L);
+        this.refreshTokenDAO = Mockito.mock(RefreshTokenDAO.class);
+        when(this.refreshTokenDAO.findById(any())).thenReturn(Optional.empty());
+        when(this.refreshTokenDAO.findAllById(anyIterable())).thenReturn(Collections.emptyList());
+        this.transactionManager = Mockito.mock(PlatformTransactionManager.class);
+        this.securityProps = new ServerSecurityProps();
+        this.securityProps.getRefreshToken().setFlushIntervalMillis(60000);
+        this.securityProps.getRefreshToken().setBatchSize(2);
+
+        this.refreshTokenStore = new RefreshTokenStore(propsService, this.refreshTokenDAO, this.transactionManager, this.securityProps);
+        this.refreshTokenStore.afterPropertiesSet();
+    }
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @AfterEach
+    void tearDown() throws Exception
+    {
+        this.refreshTokenStore.destroy();
+        this.refreshTokenStore = null;
+    }
+
+    @Test
+    void testRotate()
+    {
+        final var token = this.refreshTokenStore.issue("user");
+        final var rotation = this.refreshTokenStore.rotate(token);
+
+        assertThat(rotation.isRotated()).isTrue();
+        assertThat(rotation.getUsername()).isEqualTo("user");
+        assertThat(rotation.getRefreshToken()).isNotEqualTo(token);
+        assertThat(rotation.getRefreshToken()).startsWith(token.substring(0, 23));
+        assertThat(this.refreshTokenStore.rotate(rotation.getRefreshToken()).isRotated()).isTrue();
+    }
+
+    @Test
+    void testRotate_ShouldNotWriteToDatabase()
+    {
+        final var token = this.refreshTokenStore.issue("user");
+        this.refreshTokenStore.rotate(token);
+
+        verify(this.refreshTokenDAO, never()).saveAll(any());
+        verify(this.transactionManager, never()).getTransaction(any());
+        assertThat(this.refreshTokenStore.getPendingWrites()).isEqualTo(1);
+    }
+
+    @Test
+    void testRotate_WithReusedToken_ShouldRevokeFamily()
+    {
+        this.securityProps.getRefreshToken().setReuseGraceSeconds(-1);
+        final var token = this.refreshTokenStore.issue("user");
+        final var rotation = this.refreshTokenStore.rotate(token);
+
+        final var reuse = this.refreshTokenStore.rotate(token);
+
+        assertThat(reuse.getStatus()).isEqualTo(Rotation.Status.REUSED);
+        assertThat(reuse.getUsername()).isEqualTo("user");
+        assertThat(reuse.getRefreshToken()).isNull();
+        assertThat(this.refreshTokenStore.rotate(rotation.getRefreshToken()).getStatus()).isEqualTo(Rotation.Status.INVALID);
+    }
+
+    @Test
+    void testRotate_WithPreviousTokenInGracePeriod_ShouldReturnCurrentToken()
+    {
+        final var token = this.refreshTokenStore.issue("user");
+        final var rotation = this.refreshTokenStore.rotate(token);
+
+        final var replay = this.refreshTokenStore.rotate(token);
+
+        assertThat(replay.isRotated()).isTrue();
+        assertThat(replay.getRefreshToken()).isEqualTo(rotation.getRefreshToken());
+        assertThat(this.refreshTokenStore.rotate(rotation.getRefreshToken()).isRotated()).isTrue();
+    }
+
+    @Test
+    void testRotate_WithUnknownOrMalformedToken()
+    {
+        assertThat(this.refreshTokenStore.rotate(null).getStatus()).isEqualTo(Rotation.Status.INVALID);
+        assertThat(this.refreshTokenStore.rotate("abc").getStatus()).isEqualTo(Rotation.Status.INVALID);
+        assertThat(this.refreshTokenStore.rotate("AAAAAAAAAAAAAAAAAAAAAA.secret").getStatus()).isEqualTo(Rotation.Status.INVALID);
+    }
+
+    @Test
+    void testRotate_WithPersistedFamily_ShouldLoadFromDatabase()
+    {
+        final var token = this.refreshTokenStore.issue("user");
+        final var entities = this.flushAndCapture();
+        final var otherStore = new RefreshTokenStore(Mockito.mock(ApplicationPropsService.class, Mockito.RETURNS_DEEP_STUBS), this.refreshTokenDAO,
+        this.transactionManager, this.securityProps);
+        when(this.refreshTokenDAO.findById(entities.get(0).getFamilyId())).thenReturn(Optional.of(entities.get(0)));
+
+        final var rotation = otherStore.rotate(token);
+
+        assertThat(rotation.isRotated()).isTrue();
+        assertThat(rotation.getUsername()).isEqualTo("user");
+    }
+
+    @Test
+    void testRevoke()
+    {
+        final var token = this.refreshTokenStore.issue("user");
+
+        assertThat(this.refreshTokenStore.revoke(token)).isTrue();
+        assertThat(this.refreshTokenStore.rotate(token).getStatus()).isEqualTo(Rotation.Status.INVALID);
+        assertThat(this.refreshTokenStore.revoke("AAAAAAAAAAAAAAAAAAAAAA.secret")).isFalse();
+    }
+
+    @Test
+    void testRevokeUser()
+    {
+        final var token = this.refreshTokenStore.issue("user");
+        final var otherToken = this.refreshTokenStore.issue("user");
+        final var rotation = this.refreshTokenStore.rotate(otherToken);
+        final var keptToken = this.refreshTokenStore.issue("other");
+
+        this.refreshTokenStore.revokeUser("user");
+
+        verify(this.refreshTokenDAO).revokeByUsername("user");
+        assertThat(this.refreshTokenStore.rotate(token).getStatus()).isEqualTo(Rotation.Status.INVALID);
+        assertThat(this.refreshTokenStore.rotate(otherToken).getStatus()).isEqualTo(Rotation.Status.INVALID);
+        assertThat(this.refreshTokenStore.rotate(rotation.getRefreshToken()).getStatus()).isEqualTo(Rotation.Status.INVALID);
+        assertThat(this.refreshTokenStore.rotate(keptToken).isRotated()).isTrue();
+        assertThat(this.flushAndCapture()).filteredOn(entity -> "user".equals(entity.getUsername())).allMatch(RefreshToken::getRevoked);
+    }
+
+    @Test
+    void testIssue_ShouldUnloadPersistedFamiliesBeyondCapacity() throws Exception
+    {
+        this.securityProps.getRefreshToken().setShardCount(1);
+        this.securityProps.getRefreshToken().setMaxFamilies(2);
+        final var propsService = Mockito.mock(ApplicationPropsService.class, Mockito.RETURNS_DEEP_STUBS);
+        when(propsService.getJwtProps().getRefreshTokenValidity()).thenReturn(86400L);
+        this.refreshTokenStore.destroy();
+        this.refreshTokenStore = new RefreshTokenStore(propsService, this.refreshTokenDAO, this.transactionManager, this.securityProps);
+        this.refreshTokenStore.afterPropertiesSet();
+        final List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < 3; i++)
+        {
+            tokens.add(this.refreshTokenStore.issue("user" + i));
+        }
+        assertThat(this.refreshTokenStore.size()).isEqualTo(3); // familles en attente d'écriture : jamais déchargées.
+        final var entities = this.flushAndCapture();
+
+        this.refreshTokenStore.issue("user3");
+
+        assertThat(this.refreshTokenStore.size()).isEqualTo(2);
+        for (final RefreshToken entity : entities)
+        {
+            when(this.refreshTokenDAO.findById(entity.getFamilyId())).thenReturn(Optional.of(entity));
+        }
+        for (final String token : tokens)
+        {
+            assertThat(this.refreshTokenStore.rotate(token).isRotated()).isTrue();
+        }
+        verify(this.refreshTokenDAO, Mockito.atLeast(2)).findById(any());
+    }
+
+    @Test
+    void testFlushAll_ShouldWriteInBatches()
+    {
+        for (int i = 0; i < 5; i++)
+        {
+            this.refreshTokenStore.issue("user" + i);
+        }
+
+        final var entities = this.flushAndCapture();
+
+        verify(this.refreshTokenDAO, times(3)).saveAll(any());
+        assertThat(entities).hasSize(5);
+        assertThat(entities).allMatch(entity -> entity.getGeneration() == 0 && !entity.getRevoked() && entity.getTokenHash().length() == 43);
+        assertThat(this.refreshTokenStore.getPendingWrites()).isZero();
+        verify(this.refreshTokenDAO).deleteExpired(anyLong());
+    }
+
+    @Test
+    void testFlushAll_WithExistingFamily_ShouldUpdateIt()
+    {
+        final var token = this.refreshTokenStore.issue("user");
+        final var persisted = this.flushAndCapture().get(0);
+        when(this.refreshTokenDAO.findAllById(anyIterable())).thenReturn(List.of(persisted));
+        Mockito.clearInvocations(this.refreshTokenDAO);
+
+        this.refreshTokenStore.rotate(token);
+        final var updated = this.flushAndCapture().get(0);
+
+        assertThat(updated).isSameAs(persisted);
+        assertThat(updated.getGeneration()).isEqualTo(1);
+    }
+
+    @Test
+    void testFlushAll_WithDatabaseError_ShouldRetry()
+    {
+        this.refreshTokenStore.issue("user");
+        when(this.refreshTokenDAO.saveAll(any())).thenThrow(new TransactionSystemException("DB indisponible"))
+        .thenReturn(Collections.emptyList());
+
+        this.refreshTokenStore.flushAll();
+        assertThat(this.refreshTokenStore.getPendingWrites()).isEqualTo(1);
+
+        this.refreshTokenStore.flushAll();
+        assertThat(this.refreshTokenStore.getPendingWrites()).isZero();
+    }
+
+    @Test
+    void testFlushAll_ShouldEvictRevokedFamilies()
+    {
+        final var token = this.refreshTokenStore.issue("user");
+        this.refreshTokenStore.issue("other");
+        this.refreshTokenStore.revoke(token);
+
+        this.refreshTokenStore.flushAll();
+
+        assertThat(this.refreshTokenStore.size()).isEqualTo(1);
+    }
+
+    @Test
+    void testBindTo()
+    {
+        final var registry = new SimpleMeterRegistry();
+        this.refreshTokenStore.bindTo(registry);
+        this.refreshTokenStore.rotate(this.refreshTokenStore.issue("user"));
+
+        assertThat(registry.get("security.jwt.refresh.families").gauge().value()).isEqualTo(1.0);
+        assertThat(registry.get("security.jwt.refresh.pending.writes").gauge().value()).isEqualTo(1.0);
+        assertThat(registry.get("security.jwt.refresh.requests").tag("result", "rotated").functionCounter().count()).isEqualTo(1.0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<RefreshToken> flushAndCapture()
+    {
+        final ArgumentCaptor<List<RefreshToken>> captor = ArgumentCaptor.forClass(List.class);
+        this.refreshTokenStore.flushAll();
+        verify(this.refreshTokenDAO, Mockito.atLeastOnce()).saveAll(captor.capture());
+        final List<RefreshToken> entities = new ArrayList<>();
+        captor.getAllValues().forEach(entities::addAll);
+        return entities;
+    }
+}
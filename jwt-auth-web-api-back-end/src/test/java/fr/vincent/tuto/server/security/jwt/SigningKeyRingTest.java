@@ -0,0 +1,390 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : SigningKeyRingTest.java
+ * Date de création : 7 mars 2021
+ * Heure de création : 16:02:19
+ * Package : fr.vincent.tuto.server.security.jwt
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.security.jwt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.SecureRandom;
+import java.security.Security;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.security.spec.AlgorithmParameterSpec;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Base64;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import fr.vincent.tuto.common.exception.CustomAppException;
+import fr.vincent.tuto.common.service.props.ApplicationPropsService;
+import fr.vincent.tuto.server.config.props.ServerSecurityProps;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Classe des Tests Unitaires des objets de type {@link SigningKeyRing}
+ *
+ * @author Vincent Otchoun
+ */
+class SigningKeyRingTest
+{
+    private static final String CRYPTO_VALUE = "my-app-recette";
+
+    @TempDir
+    Path keyDirectory;
+
+    private ApplicationPropsService propsService;
+    private ServerSecurityProps securityProps;
+    private SigningKeyRing keyRing;
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        this.propsService = Mockito.mock(ApplicationPropsService.class, Mockito.RETURNS_DEEP_STUBS);
+        Mockito.when(this.propsService.getJwtProps().getTokenValidity()).thenReturn(86400L);
+        Mockito.when(this.propsService.getJwtProps().getTokenValidityForRememberMe()).thenReturn(2592000L);
+        Mockito.when(this.propsService.getCryptoProps().getKeystoreFileLocation()).thenReturn("./src/test/resources/crypto/my-app-recette-keystore.jks");
+        Mockito.when(this.propsService.getCryptoProps().getKeystorePassword()).thenReturn(CRYPTO_VALUE);
+        Mockito.when(this.propsService.getCryptoProps().getKeyPassword()).thenReturn(CRYPTO_VALUE);
+        Mockito.when(this.propsService.getCryptoProps().getAliasKeystore()).thenReturn(CRYPTO_VALUE);
+        Mockito.when(this.propsService.getCryptoProps().getKeyStoreType()).thenReturn("JKS");
+
+        this.securityProps = new ServerSecurityProps();
+        this.securityProps.getKeyRing().setKeyDirectory(this.keyDirectory.toString());
+        this.securityProps.getKeyRing().setWatch(false);
+        this.securityProps.getKeyRing().setReloadDelayMillis(50);
+        this.securityProps.getKeyRing().setBenchmarkMillis(0);
+        this.keyRing = new SigningKeyRing(this.propsService, this.securityProps);
+    }
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @AfterEach
+    void tearDown() throws Exception
+    {
+        this.keyRing.destroy();
+        this.keyRing = null;
+    }
+
+    @Test
+    void testAfterPropertiesSet() throws Exception
+    {
+        this.keyRing.afterPropertiesSet();
+
+        final var signingKey = this.keyRing.getSigningKey();
+        assertThat(signingKey.canSign()).isTrue();
+        assertThat(signingKey.getAlgorithm()).isEqualTo(AuthTokenProvider.RS256);
+        assertThat(signingKey.getKeyId()).hasSize(22).isEqualTo(SigningKeyRing.keyIdOf(signingKey.getPublicKey()));
+        assertThat(this.keyRing.getVerificationKey(signingKey.getKeyId())).isSameAs(signingKey);
+        assertThat(this.keyRing.size()).isEqualTo(1);
+    }
+
+    @Test
+    void testReload_WithDirectoryKey_ShouldRotateSigningKey() throws Exception
+    {
+        this.keyRing.afterPropertiesSet();
+        final var previous = this.keyRing.getSigningKey();
+
+        final var keyPair = writeKeyPair(this.keyDirectory, "key-2", true);
+
+        assertThat(this.keyRing.reload()).isTrue();
+        final var current = this.keyRing.getSigningKey();
+        assertThat(current.getKeyId()).isEqualTo(SigningKeyRing.keyIdOf(keyPair.getPublic()));
+        assertThat(this.keyRing.getVerificationKey(previous.getKeyId())).isSameAs(previous);
+        assertThat(this.keyRing.size()).isEqualTo(2);
+
+        // Les clés inchangées sont réutilisées d'un rechargement à l'autre.
+        assertThat(this.keyRing.reload()).isTrue();
+        assertThat(this.keyRing.getSigningKey()).isSameAs(current);
+    }
+
+    @Test
+    void testReload_WithPublicKeyOnly_ShouldOnlyVerify() throws Exception
+    {
+        this.keyRing.afterPropertiesSet();
+        final var keystoreKey = this.keyRing.getSigningKey();
+        final var keyPair = writeKeyPair(this.keyDirectory, "partner", false);
+
+        this.keyRing.reload();
+
+        assertThat(this.keyRing.getSigningKey()).isSameAs(keystoreKey);
+        assertThat(this.keyRing.getVerificationKey(SigningKeyRing.keyIdOf(keyPair.getPublic())).canSign()).isFalse();
+    }
+
+    @Test
+    void testReload_WithRemovedKey_ShouldRetainItForVerification() throws Exception
+    {
+        writeKeyPair(this.keyDirectory, "key-2", true);
+        this.keyRing.afterPropertiesSet();
+        final var retired = this.keyRing.getSigningKey();
+
+        Files.delete(this.keyDirectory.resolve("key-2.pub"));
+        Files.delete(this.keyDirectory.resolve("key-2.key"));
+        this.keyRing.reload();
+
+        assertThat(this.keyRing.getSigningKey()).isNotSameAs(retired);
+        assertThat(this.keyRing.getVerificationKey(retired.getKeyId())).isSameAs(retired);
+    }
+
+    @Test
+    void testReload_WithRemovedPrivateKey_ShouldStopSigning() throws Exception
+    {
+        this.keyRing.afterPropertiesSet();
+        final var keystoreKey = this.keyRing.getSigningKey();
+        final var keyPair = writeKeyPair(this.keyDirectory, "key-2", true);
+        this.keyRing.reload();
+        final var keyId = SigningKeyRing.keyIdOf(keyPair.getPublic());
+        assertThat(this.keyRing.getSigningKey().getKeyId()).isEqualTo(keyId);
+
+        Files.delete(this.keyDirectory.resolve("key-2.key"));
+
+        assertThat(this.keyRing.reload()).isTrue();
+        assertThat(this.keyRing.getSigningKey()).isSameAs(keystoreKey);
+        assertThat(this.keyRing.getVerificationKey(keyId).canSign()).isFalse();
+        // Les rechargements suivants réussissent.
+        assertThat(this.keyRing.reload()).isTrue();
+        assertThat(this.keyRing.getSigningKey()).isSameAs(keystoreKey);
+    }
+
+    @Test
+    void testAfterPropertiesSet_WithTrustedCertificate_ShouldIgnoreIt() throws Exception
+    {
+        final Certificate certificate;
+        try (final var inputStream = Files.newInputStream(Paths.get("./src/test/resources/crypto/my-app-recette.cer")))
+        {
+            certificate = CertificateFactory.getInstance("X.509").generateCertificate(inputStream);
+        }
+        final var keystore = this.keyDirectory.resolve("trusted.p12");
+        final var keyStore = KeyStore.getInstance("PKCS12");
+        keyStore.load(null, null);
+        keyStore.setCertificateEntry("partner", certificate);
+        try (final var outputStream = Files.newOutputStream(keystore))
+        {
+            keyStore.store(outputStream, CRYPTO_VALUE.toCharArray());
+        }
+        Mockito.when(this.propsService.getCryptoProps().getKeystoreFileLocation()).thenReturn(keystore.toString());
+        Mockito.when(this.propsService.getCryptoProps().getAliasKeystore()).thenReturn("partner");
+        Mockito.when(this.propsService.getCryptoProps().getKeyStoreType()).thenReturn("PKCS12");
+        final var keyPair = writeKeyPair(this.keyDirectory, "key-2", true);
+
+        this.keyRing.afterPropertiesSet();
+
+        assertThat(this.keyRing.getSigningKey().getKeyId()).isEqualTo(SigningKeyRing.keyIdOf(keyPair.getPublic()));
+        assertThat(this.keyRing.getVerificationKey(SigningKeyRing.keyIdOf(certificate.getPublicKey()))).isNull();
+        assertThat(this.keyRing.size()).isEqualTo(1);
+    }
+
+    @Test
+    void testReload_WithRemovedKeyAndNoRetention_ShouldDropIt() throws Exception
+    {
+        Mockito.when(this.propsService.getJwtProps().getTokenValidity()).thenReturn(0L);
+        Mockito.when(this.propsService.getJwtProps().getTokenValidityForRememberMe()).thenReturn(0L);
+        writeKeyPair(this.keyDirectory, "key-2", true);
+        this.keyRing.afterPropertiesSet();
+        final var retired = this.keyRing.getSigningKey();
+
+        Files.delete(this.keyDirectory.resolve("key-2.pub"));
+        this.keyRing.reload();
+
+        assertThat(this.keyRing.getVerificationKey(retired.getKeyId())).isNull();
+        assertThat(this.keyRing.size()).isEqualTo(1);
+    }
+
+    @Test
+    void testReload_WithInvalidKey_ShouldKeepCurrentRing() throws Exception
+    {
+        this.keyRing.afterPropertiesSet();
+        final var current = this.keyRing.getSigningKey();
+        Files.write(this.keyDirectory.resolve("broken.pub"), "-----BEGIN PUBLIC KEY-----\nAAAA\n".getBytes(StandardCharsets.US_ASCII));
+
+        assertThat(this.keyRing.reload()).isFalse();
+        assertThat(this.keyRing.getSigningKey()).isSameAs(current);
+    }
+
+    @Test
+    void testWatch_ShouldReloadOnNewKey() throws Exception
+    {
+        this.securityProps.getKeyRing().setWatch(true);
+        this.keyRing.afterPropertiesSet();
+        final var previous = this.keyRing.getSigningKey();
+
+        writeKeyPair(this.keyDirectory, "key-2", true);
+
+        final long deadline = System.currentTimeMillis() + 10000;
+        while (this.keyRing.getSigningKey() == previous && System.currentTimeMillis() < deadline)
+        {
+            Thread.sleep(50);
+        }
+        assertThat(this.keyRing.getSigningKey()).isNotSameAs(previous);
+    }
+
+    @Test
+    void testAfterPropertiesSet_WithES256() throws Exception
+    {
+        this.securityProps.getKeyRing().setAlgorithm("ES256");
+        writeKeyPair(this.keyDirectory, "ec", true, "EC", new ECGenParameterSpec("secp256r1"));
+        this.keyRing.afterPropertiesSet();
+
+        final var signingKey = this.keyRing.getSigningKey();
+        assertThat(signingKey.getJwtAlgorithm()).isEqualTo(JwtAlgorithm.ES256);
+        assertSignAndVerify(signingKey, 64);
+        assertThat(this.keyRing.size()).isEqualTo(2);
+    }
+
+    @Test
+    void testAfterPropertiesSet_WithEdDSA() throws Exception
+    {
+        Assumptions.assumeTrue(Security.getAlgorithms("Signature").contains("ED25519"), "EdDSA requiert Java 15 ou supérieur.");
+        this.securityProps.getKeyRing().setAlgorithm("EdDSA");
+        writeKeyPair(this.keyDirectory, "ed", true, "Ed25519", null);
+        this.keyRing.afterPropertiesSet();
+
+        final var signingKey = this.keyRing.getSigningKey();
+        assertThat(signingKey.getJwtAlgorithm()).isEqualTo(JwtAlgorithm.EdDSA);
+        assertSignAndVerify(signingKey, 64);
+    }
+
+    @Test
+    void testAfterPropertiesSet_WithHS256() throws Exception
+    {
+        final var secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        final var keystore = this.keyDirectory.resolve("hmac.p12");
+        final var keyStore = KeyStore.getInstance("PKCS12");
+        keyStore.load(null, null);
+        keyStore.setEntry("hmac", new KeyStore.SecretKeyEntry(new SecretKeySpec(secret, "HmacSHA256")), new KeyStore.PasswordProtection(CRYPTO_VALUE
+        .toCharArray()));
+        try (final var outputStream = Files.newOutputStream(keystore))
+        {
+            keyStore.store(outputStream, CRYPTO_VALUE.toCharArray());
+        }
+        Mockito.when(this.propsService.getCryptoProps().getKeystoreFileLocation()).thenReturn(keystore.toString());
+        Mockito.when(this.propsService.getCryptoProps().getAliasKeystore()).thenReturn("hmac");
+        Mockito.when(this.propsService.getCryptoProps().getKeyStoreType()).thenReturn("PKCS12");
+        this.securityProps.getKeyRing().setAlgorithm("HS256");
+        this.keyRing.afterPropertiesSet();
+
+        final var signingKey = this.keyRing.getSigningKey();
+        assertThat(signingKey.getJwtAlgorithm()).isEqualTo(JwtAlgorithm.HS256);
+        assertThat(signingKey.getPublicKey()).isNull();
+        assertSignAndVerify(signingKey, 32);
+    }
+
+    @Test
+    void testAfterPropertiesSet_WithoutKeyForAlgorithm_ShouldThrowException()
+    {
+        this.securityProps.getKeyRing().setAlgorithm("ES256");
+
+        assertThatThrownBy(() -> this.keyRing.afterPropertiesSet()).isInstanceOf(CustomAppException.class).hasMessageContaining("ES256");
+    }
+
+    @Test
+    void testAfterPropertiesSet_WithUnknownAlgorithm_ShouldThrowException()
+    {
+        this.securityProps.getKeyRing().setAlgorithm("none");
+
+        assertThatThrownBy(() -> this.keyRing.afterPropertiesSet()).isInstanceOf(CustomAppException.class).hasMessageContaining("none");
+    }
+
+    @Test
+    void testAfterPropertiesSet_ShouldRunBenchmark() throws Exception
+    {
+        this.securityProps.getKeyRing().setBenchmarkMillis(40);
+        this.keyRing = new SigningKeyRing(this.propsService, this.securityProps);
+        final var registry = new SimpleMeterRegistry();
+        this.keyRing.bindTo(registry);
+
+        this.keyRing.afterPropertiesSet();
+
+        final var benchmark = this.keyRing.getBenchmark();
+        assertThat(benchmark.getAlgorithm()).isEqualTo("RS256");
+        assertThat(benchmark.getSignOpsPerSecond()).isPositive();
+        assertThat(benchmark.getVerifyOpsPerSecond()).isGreaterThan(benchmark.getSignOpsPerSecond());
+        assertThat(registry.get("security.jwt.signing.benchmark").tag("algorithm", "RS256").tag("operation", "verify").gauge().value())
+        .isEqualTo(benchmark.getVerifyOpsPerSecond());
+    }
+
+    @Test
+    void testBindTo() throws Exception
+    {
+        this.keyRing.afterPropertiesSet();
+        final var registry = new SimpleMeterRegistry();
+
+        this.keyRing.bindTo(registry);
+
+        assertThat(registry.get("security.jwt.keys").gauge().value()).isEqualTo(1.0);
+        assertThat(registry.get("security.jwt.signing.benchmark").tag("operation", "sign").gauge().value()).isNaN();
+    }
+
+    private static void assertSignAndVerify(final JwtSigner pSigner, final int pSignatureLength)
+    {
+        final var data = "header.payload".getBytes(StandardCharsets.US_ASCII);
+        final var signature = pSigner.sign(data, 0, data.length);
+
+        assertThat(signature).hasSize(pSignatureLength);
+        assertThat(pSigner.verify(data, 0, data.length, signature, 0, signature.length)).isTrue();
+        signature[0] ^= 1;
+        assertThat(pSigner.verify(data, 0, data.length, signature, 0, signature.length)).isFalse();
+    }
+
+    /**
+     * Ecrire une paire de clés RSA PEM dans le répertoire : la clé privée est écrite en dernier.
+     */
+    static KeyPair writeKeyPair(final Path pDirectory, final String pName, final boolean pWithPrivateKey) throws Exception
+    {
+        return writeKeyPair(pDirectory, pName, pWithPrivateKey, "RSA", null);
+    }
+
+    private static KeyPair writeKeyPair(final Path pDirectory, final String pName, final boolean pWithPrivateKey, final String pAlgorithm,
+    final AlgorithmParameterSpec pParameters) throws Exception
+    {
+        final var generator = KeyPairGenerator.getInstance(pAlgorithm);
+        if (pParameters != null)
+        {
+            generator.initialize(pParameters);
+        }
+        else if ("RSA".equals(pAlgorithm))
+        {
+            generator.initialize(2048);
+        }
+        final var keyPair = generator.generateKeyPair();
+        Files.write(pDirectory.resolve(pName + ".pub"), pem("PUBLIC KEY", keyPair.getPublic().getEncoded()));
+        if (pWithPrivateKey)
+        {
+            Files.write(pDirectory.resolve(pName + ".key"), pem("PRIVATE KEY", keyPair.getPrivate().getEncoded()));
+        }
+        return keyPair;
+    }
+
+    private static byte[] pem(final String pType, final byte[] pEncoded)
+    {
+        final var body = Base64.getMimeEncoder(64, "\n".getBytes(StandardCharsets.US_ASCII)).encodeToString(pEncoded);
+        return ("-----BEGIN " + pType + "-----\n" + body + "\n-----END " + pType + "-----\n").getBytes(StandardCharsets.US_ASCII);
+    }
+}
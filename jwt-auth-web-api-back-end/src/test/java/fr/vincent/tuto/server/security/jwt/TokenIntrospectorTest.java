@@ -0,0 +1,184 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : TokenIntrospectorTest.java
+ * Date de création : 8 mars 2021
+ * Heure de création : 18:40:07
+ * Package : fr.vincent.tuto.server.security.jwt
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.security.jwt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import fr.vincent.tuto.common.service.props.ApplicationPropsService;
+import fr.vincent.tuto.server.config.props.ServerSecurityProps;
+import fr.vincent.tuto.server.enumeration.RoleEnum;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Classe des Tests Unitaires des objets de type {@link TokenIntrospector}
+ *
+ * @author Vincent Otchoun
+ */
+class TokenIntrospectorTest
+{
+    private static final String CRYPTO_VALUE = "my-app-recette";
+
+    private TokenIntrospector tokenIntrospector;
+    private AuthTokenProvider tokenProvider;
+    private TokenRevocationList revocationList;
+    private SigningKeyRing keyRing;
+    private ApplicationPropsService propsService;
+    private ServerSecurityProps securityProps;
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        final var propsService = this.propsService = Mockito.mock(ApplicationPropsService.class, Mockito.RETURNS_DEEP_STUBS);
+        Mockito.when(propsService.getJwtProps().getAuthoritiesKey()).thenReturn("auth");
+        Mockito.when(propsService.getJwtProps().getBearerToken()).thenReturn("Bearer ");
+        Mockito.when(propsService.getJwtProps().getTokenValidity()).thenReturn(86400L);
+        Mockito.when(propsService.getJwtProps().getTokenValidityForRememberMe()).thenReturn(2592000L);
+        Mockito.when(propsService.getCryptoProps().getKeystoreFileLocation()).thenReturn("./src/test/resources/crypto/my-app-recette-keystore.jks");
+        Mockito.when(propsService.getCryptoProps().getKeystorePassword()).thenReturn(CRYPTO_VALUE);
+        Mockito.when(propsService.getCryptoProps().getKeyPassword()).thenReturn(CRYPTO_VALUE);
+        Mockito.when(propsService.getCryptoProps().getAliasKeystore()).thenReturn(CRYPTO_VALUE);
+        Mockito.when(propsService.getCryptoProps().getKeyStoreType()).thenReturn("JKS");
+
+        final var securityProps = this.securityProps = new ServerSecurityProps();
+        securityProps.getKeyRing().setWatch(false);
+        securityProps.getKeyRing().setBenchmarkMillis(0);
+        securityProps.getRevocation().setStoreFile(this.tempDir.resolve("revoked-tokens.log").toString());
+        this.revocationList = new TokenRevocationList(propsService, securityProps);
+        this.revocationList.afterPropertiesSet();
+        this.keyRing = new SigningKeyRing(propsService, securityProps);
+        this.keyRing.afterPropertiesSet();
+        this.tokenProvider = new AuthTokenProvider(propsService, new VerifiedTokenCache(securityProps), this.revocationList, this.keyRing,
+        securityProps, new AuthenticationMetrics());
+        this.tokenProvider.afterPropertiesSet();
+        this.tokenIntrospector = new TokenIntrospector(this.tokenProvider, this.revocationList, propsService, securityProps);
+    }
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @AfterEach
+    void tearDown() throws Exception
+    {
+        this.revocationList.destroy();
+        this.keyRing.destroy();
+        this.tokenIntrospector = null;
+    }
+
+    @Test
+    void testIntrospect()
+    {
+        final var token = this.tokenProvider.createToken("admin", List.of(RoleEnum.ROLE_USER, RoleEnum.ROLE_ADMIN), 60L);
+        final var claims = this.tokenProvider.getVerifiedClaims(token);
+
+        final var response = new String(this.tokenIntrospector.introspect(token), StandardCharsets.UTF_8);
+
+        assertThat(response).isEqualTo("{\"active\":true,\"sub\":\"admin\",\"username\":\"admin\",\"jti\":\"" + claims.getTokenId()
+        + "\",\"auth\":[\"ROLE_USER\",\"ROLE_ADMIN\"],\"token_type\":\"Bearer\",\"iat\":" + claims.getIssuedAt() + ",\"exp\":" + claims
+        .getExpiresAt() + "}");
+    }
+
+    @Test
+    void testIntrospect_Scopes()
+    {
+        final var token = this.tokenProvider.createToken("worker", List.of(new SimpleGrantedAuthority("SCOPE_products:read"),
+        new SimpleGrantedAuthority("SCOPE_partition-3")), 60L);
+
+        final var response = new String(this.tokenIntrospector.introspect(token), StandardCharsets.UTF_8);
+
+        assertThat(response).contains("\"active\":true").contains("\"sub\":\"worker\"").contains("\"scope\":\"products:read partition-3\"");
+    }
+
+    @Test
+    void testIntrospect_CacheHit()
+    {
+        final var token = this.tokenProvider.createToken("admin", List.of(RoleEnum.ROLE_USER), 60L);
+
+        final var first = this.tokenIntrospector.introspect(token);
+        final var second = this.tokenIntrospector.introspect(token);
+
+        assertThat(second).isSameAs(first);
+        assertThat(this.tokenIntrospector.getHits()).isEqualTo(1L);
+        assertThat(this.tokenIntrospector.getMisses()).isEqualTo(1L);
+        assertThat(this.tokenIntrospector.size()).isEqualTo(1);
+    }
+
+    @Test
+    void testIntrospect_Invalid()
+    {
+        final var token = this.tokenProvider.createToken("admin", List.of(RoleEnum.ROLE_USER), 60L);
+        final var forged = token.substring(0, token.length() - 4) + "AAAA";
+
+        assertThat(new String(this.tokenIntrospector.introspect(forged), StandardCharsets.UTF_8)).isEqualTo("{\"active\":false}");
+        assertThat(new String(this.tokenIntrospector.introspect(forged), StandardCharsets.UTF_8)).isEqualTo("{\"active\":false}");
+        assertThat(new String(this.tokenIntrospector.introspect(""), StandardCharsets.UTF_8)).isEqualTo("{\"active\":false}");
+        assertThat(this.tokenIntrospector.getHits()).isEqualTo(1L);
+    }
+
+    @Test
+    void testIntrospect_RevokedAfterCaching()
+    {
+        final var token = this.tokenProvider.createToken("admin", List.of(RoleEnum.ROLE_USER), 60L);
+        assertThat(new String(this.tokenIntrospector.introspect(token), StandardCharsets.UTF_8)).contains("\"active\":true");
+
+        this.tokenProvider.revokeToken(token);
+
+        assertThat(new String(this.tokenIntrospector.introspect(token), StandardCharsets.UTF_8)).isEqualTo("{\"active\":false}");
+    }
+
+    @Test
+    void testIntrospect_FullCache_ShouldEvict()
+    {
+        this.securityProps.getIntrospection().setMaxEntries(2);
+        this.tokenIntrospector = new TokenIntrospector(this.tokenProvider, this.revocationList, this.propsService, this.securityProps);
+        final var first = this.tokenProvider.createToken("admin", List.of(RoleEnum.ROLE_USER), 10L);
+        final var second = this.tokenProvider.createToken("admin", List.of(RoleEnum.ROLE_USER), 60L);
+        final var third = this.tokenProvider.createToken("admin", List.of(RoleEnum.ROLE_USER), 60L);
+        this.tokenIntrospector.introspect(first);
+        this.tokenIntrospector.introspect(second);
+
+        final var response = this.tokenIntrospector.introspect(third);
+
+        // Cache plein : la réponse qui expire le plus tôt laisse sa place à la nouvelle.
+        assertThat(this.tokenIntrospector.size()).isEqualTo(2);
+        assertThat(this.tokenIntrospector.introspect(third)).isSameAs(response);
+        assertThat(this.tokenIntrospector.introspect(second)).isNotNull();
+        assertThat(this.tokenIntrospector.getHits()).isEqualTo(2L);
+    }
+
+    @Test
+    void testBindTo()
+    {
+        final var registry = new SimpleMeterRegistry();
+        this.tokenIntrospector.bindTo(registry);
+        this.tokenIntrospector.introspect(this.tokenProvider.createToken("admin", List.of(RoleEnum.ROLE_USER), 60L));
+
+        assertThat(registry.get("security.jwt.introspection.cache.size").gauge().value()).isEqualTo(1.0);
+        assertThat(registry.get("security.jwt.introspection.requests").tag("result", "miss").functionCounter().count()).isEqualTo(1.0);
+    }
+}
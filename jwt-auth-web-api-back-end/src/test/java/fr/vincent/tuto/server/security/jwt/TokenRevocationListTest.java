@@ -0,0 +1,196 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : TokenRevocationListTest.java
+ * Date de création : 6 mars 2021
+ * Heure de création : 15:26:11
+ * Package : fr.vincent.tuto.server.security.jwt
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.security.jwt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import fr.vincent.tuto.common.service.props.ApplicationPropsService;
+import fr.vincent.tuto.server.config.props.ServerSecurityProps;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Classe des Tests Unitaires des objets de type {@link TokenRevocationList}
+ *
+ * @author Vincent Otchoun
+ */
+class TokenRevocationListTest
+{
+    @TempDir
+    Path tempDir;
+
+    private ApplicationPropsService propsService;
+    private ServerSecurityProps securityProps;
+    private TokenRevocationList revocationList;
+    private long now;
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        this.propsService = Mockito.mock(ApplicationPropsService.class, Mockito.RETURNS_DEEP_STUBS);
+        Mockito.when(this.propsService.getJwtProps().getTokenValidity()).thenReturn(86400L);
+        Mockito.when(this.propsService.getJwtProps().getTokenValidityForRememberMe()).thenReturn(2592000L);
+        this.securityProps = new ServerSecurityProps();
+        this.securityProps.getRevocation().setExpectedEntries(1000);
+        this.securityProps.getRevocation().setStoreFile(this.tempDir.resolve("security/revoked-tokens.log").toString());
+
+        this.revocationList = this.newRevocationList();
+        this.now = Instant.now().getEpochSecond();
+    }
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @AfterEach
+    void tearDown() throws Exception
+    {
+        this.revocationList.destroy();
+        this.revocationList = null;
+    }
+
+    @Test
+    void testRevokeToken()
+    {
+        this.revocationList.revokeToken("jti-1", this.now + 60);
+
+        assertThat(this.revocationList.isRevoked(claims("user", "jti-1", this.now))).isTrue();
+        assertThat(this.revocationList.isRevoked(claims("user", "jti-2", this.now))).isFalse();
+        assertThat(this.revocationList.isRevoked(claims("user", null, this.now))).isFalse();
+        assertThat(this.revocationList.size()).isEqualTo(1);
+    }
+
+    @Test
+    void testRevokeToken_AlreadyExpired()
+    {
+        this.revocationList.revokeToken("jti-1", this.now - 1);
+
+        assertThat(this.revocationList.isRevoked(claims("user", "jti-1", this.now))).isFalse();
+        assertThat(this.revocationList.size()).isZero();
+    }
+
+    @Test
+    void testRevokeSubject()
+    {
+        this.revocationList.revokeSubject("user");
+        final long revokedAt = Instant.now().getEpochSecond();
+
+        assertThat(this.revocationList.isRevoked(claims("user", "jti-1", this.now - 1))).isTrue();
+        assertThat(this.revocationList.isRevoked(claims("user", "jti-2", this.now + 5))).isFalse();
+        assertThat(this.revocationList.isRevoked(claims("admin", "jti-3", this.now - 1))).isFalse();
+        // Jeton obtenu juste après la révocation, pendant la même seconde.
+        assertThat(this.revocationList.isRevoked(claims("user", "jti-4", revokedAt))).isFalse();
+
+        // Une nouvelle révocation remplace la précédente.
+        this.revocationList.revokeSubject("user");
+        assertThat(this.revocationList.size()).isEqualTo(1);
+    }
+
+    @Test
+    void testRebuild_ShouldKeepActiveRevocationsOnly() throws Exception
+    {
+        this.revocationList.revokeToken("jti-1", this.now + 60);
+        this.revocationList.revokeToken("jti-2", this.now + 1);
+        Thread.sleep(1100);
+
+        this.revocationList.rebuild();
+
+        assertThat(this.revocationList.size()).isEqualTo(1);
+        assertThat(this.revocationList.isRevoked(claims("user", "jti-1", this.now))).isTrue();
+        assertThat(Files.readAllLines(this.journalFile(), StandardCharsets.UTF_8)).hasSize(1);
+    }
+
+    @Test
+    void testRestart_ShouldReloadRevocations() throws Exception
+    {
+        for (int i = 0; i < 100; i++)
+        {
+            this.revocationList.revokeToken("jti-" + i, this.now + 60);
+        }
+        this.revocationList.revokeSubject("user");
+        this.revocationList.destroy();
+        Files.write(this.journalFile(), "T|12".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        this.revocationList = this.newRevocationList();
+
+        assertThat(this.revocationList.size()).isEqualTo(101);
+        assertThat(this.revocationList.isRevoked(claims("user", null, this.now - 1))).isTrue();
+        for (int i = 0; i < 100; i++)
+        {
+            assertThat(this.revocationList.isRevoked(claims("other", "jti-" + i, this.now))).isTrue();
+        }
+        assertThat(this.revocationList.isRevoked(claims("other", "jti-100", this.now))).isFalse();
+    }
+
+    @Test
+    void testBloomFilter_ShouldHaveNoFalseNegative()
+    {
+        final var filter = new RevocationBloomFilter(10000, 0.001);
+        for (int i = 0; i < 10000; i++)
+        {
+            filter.add(RevocationBloomFilter.hash(1L, "key-" + i));
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++)
+        {
+            assertThat(filter.mightContain(RevocationBloomFilter.hash(1L, "key-" + i))).isTrue();
+            if (filter.mightContain(RevocationBloomFilter.hash(1L, "other-" + i)))
+            {
+                falsePositives++;
+            }
+        }
+        assertThat(falsePositives).isLessThan(50);
+        assertThat(filter.getHashCount()).isEqualTo(10);
+    }
+
+    @Test
+    void testBindTo()
+    {
+        final var registry = new SimpleMeterRegistry();
+        this.revocationList.bindTo(registry);
+        this.revocationList.revokeSubject("user");
+
+        assertThat(registry.get("security.jwt.revocation.size").gauge().value()).isEqualTo(1d);
+    }
+
+    private TokenRevocationList newRevocationList() throws Exception
+    {
+        final var list = new TokenRevocationList(this.propsService, this.securityProps);
+        list.afterPropertiesSet();
+        return list;
+    }
+
+    private Path journalFile()
+    {
+        return Path.of(this.securityProps.getRevocation().getStoreFile());
+    }
+
+    private static TokenClaims claims(final String pSubject, final String pTokenId, final long pIssuedAt)
+    {
+        return new TokenClaims(pSubject, pTokenId, List.of(), pIssuedAt, pIssuedAt + 60);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : VerifiedTokenCacheTest.java
+ * Date de création : 5 mars 2021
+ * Heure de création : 11:42:09
+ * Package : fr.vincent.tuto.server.security.jwt
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.security.jwt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import fr.vincent.tuto.server.config.props.ServerSecurityProps;
+import fr.vincent.tuto.server.enumeration.RoleEnum;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Classe des Tests Unitaires des objets de type {@link VerifiedTokenCache}
+ * 
+ * @author Vincent Otchoun
+ */
+class VerifiedTokenCacheTest
+{
+    private static final long NOW = 1_000_000L;
+
+    private VerifiedTokenCache tokenCache;
+
+    @BeforeEach
+    void setUp()
+    {
+        final var securityProps = new ServerSecurityProps();
+        securityProps.getTokenCache().setMaxEntries(2);
+        this.tokenCache = new VerifiedTokenCache(securityProps);
+    }
+
+    @Test
+    void testGet_ShouldExpireWithToken()
+    {
+        final var claims = new TokenClaims("user", null, List.of(RoleEnum.ROLE_USER), NOW, NOW + 10);
+        this.tokenCache.put("token-1", claims, NOW);
+
+        assertThat(this.tokenCache.get("token-1", NOW + 9)).isSameAs(claims);
+        assertThat(this.tokenCache.get("token-1", NOW + 10)).isNull();
+        assertThat(this.tokenCache.size()).isZero();
+    }
+
+    @Test
+    void testPut_ShouldBeBounded()
+    {
+        this.tokenCache.put("token-1", new TokenClaims("a", null, List.of(), NOW, NOW + 5), NOW);
+        this.tokenCache.put("token-2", new TokenClaims("b", null, List.of(), NOW, NOW + 10), NOW);
+        final var claims = new TokenClaims("c", null, List.of(), NOW, NOW + 10);
+        this.tokenCache.put("token-3", claims, NOW);
+
+        // Cache plein de jetons valides : le jeton qui expire le plus tôt est évincé.
+        assertThat(this.tokenCache.size()).isEqualTo(2);
+        assertThat(this.tokenCache.get("token-3", NOW)).isSameAs(claims);
+        assertThat(this.tokenCache.get("token-1", NOW)).isNull();
+        assertThat(this.tokenCache.get("token-2", NOW)).isNotNull();
+    }
+
+    @Test
+    void testPut_AfterBurst_ShouldKeepCaching()
+    {
+        final var securityProps = new ServerSecurityProps();
+        securityProps.getTokenCache().setMaxEntries(64);
+        this.tokenCache = new VerifiedTokenCache(securityProps);
+        for (int i = 0; i < 1000; i++)
+        {
+            this.tokenCache.put("burst-" + i, new TokenClaims("burst", null, List.of(), NOW, NOW + 3600), NOW);
+        }
+
+        for (int i = 0; i < 100; i++)
+        {
+            final var token = "token-" + i;
+            this.tokenCache.put(token, new TokenClaims("user", null, List.of(), NOW, NOW + 3600), NOW);
+            assertThat(this.tokenCache.get(token, NOW)).isNotNull();
+        }
+        assertThat(this.tokenCache.size()).isEqualTo(64);
+    }
+
+    @Test
+    void testInvalidate()
+    {
+        this.tokenCache.put("token-1", new TokenClaims("a", null, List.of(), NOW, NOW + 10), NOW);
+        this.tokenCache.invalidate("token-1");
+
+        assertThat(this.tokenCache.get("token-1", NOW)).isNull();
+    }
+
+    @Test
+    void testBindTo()
+    {
+        final var registry = new SimpleMeterRegistry();
+        this.tokenCache.bindTo(registry);
+        this.tokenCache.put("token-1", new TokenClaims("a", null, List.of(), NOW, NOW + 10), NOW);
+        this.tokenCache.get("token-1", NOW);
+        this.tokenCache.get("token-2", NOW);
+
+        assertThat(registry.get("security.jwt.cache.hit.ratio").gauge().value()).isEqualTo(0.5d);
+        assertThat(registry.get("security.jwt.cache.requests").tag("result", "hit").functionCounter().count()).isEqualTo(1d);
+    }
+}
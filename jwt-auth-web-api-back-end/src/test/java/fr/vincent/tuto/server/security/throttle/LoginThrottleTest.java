@@ -0,0 +1,236 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : LoginThrottleTest.java
+ * Date de création : 9 mars 2021
+ * Heure de création : 21:07:18
+ * Package : fr.vincent.tuto.server.security.throttle
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.security.throttle;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import fr.vincent.tuto.server.config.props.ServerSecurityProps;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Classe des Tests Unitaires des objets de type {@link LoginThrottle}
+ *
+ * @author Vincent Otchoun
+ */
+class LoginThrottleTest
+{
+    private static final String ADDRESS = "192.168.1.10";
+
+    private ServerSecurityProps securityProps;
+    private AtomicLong nanos;
+    private LoginThrottle loginThrottle;
+    private SimpleMeterRegistry meterRegistry;
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        this.securityProps = new ServerSecurityProps();
+        this.securityProps.getLoginThrottle().setSlots(1024);
+        this.securityProps.getLoginThrottle().setUsernameCapacity(3);
+        this.securityProps.getLoginThrottle().setUsernameRefillPerMinute(6);
+        this.securityProps.getLoginThrottle().setAddressCapacity(5);
+        this.securityProps.getLoginThrottle().setAddressRefillPerMinute(60);
+        this.nanos = new AtomicLong(123456789L);
+        this.loginThrottle = new LoginThrottle(this.securityProps, this.nanos::get);
+        this.meterRegistry = new SimpleMeterRegistry();
+        this.loginThrottle.bindTo(this.meterRegistry);
+    }
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @AfterEach
+    void tearDown() throws Exception
+    {
+        this.loginThrottle = null;
+    }
+
+    @Test
+    void testAcquire_Username()
+    {
+        for (int i = 0; i < 3; i++)
+        {
+            this.loginThrottle.acquire("admin", null);
+        }
+
+        // Sans distinction de casse : « Admin » partage les tentatives de « admin ».
+        assertThrows(LoginThrottledException.class, () -> this.loginThrottle.acquire("Admin", null));
+        assertDoesNotThrow(() -> this.loginThrottle.acquire("client", null));
+        assertThat(this.meterRegistry.get("security.login.throttle.rejected").tag("key", "username").counter().count()).isEqualTo(1.0);
+
+        // 6 tentatives regagnées par minute : une toutes les 10 secondes.
+        this.advance(TimeUnit.SECONDS.toNanos(9));
+        assertThrows(LoginThrottledException.class, () -> this.loginThrottle.acquire("admin", null));
+        this.advance(TimeUnit.SECONDS.toNanos(1));
+        assertDoesNotThrow(() -> this.loginThrottle.acquire("admin", null));
+        assertThrows(LoginThrottledException.class, () -> this.loginThrottle.acquire("admin", null));
+
+        // Le seau ne dépasse pas sa capacité.
+        this.advance(TimeUnit.HOURS.toNanos(1));
+        for (int i = 0; i < 3; i++)
+        {
+            this.loginThrottle.acquire("admin", null);
+        }
+        assertThrows(LoginThrottledException.class, () -> this.loginThrottle.acquire("admin", null));
+    }
+
+    @Test
+    void testAcquire_DenseAttempts()
+    {
+        this.securityProps.getLoginThrottle().setUsernameCapacity(10);
+        this.securityProps.getLoginThrottle().setUsernameRefillPerMinute(5);
+        final var throttle = new LoginThrottle(this.securityProps, this.nanos::get);
+
+        // Une tentative toutes les 10 ms pendant 10 minutes : moins qu'un millième de jeton regagné entre deux tentatives.
+        int allowed = 0;
+        for (int i = 0; i < 60000; i++)
+        {
+            try
+            {
+                throttle.acquire("admin", null);
+                allowed++;
+            }
+            catch (LoginThrottledException e)
+            {
+                // Tentative refusée.
+            }
+            this.advance(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+
+        // La capacité (10) puis 5 tentatives regagnées par minute : 49,999 jetons à la dernière tentative (599 990 ms).
+        assertThat(allowed).isEqualTo(59);
+    }
+
+    @Test
+    void testAcquire_Address()
+    {
+        for (int i = 0; i < 5; i++)
+        {
+            this.loginThrottle.acquire("user" + i, ADDRESS);
+        }
+
+        assertThrows(LoginThrottledException.class, () -> this.loginThrottle.acquire("other", ADDRESS));
+        assertDoesNotThrow(() -> this.loginThrottle.acquire("other", "10.0.0.1"));
+        assertThat(this.meterRegistry.get("security.login.throttle.rejected").tag("key", "address").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void testRelease()
+    {
+        // Les connexions réussies rendent leur jeton : seuls les échecs épuisent le seau.
+        for (int i = 0; i < 10; i++)
+        {
+            this.loginThrottle.acquire("admin", ADDRESS);
+            this.loginThrottle.release("admin", ADDRESS);
+        }
+
+        assertDoesNotThrow(() -> this.loginThrottle.acquire("admin", ADDRESS));
+    }
+
+    @Test
+    void testAcquire_UsernameThrottledKeepsAddressToken()
+    {
+        for (int i = 0; i < 3; i++)
+        {
+            this.loginThrottle.acquire("admin", "10.0.0." + i);
+        }
+        for (int i = 0; i < 10; i++)
+        {
+            assertThrows(LoginThrottledException.class, () -> this.loginThrottle.acquire("admin", ADDRESS));
+        }
+
+        // Les tentatives refusées pour le nom d'utilisateur ne consomment pas les tentatives de l'adresse.
+        for (int i = 0; i < 5; i++)
+        {
+            this.loginThrottle.acquire("client" + i, ADDRESS);
+        }
+    }
+
+    @Test
+    void testAcquire_Disabled()
+    {
+        this.securityProps.getLoginThrottle().setEnabled(false);
+        final var disabled = new LoginThrottle(this.securityProps, this.nanos::get);
+
+        for (int i = 0; i < 100; i++)
+        {
+            disabled.acquire("admin", ADDRESS);
+        }
+    }
+
+    @Test
+    void testAcquire_Concurrent() throws Exception
+    {
+        final int threads = 8;
+        final var executor = Executors.newFixedThreadPool(threads);
+        final var start = new CountDownLatch(1);
+        final var allowed = new AtomicInteger();
+        try
+        {
+            final var tasks = new ArrayList<Callable<Void>>();
+            for (int t = 0; t < threads; t++)
+            {
+                tasks.add(() -> {
+                    start.await();
+                    for (int i = 0; i < 100; i++)
+                    {
+                        try
+                        {
+                            this.loginThrottle.acquire("admin", null);
+                            allowed.incrementAndGet();
+                        }
+                        catch (LoginThrottledException e)
+                        {
+                            // Tentative refusée.
+                        }
+                    }
+                    return null;
+                });
+            }
+            final var futures = tasks.stream().map(executor::submit).toArray(java.util.concurrent.Future[]::new);
+            start.countDown();
+            for (final var future : futures)
+            {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        // Aucune tentative n'est accordée au-delà de la capacité (l'horloge est arrêtée).
+        assertThat(allowed.get()).isEqualTo(3);
+    }
+
+    private void advance(final long pNanos)
+    {
+        this.nanos.addAndGet(pNanos);
+    }
+}
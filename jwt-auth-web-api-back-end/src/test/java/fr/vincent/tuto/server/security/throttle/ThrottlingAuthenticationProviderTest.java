@@ -0,0 +1,110 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : ThrottlingAuthenticationProviderTest.java
+ * Date de création : 9 mars 2021
+ * Heure de création : 21:31:52
+ * Package : fr.vincent.tuto.server.security.throttle
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.security.throttle;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import fr.vincent.tuto.server.config.props.ServerSecurityProps;
+import fr.vincent.tuto.server.enumeration.RoleEnum;
+
+/**
+ * Classe des Tests Unitaires des objets de type {@link ThrottlingAuthenticationProvider}
+ *
+ * @author Vincent Otchoun
+ */
+class ThrottlingAuthenticationProviderTest
+{
+    private AuthenticationProvider delegate;
+    private ThrottlingAuthenticationProvider provider;
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        final var securityProps = new ServerSecurityProps();
+        securityProps.getLoginThrottle().setSlots(1024);
+        securityProps.getLoginThrottle().setUsernameCapacity(2);
+        this.delegate = mock(AuthenticationProvider.class);
+        this.provider = new ThrottlingAuthenticationProvider(this.delegate, new LoginThrottle(securityProps));
+    }
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @AfterEach
+    void tearDown() throws Exception
+    {
+        RequestContextHolder.resetRequestAttributes();
+        this.provider = null;
+    }
+
+    @Test
+    void testAuthenticate_FailuresThrottled()
+    {
+        final var request = new UsernamePasswordAuthenticationToken("admin", "bad");
+        when(this.delegate.authenticate(any())).thenThrow(new BadCredentialsException("bad"));
+
+        assertThrows(BadCredentialsException.class, () -> this.provider.authenticate(request));
+        assertThrows(BadCredentialsException.class, () -> this.provider.authenticate(request));
+        // Refusée avant le chargement de l'utilisateur et la comparaison du mot de passe.
+        assertThrows(LoginThrottledException.class, () -> this.provider.authenticate(request));
+        verify(this.delegate, times(2)).authenticate(any());
+    }
+
+    @Test
+    void testAuthenticate_SuccessReleases()
+    {
+        final var request = new UsernamePasswordAuthenticationToken("admin", "admin_19511982#");
+        final var authenticated = new UsernamePasswordAuthenticationToken("admin", "admin_19511982#", List.of(RoleEnum.ROLE_ADMIN));
+        when(this.delegate.authenticate(request)).thenReturn(authenticated);
+
+        for (int i = 0; i < 5; i++)
+        {
+            assertThat(this.provider.authenticate(request)).isSameAs(authenticated);
+        }
+    }
+
+    @Test
+    void testClientAddressOf()
+    {
+        final var httpRequest = new MockHttpServletRequest();
+        httpRequest.setRemoteAddr("10.0.0.7");
+        final var request = new UsernamePasswordAuthenticationToken("admin", "secret");
+
+        assertThat(ThrottlingAuthenticationProvider.clientAddressOf(request)).isNull();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(httpRequest));
+        assertThat(ThrottlingAuthenticationProvider.clientAddressOf(request)).isEqualTo("10.0.0.7");
+        request.setDetails(new WebAuthenticationDetails(new MockHttpServletRequest()));
+        assertThat(ThrottlingAuthenticationProvider.clientAddressOf(request)).isEqualTo("127.0.0.1");
+    }
+}
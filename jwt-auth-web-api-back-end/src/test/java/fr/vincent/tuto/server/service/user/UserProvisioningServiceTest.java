@@ -0,0 +1,250 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : UserProvisioningServiceTest.java
+ * Date de création : 9 mars 2021
+ * Heure de création : 22:46:08
+ * Package : fr.vincent.tuto.server.service.user
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.service.user;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import javax.validation.Validation;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import fr.vincent.tuto.server.config.cache.UserLookupCache;
+import fr.vincent.tuto.server.config.props.ServerSecurityProps;
+import fr.vincent.tuto.server.dao.UserBatchDAO;
+import fr.vincent.tuto.server.security.cache.UserDetailsCache;
+import fr.vincent.tuto.server.security.crypto.PasswordHasher;
+import fr.vincent.tuto.server.util.ServerUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Classe des Tests Unitaires des objets de type {@link UserProvisioningService}
+ *
+ * @author Vincent Otchoun
+ */
+class UserProvisioningServiceTest
+{
+    private static final String PASSWORD = "partner_19511982#";
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private ServerSecurityProps securityProps;
+    private PasswordHasher passwordHasher;
+    private UserBatchDAO userBatchDAO;
+    private UserProvisioningService provisioningService;
+    private SimpleMeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        this.database = new EmbeddedDatabaseBuilder()//
+        .generateUniqueName(true)//
+        .setType(EmbeddedDatabaseType.H2)//
+        .addScript("classpath:db/h2/create-test-h2.sql")//
+        .build();
+        this.jdbcTemplate = new JdbcTemplate(this.database);
+        this.jdbcTemplate.update("INSERT INTO T_USERS (ACCOUNT_EXPIRED, ACCOUNT_LOCKED, CREDENTIALS_EXPIRED, EMAIL, ENABLED, USER_PASSWORD, "
+        + "USER_NAME, ROLE_MASK) VALUES (FALSE, FALSE, FALSE, 'admin.test@live.fr', TRUE, 'x', 'admin', 2)");
+
+        this.securityProps = new ServerSecurityProps();
+        this.securityProps.getPasswordHashing().setTargetMillis(0);
+        this.securityProps.getPasswordHashing().setStrength(4);
+        this.securityProps.getUserProvisioning().setChunkSize(3);
+        this.securityProps.getUserProvisioning().setParallelism(2);
+        this.passwordHasher = new PasswordHasher(this.securityProps);
+        this.userBatchDAO = spy(new UserBatchDAO(this.database));
+        this.provisioningService = this.newService();
+    }
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @AfterEach
+    void tearDown() throws Exception
+    {
+        this.provisioningService.destroy();
+        this.passwordHasher.destroy();
+        this.database.shutdown();
+    }
+
+    @Test
+    void testProvision_Ndjson() throws Exception
+    {
+        final var input = String.join("\n", //
+        user("partner1", "partner1@live.fr", "\"ROLE_USER\""), //
+        user("partner2", "partner2@live.fr", "\"ROLE_USER\",\"ROLE_MODERATOR\""), //
+        user("PARTNER1", "other@live.fr", "\"ROLE_USER\""), // en double dans le flux (casse ignorée).
+        user("admin", "admin2@live.fr", "\"ROLE_USER\""), // déjà enregistré.
+        user("partner3", "not-an-email", "\"ROLE_USER\""), //
+        user("partner4", "partner4@live.fr", "\"ROLE_ROOT\""), //
+        "{\"username\":\"partner5\",\"roles\":{\"a\":1}}", // illisible.
+        user("partner6", "partner6@live.fr", "\"ROLE_ADMIN\""));
+
+        final var results = this.provision(input);
+
+        assertThat(results).extracting(node -> node.get("index").asInt(), node -> node.get("status").asText()).containsExactly(//
+        tuple(0, "CREATED"), tuple(1, "CREATED"), tuple(2, "DUPLICATE"), tuple(3, "DUPLICATE"), tuple(4, "INVALID"), tuple(5, "INVALID"),
+        tuple(6, "INVALID"), tuple(7, "CREATED"));
+        assertThat(results.get(0).has("message")).isFalse();
+        assertThat(results.get(0).get("username").asText()).isEqualTo("partner1");
+        assertThat(results.get(3).get("message").asText()).isEqualTo("Nom d'utilisateur déjà utilisé.");
+
+        assertThat(this.jdbcTemplate.queryForObject("SELECT COUNT(*) FROM T_USERS", Integer.class)).isEqualTo(4);
+        assertThat(this.jdbcTemplate.queryForObject("SELECT ROLE_MASK FROM T_USERS WHERE USER_NAME = 'partner2'", Integer.class)).isEqualTo(5);
+        final var password = this.jdbcTemplate.queryForObject("SELECT USER_PASSWORD FROM T_USERS WHERE USER_NAME = 'partner6'", String.class);
+        assertThat(new BCryptPasswordEncoder().matches(PASSWORD, password)).isTrue();
+        assertThat(this.meterRegistry.get("users.provisioning.rows").tag("status", "created").counter().count()).isEqualTo(3.0);
+        assertThat(this.meterRegistry.get("users.provisioning.rows").tag("status", "invalid").counter().count()).isEqualTo(3.0);
+    }
+
+    @Test
+    void testProvision_ExistingIgnoreCaseAndConstraints() throws Exception
+    {
+        final var input = String.join("\n", //
+        user("ADMIN", "admin3@live.fr", "\"ROLE_USER\""), // déjà enregistré (casse ignorée).
+        user("partner1", "Admin.Test@LIVE.fr", "\"ROLE_USER\""), // email déjà enregistré (casse ignorée).
+        user("partner2", "partner2@live.fr", "\"ROLE_ANONYMOUS\""), // rôle refusé par les contraintes du DTO.
+        "{\"username\":\"partner3\",\"password\":\"" + PASSWORD + "\",\"roles\":[\"ROLE_USER\"]}", // sans email.
+        user("partner4", "partner4@live.fr", "\"ROLE_USER\""));
+
+        final var results = this.provision(input);
+
+        assertThat(results).extracting(node -> node.get("status").asText(), node -> node.path("message").asText(null)).containsExactly(//
+        tuple("DUPLICATE", "Nom d'utilisateur déjà utilisé."), //
+        tuple("DUPLICATE", "Adresse email déjà utilisée."), //
+        tuple("INVALID", ServerUtil.USER_ROLE_TYPE_REGEX), //
+        tuple("INVALID", ServerUtil.EMAIL_VALIDATION_MSG), //
+        tuple("CREATED", null));
+        assertThat(this.jdbcTemplate.queryForObject("SELECT COUNT(*) FROM T_USERS", Integer.class)).isEqualTo(2);
+    }
+
+    @Test
+    void testProvision_JsonArrayAndMaxRows() throws Exception
+    {
+        this.securityProps.getUserProvisioning().setMaxRows(2);
+        this.provisioningService.destroy();
+        this.provisioningService = this.newService();
+
+        final var input = "[" + user("partner1", "partner1@live.fr", "\"ROLE_USER\"") + "," + user("partner2", "partner2@live.fr", "\"ROLE_USER\"")
+        + "," + user("partner3", "partner3@live.fr", "\"ROLE_USER\"") + "]";
+
+        final var results = this.provision(input);
+
+        assertThat(results).extracting(node -> node.get("status").asText()).containsExactly("CREATED", "CREATED", "REJECTED");
+        assertThat(this.jdbcTemplate.queryForObject("SELECT COUNT(*) FROM T_USERS", Integer.class)).isEqualTo(3);
+    }
+
+    @Test
+    void testProvision_MaxRows_ShouldStopReading() throws Exception
+    {
+        this.securityProps.getUserProvisioning().setMaxRows(1);
+        this.provisioningService.destroy();
+        this.provisioningService = this.newService();
+
+        // Le reste du flux n'est pas analysé : ni l'utilisateur illisible ni l'erreur de syntaxe ne sont signalés.
+        final var input = String.join("\n", //
+        user("partner1", "partner1@live.fr", "\"ROLE_USER\""), //
+        user("partner2", "partner2@live.fr", "\"ROLE_USER\""), //
+        "{\"username\":\"partner3\",\"roles\":{\"a\":1}}", //
+        "{\"username\":");
+
+        final var results = this.provision(input);
+
+        assertThat(results).extracting(node -> node.get("index").asInt(), node -> node.get("status").asText()).containsExactly(//
+        tuple(0, "CREATED"), tuple(1, "REJECTED"));
+        assertThat(results.get(1).has("username")).isFalse();
+        assertThat(this.meterRegistry.get("users.provisioning.rows").tag("status", "rejected").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void testProvision_BatchRefusedFallsBackToSingleInserts() throws Exception
+    {
+        // Utilisateur créé entre la vérification et l'insertion : le lot est refusé par la contrainte d'unicité.
+        doReturn(Set.of()).when(this.userBatchDAO).findExistingUsernames(anyCollection());
+
+        final var input = String.join("\n", //
+        user("partner1", "partner1@live.fr", "\"ROLE_USER\""), //
+        user("admin", "admin2@live.fr", "\"ROLE_USER\""), //
+        user("partner2", "partner2@live.fr", "\"ROLE_USER\""));
+
+        final var results = this.provision(input);
+
+        assertThat(results).extracting(node -> node.get("status").asText()).containsExactly("CREATED", "DUPLICATE", "CREATED");
+        assertThat(this.jdbcTemplate.queryForObject("SELECT COUNT(*) FROM T_USERS", Integer.class)).isEqualTo(3);
+    }
+
+    @Test
+    void testProvision_IntegrityViolation_ShouldNotBeReportedAsDuplicate() throws Exception
+    {
+        doThrow(new DataIntegrityViolationException("NULL not allowed for column")).when(this.userBatchDAO).insertAll(anyList());
+
+        final var results = this.provision(user("partner1", "partner1@live.fr", "\"ROLE_USER\""));
+
+        assertThat(results).extracting(node -> node.get("status").asText()).containsExactly("FAILED");
+    }
+
+    private UserProvisioningService newService()
+    {
+        final var service = new UserProvisioningService(this.passwordHasher, this.userBatchDAO, new UserDetailsCache(this.securityProps),
+        new UserLookupCache(100, 60), new DataSourceTransactionManager(this.database), this.objectMapper, Validation
+        .buildDefaultValidatorFactory().getValidator(), this.securityProps);
+        this.meterRegistry = new SimpleMeterRegistry();
+        service.bindTo(this.meterRegistry);
+        return service;
+    }
+
+    private List<JsonNode> provision(final String pInput) throws Exception
+    {
+        final var output = new ByteArrayOutputStream();
+        this.provisioningService.provision(new ByteArrayInputStream(pInput.getBytes(StandardCharsets.UTF_8)), output);
+
+        final List<JsonNode> results = new ArrayList<>();
+        for (final String line : output.toString(StandardCharsets.UTF_8).split("\n"))
+        {
+            results.add(this.objectMapper.readTree(line));
+        }
+        return results;
+    }
+
+    private static String user(final String pUsername, final String pEmail, final String pRoles)
+    {
+        return "{\"username\":\"" + pUsername + "\",\"password\":\"" + PASSWORD + "\",\"email\":\"" + pEmail + "\",\"roles\":[" + pRoles + "]}";
+    }
+}
@@ -43,10 +43,14 @@ import org.springframework.test.context.junit4.SpringRunner;
 import fr.vincent.tuto.common.exception.CustomAppException;
 import fr.vincent.tuto.common.service.props.DatabasePropsService;
 import fr.vincent.tuto.server.config.BackEndServerRootConfig;
+import fr.vincent.tuto.server.config.cache.UserLookupCache;
 import fr.vincent.tuto.server.config.db.PersistenceContextConfig;
 import fr.vincent.tuto.server.dao.UserDAO;
 import fr.vincent.tuto.server.enumeration.RoleEnum;
 import fr.vincent.tuto.server.model.po.User;
+import fr.vincent.tuto.server.security.cache.UserDetailsCache;
+import fr.vincent.tuto.server.security.jwt.RefreshTokenStore;
+import fr.vincent.tuto.server.security.jwt.TokenRevocationList;
 import fr.vincent.tuto.server.utils.TestsDataUtils;
 
 /**
@@ -69,6 +73,14 @@ class UserServiceTest
 
     @MockBean
     private UserDAO userDAO;
+    @MockBean
+    private TokenRevocationList tokenRevocationList;
+    @MockBean
+    private UserDetailsCache userDetailsCache;
+    @MockBean
+    private UserLookupCache userLookupCache;
+    @MockBean
+    private RefreshTokenStore refreshTokenStore;
     private UserService userService;
     private User user;
     private Set<RoleEnum> roles;
@@ -80,7 +92,7 @@ class UserServiceTest
     void setUp() throws Exception
     {
         // Instance du service utilisateur
-        this.userService = new UserService(this.userDAO);
+        this.userService = new UserService(this.userDAO, this.tokenRevocationList, this.userDetailsCache, this.userLookupCache, this.refreshTokenStore);
 
         // Création des droits de l'utilisateur
         this.roles = new HashSet<>();
@@ -117,6 +129,8 @@ class UserServiceTest
         assertThat(savedUser).isNotNull();
         TestsDataUtils.assertAllUser(mockUser, savedUser);
         verify(this.userDAO, times(1)).save(any(User.class));
+        verify(this.userDetailsCache, times(1)).evict(mockUser.getUsername(), mockUser.getEmail());
+        verify(this.userLookupCache, times(1)).evict(mockUser.getUsername(), mockUser.getEmail());
     }
 
     @Test
@@ -686,6 +700,10 @@ class UserServiceTest
 
         verify(this.userDAO, times(2)).findOneWithRolesById(any(Long.class));
         verify(this.userDAO, times(1)).delete(any(User.class));
+        verify(this.tokenRevocationList, times(1)).revokeSubject("test");
+        verify(this.refreshTokenStore, times(1)).revokeUser("test");
+        verify(this.userDetailsCache, times(1)).evict("test", user.getEmail());
+        verify(this.userLookupCache, times(1)).evict("test", user.getEmail());
     }
 
     @Test
@@ -742,7 +760,7 @@ class UserServiceTest
 
         final var id = user.getId();
         BDDMockito.given(this.userDAO.save(any(User.class))).willReturn(userToUpdated);
-        BDDMockito.given(this.userDAO.findOneWithRolesById(any(Long.class))).willReturn(Optional.of(userToUpdated));
+        BDDMockito.given(this.userDAO.findOneWithRolesById(any(Long.class))).willReturn(Optional.of(this.storedUser(userToUpdated)));
 
         final var userFromDB = this.userService.getWithRolesById(id);
         assertThat(userFromDB).isPresent();
@@ -754,6 +772,52 @@ class UserServiceTest
         assertThat(userToUpdated.getEnabled()).isFalse();
 
         verify(this.userDAO, times(2)).findOneWithRolesById(any(Long.class));
+        // Le compte est désactivé : ses jetons sont révoqués.
+        verify(this.tokenRevocationList, times(1)).revokeSubject("test");
+        verify(this.refreshTokenStore, times(1)).revokeUser("test");
+        // Entrées du nouvel état (création) et de l'état antérieur.
+        verify(this.userDetailsCache, times(1)).evict("test", "update.test@test.com");
+        verify(this.userDetailsCache, times(1)).evict("test", "test.test@live.fr");
+        verify(this.userLookupCache, times(1)).evict("test", "update.test@test.com");
+        verify(this.userLookupCache, times(1)).evict("test", "test.test@live.fr");
+    }
+
+    @Test
+    void testUpdateUser_WithEmailOnly_ShouldNotRevoke()
+    {
+        final var userToUpdated = this.user;
+        userToUpdated.setId(1L);
+        userToUpdated.setEnabled(Boolean.TRUE);
+        final var storedUser = this.storedUser(userToUpdated);
+        userToUpdated.setEmail("update.test@test.com");
+        BDDMockito.given(this.userDAO.save(any(User.class))).willReturn(userToUpdated);
+        BDDMockito.given(this.userDAO.findOneWithRolesById(any(Long.class))).willReturn(Optional.of(storedUser));
+
+        this.userService.updateUser(1L, userToUpdated);
+
+        verify(this.tokenRevocationList, Mockito.never()).revokeSubject(any());
+        verify(this.refreshTokenStore, Mockito.never()).revokeUser(any());
+        verify(this.userDetailsCache, times(1)).evict("test", "test.test@live.fr");
+
+        // Le changement des rôles invalide les jetons émis.
+        userToUpdated.setRoles(Set.of(RoleEnum.ROLE_USER));
+        this.userService.updateUser(1L, userToUpdated);
+
+        verify(this.tokenRevocationList, times(1)).revokeSubject("test");
+        verify(this.refreshTokenStore, times(1)).revokeUser("test");
+    }
+
+    /**
+     * Construire l'état enregistré de l'utilisateur avant sa mise à jour (compte actif).
+     */
+    private User storedUser(final User pUser)
+    {
+        final var storedUser = TestsDataUtils.createUserWithSet(new HashSet<>(this.roles), pUser.getUsername(), "test_19511982#",
+        "test.test@live.fr");
+        storedUser.setId(pUser.getId());
+        storedUser.setPassword(pUser.getPassword());
+        storedUser.setEnabled(Boolean.TRUE);
+        return storedUser;
     }
 
     @Test
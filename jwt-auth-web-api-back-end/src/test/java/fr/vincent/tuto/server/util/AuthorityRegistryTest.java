@@ -0,0 +1,88 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : AuthorityRegistryTest.java
+ * Date de création : 9 mars 2021
+ * Heure de création : 17:14:36
+ * Package : fr.vincent.tuto.server.util
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import fr.vincent.tuto.server.enumeration.RoleEnum;
+import fr.vincent.tuto.server.utils.TestsDataUtils;
+
+/**
+ * Classe des Tests Unitaires des objets de type {@link AuthorityRegistry}
+ *
+ * @author Vincent Otchoun
+ */
+class AuthorityRegistryTest
+{
+    @Test
+    void testAuthorities()
+    {
+        final Set<RoleEnum> roles = new HashSet<>(List.of(RoleEnum.ROLE_MODERATOR, RoleEnum.ROLE_USER));
+
+        final Set<GrantedAuthority> authorities = AuthorityRegistry.authorities(roles);
+
+        assertThat(authorities).containsExactly(RoleEnum.ROLE_USER, RoleEnum.ROLE_MODERATOR);
+        // Même combinaison de rôles : même collection.
+        assertThat(AuthorityRegistry.authorities(Set.of(RoleEnum.ROLE_USER, RoleEnum.ROLE_MODERATOR))).isSameAs(authorities);
+        assertThat(AuthorityRegistry.authorities(AuthorityRegistry.roleMask(roles))).isSameAs(authorities);
+        assertThat(AuthorityRegistry.authorities((Set<RoleEnum>) null)).isEmpty();
+        assertThat(AuthorityRegistry.authorities(AuthorityRegistry.ALL_ROLES_MASK)).hasSize(RoleEnum.values().length);
+        assertThat(AuthorityRegistry.authorities(-1)).isSameAs(AuthorityRegistry.authorities(AuthorityRegistry.ALL_ROLES_MASK));
+        assertThrows(UnsupportedOperationException.class, () -> authorities.add(RoleEnum.ROLE_ADMIN));
+    }
+
+    @Test
+    void testAuthorityNames()
+    {
+        final var names = AuthorityRegistry.authorityNames(Arrays.asList(RoleEnum.ROLE_ADMIN, null, RoleEnum.ROLE_USER));
+
+        assertThat(names).containsExactly("ROLE_USER", "ROLE_ADMIN");
+        assertThat(AuthorityRegistry.authorityNames(Set.of(RoleEnum.ROLE_ADMIN, RoleEnum.ROLE_USER))).isSameAs(names);
+    }
+
+    @Test
+    void testRoleMaskOf()
+    {
+        assertThat(AuthorityRegistry.roleMaskOf(List.of(RoleEnum.ROLE_ADMIN, new SimpleGrantedAuthority("ROLE_USER")))).isEqualTo(3);
+        assertThat(AuthorityRegistry.roleMaskOf(List.of(RoleEnum.ROLE_ADMIN, new SimpleGrantedAuthority("SCOPE_read")))).isEqualTo(-1);
+        assertThat(AuthorityRegistry.roleOf("ROLE_MODERATOR")).isSameAs(RoleEnum.ROLE_MODERATOR);
+        assertThat(AuthorityRegistry.roleOf(null)).isNull();
+        assertThat(AuthorityRegistry.roles(5)).containsExactly(RoleEnum.ROLE_USER, RoleEnum.ROLE_MODERATOR);
+    }
+
+    @Test
+    void testCreateSpringSecurityUser_SharedAuthorities()
+    {
+        final var admin = TestsDataUtils.createUserWithSet(Set.of(RoleEnum.ROLE_ADMIN, RoleEnum.ROLE_USER), "admin", "admin_19511982#",
+        "admin.test@live.fr");
+        final var other = TestsDataUtils.createUserWithSet(Set.of(RoleEnum.ROLE_USER, RoleEnum.ROLE_ADMIN), "other", "other_19511982#",
+        "other.test@live.fr");
+
+        final var adminDetails = ServerUtil.createSpringSecurityUser("admin", admin);
+        final var otherDetails = ServerUtil.createSpringSecurityUser("other", other);
+
+        assertThat(adminDetails.getAuthorities()).extracting("authority").containsExactly("ROLE_ADMIN", "ROLE_USER");
+        // Les autorités sont les rôles eux-mêmes : aucune autorité n'est allouée par utilisateur.
+        assertThat(adminDetails.getAuthorities()).allSatisfy(authority -> assertThat(authority).isInstanceOf(RoleEnum.class));
+        assertThat(otherDetails.getAuthorities()).zipSatisfy(adminDetails.getAuthorities(), (left, right) -> assertThat(left).isSameAs(right));
+    }
+}
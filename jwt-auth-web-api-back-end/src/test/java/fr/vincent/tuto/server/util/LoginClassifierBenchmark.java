@@ -0,0 +1,86 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : LoginClassifierBenchmark.java
+ * Date de création : 9 mars 2021
+ * Heure de création : 16:21:47
+ * Package : fr.vincent.tuto.server.util
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import org.hibernate.validator.internal.constraintvalidators.hv.EmailValidator;
+
+/**
+ * Micro-benchmark de la classification des identifiants de connexion : {@link LoginClassifier} comparé au validateur
+ * d'email de Hibernate instancié à chaque appel, comme le faisait le chargement des utilisateurs. Il est exécuté à la
+ * demande (méthode main) sur un seul thread ; chaque mesure est précédée d'une phase de chauffe égale au quart de sa
+ * durée. Les identifiants mesurés mêlent emails, noms d'utilisateur et identifiants hostiles.
+ *
+ * @author Vincent Otchoun
+ */
+public final class LoginClassifierBenchmark
+{
+    //
+    private static final String[] LOGINS = { "admin", "admin.test@live.fr", "Client2.Test@Live.FR", "moderateur_19511982",
+            "' OR 1=1 --", "a@b", "x".repeat(64) + "@example.com", "émilie.dupont@exemple.fr" };
+    private static final long DURATION_MILLIS = 2000;
+
+    private LoginClassifierBenchmark()
+    {
+        // Classe utilitaire.
+    }
+
+    /**
+     * Mesurer et afficher le débit des deux classifications.
+     *
+     * @param pArgs la durée de mesure en millisecondes (facultative).
+     */
+    public static void main(final String[] pArgs)
+    {
+        final long durationNanos = TimeUnit.MILLISECONDS.toNanos(pArgs.length > 0 ? Long.parseLong(pArgs[0]) : DURATION_MILLIS);
+        final Predicate<String> hibernate = login -> new EmailValidator().isValid(login, null);
+        final Predicate<String> classifier = LoginClassifier::isEmail;
+
+        measure(hibernate, durationNanos / 4);
+        final double hibernateOpsPerSecond = measure(hibernate, durationNanos);
+        measure(classifier, durationNanos / 4);
+        final double classifierOpsPerSecond = measure(classifier, durationNanos);
+
+        System.out.printf("EmailValidator (par appel) : %,.0f op/s%n", hibernateOpsPerSecond);
+        System.out.printf("LoginClassifier            : %,.0f op/s (x%.1f)%n", classifierOpsPerSecond, classifierOpsPerSecond
+        / hibernateOpsPerSecond);
+    }
+
+    private static double measure(final Predicate<String> pIsEmail, final long pDurationNanos)
+    {
+        final long start = System.nanoTime();
+        long elapsed;
+        long operations = 0;
+        int emails = 0;
+        do
+        {
+            for (final String login : LOGINS)
+            {
+                if (pIsEmail.test(login))
+                {
+                    emails++;
+                }
+            }
+            operations += LOGINS.length;
+            elapsed = System.nanoTime() - start;
+        }
+        while (elapsed < pDurationNanos);
+        // Le résultat est consommé pour que la classification ne soit pas éliminée par le compilateur JIT.
+        if (emails < 0)
+        {
+            throw new IllegalStateException();
+        }
+        return operations * 1e9 / elapsed;
+    }
+}
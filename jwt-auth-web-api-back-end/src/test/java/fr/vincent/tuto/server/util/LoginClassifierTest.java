@@ -0,0 +1,92 @@
+/*
+ * ----------------------------------------------
+ * Projet ou Module : jwt-auth-web-api-back-end
+ * Nom de la classe : LoginClassifierTest.java
+ * Date de création : 9 mars 2021
+ * Heure de création : 15:58:12
+ * Package : fr.vincent.tuto.server.util
+ * Auteur : Vincent Otchoun
+ * Copyright © 2021 - All rights reserved.
+ * ----------------------------------------------
+ */
+package fr.vincent.tuto.server.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import fr.vincent.tuto.server.utils.TestsDataUtils;
+
+/**
+ * Classe des Tests Unitaires des objets de type {@link LoginClassifier}
+ *
+ * @author Vincent Otchoun
+ */
+class LoginClassifierTest
+{
+    // Caractères tirés par le test de propriété : ceux des noms d'utilisateur, ceux de la partie locale des emails, et
+    // tous les séparateurs avec quelques caractères refusés par les deux grammaires (espace, accent, demi-caractère
+    // hors du plan multilingue de base).
+    private static final String[] ALPHABETS = { "aZ09_-.@", "aZ09_-.!#$%&'*+/=?`{|}~^", "aZ09_-.@.@!#$%&'*+/=?`{|}~^ é😀" };
+    private static final int SAMPLES = 200000;
+
+    @Test
+    void testClassify()
+    {
+        assertThat(LoginClassifier.classify(TestsDataUtils.ADMIN_EMAIL_LOWER)).isEqualTo(LoginClassifier.Kind.EMAIL);
+        assertThat(LoginClassifier.classify("O'Brien+tag@mail.Example-1.com")).isEqualTo(LoginClassifier.Kind.EMAIL);
+        assertThat(LoginClassifier.classify("admin")).isEqualTo(LoginClassifier.Kind.USERNAME);
+        assertThat(LoginClassifier.classify("admin2.test.live.fr")).isEqualTo(LoginClassifier.Kind.USERNAME);
+        // Domaine de premier niveau trop long, numérique ou absent.
+        assertThat(LoginClassifier.classify("admin@live.company")).isEqualTo(LoginClassifier.Kind.USERNAME);
+        assertThat(LoginClassifier.classify("admin@live.f1")).isEqualTo(LoginClassifier.Kind.USERNAME);
+        assertThat(LoginClassifier.classify("admin@localhost")).isEqualTo(LoginClassifier.Kind.USERNAME);
+        assertThat(LoginClassifier.classify("admin..test@live.fr")).isEqualTo(LoginClassifier.Kind.USERNAME);
+        assertThat(LoginClassifier.classify("admin@live..fr")).isEqualTo(LoginClassifier.Kind.USERNAME);
+        assertThat(LoginClassifier.classify("")).isEqualTo(LoginClassifier.Kind.USERNAME);
+        assertThat(LoginClassifier.classify("' OR 1=1 --")).isEqualTo(LoginClassifier.Kind.INVALID);
+        assertThat(LoginClassifier.classify("émilie")).isEqualTo(LoginClassifier.Kind.INVALID);
+        assertThat(LoginClassifier.classify(null)).isEqualTo(LoginClassifier.Kind.INVALID);
+        assertThat(LoginClassifier.isEmail(TestsDataUtils.USER_TWO_EMAIL)).isTrue();
+    }
+
+    /**
+     * Test de propriété : sur des identifiants aléatoires, la classification est celle des expressions régulières
+     * {@link ServerUtil#EMAIL_REGEX} et {@link ServerUtil#LOGIN_REGEX}.
+     */
+    @Test
+    void testClassify_AgreesWithRegex()
+    {
+        final var random = new Random(20210309L);
+        final var builder = new StringBuilder();
+        for (int i = 0; i < SAMPLES; i++)
+        {
+            builder.setLength(0);
+            final var alphabet = ALPHABETS[random.nextInt(ALPHABETS.length)];
+            final int length = random.nextInt(16);
+            for (int j = 0; j < length; j++)
+            {
+                builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            // Une partie des identifiants est construite comme un email pour couvrir les deux classes.
+            if (random.nextBoolean())
+            {
+                builder.append('@').append(random.nextBoolean() ? "live." : "live.0-").append("frcomz", 0, random.nextInt(7));
+            }
+            final var login = builder.toString();
+
+            assertThat(LoginClassifier.classify(login)).as(login).isEqualTo(expected(login));
+        }
+    }
+
+    private static LoginClassifier.Kind expected(final String pLogin)
+    {
+        if (ServerUtil.EMAI_PATTERN.matcher(pLogin).matches())
+        {
+            return LoginClassifier.Kind.EMAIL;
+        }
+        return ServerUtil.LOGIN_PATTERN.matcher(pLogin).matches() ? LoginClassifier.Kind.USERNAME : LoginClassifier.Kind.INVALID;
+    }
+}
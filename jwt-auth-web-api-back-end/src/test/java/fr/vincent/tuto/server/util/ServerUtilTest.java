@@ -59,6 +59,24 @@ class ServerUtilTest
         assertThat(user.isEnabled()).isTrue();
     }
 
+    @Test
+    void testCreateSpringSecurityUser_Locked()
+    {
+        final Set<RoleEnum> moderateurSet = new HashSet<>();
+        moderateurSet.add(RoleEnum.valueOf(RoleEnum.ROLE_USER.getAuthority()));
+
+        final User moderateur = TestsDataUtils.createUserWithSet(moderateurSet, "moderateur", "moderateur_19511982#", "moderateur.test@live.fr");
+        moderateur.setEnabled(Boolean.TRUE);
+        moderateur.setAccountLocked(Boolean.TRUE);
+        moderateur.setCredentialsExpired(Boolean.TRUE);
+
+        final var user = ServerUtil.createSpringSecurityUser("moderateur", moderateur);
+
+        assertThat(user.isAccountNonLocked()).isFalse();
+        assertThat(user.isCredentialsNonExpired()).isFalse();
+        assertThat(user.isAccountNonExpired()).isTrue();
+    }
+
     @Test
     void testCreateSpringSecurityUser_Inactive()
     {
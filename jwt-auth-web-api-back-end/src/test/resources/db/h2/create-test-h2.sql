@@ -81,16 +81,11 @@ CREATE TABLE IF NOT EXISTS T_USERS (
 	USER_PASSWORD VARCHAR (60) NOT NULL,
 	UPDATED_TIME TIMESTAMP,
 	USER_NAME VARCHAR (80) NOT NULL,
+	ROLE_MASK INTEGER NOT NULL DEFAULT '0',
 	OPTLOCK INTEGER NOT NULL DEFAULT '0',
 	PRIMARY KEY (ID)
 );
 
--- Création de la table USERS_ROLES
-CREATE TABLE IF NOT EXISTS USER_ROLES (
-	USER_ID BIGINT NOT NULL,
- 	ROLES INTEGER
-);
-
 -- Contrainte unicité de l'adresse électronique
 ALTER TABLE T_USERS 
 	ADD CONSTRAINT UK_kbdgs6v1gu1pcoq5u9ohje6ep UNIQUE (EMAIL);
@@ -99,8 +94,17 @@ ALTER TABLE T_USERS
 ALTER TABLE T_USERS 
 	ADD CONSTRAINT UK_srr913w7behdj71hcwtde381p UNIQUE (USER_NAME);
 	
--- Contrainte de la clé étrangère dans la table USERS_ROLES
-ALTER TABLE USER_ROLES 
-	ADD CONSTRAINT FKs6y4k5lgw4a4ei5lj2u2ibkh5 
-		FOREIGN KEY (USER_ID) 
-		REFERENCES T_USERS(ID);
+-- Création de la table T_REFRESH_TOKENS
+CREATE TABLE IF NOT EXISTS T_REFRESH_TOKENS (
+	FAMILY_ID VARCHAR (32) NOT NULL,
+	USER_NAME VARCHAR (80) NOT NULL,
+	TOKEN_HASH VARCHAR (64) NOT NULL,
+	GENERATION INTEGER NOT NULL,
+	ISSUED_AT BIGINT NOT NULL,
+	EXPIRES_AT BIGINT NOT NULL,
+	REVOKED BOOLEAN NOT NULL,
+	OPTLOCK INTEGER NOT NULL DEFAULT '0',
+	PRIMARY KEY (FAMILY_ID)
+);
+-- Index de purge des familles expirées
+CREATE INDEX IF NOT EXISTS IDX_REFRESH_TOKENS_EXPIRES_AT ON T_REFRESH_TOKENS (EXPIRES_AT);
@@ -52,22 +52,11 @@ VALUES
 	(15, 25); 
 
 /* Insertion dans la table T_USERS  */
-MERGE INTO T_USERS (ID, ACCOUNT_EXPIRED, ACCOUNT_LOCKED, CREATED_TIME, CREDENTIALS_EXPIRED, EMAIL, ENABLED, USER_PASSWORD, UPDATED_TIME, USER_NAME, OPTLOCK) 
+MERGE INTO T_USERS (ID, ACCOUNT_EXPIRED, ACCOUNT_LOCKED, CREATED_TIME, CREDENTIALS_EXPIRED, EMAIL, ENABLED, USER_PASSWORD, UPDATED_TIME, USER_NAME, OPTLOCK, ROLE_MASK) 
 VALUES
-	(26, 'FALSE', 'FALSE', '2021-01-30 07:45:05', 'FALSE', 'admin.test@live.fr', 'TRUE', '$2a$12$CIPU5xUUyhaipN0RL6M50OHwsT60.Pboat.mOQJOu/rKQksl5ihIe', NULL, 'admin', 0), -- mot de passe non chiffré: admin_19511982#
-	(27, 'FALSE', 'FALSE', '2021-01-30 07:45:06', 'FALSE', 'client.test@live.fr', 'TRUE', '$2a$12$rx8JKgq0FrEaXkn0/nAoy.FTip9iHB47wb5swt9vfws6TuqcgPz2u', NULL, 'client', 0), -- mot de passe non chiffré: client_19511982#
-	(28, 'FALSE', 'FALSE', '2021-01-30 07:45:06', 'FALSE', 'client1.test@live.fr', 'TRUE', '$2a$12$qoa6fQU9AxSYn9VNAnf72OCCmKWFRny2emdbY8F878L3lOBNiR2ja', NULL, 'client1', 0), -- mot de passe non chiffré: client1_19511982#
-	(29, 'FALSE', 'FALSE', '2021-01-30 07:45:06', 'FALSE', 'client2.test@live.fr', 'TRUE', '$2a$12$5/f7q/d/K/tZtG494/DHDOMl4BBNOEKMT19xOD1gAbXikUZfOy2oa', NULL, 'client2', 0), -- mot de passe non chiffré: client2_19511982#
-	(30, 'FALSE', 'FALSE', '2021-01-30 07:45:06', 'FALSE', 'client3.test@live.fr', 'TRUE', '$2a$12$Iq.lT0KuQ.wrmzSELaHmEu16PWTYfyqTEzLxC4BaU8IOZlar6EQH6', NULL, 'client3', 0), -- mot de passe non chiffré: client3_19511982#
-	(31, 'FALSE', 'FALSE', '2021-01-30 07:45:06', 'FALSE', 'moderateur.test@live.fr', 'TRUE', '$2a$12$CpVH0m57F8icGafRWOL0Du2C4IZ9iZ7qn83WgU4qrNZf67YhFcmmW', NULL, 'moderateur', 0); -- mot de passe non chiffré: moderateur_19511982#
-
-/* Insertion dans la table USER_ROLES  	*/
-INSERT INTO USER_ROLES (USER_ID, ROLES) 
-VALUES
-	(26, 1), -- role admin
-	(27, 0), -- role user
-	(28, 0),
-	(29, 0),
-	(30, 0),
-	(31, 0), -- role moderateur
-	(31, 2); 
\ No newline at end of file
+	(26, 'FALSE', 'FALSE', '2021-01-30 07:45:05', 'FALSE', 'admin.test@live.fr', 'TRUE', '$2a$12$CIPU5xUUyhaipN0RL6M50OHwsT60.Pboat.mOQJOu/rKQksl5ihIe', NULL, 'admin', 0, 2), -- mot de passe non chiffré: admin_19511982#
+	(27, 'FALSE', 'FALSE', '2021-01-30 07:45:06', 'FALSE', 'client.test@live.fr', 'TRUE', '$2a$12$rx8JKgq0FrEaXkn0/nAoy.FTip9iHB47wb5swt9vfws6TuqcgPz2u', NULL, 'client', 0, 1), -- mot de passe non chiffré: client_19511982#
+	(28, 'FALSE', 'FALSE', '2021-01-30 07:45:06', 'FALSE', 'client1.test@live.fr', 'TRUE', '$2a$12$qoa6fQU9AxSYn9VNAnf72OCCmKWFRny2emdbY8F878L3lOBNiR2ja', NULL, 'client1', 0, 1), -- mot de passe non chiffré: client1_19511982#
+	(29, 'FALSE', 'FALSE', '2021-01-30 07:45:06', 'FALSE', 'client2.test@live.fr', 'TRUE', '$2a$12$5/f7q/d/K/tZtG494/DHDOMl4BBNOEKMT19xOD1gAbXikUZfOy2oa', NULL, 'client2', 0, 1), -- mot de passe non chiffré: client2_19511982#
+	(30, 'FALSE', 'FALSE', '2021-01-30 07:45:06', 'FALSE', 'client3.test@live.fr', 'TRUE', '$2a$12$Iq.lT0KuQ.wrmzSELaHmEu16PWTYfyqTEzLxC4BaU8IOZlar6EQH6', NULL, 'client3', 0, 1), -- mot de passe non chiffré: client3_19511982#
+	(31, 'FALSE', 'FALSE', '2021-01-30 07:45:06', 'FALSE', 'moderateur.test@live.fr', 'TRUE', '$2a$12$CpVH0m57F8icGafRWOL0Du2C4IZ9iZ7qn83WgU4qrNZf67YhFcmmW', NULL, 'moderateur', 0, 5); -- mot de passe non chiffré: moderateur_19511982#
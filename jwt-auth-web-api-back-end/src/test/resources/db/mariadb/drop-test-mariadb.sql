@@ -17,6 +17,7 @@ DROP TABLE IF EXISTS T_PRODUCTS CASCADE;
  -- Suppression de la table T_USERS et éléments rattachés
 DROP TABLE IF EXISTS T_USERS CASCADE; 
 DROP TABLE IF EXISTS USER_ROLES CASCADE; 
+DROP TABLE IF EXISTS T_REFRESH_TOKENS CASCADE; 
 
 -- Suprression de la séquence hibernate
 DROP TABLE IF EXISTS HIBERNATE_SEQUENCE;
@@ -17,6 +17,7 @@ DROP TABLE IF EXISTS T_PRODUCTS CASCADE;
  -- Suppression de la table T_USERS et éléments rattachés
 DROP TABLE IF EXISTS T_USERS CASCADE; 
 DROP TABLE IF EXISTS USER_ROLES CASCADE; 
+DROP TABLE IF EXISTS T_REFRESH_TOKENS CASCADE; 
 
 -- Suprression de la séquence hibernate
 DROP SEQUENCE IF EXISTS HIBERNATE_SEQUENCE;
@@ -93,16 +94,11 @@ CREATE TABLE IF NOT EXISTS T_USERS (
 	USER_PASSWORD VARCHAR(60) NOT NULL,
 	UPDATED_TIME TIMESTAMP,
 	USER_NAME VARCHAR(80) NOT NULL,
+	ROLE_MASK INT4 NOT NULL DEFAULT '0',
 	OPTLOCK INTEGER NOT NULL DEFAULT '0',
 	PRIMARY KEY (ID)
 );
 
--- Création de la table USERS_ROLES
-CREATE TABLE IF NOT EXISTS USER_ROLES (
-	USER_ID INT8 NOT NULL,
-	ROLES INT4
-);
-
 -- Contrainte unicité de l'adresse électronique
 ALTER TABLE T_USERS 
 	ADD CONSTRAINT UK_kbdgs6v1gu1pcoq5u9ohje6ep UNIQUE (EMAIL);
@@ -111,8 +107,17 @@ ALTER TABLE T_USERS
 ALTER TABLE T_USERS 
 	ADD CONSTRAINT UK_srr913w7behdj71hcwtde381p UNIQUE (USER_NAME);
 	
--- Contrainte de la clé étrangère dans la table USERS_ROLES
-ALTER TABLE USER_ROLES 
-	ADD CONSTRAINT FKs6y4k5lgw4a4ei5lj2u2ibkh5 
-		FOREIGN KEY (USER_ID) 
-		REFERENCES T_USERS;
+-- Création de la table T_REFRESH_TOKENS
+CREATE TABLE T_REFRESH_TOKENS (
+	FAMILY_ID VARCHAR(32) NOT NULL,
+	USER_NAME VARCHAR(80) NOT NULL,
+	TOKEN_HASH VARCHAR(64) NOT NULL,
+	GENERATION INTEGER NOT NULL,
+	ISSUED_AT INT8 NOT NULL,
+	EXPIRES_AT INT8 NOT NULL,
+	REVOKED BOOLEAN NOT NULL,
+	OPTLOCK INTEGER NOT NULL DEFAULT '0',
+	PRIMARY KEY (FAMILY_ID)
+);
+-- Index de purge des familles expirées
+CREATE INDEX IF NOT EXISTS IDX_REFRESH_TOKENS_EXPIRES_AT ON T_REFRESH_TOKENS (EXPIRES_AT);